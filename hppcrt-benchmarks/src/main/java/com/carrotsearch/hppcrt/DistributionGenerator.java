@@ -66,6 +66,13 @@ public class DistributionGenerator
      */
     public final Generator HIGHBITS;
 
+    /**
+     * Generate Zipf-distributed numbers of exponent 1 between [initValue; initValue + targetSize[,
+     * initValue being the most frequent, then initValue + 1, and so on, as the keys of a cache workload.
+     * (rejection-inversion sampling of W. Hörmann and G. Derflinger, 1996)
+     */
+    public final Generator ZIPF;
+
     /**
      * List of generators
      * @param args
@@ -223,7 +230,101 @@ public class DistributionGenerator
             }
         };
 
-        this.GENERATORS = new Generator[] { this.RANDOM, this.LINEAR, this.RAND_INCREMENT, this.LINEAR_DECREMENT, this.RAND_DECREMENT, this.HIGHBITS };
+        this.ZIPF = new Generator() {
+
+            long counter = 0;
+
+            final double exponent = 1.0;
+
+            final double hIntegralX1 = hIntegral(1.5) - 1.0;
+            final double hIntegralNumberOfElements = hIntegral(DistributionGenerator.this.targetSize + 0.5);
+            final double s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+
+            @Override
+            public int getNext()
+            {
+                this.counter++;
+
+                final int n = DistributionGenerator.this.targetSize;
+
+                while (true) {
+
+                    final double u = this.hIntegralNumberOfElements + DistributionGenerator.this.prng.nextDouble() * (this.hIntegralX1 - this.hIntegralNumberOfElements);
+                    final double x = hIntegralInverse(u);
+
+                    int k = (int) (x + 0.5);
+
+                    if (k < 1) {
+                        k = 1;
+                    }
+                    else if (k > n) {
+                        k = n;
+                    }
+
+                    if (k - x <= this.s || u >= hIntegral(k + 0.5) - h(k)) {
+
+                        return (int) (DistributionGenerator.this.initValue + k - 1);
+                    }
+                }
+            }
+
+            /**
+             * H(x), integral of h(x) = x^(-exponent), with H(1) = 0
+             */
+            private double hIntegral(final double x) {
+
+                final double logX = Math.log(x);
+                return helper2((1.0 - this.exponent) * logX) * logX;
+            }
+
+            private double h(final double x) {
+
+                return Math.exp(-this.exponent * Math.log(x));
+            }
+
+            private double hIntegralInverse(final double x) {
+
+                double t = x * (1.0 - this.exponent);
+
+                if (t < -1.0) {
+                    t = -1.0;
+                }
+
+                return Math.exp(helper1(t) * x);
+            }
+
+            /**
+             * log(1 + x) / x, continuous at 0
+             */
+            private double helper1(final double x) {
+
+                if (Math.abs(x) > 1e-8) {
+                    return Math.log1p(x) / x;
+                }
+
+                return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+            }
+
+            /**
+             * (exp(x) - 1) / x, continuous at 0
+             */
+            private double helper2(final double x) {
+
+                if (Math.abs(x) > 1e-8) {
+                    return Math.expm1(x) / x;
+                }
+
+                return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+            }
+
+            @Override
+            public String toString() {
+
+                return "Generator(ZIPF, counter = " + this.counter + ")";
+            }
+        };
+
+        this.GENERATORS = new Generator[] { this.RANDOM, this.LINEAR, this.RAND_INCREMENT, this.LINEAR_DECREMENT, this.RAND_DECREMENT, this.HIGHBITS, this.ZIPF };
     }
 
     private static void testGenerators(final long initValue, final int size, final long prngSeed, final int nbValuesToGenerate) {
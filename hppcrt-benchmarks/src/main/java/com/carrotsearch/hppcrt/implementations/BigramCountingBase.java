@@ -13,18 +13,161 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.carrotsearch.hppcrt.maps.BytesIntHashMap;
 import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.ObjectIntHashMap;
 
 public class BigramCountingBase
 {
     /* Prepare some test data */
     public char[] data;
 
+    /* The same data, as UTF-8 bytes */
+    public byte[] utf8;
+
     public void prepareData() throws IOException, URISyntaxException
     {
         final URI resTXT = ClassLoader.getSystemResource("books-polish.txt").toURI();
 
-        this.data = new String(Files.readAllBytes(Paths.get(resTXT)), StandardCharsets.UTF_8).toCharArray();
+        this.utf8 = Files.readAllBytes(Paths.get(resTXT));
+        this.data = new String(this.utf8, StandardCharsets.UTF_8).toCharArray();
+    }
+
+    /**
+     * Words are separated by ASCII non-alphanumeric chars, so that both
+     * the char[] and UTF-8 byte[] data split in the same words.
+     */
+    private static boolean isSeparator(final int c)
+    {
+        return c < 128 && !Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * A reusable window over a char[], to look-up words with no allocation.
+     */
+    private static final class CharSlice implements CharSequence
+    {
+        private final char[] chars;
+        private int start;
+        private int length;
+
+        public CharSlice(final char[] chars)
+        {
+            this.chars = chars;
+        }
+
+        public CharSlice reset(final int start, final int length)
+        {
+            this.start = start;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length()
+        {
+            return this.length;
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            return this.chars[this.start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end)
+        {
+            return new String(this.chars, this.start + start, end - start);
+        }
+
+        @Override
+        public String toString()
+        {
+            return new String(this.chars, this.start, this.length);
+        }
+    }
+
+    /**
+     * Count words as Strings in a ObjectIntHashMap: a String object, and its hashCode computation, for each word.
+     */
+    public int hppcWordsString()
+    {
+        final char[] CHARS = this.data;
+        final ObjectIntHashMap<String> map = new ObjectIntHashMap<String>();
+
+        int count = 0;
+        int start = 0;
+
+        for (int i = 0; i <= CHARS.length; i++)
+        {
+            if (i == CHARS.length || BigramCountingBase.isSeparator(CHARS[i]))
+            {
+                if (i > start)
+                {
+                    count += map.addTo(new String(CHARS, start, i - start), 1);
+                }
+
+                start = i + 1;
+            }
+        }
+
+        return count + map.size();
+    }
+
+    /**
+     * Count words as slices of the UTF-8 data in a BytesIntHashMap, allocating nothing per word.
+     */
+    public int hppcWordsBytes()
+    {
+        final byte[] BYTES = this.utf8;
+        final BytesIntHashMap map = new BytesIntHashMap();
+
+        int count = 0;
+        int start = 0;
+
+        for (int i = 0; i <= BYTES.length; i++)
+        {
+            if (i == BYTES.length || BigramCountingBase.isSeparator(BYTES[i] & 0xFF))
+            {
+                if (i > start)
+                {
+                    count += map.addTo(BYTES, start, i - start, 1);
+                }
+
+                start = i + 1;
+            }
+        }
+
+        return count + map.size();
+    }
+
+    /**
+     * Count words as CharSequence slices of the char[] data in a BytesIntHashMap, allocating nothing per word.
+     */
+    public int hppcWordsChars()
+    {
+        final char[] CHARS = this.data;
+        final BytesIntHashMap map = new BytesIntHashMap();
+        final CharSlice slice = new CharSlice(CHARS);
+
+        int count = 0;
+        int start = 0;
+
+        for (int i = 0; i <= CHARS.length; i++)
+        {
+            if (i == CHARS.length || BigramCountingBase.isSeparator(CHARS[i]))
+            {
+                if (i > start)
+                {
+                    count += map.addTo(slice.reset(start, i - start), 1);
+                }
+
+                start = i + 1;
+            }
+        }
+
+        return count + map.size();
     }
 
     public int hppc()
@@ -1,5 +1,9 @@
 package com.carrotsearch.hppcrt.implementations;
 
+import com.carrotsearch.hppcrt.strategies.IntBitMixerHashingStrategy;
+import com.carrotsearch.hppcrt.strategies.IntIdentityHashingStrategy;
+import com.carrotsearch.hppcrt.strategies.IntPhiMixHashingStrategy;
+
 /**
  * 
  */
@@ -14,6 +18,51 @@ public enum HashMapImplementations
         }
     },
 
+    HPPCRT_INT_INT_BITMIXER
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtIntIntMap(size, loadFactor, new IntBitMixerHashingStrategy());
+        }
+    },
+
+    HPPCRT_INT_INT_PHIMIX
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtIntIntMap(size, loadFactor, new IntPhiMixHashingStrategy());
+        }
+    },
+
+    HPPCRT_INT_INT_IDENTITY
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtIntIntMap(size, loadFactor, new IntIdentityHashingStrategy());
+        }
+    },
+
+    HPPCRT_SWISS_INT_INT
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtIntIntSwissMap(size, loadFactor);
+        }
+    },
+
+    HPPCRT_RH_INT_INT
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtIntIntRobinHoodMap(size, loadFactor);
+        }
+    },
+
     HPPC_INT_INT {
         @Override
         public MapImplementation<?> getInstance(final int size, final float loadFactor) {
@@ -78,6 +127,21 @@ public enum HashMapImplementations
     },
 
 
+    HPPCRT_SWISS_OBJ_INT
+    {
+        @Override
+        public MapImplementation<?> getInstance(final int size, final float loadFactor)
+        {
+            return new HppcrtObjectIntSwissMap(size, loadFactor);
+        }
+
+        @Override
+        public boolean isHashQualityApplicable() {
+
+            return true;
+        }
+    },
+
     HPPC_OBJ_INT {
         @Override
         public MapImplementation<?> getInstance(final int size, final float loadFactor) {
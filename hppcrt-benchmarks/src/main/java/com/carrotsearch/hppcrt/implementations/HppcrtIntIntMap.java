@@ -6,6 +6,8 @@ import java.util.Random;
 import com.carrotsearch.hppcrt.Util;
 import com.carrotsearch.hppcrt.XorShift128P;
 import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntStrategyHashMap;
+import com.carrotsearch.hppcrt.strategies.IntHashingStrategy;
 
 public class HppcrtIntIntMap extends MapImplementation<IntIntHashMap>
 {
@@ -19,6 +21,11 @@ public class HppcrtIntIntMap extends MapImplementation<IntIntHashMap>
         super(new IntIntHashMap(size, loadFactor));
     }
 
+    protected HppcrtIntIntMap(final int size, final float loadFactor, final IntHashingStrategy hashingStrategy)
+    {
+        super(new IntIntStrategyHashMap(size, loadFactor, hashingStrategy));
+    }
+
     /**
      * Setup
      */
@@ -0,0 +1,187 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.sets.LongBlockedBloomFilter;
+import com.carrotsearch.hppcrt.sets.LongBloomFilter;
+import com.carrotsearch.hppcrt.sets.LongHashSet;
+import com.carrotsearch.hppcrt.sets.LongXorFilter;
+
+/**
+ * Lookups in the approximate sets LongBloomFilter, LongBlockedBloomFilter and LongXorFilter,
+ * against the exact LongHashSet. Half of the looked-up keys are in the sets.
+ * The measured false positive rate and bits per key of each implementation are printed at setup,
+ * to be read along the time per operation.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkApproximateMembership
+{
+    public enum Implementation
+    {
+        HASH_SET, BLOOM, BLOCKED_BLOOM, XOR;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "100000", "10000000"
+    })
+    public int size;
+
+    @Param({
+        "0.01"
+    })
+    public double falsePositiveRate;
+
+    @Param({
+        "2000000"
+    })
+    public int nbLookups;
+
+    private long[] lookups;
+
+    private LongHashSet hashSet;
+
+    private LongBloomFilter bloom;
+
+    private LongBlockedBloomFilter blockedBloom;
+
+    private LongXorFilter xor;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P rnd = new XorShift128P(0x11223344L);
+
+        final long[] keys = new long[this.size];
+
+        //even keys are in the sets, odd keys are not.
+        for (int i = 0; i < this.size; i++) {
+
+            keys[i] = rnd.nextLong() & ~1L;
+        }
+
+        this.lookups = new long[this.nbLookups];
+
+        for (int i = 0; i < this.nbLookups; i++) {
+
+            this.lookups[i] = (i % 2 == 0) ? keys[rnd.nextInt(this.size)] : rnd.nextLong() | 1L;
+        }
+
+        this.hashSet = null;
+        this.bloom = null;
+        this.blockedBloom = null;
+        this.xor = null;
+
+        long bits = 0;
+
+        switch (this.implementation) {
+
+        case HASH_SET:
+
+            this.hashSet = LongHashSet.from(keys);
+            bits = 64L * this.hashSet.keys.length;
+            break;
+
+        case BLOOM:
+
+            this.bloom = new LongBloomFilter(this.size, this.falsePositiveRate);
+
+            for (final long key : keys) {
+                this.bloom.add(key);
+            }
+
+            bits = this.bloom.numBits();
+            break;
+
+        case BLOCKED_BLOOM:
+
+            this.blockedBloom = new LongBlockedBloomFilter(this.size, this.falsePositiveRate);
+
+            for (final long key : keys) {
+                this.blockedBloom.add(key);
+            }
+
+            bits = this.blockedBloom.numBits();
+            break;
+
+        default:
+
+            this.xor = LongXorFilter.from(keys);
+            bits = 8L * this.xor.fingerprints.length;
+            break;
+        }
+
+        //odd lookups are all absent
+        final int positives = timeMightContain();
+
+        System.out.println(String.format("\n%s: false positive rate = %.5f, bits per key = %.2f", this.implementation,
+                (positives - this.nbLookups / 2) / (this.nbLookups / 2.0), (double) bits / this.size));
+    }
+
+    @Benchmark
+    public int timeMightContain()
+    {
+        final long[] lookups = this.lookups;
+
+        int count = 0;
+
+        switch (this.implementation) {
+
+        case HASH_SET:
+
+            final LongHashSet hashSet = this.hashSet;
+
+            for (int i = 0; i < lookups.length; i++) {
+                count += hashSet.contains(lookups[i]) ? 1 : 0;
+            }
+            break;
+
+        case BLOOM:
+
+            final LongBloomFilter bloom = this.bloom;
+
+            for (int i = 0; i < lookups.length; i++) {
+                count += bloom.mightContain(lookups[i]) ? 1 : 0;
+            }
+            break;
+
+        case BLOCKED_BLOOM:
+
+            final LongBlockedBloomFilter blockedBloom = this.blockedBloom;
+
+            for (int i = 0; i < lookups.length; i++) {
+                count += blockedBloom.mightContain(lookups[i]) ? 1 : 0;
+            }
+            break;
+
+        default:
+
+            final LongXorFilter xor = this.xor;
+
+            for (int i = 0; i < lookups.length; i++) {
+                count += xor.mightContain(lookups[i]) ? 1 : 0;
+            }
+            break;
+        }
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkApproximateMembership.class, args, 1000, 2000);
+    }
+}
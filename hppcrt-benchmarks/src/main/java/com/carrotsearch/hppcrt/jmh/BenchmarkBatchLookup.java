@@ -0,0 +1,186 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.Util;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.sets.IntHashSet;
+
+/**
+ * Benchmark batched lookups, IntIntHashMap.getAll() / IntHashSet.containsAll(), against
+ * a loop of get() / contains() on the same keys, for containers much bigger than the CPU caches.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkBatchLookup
+{
+    public enum Lookup
+    {
+        LOOP, BATCH;
+    }
+
+    @Param
+    public Lookup lookup;
+
+    /**
+     * 20M int keys is a 128MB+ map, so well beyond L3.
+     */
+    @Param({
+        "20000000"
+    })
+    public int targetSize;
+
+    /**
+     * Number of keys looked-up in each call.
+     */
+    @Param({
+        "64", "1024"
+    })
+    public int batchSize;
+
+    /**
+     * Total number of keys looked-up.
+     */
+    @Param({
+        "4000000"
+    })
+    public int nbLookups;
+
+    public IntIntHashMap map;
+
+    public IntHashSet set;
+
+    /**
+     * Keys to look up, half of them present.
+     */
+    public int[] queries;
+
+    /**
+     * Batch buffers
+     */
+    private int[] batchKeys;
+
+    private int[] batchValues;
+
+    private long[] batchBits;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(-this.targetSize, 3 * this.targetSize, new XorShift128P(0x11223344L));
+
+        final int[] keys = gene.RANDOM.prepare(2 * this.targetSize);
+
+        this.map = new IntIntHashMap(this.targetSize);
+        this.set = new IntHashSet(this.targetSize);
+
+        //insert one key out of two
+        for (int i = 0; i < keys.length; i += 2) {
+
+            this.map.put(keys[i], i);
+            this.set.add(keys[i]);
+        }
+
+        this.queries = new int[this.nbLookups];
+
+        for (int i = 0; i < this.queries.length; i++) {
+
+            this.queries[i] = keys[i % keys.length];
+        }
+
+        //shuffle, so that consecutive queries hit unrelated cache lines
+        Util.shuffle(this.queries, new XorShift128P(0x55667788L));
+
+        this.batchKeys = new int[this.batchSize];
+        this.batchValues = new int[this.batchSize];
+        this.batchBits = new long[(this.batchSize + 63) / 64];
+    }
+
+    @Benchmark
+    public int timeMapGet()
+    {
+        final IntIntHashMap map = this.map;
+        final int[] queries = this.queries;
+        final int[] batchKeys = this.batchKeys;
+        final int[] batchValues = this.batchValues;
+
+        int count = 0;
+
+        for (int start = 0; start + batchKeys.length <= queries.length; start += batchKeys.length) {
+
+            System.arraycopy(queries, start, batchKeys, 0, batchKeys.length);
+
+            if (this.lookup == Lookup.BATCH) {
+
+                map.getAll(batchKeys, batchValues);
+
+            } else {
+
+                for (int i = 0; i < batchKeys.length; i++) {
+
+                    batchValues[i] = map.get(batchKeys[i]);
+                }
+            }
+
+            for (int i = 0; i < batchValues.length; i++) {
+
+                count += batchValues[i];
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public int timeSetContains()
+    {
+        final IntHashSet set = this.set;
+        final int[] queries = this.queries;
+        final int[] batchKeys = this.batchKeys;
+        final long[] batchBits = this.batchBits;
+
+        int count = 0;
+
+        for (int start = 0; start + batchKeys.length <= queries.length; start += batchKeys.length) {
+
+            System.arraycopy(queries, start, batchKeys, 0, batchKeys.length);
+
+            if (this.lookup == Lookup.BATCH) {
+
+                count += set.containsAll(batchKeys, batchBits);
+
+            } else {
+
+                for (int i = 0; i < batchKeys.length; i++) {
+
+                    if (set.contains(batchKeys[i])) {
+
+                        batchBits[i >> 6] |= (1L << i);
+                        count++;
+                    } else {
+
+                        batchBits[i >> 6] &= ~(1L << i);
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkBatchLookup.class, args, 1500, 3000);
+    }
+}
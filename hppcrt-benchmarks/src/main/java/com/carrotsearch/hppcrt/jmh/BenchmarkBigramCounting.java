@@ -28,7 +28,10 @@ public class BenchmarkBigramCounting
         FASTUTIL_OPEN,
         FASTUTIL_LINKED,
         JAVA_NAIVE,
-        JAVA_SMART
+        JAVA_SMART,
+        HPPC_WORDS_STRING,
+        HPPC_WORDS_BYTES,
+        HPPC_WORDS_CHARS
     }
 
     @Setup
@@ -60,6 +63,15 @@ public class BenchmarkBigramCounting
             case JAVA_SMART:
                 count += this.bc.jcfSmarter();
                 break;
+            case HPPC_WORDS_STRING:
+                count += this.bc.hppcWordsString();
+                break;
+            case HPPC_WORDS_BYTES:
+                count += this.bc.hppcWordsBytes();
+                break;
+            case HPPC_WORDS_CHARS:
+                count += this.bc.hppcWordsChars();
+                break;
             default:
                 break;
         }
@@ -0,0 +1,169 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.BitSet;
+import com.carrotsearch.hppcrt.jmh.BenchmarkPopCnt.Distribution;
+import com.carrotsearch.hppcrt.procedures.IntProcedure;
+
+/**
+ * BitSet against java.util.BitSet, on two bitsets of words following the same distributions as {@link BenchmarkPopCnt}:
+ * cardinality, counting-only intersection, in-place and(), and iteration of the set bits.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkBitSet
+{
+    public enum Implementation
+    {
+        HPPC, JAVA;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param
+    public Distribution distribution;
+
+    @Param({
+        "1000000"
+    })
+    public int numWords;
+
+    private BitSet hppcA;
+
+    private BitSet hppcB;
+
+    private java.util.BitSet javaA;
+
+    private java.util.BitSet javaB;
+
+    private BitSet hppcResult;
+
+    private java.util.BitSet javaResult;
+
+    private static final class SumProcedure implements IntProcedure
+    {
+        int sum;
+
+        @Override
+        public void apply(final int value) {
+
+            this.sum += value;
+        }
+    }
+
+    private final SumProcedure sumProcedure = new SumProcedure();
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final long[] wordsA = new long[this.numWords];
+        final long[] wordsB = new long[this.numWords];
+
+        final Random rnd = new Random(0xdeadbeef);
+
+        for (int i = 0; i < this.numWords; i++) {
+
+            wordsA[i] = nextWord(rnd);
+            wordsB[i] = nextWord(rnd);
+        }
+
+        this.hppcA = new BitSet(wordsA.clone(), this.numWords);
+        this.hppcB = new BitSet(wordsB.clone(), this.numWords);
+
+        this.javaA = java.util.BitSet.valueOf(wordsA);
+        this.javaB = java.util.BitSet.valueOf(wordsB);
+
+        this.hppcResult = this.hppcA.clone();
+        this.javaResult = (java.util.BitSet) this.javaA.clone();
+    }
+
+    private long nextWord(final Random rnd) {
+
+        switch (this.distribution) {
+            case ZEROS:
+                return 0L;
+            case FULL:
+                return -1L;
+            case RANDOM:
+                return rnd.nextLong();
+            default:
+                return 1L << rnd.nextInt(64);
+        }
+    }
+
+    @Benchmark
+    public long timeCardinality() {
+
+        if (this.implementation == Implementation.HPPC) {
+
+            return this.hppcA.cardinality();
+        }
+
+        return this.javaA.cardinality();
+    }
+
+    @Benchmark
+    public long timeIntersectionCount() {
+
+        if (this.implementation == Implementation.HPPC) {
+
+            return BitSet.intersectionCount(this.hppcA, this.hppcB);
+        }
+
+        //java.util.BitSet has no counting-only intersection
+        final java.util.BitSet intersection = (java.util.BitSet) this.javaA.clone();
+        intersection.and(this.javaB);
+
+        return intersection.cardinality();
+    }
+
+    @Benchmark
+    public int timeAnd() {
+
+        //the result is A AND B from the first call on, so each call does the same work
+        if (this.implementation == Implementation.HPPC) {
+
+            this.hppcResult.and(this.hppcB);
+            return this.hppcResult.wlen;
+        }
+
+        this.javaResult.and(this.javaB);
+        return this.javaResult.size();
+    }
+
+    @Benchmark
+    public int timeIterate() {
+
+        if (this.implementation == Implementation.HPPC) {
+
+            this.sumProcedure.sum = 0;
+            return this.hppcA.forEach(this.sumProcedure).sum;
+        }
+
+        int sum = 0;
+
+        for (int i = this.javaA.nextSetBit(0); i >= 0; i = this.javaA.nextSetBit(i + 1)) {
+
+            sum += i;
+        }
+
+        return sum;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkBitSet.class, args, 500, 1000);
+    }
+}
@@ -0,0 +1,157 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntLFUCache;
+import com.carrotsearch.hppcrt.maps.IntIntLRUCache;
+
+/**
+ * Throughput and hit rate of IntIntLRUCache against IntIntLFUCache, on a cache-aside workload:
+ * get() of Zipf-distributed keys, followed on a miss by a put(), evicting an entry once the cache is full.
+ * The hit rate is printed at the end of each iteration.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkCache
+{
+    public enum Implementation
+    {
+        HPPCRT_LRU, HPPCRT_LFU;
+    }
+
+    /**
+     * get() return value of a miss, values being >= 0.
+     */
+    private static final int MISS = -1;
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "1000", "100000"
+    })
+    public int cacheSize;
+
+    @Param({
+        "1000000"
+    })
+    public int keyRange;
+
+    @Param({
+        "4000000"
+    })
+    public int nbAccesses;
+
+    private int[] keys;
+
+    private IntIntLRUCache lru;
+
+    private IntIntLFUCache lfu;
+
+    private long hits;
+
+    private long accesses;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(0, this.keyRange, new XorShift128P(0x11223344L));
+
+        this.keys = gene.ZIPF.prepare(this.nbAccesses);
+
+        this.lru = new IntIntLRUCache(this.cacheSize);
+        this.lru.setDefaultValue(BenchmarkCache.MISS);
+
+        this.lfu = new IntIntLFUCache(this.cacheSize);
+        this.lfu.setDefaultValue(BenchmarkCache.MISS);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception
+    {
+        //each iteration starts cold
+        this.lru.clear();
+        this.lfu.clear();
+
+        this.hits = 0;
+        this.accesses = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws Exception
+    {
+        System.out.println(String.format("\n%s (cacheSize = %d) hit rate = %.2f %% (%d / %d)", this.implementation, this.cacheSize,
+                100.0 * this.hits / Math.max(this.accesses, 1L), this.hits, this.accesses));
+    }
+
+    @Benchmark
+    public int timeGetOrLoad()
+    {
+        final int[] keys = this.keys;
+
+        int count = 0;
+        int hits = 0;
+
+        if (this.implementation == Implementation.HPPCRT_LRU) {
+
+            final IntIntLRUCache cache = this.lru;
+
+            for (int i = 0; i < keys.length; i++) {
+
+                final int value = cache.get(keys[i]);
+
+                if (value == BenchmarkCache.MISS) {
+
+                    cache.put(keys[i], keys[i]);
+
+                } else {
+
+                    count += value;
+                    hits++;
+                }
+            }
+
+        } else {
+
+            final IntIntLFUCache cache = this.lfu;
+
+            for (int i = 0; i < keys.length; i++) {
+
+                final int value = cache.get(keys[i]);
+
+                if (value == BenchmarkCache.MISS) {
+
+                    cache.put(keys[i], keys[i]);
+
+                } else {
+
+                    count += value;
+                    hits++;
+                }
+            }
+        }
+
+        this.hits += hits;
+        this.accesses += keys.length;
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkCache.class, args, 1000, 2000);
+    }
+}
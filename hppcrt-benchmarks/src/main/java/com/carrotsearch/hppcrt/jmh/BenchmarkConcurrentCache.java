@@ -0,0 +1,185 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.LongLongConcurrentTinyLFUCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Throughput and hit rate of a cache shared by all the benchmark threads, on a cache-aside workload:
+ * get() of Zipf-distributed keys, followed on a miss by a put().
+ * LongLongConcurrentTinyLFUCache against a Caffeine cache of boxed Long keys and values, both using W-TinyLFU.
+ * The hit rate is printed at the end of each iteration.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkConcurrentCache
+{
+    public enum Implementation
+    {
+        HPPCRT_TINYLFU, CAFFEINE;
+    }
+
+    /**
+     * get() return value of a miss, values being >= 0.
+     */
+    private static final long MISS = -1L;
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "10000"
+    })
+    public int cacheSize;
+
+    @Param({
+        "1000000"
+    })
+    public int keyRange;
+
+    /**
+     * Number of accesses per thread for each invocation.
+     */
+    @Param({
+        "1000000"
+    })
+    public int nbAccesses;
+
+    public LongLongConcurrentTinyLFUCache hppcrtCache;
+
+    public Cache<Long, Long> caffeineCache;
+
+    /**
+     * Zipf keys, each thread starting at its own offset.
+     */
+    public int[] keys;
+
+    private final AtomicInteger threadOffsetCounter = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder accesses = new LongAdder();
+
+    @State(Scope.Thread)
+    public static class ThreadOffset
+    {
+        public int offset;
+
+        @Setup
+        public void setUp(final BenchmarkConcurrentCache benchmark) {
+
+            this.offset = (benchmark.threadOffsetCounter.getAndIncrement() * 7919) % benchmark.keys.length;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(0, this.keyRange, new XorShift128P(0x11223344L));
+
+        this.keys = gene.ZIPF.prepare(4 * this.nbAccesses);
+
+        this.hppcrtCache = new LongLongConcurrentTinyLFUCache(this.cacheSize);
+        this.hppcrtCache.setDefaultValue(BenchmarkConcurrentCache.MISS);
+
+        this.caffeineCache = Caffeine.newBuilder().maximumSize(this.cacheSize).build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws Exception
+    {
+        final long hits = this.hits.sumThenReset();
+        final long accesses = this.accesses.sumThenReset();
+
+        System.out.println(String.format("\n%s (cacheSize = %d) hit rate = %.2f %% (%d / %d)", this.implementation, this.cacheSize,
+                100.0 * hits / Math.max(accesses, 1L), hits, accesses));
+    }
+
+    @Threads(Threads.MAX)
+    @Benchmark
+    public long timeGetOrLoad(final ThreadOffset threadState)
+    {
+        final int[] keys = this.keys;
+
+        long count = 0;
+        int hits = 0;
+        int index = threadState.offset;
+
+        if (this.implementation == Implementation.HPPCRT_TINYLFU) {
+
+            final LongLongConcurrentTinyLFUCache cache = this.hppcrtCache;
+
+            for (int i = 0; i < this.nbAccesses; i++) {
+
+                final long key = keys[index];
+                final long value = cache.get(key);
+
+                if (value == BenchmarkConcurrentCache.MISS) {
+
+                    cache.put(key, key);
+
+                } else {
+
+                    count += value;
+                    hits++;
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+
+        } else {
+
+            final Cache<Long, Long> cache = this.caffeineCache;
+
+            for (int i = 0; i < this.nbAccesses; i++) {
+
+                final Long key = Long.valueOf(keys[index]);
+                final Long value = cache.getIfPresent(key);
+
+                if (value == null) {
+
+                    cache.put(key, key);
+
+                } else {
+
+                    count += value.longValue();
+                    hits++;
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+        }
+
+        this.hits.add(hits);
+        this.accesses.add(this.nbAccesses);
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkConcurrentCache.class, args, 1000, 2000);
+    }
+}
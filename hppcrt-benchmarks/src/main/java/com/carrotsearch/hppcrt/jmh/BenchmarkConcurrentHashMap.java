@@ -0,0 +1,225 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.Util;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntConcurrentHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntReadMostlyHashMap;
+
+/**
+ * Benchmark a mixed get()/addTo() workload on a map shared by all the benchmark threads:
+ * IntIntConcurrentHashMap vs. IntIntReadMostlyHashMap vs. a globally synchronized IntIntHashMap vs. java.util.concurrent.ConcurrentHashMap.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkConcurrentHashMap
+{
+    public enum Implementation
+    {
+        HPPCRT_CONCURRENT, HPPCRT_READ_MOSTLY, HPPCRT_SYNCHRONIZED, JAVA_CONCURRENT;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "1000000"
+    })
+    public int targetSize;
+
+    /**
+     * Percentage of addTo() operations, the rest being get()
+     */
+    @Param({
+        "1", "10", "50"
+    })
+    public int writePercent;
+
+    /**
+     * Number of operations per thread for each invocation.
+     */
+    @Param({
+        "2000000"
+    })
+    public int nbOperations;
+
+    public IntIntConcurrentHashMap concurrentMap;
+
+    public IntIntReadMostlyHashMap readMostlyMap;
+
+    public IntIntHashMap synchronizedMap;
+
+    public ConcurrentHashMap<Integer, Integer> javaMap;
+
+    /**
+     * Keys to be looked up or incremented.
+     */
+    public int[] keys;
+
+    /**
+     * Per-thread start offset in keys.
+     */
+    private final AtomicInteger threadOffsetCounter = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class ThreadOffset
+    {
+        public int offset;
+
+        @Setup
+        public void setUp(final BenchmarkConcurrentHashMap benchmark) {
+
+            this.offset = (benchmark.threadOffsetCounter.getAndIncrement() * 7919) % benchmark.keys.length;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(-this.targetSize, 3 * this.targetSize, new XorShift128P(0x11223344L));
+
+        this.keys = gene.RANDOM.prepare(this.targetSize);
+
+        //shuffle for good measure
+        Util.shuffle(this.keys, new XorShift128P(0x55667788L));
+
+        //presize everything so that nothing get reallocated during measurements
+        this.concurrentMap = new IntIntConcurrentHashMap(this.targetSize);
+        this.readMostlyMap = new IntIntReadMostlyHashMap(this.targetSize);
+        this.synchronizedMap = new IntIntHashMap(this.targetSize);
+        this.javaMap = new ConcurrentHashMap<Integer, Integer>(this.targetSize);
+
+        //pre-fill with half of the keys
+        for (int i = 0; i < this.keys.length; i += 2) {
+
+            this.concurrentMap.put(this.keys[i], i);
+            this.readMostlyMap.put(this.keys[i], i);
+            this.synchronizedMap.put(this.keys[i], i);
+            this.javaMap.put(this.keys[i], i);
+        }
+    }
+
+    @Threads(Threads.MAX)
+    @Benchmark
+    public int timeMixedGetAddTo(final ThreadOffset threadState)
+    {
+        final int[] keys = this.keys;
+        final int writePercent = this.writePercent;
+
+        int count = 0;
+        int index = threadState.offset;
+
+        switch (this.implementation)
+        {
+        case HPPCRT_CONCURRENT:
+
+            final IntIntConcurrentHashMap concurrentMap = this.concurrentMap;
+
+            for (int i = 0; i < this.nbOperations; i++) {
+
+                if (i % 100 < writePercent) {
+
+                    count += concurrentMap.addTo(keys[index], 1);
+                } else {
+
+                    count += concurrentMap.get(keys[index]);
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+            break;
+
+        case HPPCRT_READ_MOSTLY:
+
+            final IntIntReadMostlyHashMap readMostlyMap = this.readMostlyMap;
+
+            for (int i = 0; i < this.nbOperations; i++) {
+
+                if (i % 100 < writePercent) {
+
+                    count += readMostlyMap.addTo(keys[index], 1);
+                } else {
+
+                    count += readMostlyMap.get(keys[index]);
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+            break;
+
+        case HPPCRT_SYNCHRONIZED:
+
+            final IntIntHashMap synchronizedMap = this.synchronizedMap;
+
+            for (int i = 0; i < this.nbOperations; i++) {
+
+                synchronized (synchronizedMap) {
+
+                    if (i % 100 < writePercent) {
+
+                        count += synchronizedMap.addTo(keys[index], 1);
+                    } else {
+
+                        count += synchronizedMap.get(keys[index]);
+                    }
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+            break;
+
+        case JAVA_CONCURRENT:
+
+            final ConcurrentHashMap<Integer, Integer> javaMap = this.javaMap;
+
+            for (int i = 0; i < this.nbOperations; i++) {
+
+                if (i % 100 < writePercent) {
+
+                    count += javaMap.merge(keys[index], 1, Integer::sum);
+                } else {
+
+                    final Integer value = javaMap.get(keys[index]);
+
+                    count += (value == null) ? 0 : value;
+                }
+
+                if (++index == keys.length) {
+                    index = 0;
+                }
+            }
+            break;
+
+        default:
+            throw new RuntimeException();
+        }
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkConcurrentHashMap.class, args, 1000, 2000);
+    }
+}
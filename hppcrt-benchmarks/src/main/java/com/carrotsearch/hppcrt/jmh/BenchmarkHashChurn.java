@@ -0,0 +1,435 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.BitUtil;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.HashStats;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.jmh.BenchmarkHashMapBase.Distribution;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntRobinHoodHashMap;
+import com.carrotsearch.hppcrt.maps.ObjectIntHashMap;
+import com.carrotsearch.hppcrt.sets.IntHashSet;
+import com.carrotsearch.hppcrt.sets.IntRobinHoodHashSet;
+
+/**
+ * Sustained churn on hash containers, i.e the removal path (backward shift deletion, no tombstones) over millions of cycles:
+ * the container is filled up to loadFactor with a window of keys, then each cycle removes the oldest key of the window
+ * and puts a new one, so that the size stays constant. The window slides over a circular stream of distinct keys
+ * of the given {@link Distribution}, and the container is never re-created, so that each iteration
+ * measures the next time window of the same churning container.
+ * <p>
+ * Besides the time of each window of churnCycles cycles, the layout of the buffers is printed at the end of each iteration:
+ * the histogram of the cluster sizes (runs of occupied slots), and the histogram of the unsuccessful probe lengths,
+ * i.e the number of occupied slots probed by a lookup of an absent key starting at any slot, which only depend on the
+ * clusters so can be computed from the public keys buffers alone (an upper bound for the Robin-Hood variants, whose misses
+ * stop earlier in the cluster). The mean and max successful probe lengths come from the stats() of the containers.
+ * </p>
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkHashChurn
+{
+    public enum Implementation
+    {
+        HPPCRT_INT_INT, HPPCRT_RH_INT_INT, HPPCRT_INT_SET, HPPCRT_RH_INT_SET, HPPCRT_OBJ_INT;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param
+    public Distribution distribution;
+
+    @Param({
+        "1000000"
+    })
+    public int targetSize;
+
+    @Param({
+        "0.75", "0.9"
+    })
+    public float loadFactor;
+
+    /**
+     * Number of remove() + put() cycles in each iteration.
+     */
+    @Param({
+        "4000000"
+    })
+    public int churnCycles;
+
+    /**
+     * Circular stream of distinct keys, the window is [cursor; cursor + windowSize[ modulo the stream length.
+     */
+    private int[] stream;
+
+    /**
+     * stream, boxed for HPPCRT_OBJ_INT.
+     */
+    private Integer[] boxedStream;
+
+    private int windowSize;
+
+    private int cursor;
+
+    private IntIntHashMap intMap;
+
+    private IntHashSet intSet;
+
+    private ObjectIntHashMap<Integer> objMap;
+
+    private int windowIndex;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P prng = new XorShift128P(0x11223344L);
+
+        //size the buffers so that the window fills them up to loadFactor, with a margin to be sure to NOT reallocate.
+        final int bufferSize = BitUtil.nextHighestPowerOfTwo((int) (this.targetSize / this.loadFactor));
+        this.windowSize = (int) (bufferSize * this.loadFactor) - 32;
+
+        //as many keys out of the window as in the window
+        final int streamLength = 2 * this.windowSize;
+
+        final DistributionGenerator.Generator gene = newGenerator(streamLength, prng);
+
+        final IntHashSet distinct = new IntHashSet(streamLength);
+
+        this.stream = new int[streamLength];
+
+        for (int i = 0; i < streamLength;) {
+
+            final int key = gene.getNext();
+
+            if (key != 0 && distinct.add(key)) {
+
+                this.stream[i++] = key;
+            }
+        }
+
+        this.cursor = 0;
+        this.windowIndex = 0;
+
+        switch (this.implementation)
+        {
+        case HPPCRT_INT_INT:
+        case HPPCRT_RH_INT_INT:
+            this.intMap = this.implementation == Implementation.HPPCRT_INT_INT ?
+                    new IntIntHashMap(this.windowSize, this.loadFactor) :
+                    new IntIntRobinHoodHashMap(this.windowSize, this.loadFactor);
+
+            for (int i = 0; i < this.windowSize; i++) {
+
+                this.intMap.put(this.stream[i], i);
+            }
+            break;
+        case HPPCRT_INT_SET:
+        case HPPCRT_RH_INT_SET:
+            this.intSet = this.implementation == Implementation.HPPCRT_INT_SET ?
+                    new IntHashSet(this.windowSize, this.loadFactor) :
+                    new IntRobinHoodHashSet(this.windowSize, this.loadFactor);
+
+            for (int i = 0; i < this.windowSize; i++) {
+
+                this.intSet.add(this.stream[i]);
+            }
+            break;
+        case HPPCRT_OBJ_INT:
+            this.boxedStream = new Integer[streamLength];
+
+            for (int i = 0; i < streamLength; i++) {
+
+                this.boxedStream[i] = Integer.valueOf(this.stream[i]);
+            }
+
+            this.objMap = new ObjectIntHashMap<Integer>(this.windowSize, this.loadFactor);
+
+            for (int i = 0; i < this.windowSize; i++) {
+
+                this.objMap.put(this.boxedStream[i], i);
+            }
+            break;
+        default:
+            throw new RuntimeException();
+        }
+
+        System.out.println(String.format("\n%s, %s: window = %d keys, stream = %d keys",
+                this.implementation, this.distribution, this.windowSize, streamLength));
+
+        printLayout("initial");
+    }
+
+    private DistributionGenerator.Generator newGenerator(final int streamLength, final XorShift128P prng) {
+
+        //same generators as BenchmarkHashMapBase
+        switch (this.distribution)
+        {
+        case RANDOM:
+            return new DistributionGenerator((long) (Integer.MIN_VALUE * 0.5), Integer.MAX_VALUE - 10, prng).RANDOM;
+        case RAND_LINEAR:
+            //randomly increasing values, i.e the window is the latest keys of an increasing sequence,
+            //like timestamps or counters. RAND_INCREMENT restarts after 3 * streamLength values, so they are distinct.
+            return new DistributionGenerator(-this.windowSize, 3 * streamLength, prng).RAND_INCREMENT;
+        case HIGHBITS:
+            return new DistributionGenerator(Integer.MIN_VALUE + 10, Integer.MAX_VALUE, prng).HIGHBITS;
+        default:
+            throw new RuntimeException();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws Exception
+    {
+        printLayout("after window " + (++this.windowIndex) + " (" + ((long) this.windowIndex * this.churnCycles) + " cycles)");
+    }
+
+    @Benchmark
+    public int timeChurn()
+    {
+        switch (this.implementation)
+        {
+        case HPPCRT_INT_INT:
+        case HPPCRT_RH_INT_INT:
+            return churn(this.intMap);
+        case HPPCRT_INT_SET:
+        case HPPCRT_RH_INT_SET:
+            return churn(this.intSet);
+        case HPPCRT_OBJ_INT:
+            return churn(this.objMap);
+        default:
+            throw new RuntimeException();
+        }
+    }
+
+    private int churn(final IntIntHashMap map) {
+
+        final int[] stream = this.stream;
+        final int length = stream.length;
+
+        int out = this.cursor;
+        int in = (out + this.windowSize) % length;
+
+        int count = 0;
+
+        for (int i = 0; i < this.churnCycles; i++) {
+
+            count += map.remove(stream[out]);
+            map.put(stream[in], i);
+
+            if (++out == length) {
+                out = 0;
+            }
+
+            if (++in == length) {
+                in = 0;
+            }
+        }
+
+        this.cursor = out;
+
+        return count + map.size();
+    }
+
+    private int churn(final IntHashSet set) {
+
+        final int[] stream = this.stream;
+        final int length = stream.length;
+
+        int out = this.cursor;
+        int in = (out + this.windowSize) % length;
+
+        int count = 0;
+
+        for (int i = 0; i < this.churnCycles; i++) {
+
+            count += set.remove(stream[out]) ? 1 : 0;
+            count += set.add(stream[in]) ? 1 : 0;
+
+            if (++out == length) {
+                out = 0;
+            }
+
+            if (++in == length) {
+                in = 0;
+            }
+        }
+
+        this.cursor = out;
+
+        return count + set.size();
+    }
+
+    private int churn(final ObjectIntHashMap<Integer> map) {
+
+        final Integer[] stream = this.boxedStream;
+        final int length = stream.length;
+
+        int out = this.cursor;
+        int in = (out + this.windowSize) % length;
+
+        int count = 0;
+
+        for (int i = 0; i < this.churnCycles; i++) {
+
+            count += map.remove(stream[out]);
+            map.put(stream[in], i);
+
+            if (++out == length) {
+                out = 0;
+            }
+
+            if (++in == length) {
+                in = 0;
+            }
+        }
+
+        this.cursor = out;
+
+        return count + map.size();
+    }
+
+    /**
+     * Print the cluster sizes and unsuccessful probe lengths histograms (power-of-2 buckets) of the current buffers.
+     */
+    private void printLayout(final String title) {
+
+        final boolean[] occupied;
+        final int size;
+        final HashStats stats;
+
+        switch (this.implementation)
+        {
+        case HPPCRT_INT_INT:
+        case HPPCRT_RH_INT_INT:
+            occupied = occupied(this.intMap.keys);
+            size = this.intMap.size();
+            stats = this.intMap.stats();
+            break;
+        case HPPCRT_INT_SET:
+        case HPPCRT_RH_INT_SET:
+            occupied = occupied(this.intSet.keys);
+            size = this.intSet.size();
+            stats = this.intSet.stats();
+            break;
+        case HPPCRT_OBJ_INT:
+            occupied = occupied(this.objMap.keys);
+            size = this.objMap.size();
+            stats = this.objMap.stats();
+            break;
+        default:
+            throw new RuntimeException();
+        }
+
+        final int capacity = occupied.length;
+
+        //clusterHistogram[i] = number of clusters whose size is in [2^i, 2^(i+1)[
+        final long[] clusterHistogram = new long[32];
+
+        //probeHistogram[i] = number of slots from which a miss probes [2^i, 2^(i+1)[ occupied slots.
+        //the slots of a cluster of size L are the start of miss probes of length L, L - 1, ..., 1.
+        final long[] probeHistogram = new long[32];
+
+        int nbClusters = 0;
+        int nbOccupied = 0;
+        int maxCluster = 0;
+        long sumProbes = 0;
+
+        //start right after an empty slot, there is always one, so that no cluster wraps around the scan.
+        int start = 0;
+
+        while (occupied[start]) {
+            start++;
+        }
+
+        int clusterSize = 0;
+
+        for (int i = 1; i <= capacity; i++) {
+
+            if (occupied[(start + i) & (capacity - 1)]) {
+
+                clusterSize++;
+
+            } else if (clusterSize > 0) {
+
+                nbClusters++;
+                nbOccupied += clusterSize;
+                maxCluster = Math.max(maxCluster, clusterSize);
+                clusterHistogram[31 - Integer.numberOfLeadingZeros(clusterSize)]++;
+
+                for (int probes = 1; probes <= clusterSize; probes++) {
+
+                    probeHistogram[31 - Integer.numberOfLeadingZeros(probes)]++;
+                }
+
+                sumProbes += (long) clusterSize * (clusterSize + 1) / 2;
+                clusterSize = 0;
+            }
+        }
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("\n%s %s, %s: size = %d, capacity = %d, load factor = %f, %d clusters of mean size %f, max %d\n",
+                this.implementation, title, this.distribution, size, capacity, size / (double) capacity,
+                nbClusters, nbClusters == 0 ? 0.0 : nbOccupied / (double) nbClusters, maxCluster));
+
+        sb.append(String.format("  miss probe length : mean = %f, max = %d\n", sumProbes / (double) capacity, maxCluster));
+
+        sb.append(String.format("  hit probe length : mean = %f, max = %d (stats())\n", stats.meanProbeLength, stats.maxProbeLength));
+
+        sb.append("  cluster sizes / miss probe lengths histograms:\n");
+
+        for (int i = 0; i < 32; i++) {
+
+            if (clusterHistogram[i] > 0 || probeHistogram[i] > 0) {
+
+                sb.append(String.format("  [%8d, %8d[ : %10d clusters, %10d slots\n", 1L << i, 1L << (i + 1),
+                        clusterHistogram[i], probeHistogram[i]));
+            }
+        }
+
+        System.out.print(sb.toString());
+    }
+
+    private static boolean[] occupied(final int[] keys) {
+
+        final boolean[] occupied = new boolean[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            occupied[i] = keys[i] != 0;
+        }
+
+        return occupied;
+    }
+
+    private static boolean[] occupied(final Object[] keys) {
+
+        final boolean[] occupied = new boolean[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            occupied[i] = keys[i] != null;
+        }
+
+        return occupied;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkHashChurn.class, args, 1000, 2000);
+    }
+}
@@ -18,6 +18,7 @@ import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
 import com.carrotsearch.hppcrt.DistributionGenerator;
 import com.carrotsearch.hppcrt.XorShift128P;
 import com.carrotsearch.hppcrt.procedures.IntProcedure;
+import com.carrotsearch.hppcrt.sets.IntCuckooHashSet;
 import com.carrotsearch.hppcrt.sets.IntHashSet;
 
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
@@ -31,6 +32,20 @@ public class BenchmarkHashCollisions
 
     public IntHashSet currentUnderTestSet2;
 
+    public IntCuckooHashSet currentUnderTestCuckooSet;
+
+    /**
+     * Sets filled once with testSet, for lookups
+     */
+    public IntHashSet lookupSet;
+
+    public IntCuckooHashSet lookupCuckooSet;
+
+    /**
+     * Keys to look up, half of them being in testSet.
+     */
+    public int[] lookupKeys;
+
     /**
      * Consider that @Benchmark executing in more than TIMEOUT_EXEC_IN_S s
      * must be aborted. Convenient way to test hanging benchmarks.
@@ -127,6 +142,28 @@ public class BenchmarkHashCollisions
 
             this.currentUnderTestSet = IntHashSet.newInstance(nbElementsToPush, this.loadFactor);
             this.currentUnderTestSet2 = IntHashSet.newInstance(nbElementsToPush, this.loadFactor);
+            this.currentUnderTestCuckooSet = IntCuckooHashSet.newInstance(nbElementsToPush, this.loadFactor);
+        }
+
+        this.lookupSet = IntHashSet.newInstance(nbElementsToPush, this.loadFactor);
+        this.lookupCuckooSet = IntCuckooHashSet.newInstance(nbElementsToPush, this.loadFactor);
+        this.lookupKeys = new int[2 * nbElementsToPush];
+
+        final int[] testSetKeys = this.testSet.keys;
+
+        int nbKeys = 0;
+
+        for (int j = testSetKeys.length - 1; j >= 0; j--) {
+
+            if (testSetKeys[j] != 0) {
+
+                this.lookupSet.add(testSetKeys[j]);
+                this.lookupCuckooSet.add(testSetKeys[j]);
+
+                //present, then most likely absent
+                this.lookupKeys[nbKeys++] = testSetKeys[j];
+                this.lookupKeys[nbKeys++] = testSetKeys[j] + 1;
+            }
         }
 
         System.out.println("Initialized to test size = " + nbElementsToPush);
@@ -144,6 +181,7 @@ public class BenchmarkHashCollisions
 
             this.currentUnderTestSet = IntHashSet.newInstance();
             this.currentUnderTestSet2 = IntHashSet.newInstance();
+            this.currentUnderTestCuckooSet = IntCuckooHashSet.newInstance();
         }
 
         // PREALLOCATED is created once and simply cleared. Since the clear
@@ -247,6 +285,82 @@ public class BenchmarkHashCollisions
         return count;
     }
 
+    @Timeout(time = BenchmarkHashCollisions.TIMEOUT_EXEC_IN_S, timeUnit = TimeUnit.SECONDS)
+    @Benchmark
+    public int timeCuckooSet_Direct_iteration_add_all()
+    {
+        this.currentUnderTestCuckooSet.clear();
+
+        final int[] testSetKeys = this.testSet.keys;
+
+        for (int j = 0; j < testSetKeys.length; j++) {
+
+            if (testSetKeys[j] != 0) {
+
+                this.currentUnderTestCuckooSet.add(testSetKeys[j]);
+            }
+        }
+
+        return this.currentUnderTestCuckooSet.size();
+    }
+
+    @Timeout(time = BenchmarkHashCollisions.TIMEOUT_EXEC_IN_S, timeUnit = TimeUnit.SECONDS)
+    @Benchmark
+    public int timeCuckooSet_Direct_iteration_reversed_add_all()
+    {
+        this.currentUnderTestCuckooSet.clear();
+
+        final int[] testSetKeys = this.testSet.keys;
+
+        for (int j = testSetKeys.length - 1; j >= 0; j--) {
+
+            if (testSetKeys[j] != 0) {
+
+                this.currentUnderTestCuckooSet.add(testSetKeys[j]);
+            }
+        }
+
+        return this.currentUnderTestCuckooSet.size();
+    }
+
+    @Timeout(time = BenchmarkHashCollisions.TIMEOUT_EXEC_IN_S, timeUnit = TimeUnit.SECONDS)
+    @Benchmark
+    public int timeSet_Contains()
+    {
+        final IntHashSet set = this.lookupSet;
+        final int[] lookupKeys = this.lookupKeys;
+
+        int count = 0;
+
+        for (int j = 0; j < lookupKeys.length; j++) {
+
+            if (set.contains(lookupKeys[j])) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Timeout(time = BenchmarkHashCollisions.TIMEOUT_EXEC_IN_S, timeUnit = TimeUnit.SECONDS)
+    @Benchmark
+    public int timeCuckooSet_Contains()
+    {
+        final IntCuckooHashSet set = this.lookupCuckooSet;
+        final int[] lookupKeys = this.lookupKeys;
+
+        int count = 0;
+
+        for (int j = 0; j < lookupKeys.length; j++) {
+
+            if (set.contains(lookupKeys[j])) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
     /**
      * Running main
      * @param args
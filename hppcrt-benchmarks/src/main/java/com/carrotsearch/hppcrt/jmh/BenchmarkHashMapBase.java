@@ -242,5 +242,13 @@ public class BenchmarkHashMapBase
 
             throw new DoNotExecuteBenchmarkException();
         }
+
+        //1-5) skip HIGHBITS with the identity hashing strategy, whose keys all collide
+        //in the low bits: the fill degenerates into a single cluster and never ends.
+        if (this.implementation == HashMapImplementations.HPPCRT_INT_INT_IDENTITY &&
+                this.distribution == Distribution.HIGHBITS) {
+
+            throw new DoNotExecuteBenchmarkException();
+        }
     }
 }
\ No newline at end of file
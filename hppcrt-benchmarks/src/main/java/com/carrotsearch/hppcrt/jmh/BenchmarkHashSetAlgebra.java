@@ -0,0 +1,105 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.predicates.IntPredicate;
+import com.carrotsearch.hppcrt.sets.IntHashSet;
+
+/**
+ * Intersection of two IntHashSet: counting with intersectionSize(), retainAll() of a copy,
+ * and the generic retainAll() through a contains() predicate, each for sets of the same layout
+ * (IntHashSet.newInstanceLike()) or of independent perturbations.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkHashSetAlgebra
+{
+    public enum Operation
+    {
+        INTERSECTION_SIZE, RETAIN_ALL, RETAIN_ALL_PREDICATE;
+    }
+
+    @Param
+    public Operation operation;
+
+    @Param({
+        "true", "false"
+    })
+    public boolean sameLayout;
+
+    @Param({
+        "100000", "2000000"
+    })
+    public int size;
+
+    private IntHashSet left;
+
+    private IntHashSet right;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P rnd = new XorShift128P(0x11223344L);
+
+        this.left = new IntHashSet(this.size);
+        this.right = this.sameLayout ? IntHashSet.newInstanceLike(this.left) : new IntHashSet(this.size);
+
+        //about half of the keys are in both sets
+        for (int i = 0; i < this.size; i++) {
+
+            this.left.add(rnd.nextInt(2 * this.size));
+            this.right.add(rnd.nextInt(2 * this.size));
+        }
+    }
+
+    @Benchmark
+    public int timeIntersection()
+    {
+        final IntHashSet right = this.right;
+
+        switch (this.operation) {
+
+        case INTERSECTION_SIZE:
+
+            return this.left.intersectionSize(right);
+
+        case RETAIN_ALL:
+
+            final IntHashSet copy = IntHashSet.newInstanceLike(this.left);
+            copy.addAll(this.left);
+
+            copy.retainAll(right);
+            return copy.size();
+
+        default:
+
+            final IntHashSet predicateCopy = IntHashSet.newInstanceLike(this.left);
+            predicateCopy.addAll(this.left);
+
+            predicateCopy.removeAll(new IntPredicate() {
+
+                @Override
+                public boolean apply(final int value) {
+
+                    return !right.contains(value);
+                }
+            });
+            return predicateCopy.size();
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkHashSetAlgebra.class, args, 1000, 2000);
+    }
+}
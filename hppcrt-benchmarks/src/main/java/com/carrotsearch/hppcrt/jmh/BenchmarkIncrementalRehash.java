@@ -0,0 +1,138 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntIncrementalHashMap;
+
+/**
+ * Measure the latency of each put() while filling a map from an empty state,
+ * IntIntHashMap (rehash at once) against IntIntIncrementalHashMap (incremental rehash).
+ * Besides the total time, the put() latencies histogram (power-of-2 ns buckets) and the worst latency
+ * are printed at the end of each iteration.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkIncrementalRehash
+{
+    public enum Implementation
+    {
+        HPPCRT_HASHMAP, HPPCRT_INCREMENTAL;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "8000000"
+    })
+    public int targetSize;
+
+    private int[] keys;
+
+    /**
+     * histogram[i] = number of put() whose latency in ns is in [2^i, 2^(i+1)[
+     */
+    private long[] histogram;
+
+    private long maxLatency;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(0, 3 * this.targetSize, new XorShift128P(0x11223344L));
+
+        this.keys = gene.RANDOM.prepare(this.targetSize);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception
+    {
+        this.histogram = new long[64];
+        this.maxLatency = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() throws Exception
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("\n").append(this.implementation).append(" put() latencies:\n");
+
+        for (int i = 0; i < this.histogram.length; i++) {
+
+            if (this.histogram[i] > 0) {
+
+                sb.append(String.format("  [%12d, %12d[ ns : %d\n", 1L << i, 1L << (i + 1), this.histogram[i]));
+            }
+        }
+
+        sb.append(String.format("  max = %d ns\n", this.maxLatency));
+
+        System.out.print(sb.toString());
+    }
+
+    @Benchmark
+    public int timePut()
+    {
+        final int[] keys = this.keys;
+
+        int count = 0;
+
+        if (this.implementation == Implementation.HPPCRT_HASHMAP) {
+
+            final IntIntHashMap map = new IntIntHashMap();
+
+            for (int i = 0; i < keys.length; i++) {
+
+                final long start = System.nanoTime();
+                count += map.put(keys[i], i);
+                record(System.nanoTime() - start);
+            }
+
+            count += map.size();
+
+        } else {
+
+            final IntIntIncrementalHashMap map = new IntIntIncrementalHashMap();
+
+            for (int i = 0; i < keys.length; i++) {
+
+                final long start = System.nanoTime();
+                count += map.put(keys[i], i);
+                record(System.nanoTime() - start);
+            }
+
+            count += map.size();
+        }
+
+        return count;
+    }
+
+    private void record(final long latency) {
+
+        this.histogram[63 - Long.numberOfLeadingZeros(Math.max(latency, 1L))]++;
+
+        if (latency > this.maxLatency) {
+            this.maxLatency = latency;
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkIncrementalRehash.class, args, 1000, 2000);
+    }
+}
@@ -0,0 +1,132 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntIntHashMap;
+import com.carrotsearch.hppcrt.maps.LongIntHashMap;
+import com.carrotsearch.hppcrt.maps.LongLongIntHashMap;
+
+/**
+ * Lookups of (docId, fieldId)-like composite keys: IntIntIntHashMap against the two ints packed in
+ * the long key of a LongIntHashMap, and LongLongIntHashMap for pairs of longs.
+ * Half of the looked-up keys are in the map.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkPairKeyMap
+{
+    public enum Implementation
+    {
+        INT_PAIR, INT_PACKED, LONG_PAIR;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "100000", "5000000"
+    })
+    public int size;
+
+    @Param({
+        "2000000"
+    })
+    public int nbLookups;
+
+    private int[] keys1;
+
+    private int[] keys2;
+
+    private IntIntIntHashMap intPair;
+
+    private LongIntHashMap intPacked;
+
+    private LongLongIntHashMap longPair;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P rnd = new XorShift128P(0x11223344L);
+
+        //the map holds (docId, fieldId)-like keys: 16 fields for each even docId in [0; size / 8[
+        this.intPair = new IntIntIntHashMap(this.size);
+        this.intPacked = new LongIntHashMap(this.size);
+        this.longPair = new LongLongIntHashMap(this.size);
+
+        for (int i = 0; i < this.size; i++) {
+
+            final int k1 = 2 * (i / 16);
+            final int k2 = i % 16;
+
+            this.intPair.put(k1, k2, i);
+            this.intPacked.put(((long) k1 << 32) | k2, i);
+            this.longPair.put(k1, k2, i);
+        }
+
+        //look-up any docId in the same range, so that the odd ones miss
+        this.keys1 = new int[this.nbLookups];
+        this.keys2 = new int[this.nbLookups];
+
+        for (int i = 0; i < this.nbLookups; i++) {
+
+            this.keys1[i] = rnd.nextInt(2 * (this.size / 16));
+            this.keys2[i] = rnd.nextInt(16);
+        }
+    }
+
+    @Benchmark
+    public int timeGet()
+    {
+        final int[] keys1 = this.keys1;
+        final int[] keys2 = this.keys2;
+
+        int count = 0;
+
+        switch (this.implementation) {
+
+        case INT_PAIR:
+
+            final IntIntIntHashMap intPair = this.intPair;
+
+            for (int i = 0; i < keys1.length; i++) {
+                count += intPair.get(keys1[i], keys2[i]);
+            }
+            break;
+
+        case INT_PACKED:
+
+            final LongIntHashMap intPacked = this.intPacked;
+
+            for (int i = 0; i < keys1.length; i++) {
+                count += intPacked.get(((long) keys1[i] << 32) | keys2[i]);
+            }
+            break;
+
+        default:
+
+            final LongLongIntHashMap longPair = this.longPair;
+
+            for (int i = 0; i < keys1.length; i++) {
+                count += longPair.get(keys1[i], keys2[i]);
+            }
+            break;
+        }
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkPairKeyMap.class, args, 1000, 2000);
+    }
+}
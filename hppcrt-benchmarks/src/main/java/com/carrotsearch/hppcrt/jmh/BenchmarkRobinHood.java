@@ -0,0 +1,179 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.BitUtil;
+import com.carrotsearch.hppcrt.Util;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+import com.carrotsearch.hppcrt.maps.IntIntRobinHoodHashMap;
+import com.carrotsearch.hppcrt.sets.IntHashSet;
+
+/**
+ * IntIntHashMap (linear probing) against IntIntRobinHoodHashMap (linear probing with Robin-Hood hashing)
+ * filled up to a given load factor, from the usual 0.75 to the max 0.9 where probe sequences are the longest:
+ * put() into a presized map, get() of present keys, get() of absent keys.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkRobinHood
+{
+    public enum Implementation
+    {
+        HPPCRT_HASHMAP, HPPCRT_ROBIN_HOOD;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "0.75", "0.8", "0.85", "0.9"
+    })
+    public float loadFactor;
+
+    @Param({
+        "2000000"
+    })
+    public int targetSize;
+
+    /**
+     * Distinct keys, filling the buffers up to loadFactor
+     */
+    private int[] keys;
+
+    /**
+     * keys, in a different order
+     */
+    private int[] hitKeys;
+
+    /**
+     * Keys absent of the map
+     */
+    private int[] missKeys;
+
+    /**
+     * Map filled with keys, for get()
+     */
+    private IntIntHashMap map;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P prng = new XorShift128P(0x11223344L);
+
+        //size the buffers so that keys fill them up to loadFactor, with a margin to be sure to NOT reallocate.
+        final int bufferSize = BitUtil.nextHighestPowerOfTwo((int) (this.targetSize / this.loadFactor));
+        final int nbKeys = (int) (bufferSize * this.loadFactor) - 32;
+
+        final IntHashSet distinct = new IntHashSet(2 * nbKeys);
+
+        this.keys = new int[nbKeys];
+        this.missKeys = new int[nbKeys];
+
+        for (int i = 0; i < nbKeys;) {
+
+            final int key = prng.nextInt();
+
+            if (key != 0 && distinct.add(key)) {
+
+                this.keys[i++] = key;
+            }
+        }
+
+        for (int i = 0; i < nbKeys;) {
+
+            final int key = prng.nextInt();
+
+            if (key != 0 && !distinct.contains(key)) {
+
+                this.missKeys[i++] = key;
+            }
+        }
+
+        this.hitKeys = this.keys.clone();
+        Util.shuffle(this.hitKeys, prng);
+
+        this.map = newMap(nbKeys);
+
+        for (int i = 0; i < nbKeys; i++) {
+
+            this.map.put(this.keys[i], i);
+        }
+
+        System.out.println(String.format("\n%s: %d keys, effective load factor = %f",
+                this.implementation, this.map.size(), this.map.size() / (double) this.map.keys.length));
+    }
+
+    private IntIntHashMap newMap(final int size) {
+
+        if (this.implementation == Implementation.HPPCRT_HASHMAP) {
+
+            return new IntIntHashMap(size, this.loadFactor);
+        }
+
+        return new IntIntRobinHoodHashMap(size, this.loadFactor);
+    }
+
+    @Benchmark
+    public int timePut()
+    {
+        final int[] keys = this.keys;
+
+        final IntIntHashMap map = newMap(keys.length);
+
+        int count = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            count += map.put(keys[i], i);
+        }
+
+        return count + map.size();
+    }
+
+    @Benchmark
+    public int timeGetHit()
+    {
+        final int[] keys = this.hitKeys;
+        final IntIntHashMap map = this.map;
+
+        int count = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            count += map.get(keys[i]);
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public int timeGetMiss()
+    {
+        final int[] keys = this.missKeys;
+        final IntIntHashMap map = this.map;
+
+        int count = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            count += map.get(keys[i]);
+        }
+
+        return count;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkRobinHood.class, args, 1000, 2000);
+    }
+}
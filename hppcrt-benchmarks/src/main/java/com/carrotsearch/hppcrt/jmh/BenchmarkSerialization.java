@@ -0,0 +1,183 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.DistributionGenerator;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.lists.IntArrayList;
+import com.carrotsearch.hppcrt.maps.IntIntHashMap;
+
+/**
+ * Benchmark the binary codec of IntIntHashMap and IntArrayList (writeTo() / readFrom(), with compacted or as-is hash tables)
+ * against Java serialization through ObjectOutputStream of the equivalent boxed JDK containers.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkSerialization
+{
+    public enum Codec
+    {
+        OBJECT_STREAM, HPPCRT_COMPACT, HPPCRT_AS_IS;
+    }
+
+    @Param
+    public Codec codec;
+
+    @Param({
+        "1000000"
+    })
+    public int targetSize;
+
+    public IntIntHashMap map;
+
+    public IntArrayList list;
+
+    public HashMap<Integer, Integer> jdkMap;
+
+    public ArrayList<Integer> jdkList;
+
+    /**
+     * Serialized forms, to benchmark the reads.
+     */
+    private byte[] mapBytes;
+
+    private byte[] listBytes;
+
+    /**
+     * Reused output, to benchmark the writes.
+     */
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final DistributionGenerator gene = new DistributionGenerator(-this.targetSize, 3 * this.targetSize, new XorShift128P(0x11223344L));
+
+        final int[] keys = gene.RANDOM.prepare(this.targetSize);
+
+        this.map = new IntIntHashMap(this.targetSize);
+        this.list = new IntArrayList(this.targetSize);
+        this.jdkMap = new HashMap<Integer, Integer>(2 * this.targetSize);
+        this.jdkList = new ArrayList<Integer>(this.targetSize);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            this.map.put(keys[i], i);
+            this.jdkMap.put(keys[i], i);
+
+            this.list.add(keys[i]);
+            this.jdkList.add(keys[i]);
+        }
+
+        this.output = new ByteArrayOutputStream(32 * this.targetSize);
+
+        writeMap();
+        this.mapBytes = this.output.toByteArray();
+
+        writeList();
+        this.listBytes = this.output.toByteArray();
+
+        System.out.println(String.format("\n%s: serialized map = %d bytes, list = %d bytes",
+                this.codec, this.mapBytes.length, this.listBytes.length));
+    }
+
+    @Benchmark
+    public int timeMapWrite() throws IOException
+    {
+        writeMap();
+
+        return this.output.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Benchmark
+    public int timeMapRead() throws IOException, ClassNotFoundException
+    {
+        final ByteArrayInputStream input = new ByteArrayInputStream(this.mapBytes);
+
+        if (this.codec == Codec.OBJECT_STREAM) {
+
+            return ((HashMap<Integer, Integer>) new ObjectInputStream(input).readObject()).size();
+        }
+
+        return IntIntHashMap.readFrom(new DataInputStream(input)).size();
+    }
+
+    @Benchmark
+    public int timeListWrite() throws IOException
+    {
+        writeList();
+
+        return this.output.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Benchmark
+    public int timeListRead() throws IOException, ClassNotFoundException
+    {
+        final ByteArrayInputStream input = new ByteArrayInputStream(this.listBytes);
+
+        if (this.codec == Codec.OBJECT_STREAM) {
+
+            return ((ArrayList<Integer>) new ObjectInputStream(input).readObject()).size();
+        }
+
+        return IntArrayList.readFrom(new DataInputStream(input)).size();
+    }
+
+    private void writeMap() throws IOException
+    {
+        this.output.reset();
+
+        if (this.codec == Codec.OBJECT_STREAM) {
+
+            final ObjectOutputStream out = new ObjectOutputStream(this.output);
+            out.writeObject(this.jdkMap);
+            out.close();
+
+        } else {
+
+            this.map.writeTo(new DataOutputStream(this.output), this.codec == Codec.HPPCRT_AS_IS);
+        }
+    }
+
+    private void writeList() throws IOException
+    {
+        this.output.reset();
+
+        if (this.codec == Codec.OBJECT_STREAM) {
+
+            final ObjectOutputStream out = new ObjectOutputStream(this.output);
+            out.writeObject(this.jdkList);
+            out.close();
+
+        } else {
+
+            //a list has no hash table: both HPPCRT codecs are the same
+            this.list.writeTo(new DataOutputStream(this.output));
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkSerialization.class, args, 500, 1500);
+    }
+}
@@ -0,0 +1,204 @@
+package com.carrotsearch.hppcrt.jmh;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import com.carrotsearch.hppcrt.BenchmarkSuiteRunner;
+import com.carrotsearch.hppcrt.XorShift128P;
+import com.carrotsearch.hppcrt.maps.LongLongSortedMap;
+import com.carrotsearch.hppcrt.procedures.LongLongProcedure;
+
+/**
+ * LongLongSortedMap against java.util.TreeMap<Long, Long>: random puts, floor lookups,
+ * and range scans of about rangeLength entries starting at random keys.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkSortedMap
+{
+    public enum Implementation
+    {
+        HPPCRT, JDK;
+    }
+
+    @Param
+    public Implementation implementation;
+
+    @Param({
+        "10000", "1000000"
+    })
+    public int size;
+
+    @Param({
+        "100"
+    })
+    public int rangeLength;
+
+    @Param({
+        "100000"
+    })
+    public int nbLookups;
+
+    private long[] keys;
+
+    private long[] lookups;
+
+    private LongLongSortedMap hppc;
+
+    private TreeMap<Long, Long> jdk;
+
+    /**
+     * Sums the scanned entries.
+     */
+    private static final class SumProcedure implements LongLongProcedure
+    {
+        public long sum;
+
+        @Override
+        public void apply(final long key, final long value) {
+            this.sum += value;
+        }
+    }
+
+    private final SumProcedure sumProcedure = new SumProcedure();
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        final XorShift128P rnd = new XorShift128P(0x11223344L);
+
+        //keys are spread on [0; 4 * size[, so that a range of
+        //width 4 * rangeLength holds about rangeLength keys.
+        this.keys = new long[this.size];
+
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = (rnd.nextLong() >>> 1) % (4L * this.size);
+        }
+
+        this.lookups = new long[this.nbLookups];
+
+        for (int i = 0; i < this.nbLookups; i++) {
+            this.lookups[i] = (rnd.nextLong() >>> 1) % (4L * this.size);
+        }
+
+        this.hppc = new LongLongSortedMap();
+        this.jdk = new TreeMap<Long, Long>();
+
+        for (final long key : this.keys) {
+
+            this.hppc.put(key, key);
+            this.jdk.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public int timePut()
+    {
+        final long[] keys = this.keys;
+
+        if (this.implementation == Implementation.HPPCRT) {
+
+            final LongLongSortedMap map = new LongLongSortedMap();
+
+            for (int i = 0; i < keys.length; i++) {
+                map.put(keys[i], i);
+            }
+
+            return map.size();
+        }
+
+        final TreeMap<Long, Long> map = new TreeMap<Long, Long>();
+
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], (long) i);
+        }
+
+        return map.size();
+    }
+
+    @Benchmark
+    public long timeFloor()
+    {
+        final long[] lookups = this.lookups;
+
+        long sum = 0;
+
+        if (this.implementation == Implementation.HPPCRT) {
+
+            final LongLongSortedMap map = this.hppc;
+
+            for (int i = 0; i < lookups.length; i++) {
+
+                final int index = map.floorIndex(lookups[i]);
+
+                if (index != -1) {
+                    sum += map.valueAt(index);
+                }
+            }
+
+            return sum;
+        }
+
+        final TreeMap<Long, Long> map = this.jdk;
+
+        for (int i = 0; i < lookups.length; i++) {
+
+            final Map.Entry<Long, Long> entry = map.floorEntry(lookups[i]);
+
+            if (entry != null) {
+                sum += entry.getValue();
+            }
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public long timeRangeScan()
+    {
+        final long[] lookups = this.lookups;
+        final long rangeWidth = 4L * this.rangeLength;
+
+        long sum = 0;
+
+        if (this.implementation == Implementation.HPPCRT) {
+
+            final LongLongSortedMap map = this.hppc;
+            final SumProcedure procedure = this.sumProcedure;
+
+            procedure.sum = 0;
+
+            for (int i = 0; i < lookups.length; i++) {
+
+                map.forEach(lookups[i], lookups[i] + rangeWidth, procedure);
+            }
+
+            return procedure.sum;
+        }
+
+        final TreeMap<Long, Long> map = this.jdk;
+
+        for (int i = 0; i < lookups.length; i++) {
+
+            for (final Long value : map.subMap(lookups[i], lookups[i] + rangeWidth).values()) {
+                sum += value;
+            }
+        }
+
+        return sum;
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        BenchmarkSuiteRunner.runJmhBasicBenchmarkWithCommandLine(BenchmarkSortedMap.class, args, 1000, 2000);
+    }
+}
@@ -281,6 +281,16 @@ public final class TemplateProcessor
                     }
                 }
             }
+            //C) VType only specialization, for maps with a fixed key type
+            else if (fileName.contains("VType")) {
+                for (final Type t : Type.values()) {
+
+                    final TemplateOptions options = new TemplateOptions(null, t);
+
+                    options.setVerbose(this.verbose);
+                    generate(f, outputs, options);
+                }
+            }
         }
 
         return outputs;
@@ -174,10 +174,10 @@ public class ReplacementVisitorBase extends Java7ParserBaseVisitor<List<Replacem
                 identifier = this.templateOptions.isVTypePrimitive() ? this.templateOptions.getVType().getType() : "VType";
                 break;
             default:
-                if (identifier.contains("KType")) {
+                if (identifier.contains("KType") && this.templateOptions.hasKType()) {
                     identifier = identifier.replace("KType", this.templateOptions.getKType().getBoxedType());
                 }
-                if (identifier.contains("VType")) {
+                if (identifier.contains("VType") && this.templateOptions.hasVType()) {
                     identifier = identifier.replace("VType", this.templateOptions.getVType().getBoxedType());
                 }
                 break;
@@ -206,6 +206,9 @@ public class ReplacementVisitorBase extends Java7ParserBaseVisitor<List<Replacem
         //always make an independent copy
         replacements = new ArrayList<>(replacements);
 
+        //VType is bound by the second type argument of KTypeVType names, by the first one of VType-only names.
+        final int vtypeBoundIndex = identifier.contains("KType") ? 1 : 0;
+
         if (identifier.contains("KType") && typeBounds.size() >= 1) {
 
             final TypeBound bb = typeBounds.get(0);
@@ -216,8 +219,8 @@ public class ReplacementVisitorBase extends Java7ParserBaseVisitor<List<Replacem
             }
         }
 
-        if (identifier.contains("VType") && typeBounds.size() >= 2) {
-            final TypeBound bb = typeBounds.get(1);
+        if (identifier.contains("VType") && typeBounds.size() > vtypeBoundIndex) {
+            final TypeBound bb = typeBounds.get(vtypeBoundIndex);
             if (bb.isTemplateType()) {
                 identifier = identifier.replace("VType", bb.getBoxedType());
             } else {
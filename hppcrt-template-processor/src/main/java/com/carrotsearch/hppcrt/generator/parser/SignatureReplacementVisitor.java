@@ -75,12 +75,15 @@ public class SignatureReplacementVisitor extends ReplacementVisitorBase
             }
 
             //1) Existing generic identifiers
+            //VType is the second type argument of KTypeVType classes, the first one of VType-only classes.
+            final int vtypeBoundIndex = className.contains("KType") ? 1 : 0;
+
             if (className.contains("KType") && typeBounds.size() >= 1) {
                 className = className.replace("KType", typeBounds.get(0).templateBound().getBoxedType());
             }
 
-            if (className.contains("VType") && typeBounds.size() >= 2) {
-                className = className.replace("VType", typeBounds.get(1).templateBound().getBoxedType());
+            if (className.contains("VType") && typeBounds.size() > vtypeBoundIndex) {
+                className = className.replace("VType", typeBounds.get(vtypeBoundIndex).templateBound().getBoxedType());
             }
 
             //2) At that point, if className still contains KType/VType, that
@@ -410,10 +413,10 @@ public class SignatureReplacementVisitor extends ReplacementVisitorBase
 
             if (isTemplateIdentifier(symbol)) {
 
-                if (symbol.contains("KType")) {
+                if (symbol.contains("KType") && this.templateOptions.hasKType()) {
                     symbol = symbol.replace("KType", this.templateOptions.getKType().getBoxedType());
                 }
-                if (symbol.contains("VType")) {
+                if (symbol.contains("VType") && this.templateOptions.hasVType()) {
                     symbol = symbol.replace("VType", this.templateOptions.getVType().getBoxedType());
                 }
 
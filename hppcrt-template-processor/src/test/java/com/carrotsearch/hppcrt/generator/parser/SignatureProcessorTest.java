@@ -63,6 +63,14 @@ public class SignatureProcessorTest
         check(Type.GENERIC, sp, "public class ObjectClass<KType> {}");
     }
 
+    @Test
+    public void testClassV() throws IOException {
+        final SignatureProcessor sp = new SignatureProcessor(
+                "public class BytesVTypeClass<VType> { public VType get(BytesVTypeClass<VType> other) {} }");
+        check(null, Type.INT, sp, "public class BytesIntClass { public int get(BytesIntClass other) {} }");
+        check(null, Type.GENERIC, sp, "public class BytesObjectClass<VType> { public VType get(BytesObjectClass<VType> other) {} }");
+    }
+
     @Test
     public void testClassExtendsNonTemplate() throws IOException {
         final SignatureProcessor sp = new SignatureProcessor("public class KTypeVTypeClass<KType, VType> extends SuperClass {}");
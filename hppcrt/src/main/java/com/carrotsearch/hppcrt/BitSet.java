@@ -0,0 +1,761 @@
+package com.carrotsearch.hppcrt;
+
+import com.carrotsearch.hppcrt.cursors.IntCursor;
+import com.carrotsearch.hppcrt.predicates.IntPredicate;
+import com.carrotsearch.hppcrt.procedures.IntProcedure;
+
+/**
+ * A growable set of non-negative ints, as a bitset of {@link #bits} words.
+ * <p>
+ * Unlike {@link java.util.BitSet}, the words are directly accessible, and the
+ * set-to-set operations ({@link #and}, {@link #or}, {@link #andNot}, {@link #xor}) and their counting-only
+ * versions ({@link #intersectionCount} ...) are word-level loops over the {@link BitUtil} pop_* functions,
+ * without building an intermediate set.
+ * </p>
+ * <p>
+ * Iteration of the set bits allocates nothing, by {@link #forEach(IntProcedure)} or by the pooled
+ * {@link #iterator()}, in the same way as the other containers.
+ * </p>
+ */
+public class BitSet implements Iterable<IntCursor>, Cloneable
+{
+    /**
+     * The words of the bitset: bit i is (bits[i >> 6] & (1L << i)) != 0.
+     * Words at or beyond {@link #wlen} are always 0.
+     */
+    public long[] bits;
+
+    /**
+     * The number of words in use in {@link #bits}: all the set bits are in [0; wlen * 64[.
+     */
+    public int wlen;
+
+    /**
+     * Growth of {@link #bits}.
+     */
+    protected final ArraySizingStrategy resizer;
+
+    /**
+     * internal pool of EntryIterator
+     */
+    protected final IteratorPool<IntCursor, EntryIterator> entryIteratorPool = new IteratorPool<IntCursor, EntryIterator>(
+            new ObjectFactory<EntryIterator>() {
+
+                @Override
+                public EntryIterator create() {
+
+                    return new EntryIterator();
+                }
+
+                @Override
+                public void initialize(final EntryIterator obj) {
+
+                    obj.cursor.index = -1;
+                    obj.cursor.value = -1;
+                }
+
+                @Override
+                public void reset(final EntryIterator obj) {
+                    //nothing
+                }
+            });
+
+    /**
+     * Create an empty bitset with the capacity of 64 bits.
+     */
+    public BitSet() {
+
+        this(64);
+    }
+
+    /**
+     * Create an empty bitset, able to hold bits in [0; numBits[ before growing.
+     */
+    public BitSet(final int numBits) {
+
+        this(new long[BitSet.bits2words(numBits)], 0);
+    }
+
+    /**
+     * Create a bitset over existing words.
+     * @param bits The words, used directly.
+     * @param numWords The number of words in use in bits, all words beyond being 0.
+     */
+    public BitSet(final long[] bits, final int numWords) {
+
+        if (numWords < 0 || numWords > bits.length) {
+            throw new IllegalArgumentException("numWords must be in [0; " + bits.length + "]: " + numWords);
+        }
+
+        this.bits = bits;
+        this.wlen = numWords;
+        this.resizer = new BoundedProportionalArraySizingStrategy();
+    }
+
+    /**
+     * The number of words needed to hold numBits bits.
+     */
+    public static int bits2words(final int numBits) {
+
+        return (int) ((numBits + 63L) >>> 6);
+    }
+
+    /**
+     * @return the number of bits the bitset can hold before growing.
+     */
+    public long capacity() {
+
+        return (long) this.bits.length << 6;
+    }
+
+    /**
+     * @return the index of the highest set bit + 1, or 0 if the bitset is empty.
+     */
+    public int length() {
+
+        trimTrailingZeros();
+
+        if (this.wlen == 0) {
+
+            return 0;
+        }
+
+        return ((this.wlen - 1) << 6) + 64 - Long.numberOfLeadingZeros(this.bits[this.wlen - 1]);
+    }
+
+    /**
+     * @return true if no bit is set.
+     */
+    public boolean isEmpty() {
+
+        return cardinality() == 0;
+    }
+
+    /**
+     * Grow {@link #bits} if needed to hold at least numWords words.
+     */
+    public void ensureCapacityWords(final int numWords) {
+
+        if (numWords > this.bits.length) {
+
+            final int newSize = this.resizer.grow(this.bits.length, this.wlen, numWords - this.wlen);
+
+            try {
+
+                final long[] newBits = new long[newSize];
+                System.arraycopy(this.bits, 0, newBits, 0, this.wlen);
+                this.bits = newBits;
+
+            } catch (final OutOfMemoryError e) {
+
+                throw new BufferAllocationException(
+                        "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                        e,
+                        this.bits.length,
+                        newSize);
+            }
+        }
+    }
+
+    /**
+     * Grow {@link #bits} if needed to hold the bits in [0; numBits[.
+     */
+    public void ensureCapacity(final int numBits) {
+
+        ensureCapacityWords(BitSet.bits2words(numBits));
+    }
+
+    /**
+     * Lower {@link #wlen} to exclude the trailing zero words.
+     */
+    public void trimTrailingZeros() {
+
+        int idx = this.wlen - 1;
+
+        while (idx >= 0 && this.bits[idx] == 0) {
+            idx--;
+        }
+
+        this.wlen = idx + 1;
+    }
+
+    /**
+     * @return true if the bit is set, false if not or if index is beyond the bitset.
+     */
+    public boolean get(final int index) {
+
+        final int i = index >> 6;
+
+        if (i >= this.wlen) {
+
+            return false;
+        }
+
+        return (this.bits[i] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the bit at index, growing the bitset if needed.
+     */
+    public void set(final int index) {
+
+        final int wordNum = expandingWordNum(index);
+
+        this.bits[wordNum] |= 1L << index;
+    }
+
+    /**
+     * Set the bits in [startIndex; endIndex[, growing the bitset if needed.
+     */
+    public void set(final int startIndex, final int endIndex) {
+
+        if (endIndex <= startIndex) {
+
+            return;
+        }
+
+        if (startIndex < 0) {
+            throw new IndexOutOfBoundsException("startIndex must be >= 0: " + startIndex);
+        }
+
+        final int startWord = startIndex >> 6;
+        final int endWord = expandingWordNum(endIndex - 1);
+
+        //the bits at or above startIndex in its word, and at or below endIndex - 1 in its word.
+        final long startMask = -1L << startIndex;
+        final long endMask = -1L >>> -endIndex;
+
+        if (startWord == endWord) {
+
+            this.bits[startWord] |= (startMask & endMask);
+            return;
+        }
+
+        this.bits[startWord] |= startMask;
+
+        for (int i = startWord + 1; i < endWord; i++) {
+            this.bits[i] = -1L;
+        }
+
+        this.bits[endWord] |= endMask;
+    }
+
+    /**
+     * Clear the bit at index.
+     */
+    public void clear(final int index) {
+
+        final int wordNum = index >> 6;
+
+        if (wordNum < this.wlen) {
+
+            this.bits[wordNum] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Clear all bits, without releasing {@link #bits}.
+     */
+    public void clear() {
+
+        for (int i = 0; i < this.wlen; i++) {
+            this.bits[i] = 0L;
+        }
+
+        this.wlen = 0;
+    }
+
+    /**
+     * Set the bit at index.
+     * @return the previous value of the bit.
+     */
+    public boolean getAndSet(final int index) {
+
+        final int wordNum = expandingWordNum(index);
+        final long mask = 1L << index;
+
+        final boolean previous = (this.bits[wordNum] & mask) != 0;
+
+        this.bits[wordNum] |= mask;
+
+        return previous;
+    }
+
+    /**
+     * Flip the bit at index, growing the bitset if needed.
+     */
+    public void flip(final int index) {
+
+        final int wordNum = expandingWordNum(index);
+
+        this.bits[wordNum] ^= 1L << index;
+    }
+
+    /**
+     * @return the index of the first set bit at or after index, or -1 if there is none.
+     */
+    public int nextSetBit(final int index) {
+
+        int i = index >> 6;
+
+        if (index < 0 || i >= this.wlen) {
+
+            return -1;
+        }
+
+        //skip the bits below index in the first word
+        long word = this.bits[i] >>> index;
+
+        if (word != 0) {
+
+            return index + Long.numberOfTrailingZeros(word);
+        }
+
+        while (++i < this.wlen) {
+
+            word = this.bits[i];
+
+            if (word != 0) {
+
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the index of the last set bit at or before index, or -1 if there is none.
+     */
+    public int prevSetBit(final int index) {
+
+        if (index < 0) {
+
+            return -1;
+        }
+
+        int i = index >> 6;
+        long word;
+
+        if (i >= this.wlen) {
+
+            i = this.wlen - 1;
+
+            if (i < 0) {
+
+                return -1;
+            }
+
+            word = this.bits[i];
+
+        } else {
+
+            //skip the bits above index in the first word
+            word = this.bits[i] << (63 - (index & 63));
+
+            if (word != 0) {
+
+                return index - Long.numberOfLeadingZeros(word);
+            }
+
+            if (--i < 0) {
+
+                return -1;
+            }
+
+            word = this.bits[i];
+        }
+
+        while (true) {
+
+            if (word != 0) {
+
+                return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+
+            if (--i < 0) {
+
+                return -1;
+            }
+
+            word = this.bits[i];
+        }
+    }
+
+    /**
+     * @return the number of set bits.
+     */
+    public long cardinality() {
+
+        return BitUtil.pop_array(this.bits, 0, this.wlen);
+    }
+
+    /**
+     * @return the number of bits set in both a and b, without building the intersection.
+     */
+    public static long intersectionCount(final BitSet a, final BitSet b) {
+
+        return BitUtil.pop_intersect(a.bits, b.bits, 0, Math.min(a.wlen, b.wlen));
+    }
+
+    /**
+     * @return the number of bits set in a or b, without building the union.
+     */
+    public static long unionCount(final BitSet a, final BitSet b) {
+
+        long count = BitUtil.pop_union(a.bits, b.bits, 0, Math.min(a.wlen, b.wlen));
+
+        if (a.wlen < b.wlen) {
+
+            count += BitUtil.pop_array(b.bits, a.wlen, b.wlen - a.wlen);
+
+        } else if (a.wlen > b.wlen) {
+
+            count += BitUtil.pop_array(a.bits, b.wlen, a.wlen - b.wlen);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of bits set in a but not in b, without building the difference.
+     */
+    public static long andNotCount(final BitSet a, final BitSet b) {
+
+        long count = BitUtil.pop_andnot(a.bits, b.bits, 0, Math.min(a.wlen, b.wlen));
+
+        if (a.wlen > b.wlen) {
+
+            count += BitUtil.pop_array(a.bits, b.wlen, a.wlen - b.wlen);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of bits set in either a or b, but not both, without building the symmetric difference.
+     */
+    public static long xorCount(final BitSet a, final BitSet b) {
+
+        long count = BitUtil.pop_xor(a.bits, b.bits, 0, Math.min(a.wlen, b.wlen));
+
+        if (a.wlen < b.wlen) {
+
+            count += BitUtil.pop_array(b.bits, a.wlen, b.wlen - a.wlen);
+
+        } else if (a.wlen > b.wlen) {
+
+            count += BitUtil.pop_array(a.bits, b.wlen, a.wlen - b.wlen);
+        }
+
+        return count;
+    }
+
+    /**
+     * this = this AND other
+     */
+    public void and(final BitSet other) {
+
+        final int newLen = Math.min(this.wlen, other.wlen);
+
+        final long[] thisArr = this.bits;
+        final long[] otherArr = other.bits;
+
+        for (int i = 0; i < newLen; i++) {
+            thisArr[i] &= otherArr[i];
+        }
+
+        //the words beyond other are cleared
+        for (int i = newLen; i < this.wlen; i++) {
+            thisArr[i] = 0L;
+        }
+
+        this.wlen = newLen;
+    }
+
+    /**
+     * this = this OR other
+     */
+    public void or(final BitSet other) {
+
+        final int newLen = Math.max(this.wlen, other.wlen);
+
+        ensureCapacityWords(newLen);
+
+        final long[] thisArr = this.bits;
+        final long[] otherArr = other.bits;
+
+        final int pos = Math.min(this.wlen, other.wlen);
+
+        for (int i = 0; i < pos; i++) {
+            thisArr[i] |= otherArr[i];
+        }
+
+        if (this.wlen < newLen) {
+            System.arraycopy(otherArr, this.wlen, thisArr, this.wlen, newLen - this.wlen);
+        }
+
+        this.wlen = newLen;
+    }
+
+    /**
+     * this = this AND NOT other
+     */
+    public void andNot(final BitSet other) {
+
+        final int len = Math.min(this.wlen, other.wlen);
+
+        final long[] thisArr = this.bits;
+        final long[] otherArr = other.bits;
+
+        for (int i = 0; i < len; i++) {
+            thisArr[i] &= ~otherArr[i];
+        }
+    }
+
+    /**
+     * this = this XOR other
+     */
+    public void xor(final BitSet other) {
+
+        final int newLen = Math.max(this.wlen, other.wlen);
+
+        ensureCapacityWords(newLen);
+
+        final long[] thisArr = this.bits;
+        final long[] otherArr = other.bits;
+
+        final int pos = Math.min(this.wlen, other.wlen);
+
+        for (int i = 0; i < pos; i++) {
+            thisArr[i] ^= otherArr[i];
+        }
+
+        if (this.wlen < newLen) {
+            System.arraycopy(otherArr, this.wlen, thisArr, this.wlen, newLen - this.wlen);
+        }
+
+        this.wlen = newLen;
+    }
+
+    /**
+     * @return true if this and other have at least one set bit in common.
+     */
+    public boolean intersects(final BitSet other) {
+
+        final int pos = Math.min(this.wlen, other.wlen);
+
+        final long[] thisArr = this.bits;
+        final long[] otherArr = other.bits;
+
+        for (int i = 0; i < pos; i++) {
+
+            if ((thisArr[i] & otherArr[i]) != 0) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Applies a given procedure to the indices of all set bits, in increasing order.
+     */
+    public <T extends IntProcedure> T forEach(final T procedure) {
+
+        final long[] bits = this.bits;
+
+        for (int i = 0; i < this.wlen; i++) {
+
+            long word = bits[i];
+
+            while (word != 0) {
+
+                procedure.apply((i << 6) + Long.numberOfTrailingZeros(word));
+
+                //clear the lowest set bit
+                word &= word - 1;
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to the indices of all set bits, in increasing order,
+     * until the predicate returns false.
+     */
+    public <T extends IntPredicate> T forEach(final T predicate) {
+
+        final long[] bits = this.bits;
+
+        for (int i = 0; i < this.wlen; i++) {
+
+            long word = bits[i];
+
+            while (word != 0) {
+
+                if (!predicate.apply((i << 6) + Long.numberOfTrailingZeros(word))) {
+
+                    return predicate;
+                }
+
+                word &= word - 1;
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * An iterator implementation for {@link #iterator}.
+     * Holds a IntCursor returning (value, index) = (index of the set bit, index of its word in {@link BitSet#bits})
+     */
+    public final class EntryIterator extends AbstractIterator<IntCursor>
+    {
+        public final IntCursor cursor;
+
+        public EntryIterator() {
+            this.cursor = new IntCursor();
+        }
+
+        @Override
+        protected IntCursor fetch() {
+
+            final int next = nextSetBit(this.cursor.value + 1);
+
+            if (next == -1) {
+
+                return done();
+            }
+
+            this.cursor.value = next;
+            this.cursor.index = next >> 6;
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * Returns an iterator over the indices of the set bits, in increasing order.
+     */
+    @Override
+    public EntryIterator iterator() {
+
+        return this.entryIteratorPool.borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet clone() {
+
+        final BitSet cloned = new BitSet(new long[Math.max(1, this.wlen)], this.wlen);
+
+        System.arraycopy(this.bits, 0, cloned.bits, 0, this.wlen);
+
+        return cloned;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+
+        //trailing zero words do not count
+        long h = 0;
+
+        for (int i = this.wlen; --i >= 0;) {
+
+            h ^= this.bits[i];
+            h = (h << 1) | (h >>> 63);
+        }
+
+        return (int) ((h >> 32) ^ h) + 0x98761234;
+    }
+
+    /**
+     * Two bitsets are equal if they have the same set bits, whatever their capacities.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        }
+
+        final BitSet other = (BitSet) obj;
+
+        final BitSet longer = (this.wlen >= other.wlen) ? this : other;
+        final BitSet shorter = (longer == this) ? other : this;
+
+        for (int i = longer.wlen; --i >= shorter.wlen;) {
+
+            if (longer.bits[i] != 0) {
+
+                return false;
+            }
+        }
+
+        for (int i = shorter.wlen; --i >= 0;) {
+
+            if (this.bits[i] != other.bits[i]) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("{");
+
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+
+            if (buffer.length() > 1) {
+
+                buffer.append(", ");
+            }
+
+            buffer.append(i);
+        }
+
+        buffer.append("}");
+
+        return buffer.toString();
+    }
+
+    /**
+     * The word of index, after growing the bitset and {@link #wlen} if needed.
+     */
+    private int expandingWordNum(final int index) {
+
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("index must be >= 0: " + index);
+        }
+
+        final int wordNum = index >> 6;
+
+        if (wordNum >= this.wlen) {
+
+            ensureCapacityWords(wordNum + 1);
+            this.wlen = wordNum + 1;
+        }
+
+        return wordNum;
+    }
+}
@@ -0,0 +1,148 @@
+package com.carrotsearch.hppcrt;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Utilities for direct (off-heap) and mapped {@link ByteBuffer}s.
+ */
+public final class DirectBuffers
+{
+    /**
+     * Java 9+ : sun.misc.Unsafe instance, or null.
+     */
+    private static final Object UNSAFE;
+
+    /**
+     * Java 9+ : sun.misc.Unsafe.invokeCleaner(ByteBuffer), or null.
+     */
+    private static final Method INVOKE_CLEANER;
+
+    /**
+     * Java 8- : java.nio.DirectByteBuffer.cleaner(), or null.
+     */
+    private static final Method CLEANER;
+
+    /**
+     * Java 8- : sun.misc.Cleaner.clean(), or null.
+     */
+    private static final Method CLEAN;
+
+    static {
+
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+
+        try {
+
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+
+        } catch (final Throwable notJava9) {
+
+            invokeCleaner = null;
+            unsafe = null;
+
+            try {
+
+                cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+                cleaner.setAccessible(true);
+
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                clean.setAccessible(true);
+
+            } catch (final Throwable notAvailable) {
+
+                //release() will only leave the buffers to the GC
+                cleaner = null;
+                clean = null;
+            }
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    /**
+     * No instances.
+     */
+    private DirectBuffers() {
+        //nothing
+    }
+
+    /**
+     * Allocate a zero-filled direct buffer of size bytes, in native byte order.
+     * @param size
+     */
+    @SuppressWarnings("boxing")
+    public static ByteBuffer allocate(final int size) {
+
+        try {
+
+            return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException("Not enough direct memory to allocate a buffer of %d bytes", e, size);
+        }
+    }
+
+    /**
+     * Zero-fill the whole buffer, without changing its position nor limit.
+     * @param buffer a buffer whose capacity is a multiple of 8.
+     */
+    public static void blank(final ByteBuffer buffer) {
+
+        final int size = buffer.capacity();
+
+        assert (size & 7) == 0;
+
+        for (int i = 0; i < size; i += 8) {
+
+            buffer.putLong(i, 0L);
+        }
+    }
+
+    /**
+     * Release the memory of a direct or mapped buffer immediately, if the running JVM
+     * allows it, else leave it to the GC. The buffer, or any of its views, must NEVER be used after this call.
+     * @param buffer a direct buffer, or null.
+     */
+    public static void release(final ByteBuffer buffer) {
+
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        try {
+
+            if (DirectBuffers.INVOKE_CLEANER != null) {
+
+                DirectBuffers.INVOKE_CLEANER.invoke(DirectBuffers.UNSAFE, buffer);
+
+            } else if (DirectBuffers.CLEANER != null) {
+
+                //may be null for slices or duplicates
+                final Object cleaner = DirectBuffers.CLEANER.invoke(buffer);
+
+                if (cleaner != null) {
+                    DirectBuffers.CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (final Throwable e) {
+
+            //not allowed: leave it to the GC
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.carrotsearch.hppcrt;
+
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * Memory fences for the optimistic (sequence validated) reads of the concurrent containers.
+ * <p>
+ * The Java 1.5 API has none, so they are the Java 8+ sun.misc.Unsafe.loadFence() / storeFence(),
+ * on an Unsafe instance looked up once by reflection and called directly, so that they are intrinsified by the JIT.
+ * If they are not available, {@link #AVAILABLE} is false and the containers must not read optimistically.
+ * </p>
+ */
+public final class Fences
+{
+    /**
+     * True if {@link #loadFence()} and {@link #storeFence()} can be used.
+     */
+    public static final boolean AVAILABLE;
+
+    /**
+     * The Unsafe instance if it has the fences, else null.
+     */
+    private static final Unsafe UNSAFE;
+
+    static {
+
+        Unsafe unsafe = null;
+
+        try {
+
+            final Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = (Unsafe) theUnsafe.get(null);
+
+            //Java 8+ only
+            Unsafe.class.getMethod("loadFence");
+            Unsafe.class.getMethod("storeFence");
+
+        } catch (final Throwable notAvailable) {
+
+            unsafe = null;
+        }
+
+        UNSAFE = unsafe;
+        AVAILABLE = (unsafe != null);
+    }
+
+    /**
+     * No instances.
+     */
+    private Fences() {
+        //nothing
+    }
+
+    /**
+     * Loads before the fence are not reordered with loads and stores after the fence.
+     * Only if {@link #AVAILABLE}.
+     */
+    public static void loadFence() {
+
+        Fences.UNSAFE.loadFence();
+    }
+
+    /**
+     * Loads and stores before the fence are not reordered with stores after the fence.
+     * Only if {@link #AVAILABLE}.
+     */
+    public static void storeFence() {
+
+        Fences.UNSAFE.storeFence();
+    }
+}
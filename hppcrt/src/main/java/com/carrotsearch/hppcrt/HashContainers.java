@@ -28,6 +28,24 @@ public final class HashContainers
      */
     public final static double MAX_LOAD_FACTOR = 90.0 / 100.0;
 
+    /**
+     * Number of keys whose slots are computed and first probed together
+     * by the batch lookup methods of hash containers (getAll(), containsAll()...),
+     * so that their cache misses overlap. At most 64, as the pending keys of a batch are tracked in a long.
+     */
+    public final static int BATCH_LOOKUP_SIZE = 16;
+
+    /**
+     * Maximum total buffer size for big (paged) hash containers (power-of-two and still
+     * a positive long).
+     */
+    public final static long MAX_BIG_HASH_ARRAY_LENGTH = 0x8000000000000000L >>> 1;
+
+    /**
+     * Default maximum size of a single page of the buffers of big (paged) hash containers. (must be a power-of-two !)
+     */
+    public final static int DEFAULT_BIG_HASH_PAGE_SIZE = 1 << 22;
+
     /**
      * No instances.
      */
@@ -113,6 +131,70 @@ public final class HashContainers
         return Math.min(arraySize - 1, (int) Math.ceil(arraySize * loadFactor));
     }
 
+    /**
+     * Big (paged) hash containers version of {@link #minBufferSize(int, double)}.
+     *
+     * @param elements
+     * @param loadFactor
+     */
+    @SuppressWarnings("boxing")
+    public static long minBigBufferSize(final long elements, final double loadFactor) {
+
+        HashContainers.checkLoadFactor(loadFactor, HashContainers.MIN_LOAD_FACTOR, HashContainers.MAX_LOAD_FACTOR);
+
+        //Assure room for one additional slot (marking the not-allocated) + one more as safety margin.
+        long length = (long) (elements / loadFactor) + 2;
+
+        if (length < 0 || length > HashContainers.MAX_BIG_HASH_ARRAY_LENGTH) {
+
+            throw new BufferAllocationException(
+                    "Maximum array size exceeded for this load factor (elements: %d, load factor: %f)",
+                    elements,
+                    loadFactor);
+        }
+
+        //Then, round it to the next power of 2.
+        length = Math.max(HashContainers.MIN_HASH_ARRAY_LENGTH, BitUtil.nextHighestPowerOfTwo(length));
+
+        return length;
+    }
+
+    /**
+     * Big (paged) hash containers version of {@link #nextBufferSize(int, int, double)}.
+     *
+     * @param arraySize
+     * @param elements
+     * @param loadFactor
+     */
+    @SuppressWarnings("boxing")
+    public static long nextBigBufferSize(final long arraySize, final long elements, final double loadFactor) {
+
+        HashContainers.checkPowerOfTwo(arraySize);
+
+        if (arraySize == HashContainers.MAX_BIG_HASH_ARRAY_LENGTH) {
+            throw new BufferAllocationException(
+                    "Maximum array size exceeded for this load factor (elements: %d, load factor: %f)",
+                    elements,
+                    loadFactor);
+        }
+
+        return arraySize << 1;
+    }
+
+    /**
+     * Big (paged) hash containers version of {@link #expandAtCount(int, double)}.
+     *
+     * @param arraySize
+     * @param loadFactor
+     */
+    public static long expandAtBigCount(final long arraySize, final double loadFactor) {
+
+        HashContainers.checkPowerOfTwo(arraySize);
+        // Take care of hash container invariant (there has to be at least one empty slot to ensure
+        // the lookup loop finds either the element or an empty slot).
+        return Math.min(arraySize - 1, (long) Math.ceil(arraySize * loadFactor));
+    }
+
     /** */
     @SuppressWarnings("boxing")
     private static void checkLoadFactor(final double loadFactor, final double minAllowedInclusive,
@@ -136,4 +218,13 @@ public final class HashContainers
             throw new IllegalArgumentException("arraySize must be a power of two !");
         }
     }
+
+    /** */
+    private static void checkPowerOfTwo(final long arraySize) {
+
+        if (BitUtil.nextHighestPowerOfTwo(arraySize) != arraySize) {
+
+            throw new IllegalArgumentException("arraySize must be a power of two !");
+        }
+    }
 }
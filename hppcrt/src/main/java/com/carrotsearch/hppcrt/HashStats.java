@@ -0,0 +1,140 @@
+package com.carrotsearch.hppcrt;
+
+/**
+ * Snapshot of the layout of the buffers of an open addressing hash container,
+ * as returned by the <code>stats()</code> method of hash maps and sets, to diagnose slow containers:
+ * <p>
+ * - long probes with a small number of big clusters point to a bad hash distribution (like a poor <code>hashKey()</code> override),
+ * </p>
+ * <p>
+ * - long probes with many medium clusters point to a too high load factor.
+ * </p>
+ * <p>
+ * The probe length of a key is the number of slots probed by a successful lookup of the key, i.e 1 if the key is in
+ * its ideal slot. A cluster is a maximal run of consecutive occupied slots, the worst unsuccessful lookup probing a whole cluster.
+ * The key 0/null, stored outside of the buffers, is only accounted for in {@link #size}.
+ * </p>
+ */
+public final class HashStats
+{
+    /**
+     * Number of buckets of {@link #clusterSizeHistogram}.
+     */
+    public static final int HISTOGRAM_LENGTH = 32;
+
+    /**
+     * Number of keys of the container.
+     */
+    public final int size;
+
+    /**
+     * Number of slots of the buffers.
+     */
+    public final int bufferSize;
+
+    /**
+     * The load factor of the container, i.e the max fraction of occupied slots before the buffers are expanded.
+     */
+    public final double loadFactor;
+
+    /**
+     * The actual fraction of occupied slots.
+     */
+    public final double effectiveLoadFactor;
+
+    /**
+     * Number of times the buffers have been expanded (and the keys rehashed) since the creation of the container.
+     */
+    public final int resizeCount;
+
+    /**
+     * Maximum probe length of the keys in the buffers, 0 if the buffers are empty.
+     */
+    public final int maxProbeLength;
+
+    /**
+     * Mean probe length of the keys in the buffers, 0 if the buffers are empty.
+     */
+    public final double meanProbeLength;
+
+    /**
+     * Number of clusters.
+     */
+    public final int clusterCount;
+
+    /**
+     * Size of the biggest cluster.
+     */
+    public final int maxClusterSize;
+
+    /**
+     * clusterSizeHistogram[i] = number of clusters whose size is in [2^i, 2^(i+1)[
+     */
+    public final int[] clusterSizeHistogram;
+
+    /**
+     * Constructor, for the containers. clusterSizeHistogram is not copied.
+     */
+    public HashStats(final int size, final int bufferSize, final double loadFactor, final int resizeCount,
+            final int nbProbed, final int maxProbeLength, final long sumProbeLengths,
+            final int maxClusterSize, final int[] clusterSizeHistogram) {
+
+        this.size = size;
+        this.bufferSize = bufferSize;
+        this.loadFactor = loadFactor;
+        this.effectiveLoadFactor = nbProbed / (double) bufferSize;
+        this.resizeCount = resizeCount;
+        this.maxProbeLength = maxProbeLength;
+        this.meanProbeLength = nbProbed == 0 ? 0.0 : sumProbeLengths / (double) nbProbed;
+        this.maxClusterSize = maxClusterSize;
+        this.clusterSizeHistogram = clusterSizeHistogram;
+
+        int clusterCount = 0;
+
+        for (int i = 0; i < clusterSizeHistogram.length; i++) {
+
+            clusterCount += clusterSizeHistogram[i];
+        }
+
+        this.clusterCount = clusterCount;
+    }
+
+    /**
+     * Index of the bucket of {@link #clusterSizeHistogram} for a cluster of the given (strictly positive) size.
+     */
+    public static int histogramBucket(final int clusterSize) {
+
+        return 31 - Integer.numberOfLeadingZeros(clusterSize);
+    }
+
+    @SuppressWarnings("boxing")
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("[size = %d, buffer size = %d, load factor = %f, effective load factor = %f, resizes = %d, " +
+                "probe length: mean = %f, max = %d, clusters: count = %d, max size = %d, sizes histogram = {",
+                this.size, this.bufferSize, this.loadFactor, this.effectiveLoadFactor, this.resizeCount,
+                this.meanProbeLength, this.maxProbeLength, this.clusterCount, this.maxClusterSize));
+
+        boolean first = true;
+
+        for (int i = 0; i < this.clusterSizeHistogram.length; i++) {
+
+            if (this.clusterSizeHistogram[i] > 0) {
+
+                if (!first) {
+                    sb.append(", ");
+                }
+
+                sb.append(String.format("[%d, %d[ : %d", 1L << i, 1L << (i + 1), this.clusterSizeHistogram[i]));
+                first = false;
+            }
+        }
+
+        sb.append("}]");
+
+        return sb.toString();
+    }
+}
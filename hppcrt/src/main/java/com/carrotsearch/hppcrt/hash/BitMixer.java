@@ -199,4 +199,60 @@ public final class BitMixer
     public static int mix(final Object key) {
         return key == null ? 0 : MurmurHash3.mix32(key.hashCode());
     }
+
+    /**
+     * Mix an int perturbated by a seed, to a long hash value, for
+     * containers addressing more than 2^32 slots.
+     * 
+     * @param k
+     *          an int.
+     * @param seed
+     *          a perturbation value
+     * @return a long hash value obtained by mixing the bits of {@code k}.
+     */
+    public static long mix64(final int k, final int seed) {
+        return MurmurHash3.mix64(k ^ seed);
+    }
+
+    /**
+     * Mix a long perturbated by a seed, to a long hash value, for
+     * containers addressing more than 2^32 slots.
+     * 
+     * @param z
+     *          a long integer.
+     * @param seed
+     *          a perturbation value
+     * @return a long hash value obtained by mixing the bits of {@code z}.
+     */
+    public static long mix64(final long z, final int seed) {
+        return MurmurHash3.mix64(z ^ seed);
+    }
+
+    /**
+     * Mix a float perturbated by a seed, to a long hash value, for
+     * containers addressing more than 2^32 slots.
+     * 
+     * @param x
+     *          a float.
+     * @param seed
+     *          a perturbation value
+     * @return a long hash value obtained by mixing the bits of {@code x}.
+     */
+    public static long mix64(final float x, final int seed) {
+        return MurmurHash3.mix64(Float.floatToIntBits(x) ^ seed);
+    }
+
+    /**
+     * Mix a double perturbated by a seed, to a long hash value, for
+     * containers addressing more than 2^32 slots.
+     * 
+     * @param x
+     *          a double.
+     * @param seed
+     *          a perturbation value
+     * @return a long hash value obtained by mixing the bits of {@code x}.
+     */
+    public static long mix64(final double x, final int seed) {
+        return MurmurHash3.mix64(Double.doubleToLongBits(x) ^ seed);
+    }
 }
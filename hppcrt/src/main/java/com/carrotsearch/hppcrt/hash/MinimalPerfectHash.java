@@ -0,0 +1,211 @@
+package com.carrotsearch.hppcrt.hash;
+
+/**
+ * Minimal perfect hashing of a set of distinct 64-bit hashes, following the CHD algorithm
+ * ("Hash, displace, and compress", Belazzougui, Botelho and Dietzfelbinger, 2009):
+ * <p>
+ * The n hashes are first split into ~n / {@link #KEYS_PER_BUCKET} buckets. Then,
+ * from the biggest bucket to the smallest, each bucket is given the first displacement d such that its hashes
+ * are sent by {@link #slot(long, int, int)} to free slots of a table of n slots. Buckets of a single hash are
+ * placed last, directly in the remaining free slots, their displacement encoding the slot itself.
+ * </p>
+ * <p>
+ * So, the slot of a hash is found with one lookup in the displacements array, without any probing.
+ * </p>
+ */
+public final class MinimalPerfectHash
+{
+    /**
+     * Average number of hashes per bucket: the displacements array
+     * costs 32 / KEYS_PER_BUCKET bits per hash.
+     */
+    public static final int KEYS_PER_BUCKET = 4;
+
+    /**
+     * Max displacement tried for a bucket before giving up.
+     */
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    /**
+     * 2^64 / golden ratio.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * No instances.
+     */
+    private MinimalPerfectHash() {
+        //nothing
+    }
+
+    /**
+     * @return the size of the table for nbKeys keys, at least 1 to spare an emptiness test in lookups.
+     */
+    public static int tableSize(final int nbKeys) {
+
+        return Math.max(1, nbKeys);
+    }
+
+    /**
+     * @return the number of buckets for nbKeys keys, at least 1.
+     */
+    public static int nbBuckets(final int nbKeys) {
+
+        return Math.max(1, (int) (((long) nbKeys + MinimalPerfectHash.KEYS_PER_BUCKET - 1) / MinimalPerfectHash.KEYS_PER_BUCKET));
+    }
+
+    /**
+     * @return the bucket of hash, in [0; nbBuckets[
+     */
+    public static int bucket(final long hash, final int nbBuckets) {
+
+        return (int) (((hash >>> 32) * nbBuckets) >>> 32);
+    }
+
+    /**
+     * @return the slot of hash in a table of tableSize slots, for the displacement of its bucket.
+     */
+    public static int slot(final long hash, final int displacement, final int tableSize) {
+
+        if (displacement < 0) {
+            //single-hash bucket
+            return -displacement - 1;
+        }
+
+        return (int) (((MurmurHash3.mix64(hash + displacement * MinimalPerfectHash.GOLDEN_GAMMA) >>> 32) * tableSize) >>> 32);
+    }
+
+    /**
+     * Compute the displacements of the buckets for the first nbKeys hashes, which must be distinct.
+     * @param slots receives the slot of each of the nbKeys hashes, in [0; {@link #tableSize(int)}[
+     * @return the displacements of the {@link #nbBuckets(int)} buckets, or null if no displacement could be found for a bucket:
+     * the hashes must then be computed again with another seed.
+     */
+    public static int[] build(final long[] hashes, final int nbKeys, final int[] slots) {
+
+        final int tableSize = MinimalPerfectHash.tableSize(nbKeys);
+        final int nbBuckets = MinimalPerfectHash.nbBuckets(nbKeys);
+
+        //1) counting sort of the hashes by bucket
+        final int[] bucketStart = new int[nbBuckets + 1];
+
+        for (int i = 0; i < nbKeys; i++) {
+
+            bucketStart[MinimalPerfectHash.bucket(hashes[i], nbBuckets) + 1]++;
+        }
+
+        int maxBucketSize = 0;
+
+        for (int b = 0; b < nbBuckets; b++) {
+
+            maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        final int[] bucketHashes = new int[nbKeys];
+        final int[] next = new int[nbBuckets];
+
+        System.arraycopy(bucketStart, 0, next, 0, nbBuckets);
+
+        for (int i = 0; i < nbKeys; i++) {
+
+            bucketHashes[next[MinimalPerfectHash.bucket(hashes[i], nbBuckets)]++] = i;
+        }
+
+        //2) counting sort of the buckets by decreasing size
+        final int[] sizeStart = new int[maxBucketSize + 2];
+
+        for (int b = 0; b < nbBuckets; b++) {
+
+            sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b]) + 1]++;
+        }
+
+        for (int s = 0; s <= maxBucketSize; s++) {
+
+            sizeStart[s + 1] += sizeStart[s];
+        }
+
+        final int[] orderedBuckets = new int[nbBuckets];
+
+        for (int b = 0; b < nbBuckets; b++) {
+
+            orderedBuckets[sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+        }
+
+        //3) place the buckets
+        final long[] taken = new long[(tableSize + 63) >>> 6];
+        final int[] displacements = new int[nbBuckets];
+
+        int freeSlot = 0;
+
+        for (final int b : orderedBuckets) {
+
+            final int start = bucketStart[b];
+            final int end = bucketStart[b + 1];
+
+            if (end - start == 0) {
+
+                //the rest are empty buckets too
+                break;
+            }
+
+            if (end - start == 1) {
+
+                //single hash: take the next free slot
+                while ((taken[freeSlot >>> 6] & (1L << freeSlot)) != 0) {
+                    freeSlot++;
+                }
+
+                taken[freeSlot >>> 6] |= 1L << freeSlot;
+                slots[bucketHashes[start]] = freeSlot;
+                displacements[b] = -freeSlot - 1;
+
+                continue;
+            }
+
+            int displacement = 0;
+
+            while (!MinimalPerfectHash.place(hashes, bucketHashes, start, end, displacement, tableSize, taken, slots)) {
+
+                if (++displacement == MinimalPerfectHash.MAX_DISPLACEMENT) {
+
+                    return null;
+                }
+            }
+
+            displacements[b] = displacement;
+        }
+
+        return displacements;
+    }
+
+    /**
+     * Try to place the hashes of a bucket in free slots for a given displacement.
+     * @return true if placed, else taken is left unchanged.
+     */
+    private static boolean place(final long[] hashes, final int[] bucketHashes, final int start, final int end,
+            final int displacement, final int tableSize, final long[] taken, final int[] slots) {
+
+        for (int i = start; i < end; i++) {
+
+            final int slot = MinimalPerfectHash.slot(hashes[bucketHashes[i]], displacement, tableSize);
+
+            if ((taken[slot >>> 6] & (1L << slot)) != 0) {
+
+                //roll back
+                for (int j = start; j < i; j++) {
+
+                    final int placed = slots[bucketHashes[j]];
+                    taken[placed >>> 6] &= ~(1L << placed);
+                }
+
+                return false;
+            }
+
+            taken[slot >>> 6] |= 1L << slot;
+            slots[bucketHashes[i]] = slot;
+        }
+
+        return true;
+    }
+}
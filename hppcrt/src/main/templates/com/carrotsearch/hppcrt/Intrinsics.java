@@ -59,8 +59,11 @@ public final class Intrinsics
             "<${TemplateOptions.VType}> ==> ${TemplateOptions.getVType().getDefaultValue()}")
          #end  !*/
 
-        /*! ($TemplateOptions.declareInline("Intrinsics.<T>empty()",
-         "<${TemplateOptions.KType}> ==> ${TemplateOptions.getKType().getDefaultValue()}")) !*/
+        /*! #if($TemplateOptions.KType)
+
+           $TemplateOptions.declareInline("Intrinsics.<T>empty()",
+            "<${TemplateOptions.KType}> ==> ${TemplateOptions.getKType().getDefaultValue()}")
+         #end  !*/
 
         //Enforce the version with explicit Generic, i.e make the generic-less not valid.
         /*! ($TemplateOptions.declareInline("Intrinsics.empty(key)",
@@ -80,6 +83,7 @@ public final class Intrinsics
         /*! ($TemplateOptions.declareInline("Intrinsics.<T>cast(obj)",
         "<Object>==>(T)obj",
         "<Object[]>==>(T)obj",
+        "<Object[][]>==>(T)obj",
         "<*>==>obj")) !*/
 
         //Enforce the version with explicit Generic, i.e make the generic-less not valid.
@@ -106,9 +110,11 @@ public final class Intrinsics
             "<${TemplateOptions.VType}> ==> new ${TemplateOptions.VType}[arraySize]"))
          #end  !*/
 
-        /*! ($TemplateOptions.declareInline("Intrinsics.<T>newArray(arraySize)",
-        "<Object> ==> (T[])new Object[arraySize]",
-        "<${TemplateOptions.KType}> ==> new ${TemplateOptions.KType}[arraySize]")) !*/
+        /*! #if($TemplateOptions.KType)
+            ($TemplateOptions.declareInline("Intrinsics.<T>newArray(arraySize)",
+            "<Object> ==> (T[])new Object[arraySize]",
+            "<${TemplateOptions.KType}> ==> new ${TemplateOptions.KType}[arraySize]"))
+         #end  !*/
 
         //Enforce the version with explicit Generic, i.e make the generic-less not valid.
         /*! ($TemplateOptions.declareInline("Intrinsics.newArray(arraySize)",
@@ -1,5 +1,9 @@
 package com.carrotsearch.hppcrt;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
@@ -36,6 +40,11 @@ public final class KTypeArrays
     final private static KType[] BLANKING_OBJECT_ARRAY = Intrinsics.<KType>newArray(KTypeArrays.BLANK_ARRAY_SIZE);
     #end  !*/
 
+    /**
+     * Size in bytes of the chunks used by bulk I/O.
+     */
+    final private static int IO_CHUNK_SIZE = 1 << 13;
+
     private KTypeArrays() {
 
         //nothing
@@ -138,4 +147,80 @@ public final class KTypeArrays
         }
     }
 
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Bulk write of the elements of array in [from; to[ to out, in the same big-endian format as
+     * the single element methods of {@link DataOutput}, through chunks of bytes.
+     */
+    public static/*! #if ($TemplateOptions.KTypeGeneric) !*/<KType> /*! #end !*/void writeTo(final DataOutput out, final KType[] array, final int from, final int to)
+            throws IOException {
+
+        assert from <= to;
+
+        /*! #if ($TemplateOptions.isKType("byte"))
+        out.write(array, from, to - from);
+        #else
+        if (from == to) {
+            return;
+        }
+
+        //8 bytes per element at most
+        final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(KTypeArrays.IO_CHUNK_SIZE, (to - from) * 8L));
+        final java.nio.${TemplateOptions.KType.BoxedType}Buffer view = chunk.as${TemplateOptions.KType.BoxedType}Buffer();
+
+        final int chunkLength = view.capacity();
+        final int elementSize = chunk.capacity() / chunkLength;
+
+        for (int i = from; i < to;) {
+
+            final int length = Math.min(to - i, chunkLength);
+
+            view.clear();
+            view.put(array, i, length);
+
+            out.write(chunk.array(), 0, length * elementSize);
+
+            i += length;
+        }
+        #end !*/
+    }
+
+    /**
+     * Bulk read of the elements of array in [from; to[ from in, written by {@link #writeTo(DataOutput, KType[], int, int)}
+     * or by the single element methods of {@link DataOutput}.
+     */
+    public static/*! #if ($TemplateOptions.KTypeGeneric) !*/<KType> /*! #end !*/void readFrom(final DataInput in, final KType[] array, final int from, final int to)
+            throws IOException {
+
+        assert from <= to;
+
+        /*! #if ($TemplateOptions.isKType("byte"))
+        in.readFully(array, from, to - from);
+        #else
+        if (from == to) {
+            return;
+        }
+
+        //8 bytes per element at most
+        final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(KTypeArrays.IO_CHUNK_SIZE, (to - from) * 8L));
+        final java.nio.${TemplateOptions.KType.BoxedType}Buffer view = chunk.as${TemplateOptions.KType.BoxedType}Buffer();
+
+        final int chunkLength = view.capacity();
+        final int elementSize = chunk.capacity() / chunkLength;
+
+        for (int i = from; i < to;) {
+
+            final int length = Math.min(to - i, chunkLength);
+
+            in.readFully(chunk.array(), 0, length * elementSize);
+
+            view.clear();
+            view.get(array, i, length);
+
+            i += length;
+        }
+        #end !*/
+    }
+    /*! #end !*/
 }
@@ -1,5 +1,8 @@
 package com.carrotsearch.hppcrt;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.carrotsearch.hppcrt.KTypeArrays;
@@ -78,4 +81,20 @@ public final class VTypeArrays
         KTypeArrays.<T> blankArray(objectArray, startIndex, endIndex);
 
     }
+
+    /**
+     * Bulk write of the elements of array in [from; to[ to out.
+     */
+    public static <T> void writeTo(final DataOutput out, final T[] array, final int from, final int to) throws IOException {
+
+        KTypeArrays.<T> writeTo(out, array, from, to);
+    }
+
+    /**
+     * Bulk read of the elements of array in [from; to[ from in.
+     */
+    public static <T> void readFrom(final DataInput in, final T[] array, final int from, final int to) throws IOException {
+
+        KTypeArrays.<T> readFrom(in, array, from, to);
+    }
 }
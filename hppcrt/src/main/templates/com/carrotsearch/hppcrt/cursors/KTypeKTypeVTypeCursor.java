@@ -0,0 +1,37 @@
+package com.carrotsearch.hppcrt.cursors;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object", "BYTE", "CHAR", "SHORT", "FLOAT", "DOUBLE")} !*/
+/**
+ * A cursor over entries of a container keyed by (KType, KType) pairs and VType values.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public final class KTypeKTypeVTypeCursor<KType, VType>
+{
+    /**
+     * The current entry's index in the container this cursor belongs to. The meaning of
+     * this index is defined by the container (usually it will be an index in the underlying
+     * storage buffer).
+     */
+    public int index;
+
+    /**
+     * The first half of the current key.
+     */
+    public KType key1;
+
+    /**
+     * The second half of the current key.
+     */
+    public KType key2;
+
+    /**
+     * The current value.
+     */
+    public VType value;
+
+    @Override
+    public String toString()
+    {
+        return "[cursor, index: " + this.index + ", key: (" + this.key1 + ", " + this.key2 + "), value: " + this.value + "]";
+    }
+}
@@ -1,6 +1,9 @@
 package com.carrotsearch.hppcrt.heaps;
 
 import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
@@ -210,6 +213,48 @@ implements KTypePriorityQueue<KType>, Cloneable
         addAll(container);
     }
 
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Write the heap to out: its size, then its buffer in bulk, in heap order.
+     * The comparator is not written.
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @see #readFrom(DataInput, KTypeComparator)
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        out.writeInt(this.elementsCount);
+
+        //1-based index buffer
+        KTypeArrays.writeTo(out, this.buffer, 1, this.elementsCount + 1);
+    }
+
+    /**
+     * Read a heap written by {@link #writeTo(DataOutput)}, as-is: no re-heapification takes place,
+     * so comp must define the same ordering than the comparator of the written heap.
+     * @param comp the comparator of the heap, or null for the natural ordering.
+     */
+    public static/* #if ($TemplateOptions.KTypeGeneric) */<KType> /* #end */
+    KTypeHeapPriorityQueue<KType> readFrom(final DataInput in, /*! #if ($TemplateOptions.KTypeGeneric) !*/final Comparator<? super KType> comp
+            /*! #else
+    KTypeComparator<? super KType> comp
+    #end !*/) throws IOException {
+
+        final int size = in.readInt();
+
+        if (size < 0) {
+            throw new IOException("Corrupted heap, negative size: " + size);
+        }
+
+        final KTypeHeapPriorityQueue<KType> heap = new KTypeHeapPriorityQueue<KType>(comp, size);
+
+        KTypeArrays.readFrom(in, heap.buffer, 1, size + 1);
+        heap.elementsCount = size;
+
+        return heap;
+    }
+
+    /*! #end !*/
+
     /**
      * Create a heap from elements of another container (constructor shortcut)
      */
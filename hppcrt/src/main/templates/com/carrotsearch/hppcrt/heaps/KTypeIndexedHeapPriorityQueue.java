@@ -1,6 +1,9 @@
 package com.carrotsearch.hppcrt.heaps;
 
 import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
@@ -185,6 +188,75 @@ public class KTypeIndexedHeapPriorityQueue<KType> implements IntKTypeMap<KType>,
         putAll(container);
     }
 
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Write the indexed heap to out: its size, then its keys and values in bulk, in heap order.
+     * The comparator is not written.
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @see #readFrom(DataInput, KTypeComparator)
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        out.writeInt(this.elementsCount);
+
+        //1-based index buffers
+        IntArrays.writeTo(out, this.qp, 1, this.elementsCount + 1);
+        KTypeArrays.writeTo(out, this.buffer, 1, this.elementsCount + 1);
+    }
+
+    /**
+     * Read an indexed heap written by {@link #writeTo(DataOutput)}, as-is: no re-heapification takes place,
+     * so comp must define the same ordering than the comparator of the written heap.
+     * @param comp the comparator of the heap, or null for the natural ordering.
+     */
+    public static <KType> KTypeIndexedHeapPriorityQueue<KType> readFrom(final DataInput in,
+            /*! #if ($TemplateOptions.KTypeGeneric) !*/final Comparator<? super KType> comp
+            /*! #else
+            KTypeComparator<? super KType> comp
+            #end !*/) throws IOException {
+
+        final int size = in.readInt();
+
+        if (size < 0) {
+            throw new IOException("Corrupted indexed heap, negative size: " + size);
+        }
+
+        final int[] keys = new int[size + 1];
+
+        IntArrays.readFrom(in, keys, 1, size + 1);
+
+        int maxKey = -1;
+
+        for (int pos = 1; pos <= size; pos++) {
+
+            if (keys[pos] < 0) {
+                throw new IOException("Corrupted indexed heap, negative key: " + keys[pos]);
+            }
+
+            maxKey = Math.max(maxKey, keys[pos]);
+        }
+
+        final KTypeIndexedHeapPriorityQueue<KType> heap = new KTypeIndexedHeapPriorityQueue<KType>(comp, maxKey + 1);
+
+        KTypeArrays.readFrom(in, heap.buffer, 1, size + 1);
+
+        for (int pos = 1; pos <= size; pos++) {
+
+            if (heap.pq[keys[pos]] != 0) {
+                throw new IOException("Corrupted indexed heap, duplicate key: " + keys[pos]);
+            }
+
+            heap.pq[keys[pos]] = pos;
+            heap.qp[pos] = keys[pos];
+        }
+
+        heap.elementsCount = size;
+
+        return heap;
+    }
+
+    /*! #end !*/
+
     /**
      * Create a indexed heap from all key-value pairs of another container.. (constructor shortcut)
      */
@@ -1,6 +1,9 @@
 package com.carrotsearch.hppcrt.lists;
 
 import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
@@ -1038,6 +1041,49 @@ extends AbstractKTypeCollection<KType> implements KTypeDeque<KType>, KTypeIndexe
         return true;
     }
 
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Write the deque to out: its size, then its elements in bulk from head to tail.
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @see #readFrom(DataInput)
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        out.writeInt(size());
+
+        if (this.head <= this.tail) {
+
+            KTypeArrays.writeTo(out, this.buffer, this.head, this.tail);
+
+        } else {
+
+            KTypeArrays.writeTo(out, this.buffer, this.head, this.buffer.length);
+            KTypeArrays.writeTo(out, this.buffer, 0, this.tail);
+        }
+    }
+
+    /**
+     * Read a deque written by {@link #writeTo(DataOutput)}.
+     */
+    public static/* #if ($TemplateOptions.KTypeGeneric) */<KType> /* #end */
+            KTypeArrayDeque<KType> readFrom(final DataInput in) throws IOException {
+
+        final int size = in.readInt();
+
+        if (size < 0) {
+            throw new IOException("Corrupted deque, negative size: " + size);
+        }
+
+        final KTypeArrayDeque<KType> deque = new KTypeArrayDeque<KType>(size);
+
+        KTypeArrays.readFrom(in, deque.buffer, 0, size);
+        deque.head = 0;
+        deque.tail = size;
+
+        return deque;
+    }
+
+    /*! #end !*/
     /**
      * Returns a new object of this class with no need to declare generic type (shortcut
      * instead of using a constructor).
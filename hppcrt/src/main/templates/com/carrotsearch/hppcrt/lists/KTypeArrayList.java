@@ -1,6 +1,9 @@
 package com.carrotsearch.hppcrt.lists;
 
 import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
@@ -782,6 +785,40 @@ public class KTypeArrayList<KType>
         return predicate;
     }
 
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Write the list to out: its size, then its elements in bulk.
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @see #readFrom(DataInput)
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+
+        out.writeInt(this.elementsCount);
+
+        KTypeArrays.writeTo(out, this.buffer, 0, this.elementsCount);
+    }
+
+    /**
+     * Read a list written by {@link #writeTo(DataOutput)}.
+     */
+    public static/* #if ($TemplateOptions.KTypeGeneric) */<KType> /* #end */
+            KTypeArrayList<KType> readFrom(final DataInput in) throws IOException {
+
+        final int size = in.readInt();
+
+        if (size < 0) {
+            throw new IOException("Corrupted list, negative size: " + size);
+        }
+
+        final KTypeArrayList<KType> list = new KTypeArrayList<KType>(size);
+
+        KTypeArrays.readFrom(in, list.buffer, 0, size);
+        list.elementsCount = size;
+
+        return list;
+    }
+
+    /*! #end !*/
     /**
      * Returns a new object of this class with no need to declare generic type (shortcut
      * instead of using a constructor).
@@ -0,0 +1,1103 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A hash map of byte sequences to <code>VType</code>, for token dictionaries and counters.
+ * <p>
+ * The bytes of the keys are copied one after the other into a single byte slab, {@link #slab},
+ * and an entry only references its key by offset and length: there is no key object, and the keys hash
+ * codes are computed once, at insertion. The keys are given as <code>(byte[], offset, length)</code>
+ * or as {@link CharSequence}, which are then keyed by their UTF-8 encoding. Lookups by either form allocate nothing,
+ * a {@link CharSequence} being encoded on the fly while hashed and compared.
+ * </p>
+ * <p>
+ * Entries are numbered densely in [0; {@link #size()}[: the entry at index i has its key in
+ * {@link #slab}[{@link #keyOffset(int)}; {@link #keyOffset(int)} + {@link #keyLength(int)}[ and its value in
+ * {@link #values}[i]. The indices are stable, except that {@link #remove(byte[], int, int)} moves the last entry
+ * into the hole. The slab bytes of the removed keys are reclaimed by compacting the slab once they are the majority.
+ * </p>
+ * <p>
+ * The hash table holds the entry indices in open addressing with linear probing, and is
+ * allocated to the nearest size that is a power of two. When
+ * the capacity exceeds the given load factor, the table size is doubled.
+ * </p>
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class BytesVTypeHashMap<VType> implements Cloneable
+{
+    /**
+     * Initial size of the slab for each expected key.
+     */
+    private static final int EXPECTED_KEY_LENGTH = 8;
+
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * The bytes of all the keys, the key of entry i being in slab[keyOffsets[i]; keyOffsets[i] + keyLengths[i][.
+     */
+    public byte[] slab;
+
+    /**
+     * Number of bytes of {@link #slab} in use, deleted keys included.
+     */
+    protected int slabSize;
+
+    /**
+     * Number of bytes of {@link #slab} holding deleted keys.
+     */
+    protected int slabWasted;
+
+    /**
+     * Offsets of the keys in {@link #slab}, by entry index.
+     */
+    protected int[] keyOffsets;
+
+    /**
+     * Lengths of the keys, by entry index.
+     */
+    protected int[] keyLengths;
+
+    /**
+     * Hash of the keys, by entry index.
+     */
+    protected int[] keyHashes;
+
+    /**
+     * Values, by entry index in [0; {@link #size()}[.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * Hash table: entry index + 1, or 0 for an empty slot.
+     */
+    protected int[] slots;
+
+    /**
+     * Number of entries.
+     */
+    protected int assigned;
+
+    /**
+     * The load factor for this map (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #slots} hits this value.
+     */
+    protected int resizeAt;
+
+    /**
+     * Per-instance size perturbation
+     * introduced in rehashing to create a unique key distribution.
+     */
+    protected final int perturbation = Containers.randomSeed32();
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public BytesVTypeHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public BytesVTypeHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public BytesVTypeHashMap(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
+        allocateBuffers(HashContainers.minBufferSize(initialCapacity, loadFactor));
+
+        this.slab = new byte[Math.max(initialCapacity, Containers.DEFAULT_EXPECTED_ELEMENTS) * BytesVTypeHashMap.EXPECTED_KEY_LENGTH];
+    }
+
+    /**
+     * Place the key in <code>key[offset; offset + length[</code> and value in the map.
+     * @return The value previously stored under the given key in the map is returned,
+     * else the default value if the key was not present.
+     */
+    public VType put(final byte[] key, final int offset, final int length, final VType value) {
+
+        final int hash = hashBytes(key, offset, length);
+        final int slot = slotOf(key, offset, length, hash);
+
+        if (this.slots[slot] != 0) {
+
+            final int index = this.slots[slot] - 1;
+
+            final VType previous = Intrinsics.<VType> cast(this.values[index]);
+            this.values[index] = value;
+
+            return previous;
+        }
+
+        insert(slot, hash, key, offset, length, value);
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Place the UTF-8 encoded key and value in the map.
+     * @return The value previously stored under the given key in the map is returned,
+     * else the default value if the key was not present.
+     */
+    public VType put(final CharSequence key, final VType value) {
+
+        final int index = indexOf(key);
+
+        if (index != -1) {
+
+            final VType previous = Intrinsics.<VType> cast(this.values[index]);
+            this.values[index] = value;
+
+            return previous;
+        }
+
+        appendNew(key, value);
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Puts the key and value if the key is absent.
+     * @return <code>true</code> if the key was absent, and the value was put.
+     */
+    public boolean putIfAbsent(final byte[] key, final int offset, final int length, final VType value) {
+
+        final int hash = hashBytes(key, offset, length);
+        final int slot = slotOf(key, offset, length, hash);
+
+        if (this.slots[slot] != 0) {
+            return false;
+        }
+
+        insert(slot, hash, key, offset, length, value);
+
+        return true;
+    }
+
+    /**
+     * Puts the UTF-8 encoded key and value if the key is absent.
+     * @return <code>true</code> if the key was absent, and the value was put.
+     */
+    public boolean putIfAbsent(final CharSequence key, final VType value) {
+
+        if (indexOf(key) != -1) {
+            return false;
+        }
+
+        appendNew(key, value);
+
+        return true;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * If the key does not exist, <code>putValue</code> is inserted into the map,
+     * otherwise any existing value is incremented by <code>incrementValue</code>.
+     *
+     * @return Returns the current value associated with the key (after
+     *         changes).
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final byte[] key, final int offset, final int length, final VType putValue, final VType incrementValue) {
+
+        final int hash = hashBytes(key, offset, length);
+        final int slot = slotOf(key, offset, length, hash);
+
+        if (this.slots[slot] != 0) {
+
+            final int index = this.slots[slot] - 1;
+
+            this.values[index] = (VType) (Intrinsics.<VType> add(Intrinsics.<VType> cast(this.values[index]), incrementValue));
+
+            return Intrinsics.<VType> cast(this.values[index]);
+        }
+
+        insert(slot, hash, key, offset, length, putValue);
+
+        return putValue;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * If the UTF-8 encoded key does not exist, <code>putValue</code> is inserted into the map,
+     * otherwise any existing value is incremented by <code>incrementValue</code>.
+     *
+     * @return Returns the current value associated with the key (after
+     *         changes).
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final CharSequence key, final VType putValue, final VType incrementValue) {
+
+        final int index = indexOf(key);
+
+        if (index != -1) {
+
+            this.values[index] = (VType) (Intrinsics.<VType> add(Intrinsics.<VType> cast(this.values[index]), incrementValue));
+
+            return Intrinsics.<VType> cast(this.values[index]);
+        }
+
+        appendNew(key, putValue);
+
+        return putValue;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Adds <code>incrementValue</code> to any existing value for the given key
+     * or inserts <code>incrementValue</code> if the key did not previously exist.
+     *
+     * @return Returns the current value associated with the key (after changes).
+     */
+    public VType addTo(final byte[] key, final int offset, final int length, final VType incrementValue)
+    {
+        return putOrAdd(key, offset, length, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Adds <code>incrementValue</code> to any existing value for the given UTF-8 encoded key
+     * or inserts <code>incrementValue</code> if the key did not previously exist.
+     *
+     * @return Returns the current value associated with the key (after changes).
+     */
+    public VType addTo(final CharSequence key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * @return the value associated with the key in <code>key[offset; offset + length[</code>, or the default value
+     * if the key is not in the map.
+     */
+    public VType get(final byte[] key, final int offset, final int length) {
+
+        final int index = indexOf(key, offset, length);
+
+        return index == -1 ? this.defaultValue : Intrinsics.<VType> cast(this.values[index]);
+    }
+
+    /**
+     * @return the value associated with the UTF-8 encoded key, or the default value
+     * if the key is not in the map.
+     */
+    public VType get(final CharSequence key) {
+
+        final int index = indexOf(key);
+
+        return index == -1 ? this.defaultValue : Intrinsics.<VType> cast(this.values[index]);
+    }
+
+    /**
+     * @return true if the map contains the key in <code>key[offset; offset + length[</code>.
+     */
+    public boolean containsKey(final byte[] key, final int offset, final int length) {
+
+        return indexOf(key, offset, length) != -1;
+    }
+
+    /**
+     * @return true if the map contains the UTF-8 encoded key.
+     */
+    public boolean containsKey(final CharSequence key) {
+
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * @return the index of the entry of key in <code>key[offset; offset + length[</code>, or -1 if the key is not in the map.
+     * @see #keyOffset(int)
+     * @see #keyLength(int)
+     */
+    public int indexOf(final byte[] key, final int offset, final int length) {
+
+        final int slot = slotOf(key, offset, length, hashBytes(key, offset, length));
+
+        return this.slots[slot] - 1;
+    }
+
+    /**
+     * @return the index of the entry of the UTF-8 encoded key, or -1 if the key is not in the map.
+     */
+    public int indexOf(final CharSequence key) {
+
+        final int[] slots = this.slots;
+        final int[] keyHashes = this.keyHashes;
+        final int[] keyLengths = this.keyLengths;
+        final int mask = slots.length - 1;
+
+        //hash and measure the encoding in one pass.
+        final long hashAndLength = hashChars(key);
+        final int hash = (int) hashAndLength;
+        final int length = (int) (hashAndLength >>> 32);
+
+        int slot = hash & mask;
+        int existing;
+
+        while ((existing = slots[slot]) != 0) {
+
+            final int index = existing - 1;
+
+            if (keyHashes[index] == hash && keyLengths[index] == length && equalsChars(key, this.keyOffsets[index])) {
+
+                return index;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the offset in {@link #slab} of the key of the entry at index.
+     */
+    public int keyOffset(final int index) {
+        assert index >= 0 && index < this.assigned : "Index " + index + " out of bounds [0, " + this.assigned + "[.";
+
+        return this.keyOffsets[index];
+    }
+
+    /**
+     * @return the length in {@link #slab} of the key of the entry at index.
+     */
+    public int keyLength(final int index) {
+        assert index >= 0 && index < this.assigned : "Index " + index + " out of bounds [0, " + this.assigned + "[.";
+
+        return this.keyLengths[index];
+    }
+
+    /**
+     * @return the key of the entry at index, decoded from UTF-8.
+     */
+    public String keyToString(final int index) {
+
+        try {
+
+            return new String(this.slab, keyOffset(index), keyLength(index), "UTF-8");
+
+        } catch (final UnsupportedEncodingException e) {
+
+            //UTF-8 is always supported
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the value of the entry at index.
+     */
+    public VType valueAt(final int index) {
+        assert index >= 0 && index < this.assigned : "Index " + index + " out of bounds [0, " + this.assigned + "[.";
+
+        return Intrinsics.<VType> cast(this.values[index]);
+    }
+
+    /**
+     * Remove the key in <code>key[offset; offset + length[</code>. The last entry is moved to the index of the removed one.
+     * @return the removed value, or the default value if the key was not in the map.
+     */
+    public VType remove(final byte[] key, final int offset, final int length) {
+
+        final int index = indexOf(key, offset, length);
+
+        if (index == -1) {
+            return this.defaultValue;
+        }
+
+        return removeAt(index);
+    }
+
+    /**
+     * Remove the UTF-8 encoded key. The last entry is moved to the index of the removed one.
+     * @return the removed value, or the default value if the key was not in the map.
+     */
+    public VType remove(final CharSequence key) {
+
+        final int index = indexOf(key);
+
+        if (index == -1) {
+            return this.defaultValue;
+        }
+
+        return removeAt(index);
+    }
+
+    /**
+     * Remove the entry at index. The last entry is moved to index.
+     * @return the removed value.
+     */
+    public VType removeAt(final int index) {
+        assert index >= 0 && index < this.assigned : "Index " + index + " out of bounds [0, " + this.assigned + "[.";
+
+        final VType value = Intrinsics.<VType> cast(this.values[index]);
+
+        shiftConflictingKeys(slotOfIndex(index));
+
+        this.slabWasted += this.keyLengths[index];
+
+        //move the last entry in the hole
+        final int last = this.assigned - 1;
+
+        if (index != last) {
+
+            this.slots[slotOfIndex(last)] = index + 1;
+
+            this.keyOffsets[index] = this.keyOffsets[last];
+            this.keyLengths[index] = this.keyLengths[last];
+            this.keyHashes[index] = this.keyHashes[last];
+            this.values[index] = this.values[last];
+        }
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.values[last] = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        this.assigned--;
+
+        if (this.slabWasted > (this.slabSize >>> 1)) {
+            compactSlab();
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes all entries from this map.
+     */
+    public void clear() {
+
+        this.assigned = 0;
+        this.slabSize = 0;
+        this.slabWasted = 0;
+
+        Arrays.fill(this.slots, 0);
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), 0, this.values.length);
+        /*! #end !*/
+    }
+
+    /**
+     * @return Returns the current size (number of entries) of the map.
+     */
+    public int size() {
+        return this.assigned;
+    }
+
+    /**
+     * @return Returns the number of entries the map can hold without reallocating its buffers.
+     */
+    public int capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * @return True if the map is empty.
+     */
+    public boolean isEmpty() {
+        return this.assigned == 0;
+    }
+
+    /**
+     * @return the number of bytes of {@link #slab} in use, the keys of removed entries included.
+     */
+    public int slabSize() {
+        return this.slabSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+
+        for (int i = 0; i < this.assigned; i++) {
+
+            //independent of the perturbation
+            h += BitMixer.mix(BytesVTypeHashMap.fnv1a(this.slab, this.keyOffsets[i], this.keyLengths[i])) ^ BitMixer.mix(Intrinsics.<VType> cast(this.values[i]));
+        }
+
+        return h;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj != null) {
+            if (obj == this) {
+                return true;
+            }
+
+            //must be of the same class, subclasses are not comparable
+            if (obj.getClass() != this.getClass()) {
+                return false;
+            }
+
+            /* #if ($TemplateOptions.VTypeGeneric) */
+            @SuppressWarnings("unchecked")
+            final/* #end */
+            BytesVTypeHashMap<VType> other = (BytesVTypeHashMap<VType>) obj;
+
+            //must be of the same size
+            if (other.size() != this.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < this.assigned; i++) {
+
+                final int otherIndex = other.indexOf(this.slab, this.keyOffsets[i], this.keyLengths[i]);
+
+                if (otherIndex == -1 || !Intrinsics.<VType> equals(this.values[i], other.values[otherIndex])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BytesVTypeHashMap<VType> clone() {
+
+        final BytesVTypeHashMap<VType> cloned = new BytesVTypeHashMap<VType>(this.assigned, this.loadFactor);
+
+        //We must NOT clone because of independent perturbations seeds
+        for (int i = 0; i < this.assigned; i++) {
+
+            cloned.put(this.slab, this.keyOffsets[i], this.keyLengths[i], Intrinsics.<VType> cast(this.values[i]));
+        }
+
+        cloned.defaultValue = this.defaultValue;
+
+        return cloned;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        for (int i = 0; i < this.assigned; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(keyToString(i));
+            buffer.append("=>");
+            buffer.append(this.values[i]);
+        }
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Create a new hash map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <VType> BytesVTypeHashMap<VType> newInstance() {
+        return new BytesVTypeHashMap<VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <VType> BytesVTypeHashMap<VType> newInstance(final int initialCapacity, final double loadFactor) {
+        return new BytesVTypeHashMap<VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * @return the slot of the key if present, else the empty slot where it would be inserted.
+     */
+    private int slotOf(final byte[] key, final int offset, final int length, final int hash) {
+
+        final int[] slots = this.slots;
+        final int[] keyHashes = this.keyHashes;
+        final int[] keyLengths = this.keyLengths;
+        final int mask = slots.length - 1;
+
+        int slot = hash & mask;
+        int existing;
+
+        while ((existing = slots[slot]) != 0) {
+
+            final int index = existing - 1;
+
+            if (keyHashes[index] == hash && keyLengths[index] == length && equalsBytes(key, offset, length, this.keyOffsets[index])) {
+
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * @return the slot holding the entry at index.
+     */
+    private int slotOfIndex(final int index) {
+
+        final int mask = this.slots.length - 1;
+        int slot = this.keyHashes[index] & mask;
+
+        while (this.slots[slot] != index + 1) {
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Insert a new entry in the empty slot, copying the key bytes at the end of the slab.
+     */
+    private void insert(final int slot, final int hash, final byte[] key, final int offset, final int length, final VType value) {
+
+        //copy first: key may be the slab itself, which may be reallocated
+        ensureSlabSpace(length);
+        System.arraycopy(key, offset, this.slab, this.slabSize, length);
+
+        insertAt(slot, hash, this.slabSize, length, value);
+
+        this.slabSize += length;
+    }
+
+    /**
+     * Append a new entry for the absent key, encoding it in UTF-8 at the end of the slab.
+     */
+    private void appendNew(final CharSequence key, final VType value) {
+
+        final long hashAndLength = hashChars(key);
+        final int length = (int) (hashAndLength >>> 32);
+
+        ensureSlabSpace(length);
+
+        final byte[] slab = this.slab;
+        int pos = this.slabSize;
+
+        for (int i = 0; i < key.length();) {
+
+            final long encoded = BytesVTypeHashMap.encodeUtf8(key, i);
+            final int count = (int) (encoded >>> 32) & 0xFF;
+
+            for (int b = 0; b < count; b++) {
+                slab[pos++] = (byte) (encoded >>> (8 * b));
+            }
+
+            i += (int) (encoded >>> 40);
+        }
+
+        final int hash = (int) hashAndLength;
+
+        //the key is known to be absent: look for the free slot
+        final int mask = this.slots.length - 1;
+        int slot = hash & mask;
+
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        insertAt(slot, hash, this.slabSize, length, value);
+
+        this.slabSize += length;
+    }
+
+    private void insertAt(int slot, final int hash, final int keyOffset, final int length, final VType value) {
+
+        if (this.assigned == this.resizeAt) {
+
+            expand();
+
+            //find the free slot again in the new table
+            final int mask = this.slots.length - 1;
+            slot = hash & mask;
+
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        final int index = this.assigned++;
+
+        this.keyOffsets[index] = keyOffset;
+        this.keyLengths[index] = length;
+        this.keyHashes[index] = hash;
+        this.values[index] = value;
+
+        this.slots[slot] = index + 1;
+    }
+
+    /**
+     * Expand the internal storage buffers (capacity) and rehash.
+     */
+    private void expand() {
+        assert this.assigned == this.resizeAt;
+
+        final int[] oldKeyOffsets = this.keyOffsets;
+        final int[] oldKeyLengths = this.keyLengths;
+        final int[] oldKeyHashes = this.keyHashes;
+        final VType[] oldValues = Intrinsics.<VType[]> cast(this.values);
+
+        allocateBuffers(HashContainers.nextBufferSize(this.slots.length, this.assigned, this.loadFactor));
+
+        System.arraycopy(oldKeyOffsets, 0, this.keyOffsets, 0, this.assigned);
+        System.arraycopy(oldKeyLengths, 0, this.keyLengths, 0, this.assigned);
+        System.arraycopy(oldKeyHashes, 0, this.keyHashes, 0, this.assigned);
+        System.arraycopy(oldValues, 0, this.values, 0, this.assigned);
+
+        //rehash from the cached hashes
+        final int[] slots = this.slots;
+        final int mask = slots.length - 1;
+
+        for (int i = 0; i < this.assigned; i++) {
+
+            int slot = oldKeyHashes[i] & mask;
+
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Allocate internal buffers for a given capacity.
+     *
+     * @param capacity New capacity (must be a power of two).
+     */
+    private void allocateBuffers(final int capacity) {
+        try {
+
+            final int[] slots = new int[capacity];
+
+            //the entries never exceed resizeAt
+            final int maxEntries = HashContainers.expandAtCount(capacity, this.loadFactor) + 1;
+
+            final int[] keyOffsets = new int[maxEntries];
+            final int[] keyLengths = new int[maxEntries];
+            final int[] keyHashes = new int[maxEntries];
+            final VType[] values = Intrinsics.<VType> newArray(maxEntries);
+
+            this.slots = slots;
+            this.keyOffsets = keyOffsets;
+            this.keyLengths = keyLengths;
+            this.keyHashes = keyHashes;
+            this.values = values;
+
+            //allocate so that there is at least one slot that remains allocated = false
+            //this is compulsory to guarantee proper stop in searching loops
+            this.resizeAt = HashContainers.expandAtCount(capacity, this.loadFactor);
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.slots == null) ? 0 : this.slots.length,
+                            capacity);
+        }
+    }
+
+    /**
+     * Make room for length more bytes at the end of the slab.
+     */
+    private void ensureSlabSpace(final int length) {
+
+        final long needed = (long) this.slabSize + length;
+
+        if (needed > this.slab.length) {
+
+            final long newLength = Math.max(needed, 2L * this.slab.length);
+
+            if (newLength > Integer.MAX_VALUE - 8) {
+
+                throw new BufferAllocationException("Slab of %d bytes exceeds the max array size", needed);
+            }
+
+            try {
+
+                final byte[] newSlab = new byte[(int) newLength];
+                System.arraycopy(this.slab, 0, newSlab, 0, this.slabSize);
+                this.slab = newSlab;
+
+            } catch (final OutOfMemoryError e) {
+
+                throw new BufferAllocationException(
+                        "Not enough memory to allocate slab to grow from %d -> %d bytes",
+                        e,
+                        this.slab.length,
+                        newLength);
+            }
+        }
+    }
+
+    /**
+     * Copy the keys of the entries to a new slab, dropping the bytes of the removed keys.
+     */
+    private void compactSlab() {
+
+        final int liveBytes = this.slabSize - this.slabWasted;
+        final byte[] newSlab = new byte[Math.max(liveBytes * 2, Containers.DEFAULT_EXPECTED_ELEMENTS)];
+
+        int pos = 0;
+
+        for (int i = 0; i < this.assigned; i++) {
+
+            System.arraycopy(this.slab, this.keyOffsets[i], newSlab, pos, this.keyLengths[i]);
+            this.keyOffsets[i] = pos;
+            pos += this.keyLengths[i];
+        }
+
+        assert pos == liveBytes;
+
+        this.slab = newSlab;
+        this.slabSize = liveBytes;
+        this.slabWasted = 0;
+    }
+
+    /**
+     * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(int gapSlot) {
+
+        final int[] slots = this.slots;
+        final int[] keyHashes = this.keyHashes;
+        final int mask = slots.length - 1;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        int distance = 0;
+        while (true) {
+
+            final int slot = (gapSlot + (++distance)) & mask;
+            final int existing = slots[slot];
+
+            if (existing == 0) {
+                break;
+            }
+
+            final int idealSlotModMask = keyHashes[existing - 1] & mask;
+
+            //original HPPC code: shift = (slot - idealSlot) & mask;
+            //equivalent to shift = (slot & mask - idealSlot & mask) & mask;
+            //since slot and idealSlotModMask are already folded, we have :
+            final int shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                slots[gapSlot] = existing;
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        slots[gapSlot] = 0;
+    }
+
+    private boolean equalsBytes(final byte[] key, final int offset, final int length, final int slabOffset) {
+
+        final byte[] slab = this.slab;
+
+        for (int i = 0; i < length; i++) {
+
+            if (key[offset + i] != slab[slabOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compare the UTF-8 encoding of key, which has the right length, with the slab bytes at slabOffset.
+     */
+    private boolean equalsChars(final CharSequence key, final int slabOffset) {
+
+        final byte[] slab = this.slab;
+        int pos = slabOffset;
+
+        for (int i = 0; i < key.length();) {
+
+            final long encoded = BytesVTypeHashMap.encodeUtf8(key, i);
+            final int count = (int) (encoded >>> 32) & 0xFF;
+
+            for (int b = 0; b < count; b++) {
+
+                if (slab[pos++] != (byte) (encoded >>> (8 * b))) {
+                    return false;
+                }
+            }
+
+            i += (int) (encoded >>> 40);
+        }
+
+        return true;
+    }
+
+    /**
+     * Hash bytes by 64-bit FNV-1a, mixed by {@link BitMixer} with the perturbation.
+     */
+    private int hashBytes(final byte[] key, final int offset, final int length) {
+
+        return BitMixer.mix(BytesVTypeHashMap.fnv1a(key, offset, length), this.perturbation);
+    }
+
+    private static long fnv1a(final byte[] key, final int offset, final int length) {
+
+        long h = BytesVTypeHashMap.FNV_OFFSET_BASIS;
+
+        for (int i = offset; i < offset + length; i++) {
+
+            h = (h ^ (key[i] & 0xFF)) * BytesVTypeHashMap.FNV_PRIME;
+        }
+
+        return h;
+    }
+
+    /**
+     * Hash the UTF-8 encoding of key the same way as {@link #hashBytes(byte[], int, int)}.
+     * @return the hash in the low 32 bits, the encoded length in the high 32 bits.
+     */
+    private long hashChars(final CharSequence key) {
+
+        long h = BytesVTypeHashMap.FNV_OFFSET_BASIS;
+        long length = 0;
+
+        for (int i = 0; i < key.length();) {
+
+            final long encoded = BytesVTypeHashMap.encodeUtf8(key, i);
+            final int count = (int) (encoded >>> 32) & 0xFF;
+
+            for (int b = 0; b < count; b++) {
+
+                h = (h ^ ((encoded >>> (8 * b)) & 0xFF)) * BytesVTypeHashMap.FNV_PRIME;
+            }
+
+            length += count;
+            i += (int) (encoded >>> 40);
+        }
+
+        return (length << 32) | (BitMixer.mix(h, this.perturbation) & 0xFFFFFFFFL);
+    }
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * UTF-8 encoding of the code point at index i of s, as {@link String#getBytes(String)} with "UTF-8" does, unpaired surrogates
+     * being encoded as '?'.
+     * @return the encoded bytes packed in the low 32 bits, first byte lowest, then the number of bytes in bits [32; 40[
+     * and the number of chars consumed, 1 or 2, in bits [40; 48[.
+     */
+    private static long encodeUtf8(final CharSequence s, final int i) {
+
+        final char c = s.charAt(i);
+
+        if (c < 0x80) {
+
+            return (1L << 40) | (1L << 32) | c;
+        }
+
+        if (c < 0x800) {
+
+            return (1L << 40) | (2L << 32) | ((0x80 | (c & 0x3F)) << 8) | (0xC0 | (c >> 6));
+        }
+
+        if (c >= '\uD800' && c <= '\uDFFF') {
+
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+
+                final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+
+                return (2L << 40) | (4L << 32)
+                        | ((long) (0x80 | (cp & 0x3F)) << 24)
+                        | ((0x80 | ((cp >> 6) & 0x3F)) << 16)
+                        | ((0x80 | ((cp >> 12) & 0x3F)) << 8)
+                        | (0xF0 | (cp >> 18));
+            }
+
+            return (1L << 40) | (1L << 32) | '?';
+        }
+
+        return (1L << 40) | (3L << 32)
+                | ((0x80 | (c & 0x3F)) << 16)
+                | ((0x80 | ((c >> 6) & 0x3F)) << 8)
+                | (0xE0 | (c >> 12));
+    }
+}
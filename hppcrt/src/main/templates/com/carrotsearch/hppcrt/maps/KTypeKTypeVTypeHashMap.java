@@ -0,0 +1,983 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object", "BYTE", "CHAR", "SHORT", "FLOAT", "DOUBLE")} !*/
+/**
+ * A hash map of composite (<code>KType</code>, <code>KType</code>) keys to <code>VType</code>, implemented using open
+ * addressing with linear probing for collision resolution.
+ * <p>
+ * The two halves of the keys are stored in the parallel arrays {@link #keys1} and {@link #keys2}, and hashed together
+ * through {@link BitMixer}, so that neither the lookups nor the insertions allocate key objects,
+ * and no packing of the halves is needed.
+ * </p>
+ * <p>
+ * The internal buffers of this implementation ({@link #keys1}, {@link #keys2}, {@link #values}),
+ * are always allocated to the nearest size that is a power of two. When
+ * the capacity exceeds the given load factor, the buffer size is doubled.
+ * </p>
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeKTypeVTypeHashMap<KType, VType>
+implements Iterable<KTypeKTypeVTypeCursor<KType, VType>>, Cloneable
+{
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Hash-indexed array holding the first halves of the keys.
+     * <p>
+     * Direct map iteration: iterate  {keys1[i], keys2[i], values[i]} for i in [0; keys1.length[ where (keys1[i], keys2[i]) != (0, 0), then also
+     * {(0, 0), {@link #allocatedDefaultKeyValue} } is in the map if {@link #allocatedDefaultKey} = true.
+     * </p>
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys1;
+
+    /**
+     * Hash-indexed array holding the second halves of the keys, along {@link #keys1}.
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys2;
+
+    /**
+     * Hash-indexed array holding all values associated to the keys.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * True if key = (0, 0) is in the map.
+     */
+    public boolean allocatedDefaultKey = false;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = (0, 0)
+     */
+    public VType allocatedDefaultKeyValue;
+
+    /**
+     * Cached number of assigned slots in {@link #keys1}.
+     */
+    protected int assigned;
+
+    /**
+     * The load factor for this map (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys1} hits this value.
+     */
+    protected int resizeAt;
+
+    /**
+     * Per-instance size perturbation
+     * introduced in rehashing to create a unique key distribution.
+     */
+    protected final int perturbation = Containers.randomSeed32();
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeKTypeVTypeHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeKTypeVTypeHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeKTypeVTypeHashMap(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
+        allocateBuffers(HashContainers.minBufferSize(initialCapacity, loadFactor));
+    }
+
+    /**
+     * Place a given key and value in the container.
+     *
+     * @return The value previously stored under the given key in the map is returned,
+     * else the default value if the key was not present.
+     */
+    public VType put(final KType key1, final KType key2, final VType value) {
+
+        if (IS_EMPTY_KEY(key1, key2)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+                this.allocatedDefaultKeyValue = value;
+
+                return previousValue;
+            }
+
+            this.allocatedDefaultKeyValue = value;
+            this.allocatedDefaultKey = true;
+
+            return this.defaultValue;
+        }
+
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+
+        int slot = REHASH(key1, key2, this.perturbation) & mask;
+
+        while (is_allocated(slot, keys1, keys2)) {
+
+            if (Intrinsics.<KType> equals(key1, keys1[slot]) && Intrinsics.<KType> equals(key2, keys2[slot])) {
+
+                final VType oldValue = Intrinsics.<VType> cast(this.values[slot]);
+                this.values[slot] = value;
+
+                return oldValue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        // Check if we need to grow. If so, reallocate new data, fill in the last element
+        // and rehash.
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key1, key2, value, slot);
+
+        } else {
+
+            this.assigned++;
+
+            keys1[slot] = key1;
+            keys2[slot] = key2;
+            this.values[slot] = value;
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Puts all the entries of another pair-key map, overwriting the values of the existing keys.
+     * @return the number of keys added to the map.
+     */
+    public int putAll(final KTypeKTypeVTypeHashMap<KType, VType> other) {
+        final int count = size();
+
+        for (final KTypeKTypeVTypeCursor<KType, VType> c : other) {
+            put(c.key1, c.key2, c.value);
+        }
+
+        return size() - count;
+    }
+
+    /**
+     * Trove-inspired API method. An equivalent
+     * of the following code:
+     * <pre>
+     * if (!map.containsKey(key1, key2)) map.put(key1, key2, value);
+     * </pre>
+     *
+     * @return <code>true</code> if the key was absent, and the value was put.
+     */
+    public boolean putIfAbsent(final KType key1, final KType key2, final VType value) {
+        if (!containsKey(key1, key2)) {
+            put(key1, key2, value);
+            return true;
+        }
+        return false;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * If the key does not exist, <code>putValue</code> is inserted into the map,
+     * otherwise any existing value is incremented by <code>incrementValue</code>.
+     *
+     * @param putValue
+     *          The value to put if the key does not exist.
+     * @param incrementValue
+     *          The value to add to the existing value if the key exists.
+     * @return Returns the current value associated with the key (after
+     *         changes).
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final KType key1, final KType key2, final VType putValue, final VType incrementValue) {
+
+        if (IS_EMPTY_KEY(key1, key2)) {
+
+            if (this.allocatedDefaultKey) {
+
+                this.allocatedDefaultKeyValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            this.allocatedDefaultKeyValue = putValue;
+            this.allocatedDefaultKey = true;
+
+            return putValue;
+        }
+
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        int slot = REHASH(key1, key2, this.perturbation) & mask;
+
+        //a single probe: update in place an existing key, or insert in the free slot ending the probe
+        while (is_allocated(slot, keys1, keys2)) {
+
+            if (Intrinsics.<KType> equals(key1, keys1[slot]) && Intrinsics.<KType> equals(key2, keys2[slot])) {
+
+                values[slot] = (VType) (Intrinsics.<VType> add(values[slot], incrementValue));
+
+                return values[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key1, key2, putValue, slot);
+
+        } else {
+
+            this.assigned++;
+
+            keys1[slot] = key1;
+            keys2[slot] = key2;
+            values[slot] = putValue;
+        }
+
+        return putValue;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Adds <code>incrementValue</code> to any existing value for the given key
+     * or inserts <code>incrementValue</code> if the key did not previously exist.
+     *
+     * @param incrementValue The value to put or add to the existing value if the key exists.
+     * @return Returns the current value associated with the key (after changes).
+     */
+    public VType addTo(final KType key1, final KType key2, final VType incrementValue)
+    {
+        return putOrAdd(key1, key2, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * Expand the internal storage buffers (capacity) and rehash.
+     */
+    private void expandAndPut(final KType pendingKey1, final KType pendingKey2, final VType pendingValue, final int freeSlot) {
+        assert this.assigned == this.resizeAt;
+
+        //default sentinel value is never in the keys[] arrays, so never trigger reallocs
+        assert !IS_EMPTY_KEY(pendingKey1, pendingKey2);
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final KType[] oldKeys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] oldKeys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] oldValues = Intrinsics.<VType[]> cast(this.values);
+
+        allocateBuffers(HashContainers.nextBufferSize(this.keys1.length, this.assigned, this.loadFactor));
+
+        // We have succeeded at allocating new data so insert the pending key/value at
+        // the free slot in the old arrays before rehashing.
+        this.assigned++;
+
+        oldKeys1[freeSlot] = pendingKey1;
+        oldKeys2[freeSlot] = pendingKey2;
+        oldValues[freeSlot] = pendingValue;
+
+        //for inserts
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        //iterate all the old arrays to add in the newly allocated buffers
+        //It is important to iterate backwards to minimize the conflict chain length !
+        final int perturb = this.perturbation;
+
+        for (int i = oldKeys1.length; --i >= 0;) {
+
+            //only consider non-empty slots, of course
+            if (is_allocated(i, oldKeys1, oldKeys2)) {
+
+                int slot = REHASH(oldKeys1[i], oldKeys2[i], perturb) & mask;
+
+                //similar to put(), except all inserted keys are known to be unique.
+                while (is_allocated(slot, keys1, keys2)) {
+
+                    slot = (slot + 1) & mask;
+                }
+
+                keys1[slot] = oldKeys1[i];
+                keys2[slot] = oldKeys2[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocate internal buffers for a given capacity.
+     *
+     * @param capacity New capacity (must be a power of two).
+     */
+    protected void allocateBuffers(final int capacity) {
+        try {
+
+            final KType[] keys1 = Intrinsics.<KType> newArray(capacity);
+            final KType[] keys2 = Intrinsics.<KType> newArray(capacity);
+            final VType[] values = Intrinsics.<VType> newArray(capacity);
+
+            this.keys1 = keys1;
+            this.keys2 = keys2;
+            this.values = values;
+
+            //allocate so that there is at least one slot that remains allocated = false
+            //this is compulsory to guarantee proper stop in searching loops
+            this.resizeAt = HashContainers.expandAtCount(capacity, this.loadFactor);
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys1 == null) ? 0 : this.keys1.length,
+                            capacity);
+        }
+    }
+
+    /**
+     * Remove all values at the given key. The default value for the key type is returned
+     * if the value does not exist in the map.
+     */
+    public VType remove(final KType key1, final KType key2) {
+
+        if (IS_EMPTY_KEY(key1, key2)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+                /*! #end !*/
+
+                this.allocatedDefaultKey = false;
+                return previousValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+
+        int slot = REHASH(key1, key2, this.perturbation) & mask;
+
+        while (is_allocated(slot, keys1, keys2)) {
+
+            if (Intrinsics.<KType> equals(key1, keys1[slot]) && Intrinsics.<KType> equals(key2, keys2[slot])) {
+
+                final VType value = Intrinsics.<VType> cast(this.values[slot]);
+
+                shiftConflictingKeys(slot);
+
+                return value;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
+     */
+    protected void shiftConflictingKeys(int gapSlot) {
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        final int perturb = this.perturbation;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        int distance = 0;
+        while (true) {
+
+            final int slot = (gapSlot + (++distance)) & mask;
+
+            if (!is_allocated(slot, keys1, keys2)) {
+                break;
+            }
+
+            final int idealSlotModMask = REHASH(keys1[slot], keys2[slot], perturb) & mask;
+
+            //original HPPC code: shift = (slot - idealSlot) & mask;
+            //equivalent to shift = (slot & mask - idealSlot & mask) & mask;
+            //since slot and idealSlotModMask are already folded, we have :
+            final int shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                keys1[gapSlot] = keys1[slot];
+                keys2[gapSlot] = keys2[slot];
+                values[gapSlot] = values[slot];
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        keys1[gapSlot] = Intrinsics.<KType> empty();
+        keys2[gapSlot] = Intrinsics.<KType> empty();
+
+        /* #if ($TemplateOptions.VTypeGeneric) */
+        values[gapSlot] = Intrinsics.<VType> empty();
+        /* #end */
+
+        this.assigned--;
+    }
+
+    /**
+     * Removes all the entries for which the predicate returns true.
+     * @return the number of removed entries.
+     */
+    public int removeAll(final KTypeKTypeVTypePredicate<? super KType, ? super VType> predicate) {
+        final int before = size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty(), Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+                this.allocatedDefaultKey = false;
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+                /*! #end !*/
+            }
+        }
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = 0; i < keys1.length;) {
+
+            if (is_allocated(i, keys1, keys2) && predicate.apply(keys1[i], keys2[i], values[i])) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+                continue;
+            }
+
+            i++;
+        }
+
+        return before - size();
+    }
+
+    /**
+     * @return Returns the value associated with the given key or the default value
+     * for the value type, if the key is not associated with any value.
+     */
+    public VType get(final KType key1, final KType key2) {
+
+        if (IS_EMPTY_KEY(key1, key2)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+
+        int slot = REHASH(key1, key2, this.perturbation) & mask;
+
+        while (is_allocated(slot, keys1, keys2)) {
+
+            if (Intrinsics.<KType> equals(key1, keys1[slot]) && Intrinsics.<KType> equals(key2, keys2[slot])) {
+
+                return Intrinsics.<VType> cast(this.values[slot]);
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Returns <code>true</code> if the map contains the (key1, key2) key.
+     */
+    public boolean containsKey(final KType key1, final KType key2) {
+
+        if (IS_EMPTY_KEY(key1, key2)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final int mask = this.keys1.length - 1;
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+
+        int slot = REHASH(key1, key2, this.perturbation) & mask;
+
+        while (is_allocated(slot, keys1, keys2)) {
+
+            if (Intrinsics.<KType> equals(key1, keys1[slot]) && Intrinsics.<KType> equals(key2, keys2[slot])) {
+
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes all entries from this map.
+     */
+    public void clear() {
+        this.assigned = 0;
+
+        // States are always cleared.
+        this.allocatedDefaultKey = false;
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        KTypeArrays.blankArray(this.keys1, 0, this.keys1.length);
+        KTypeArrays.blankArray(this.keys2, 0, this.keys2.length);
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //Faster than Arrays.fill(values, null); // Help the GC.
+        VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), 0, this.values.length);
+        /*! #end !*/
+    }
+
+    /**
+     * @return Returns the current size (number of entries) of the map.
+     */
+    public int size() {
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return Returns the number of entries the map can hold without reallocating its buffers.
+     */
+    public int capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * @return True if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+
+        if (this.allocatedDefaultKey) {
+            h += BitMixer.mix(this.allocatedDefaultKeyValue);
+        }
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = keys1.length; --i >= 0;) {
+
+            if (is_allocated(i, keys1, keys2)) {
+
+                h += BitMixer.mix(keys1[i]) ^ (31 * BitMixer.mix(keys2[i])) ^ BitMixer.mix(values[i]);
+            }
+        }
+
+        return h;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj != null) {
+            if (obj == this) {
+                return true;
+            }
+
+            //must be of the same class, subclasses are not comparable
+            if (obj.getClass() != this.getClass()) {
+                return false;
+            }
+
+            /* #if ($TemplateOptions.AnyGeneric) */
+            @SuppressWarnings("unchecked")
+            final/* #end */
+            KTypeKTypeVTypeHashMap<KType, VType> other = (KTypeKTypeVTypeHashMap<KType, VType>) obj;
+
+            //must be of the same size
+            if (other.size() != this.size()) {
+                return false;
+            }
+
+            final EntryIterator it = this.iterator();
+
+            while (it.hasNext()) {
+                final KTypeKTypeVTypeCursor<KType, VType> c = it.next();
+
+                if (!other.containsKey(c.key1, c.key2)) {
+                    //recycle
+                    it.release();
+                    return false;
+                }
+
+                final VType otherValue = other.get(c.key1, c.key2);
+
+                if (!Intrinsics.<VType> equals(c.value, otherValue)) {
+                    //recycle
+                    it.release();
+                    return false;
+                }
+            } //end while
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * An iterator implementation for {@link #iterator}.
+     * Holds a KTypeKTypeVTypeCursor returning
+     * (key1, key2, value, index) = (KType key1, KType key2, VType value, index the position in {@link KTypeKTypeVTypeHashMap#keys1}, or keys1.length for key = (0, 0))
+     */
+    public final class EntryIterator extends AbstractIterator<KTypeKTypeVTypeCursor<KType, VType>>
+    {
+        public final KTypeKTypeVTypeCursor<KType, VType> cursor;
+
+        public EntryIterator() {
+            this.cursor = new KTypeKTypeVTypeCursor<KType, VType>();
+            this.cursor.index = -2;
+        }
+
+        /**
+         * Iterate backwards w.r.t the buffer, to
+         * minimize collision chains when filling another hash container (ex. with putAll())
+         */
+        @Override
+        protected KTypeKTypeVTypeCursor<KType, VType> fetch() {
+
+            final KType[] keys1 = Intrinsics.<KType[]> cast(KTypeKTypeVTypeHashMap.this.keys1);
+            final KType[] keys2 = Intrinsics.<KType[]> cast(KTypeKTypeVTypeHashMap.this.keys2);
+
+            if (this.cursor.index == keys1.length + 1) {
+
+                if (KTypeKTypeVTypeHashMap.this.allocatedDefaultKey) {
+
+                    this.cursor.index = keys1.length;
+                    this.cursor.key1 = Intrinsics.<KType> empty();
+                    this.cursor.key2 = Intrinsics.<KType> empty();
+                    this.cursor.value = KTypeKTypeVTypeHashMap.this.allocatedDefaultKeyValue;
+
+                    return this.cursor;
+
+                }
+                //no value associated with the default key, continue iteration...
+                this.cursor.index = keys1.length;
+
+            }
+
+            int i = this.cursor.index - 1;
+
+            while (i >= 0 && !is_allocated(i, keys1, keys2)) {
+                i--;
+            }
+
+            if (i == -1) {
+                return done();
+            }
+
+            this.cursor.index = i;
+            this.cursor.key1 = keys1[i];
+            this.cursor.key2 = keys2[i];
+            this.cursor.value = Intrinsics.<VType> cast(KTypeKTypeVTypeHashMap.this.values[i]);
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * internal pool of EntryIterator
+     */
+    protected final IteratorPool<KTypeKTypeVTypeCursor<KType, VType>, EntryIterator> entryIteratorPool = new IteratorPool<KTypeKTypeVTypeCursor<KType, VType>, EntryIterator>(
+            new ObjectFactory<EntryIterator>() {
+
+                @Override
+                public EntryIterator create() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public void initialize(final EntryIterator obj) {
+                    obj.cursor.index = KTypeKTypeVTypeHashMap.this.keys1.length + 1;
+                }
+
+                @Override
+                public void reset(final EntryIterator obj) {
+                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                    obj.cursor.value = null;
+                    /*! #end !*/
+                }
+            });
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EntryIterator iterator() {
+        //return new EntryIterator();
+        return this.entryIteratorPool.borrow();
+    }
+
+    /**
+     * Applies a given procedure to all entries of the map.
+     */
+    public <T extends KTypeKTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int i = keys1.length - 1; i >= 0; i--) {
+
+            if (is_allocated(i, keys1, keys2)) {
+                procedure.apply(keys1[i], keys2[i], values[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all entries of the map, until the predicate returns false.
+     */
+    public <T extends KTypeKTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final KType[] keys1 = Intrinsics.<KType[]> cast(this.keys1);
+        final KType[] keys2 = Intrinsics.<KType[]> cast(this.keys2);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int i = keys1.length - 1; i >= 0; i--) {
+
+            if (is_allocated(i, keys1, keys2)) {
+                if (!predicate.apply(keys1[i], keys2[i], values[i])) {
+                    break;
+                }
+            }
+        } //end for
+
+        return predicate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeKTypeVTypeHashMap<KType, VType> clone() {
+        //clone to size() to prevent some cases of exponential sizes,
+        final KTypeKTypeVTypeHashMap<KType, VType> cloned = new KTypeKTypeVTypeHashMap<KType, VType>(this.size(), this.loadFactor);
+
+        //We must NOT clone because of independent perturbations seeds
+        cloned.putAll(this);
+
+        cloned.defaultValue = this.defaultValue;
+
+        return cloned;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        boolean first = true;
+        for (final KTypeKTypeVTypeCursor<KType, VType> cursor : this) {
+            if (!first) {
+                buffer.append(", ");
+            }
+            buffer.append("(");
+            buffer.append(cursor.key1);
+            buffer.append(", ");
+            buffer.append(cursor.key2);
+            buffer.append(")=>");
+            buffer.append(cursor.value);
+            first = false;
+        }
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Create a new hash map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeKTypeVTypeHashMap<KType, VType> newInstance() {
+        return new KTypeKTypeVTypeHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeKTypeVTypeHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor) {
+        return new KTypeKTypeVTypeHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    //Test for existence in template
+    /*! #if ($TemplateOptions.declareInline("is_allocated(slot, keys1, keys2)",
+        "<*,*>==>(keys1[slot] != 0 || keys2[slot] != 0)")) !*/
+    /**
+     *  template version
+     * (actual method is inlined in generated code)
+     */
+    private boolean is_allocated(final int slot, final KType[] keys1, final KType[] keys2) {
+
+        return !Intrinsics.<KType> isEmpty(keys1[slot]) || !Intrinsics.<KType> isEmpty(keys2[slot]);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("IS_EMPTY_KEY(key1, key2)",
+        "<*,*>==>(key1 == 0 && key2 == 0)")) !*/
+    /**
+     * The (0, 0) key is the empty slot marker, stored apart.
+     * (inlined in generated code)
+     */
+    private boolean IS_EMPTY_KEY(final KType key1, final KType key2) {
+
+        return Intrinsics.<KType> isEmpty(key1) && Intrinsics.<KType> isEmpty(key2);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(key1, key2, perturb)",
+    "<*,*>==>BitMixer.mix(BitMixer.mix64(key1 , perturb) + key2 , perturb)")) !*/
+    /**
+     * REHASH method for hashing the two halves of the keys together: key1 is mixed to 64 bits,
+     * key2 added and the sum mixed again, so that (a, b) and (b, a) hash differently.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType key1, final KType key2, final int perturb) {
+
+        return BitMixer.mix(BitMixer.mix64(key1.hashCode(), perturb) + key2.hashCode(), perturb);
+    }
+    /*! #end !*/
+}
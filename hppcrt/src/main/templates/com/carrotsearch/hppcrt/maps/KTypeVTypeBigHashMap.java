@@ -0,0 +1,971 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code>, implemented using open
+ * addressing with linear probing for collision resolution, able to hold more than
+ * {@link HashContainers#MAX_HASH_ARRAY_LENGTH} slots.
+ * <p>
+ * This is the "big" version of {@link KTypeVTypeHashMap}: the internal buffers ({@link #keys}, {@link #values})
+ * are split in pages of at most <code>maxPageSize</code> slots, so that slots are addressed by <code>long</code> indices,
+ * and sizes are <code>long</code>. Keys are hashed to 64 bits, so that the whole buffers are used.
+ * The price is an additional indirection for each slot access.
+ * </p>
+ * <p>
+ * The total size of the buffers is always a power of two. When
+ * the capacity exceeds the given load factor, the total buffer size is doubled.
+ * </p>
+ *
+#if ($TemplateOptions.KTypeGeneric)
+ * <p> In addition, the hashing strategy can be changed
+ * by overriding ({@link #equalKeys(Object, Object)} and {@link #hashKey(Object)}) together,
+ * which then replaces the usual ({@link #equals(Object)} and {@link #hashCode()}) from the keys themselves.
+ * Note that {@link #hashKey(Object)} is 32 bits, so distinct keys beyond 2^32 necessarily collide.
+ * </p>
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeBigHashMap<KType, VType>
+{
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Hash-indexed paged array holding all keys: slot i is at keys[i >>> {@link #pageShift}][i & {@link #pageMask}].
+     * <p>
+     * Direct map iteration: iterate {keys[p][i], values[p][i]} for all pages p and i in [0; keys[p].length[ where keys[p][i] != 0/null, then also
+     * {0/null, {@link #allocatedDefaultKeyValue} } is in the map if {@link #allocatedDefaultKey} = true.
+     * </p>
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType [][]
+          #else !*/
+    Object[][]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Hash-indexed paged array holding all values associated to the keys
+     * stored in {@link #keys}.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType [][]
+          #else !*/
+    Object[][]
+            /*! #end !*/
+            values;
+
+    /**
+     * True if key = 0/null is in the map.
+     */
+    public boolean allocatedDefaultKey = false;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = 0/null
+     */
+    public VType allocatedDefaultKeyValue;
+
+    /**
+     * Cached number of assigned slots in {@link #keys}.
+     */
+    protected long assigned;
+
+    /**
+     * The load factor for this map (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys} hits this value.
+     */
+    private long resizeAt;
+
+    /**
+     * Total number of slots of the buffers minus 1.
+     */
+    protected long mask;
+
+    /**
+     * Slot i is in page i >>> pageShift.
+     */
+    protected int pageShift;
+
+    /**
+     * Slot i is at index i & pageMask of its page.
+     */
+    protected int pageMask;
+
+    /**
+     * log2 of the max number of slots of a page.
+     */
+    protected final int maxPageShift;
+
+    /**
+     * Per-instance size perturbation
+     * introduced in rehashing to create a unique key distribution.
+     */
+    protected final int perturbation = Containers.randomSeed32();
+
+    /*! #if ($TemplateOptions.KTypeGeneric) !*/
+
+    /**
+     * Override this method, together with {@link #equalKeys(Object, Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with a non-null key argument.
+     * By default, this method calls key.{@link #hashCode()}.
+     * @param key KType to be hashed.
+     * @return the hashed value of key, following the same semantic
+     * as {@link #hashCode()};
+     * @see #hashCode()
+     * @see #equalKeys(Object, Object)
+     */
+    protected int hashKey(final KType key) {
+
+        //default maps on Object.hashCode()
+        return key.hashCode();
+    }
+
+    /**
+     * Override this method together with {@link #hashKey(Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with both non-null arguments.
+     * By default, this method calls a.{@link #equals(b)}.
+     * @param a not-null KType to be compared
+     * @param b not-null KType to be compared
+     * @return true if a and b are considered equal, following the same
+     * semantic as {@link #equals(Object)}.
+     * @see #equals(Object)
+     * @see #hashKey(Object)
+     */
+    protected boolean equalKeys(final KType a, final KType b) {
+
+        //default maps on Object.equals()
+        return Intrinsics.<KType> equalsNotNull(a, b);
+    }
+
+    /*! #end !*/
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeBigHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeBigHashMap(final long initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor, and pages of at most {@link HashContainers#DEFAULT_BIG_HASH_PAGE_SIZE} slots.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeBigHashMap(final long initialCapacity, final double loadFactor) {
+        this(initialCapacity, loadFactor, HashContainers.DEFAULT_BIG_HASH_PAGE_SIZE);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor, and max page size.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     * @param maxPageSize Max number of slots of a page of the buffers (automatically
+     *            rounded to the next power of two, in [{@link HashContainers#MIN_HASH_ARRAY_LENGTH}; {@link HashContainers#MAX_HASH_ARRAY_LENGTH}]).
+     */
+    public KTypeVTypeBigHashMap(final long initialCapacity, final double loadFactor, final int maxPageSize) {
+        this.loadFactor = loadFactor;
+
+        this.maxPageShift = Integer.numberOfTrailingZeros(BitUtil.nextHighestPowerOfTwo(
+                Math.max(HashContainers.MIN_HASH_ARRAY_LENGTH, Math.min(maxPageSize, HashContainers.MAX_HASH_ARRAY_LENGTH))));
+
+        //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
+        allocateBuffers(HashContainers.minBigBufferSize(initialCapacity, loadFactor));
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+                this.allocatedDefaultKeyValue = value;
+
+                return previousValue;
+            }
+
+            this.allocatedDefaultKeyValue = value;
+            this.allocatedDefaultKey = true;
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        long slot = REHASH(key) & mask;
+
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                final VType[] valuePage = Intrinsics.<VType[]> cast(this.values[(int) (slot >>> pageShift)]);
+
+                final VType oldValue = valuePage[(int) slot & pageMask];
+                valuePage[(int) slot & pageMask] = value;
+
+                return oldValue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        // Check if we need to grow. If so, reallocate new data,
+        // fill in the last element and rehash.
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, value, slot);
+
+        } else {
+
+            this.assigned++;
+
+            keys[(int) (slot >>> pageShift)][(int) slot & pageMask] = key;
+            this.values[(int) (slot >>> pageShift)][(int) slot & pageMask] = value;
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Puts all keys from an associative container to this map.
+     * @return Returns the number of keys added to the map as a result of this
+     * call (not previously present in the map).
+     */
+    public long putAll(final KTypeVTypeAssociativeContainer<? extends KType, ? extends VType> container) {
+        final long count = this.size();
+
+        for (final KTypeVTypeCursor<? extends KType, ? extends VType> c : container) {
+            put(c.key, c.value);
+        }
+
+        return this.size() - count;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+        if (!containsKey(key)) {
+            put(key, value);
+            return true;
+        }
+        return false;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * @see KTypeVTypeHashMap#putOrAdd
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                this.allocatedDefaultKeyValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            this.allocatedDefaultKeyValue = putValue;
+            this.allocatedDefaultKey = true;
+
+            return putValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        long slot = REHASH(key) & mask;
+
+        KType existing;
+
+        //a single probe: update in place an existing key, or insert in the free slot ending the probe
+        while (!Intrinsics.<KType> isEmpty(existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                final VType[] valuePage = Intrinsics.<VType[]> cast(this.values[(int) (slot >>> pageShift)]);
+
+                valuePage[(int) slot & pageMask] = (VType) (Intrinsics.<VType> add(valuePage[(int) slot & pageMask], incrementValue));
+
+                return valuePage[(int) slot & pageMask];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, putValue, slot);
+
+        } else {
+
+            this.assigned++;
+
+            keys[(int) (slot >>> pageShift)][(int) slot & pageMask] = key;
+            this.values[(int) (slot >>> pageShift)][(int) slot & pageMask] = putValue;
+        }
+
+        return putValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#addTo
+     */
+    public VType addTo(final KType key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * Expand the internal storage buffers (capacity) and rehash.
+     */
+    private void expandAndPut(final KType pendingKey, final VType pendingValue, final long freeSlot) {
+        assert this.assigned == this.resizeAt;
+
+        //default sentinel value is never in the keys[] array, so never trigger reallocs
+        assert !Intrinsics.<KType> isEmpty(pendingKey);
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final KType[][] oldKeys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] oldValues = Intrinsics.<VType[][]> cast(this.values);
+
+        final int oldPageShift = this.pageShift;
+        final int oldPageMask = this.pageMask;
+
+        allocateBuffers(HashContainers.nextBigBufferSize(this.mask + 1, this.assigned, this.loadFactor));
+
+        // We have succeeded at allocating new data so insert the pending key/value at
+        // the free slot in the old arrays before rehashing.
+        this.assigned++;
+
+        oldKeys[(int) (freeSlot >>> oldPageShift)][(int) freeSlot & oldPageMask] = pendingKey;
+        oldValues[(int) (freeSlot >>> oldPageShift)][(int) freeSlot & oldPageMask] = pendingValue;
+
+        //for inserts
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        final int perturb = this.perturbation;
+
+        //iterate all the old pages to add in the newly allocated buffers
+        //It is important to iterate backwards to minimize the conflict chain length !
+        for (int page = oldKeys.length; --page >= 0;) {
+
+            final KType[] oldKeyPage = oldKeys[page];
+            final VType[] oldValuePage = oldValues[page];
+
+            for (int i = oldKeyPage.length; --i >= 0;) {
+
+                final KType key = oldKeyPage[i];
+
+                //only consider non-empty slots, of course
+                if (!Intrinsics.<KType> isEmpty(key)) {
+
+                    long slot = REHASH2(key, perturb) & mask;
+
+                    //similar to put(), except all inserted keys are known to be unique.
+                    while (!Intrinsics.<KType> isEmpty(keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+                        slot = (slot + 1) & mask;
+                    }
+
+                    keys[(int) (slot >>> pageShift)][(int) slot & pageMask] = key;
+                    values[(int) (slot >>> pageShift)][(int) slot & pageMask] = oldValuePage[i];
+                }
+            }
+
+            //help the GC, this page is done
+            oldKeys[page] = null;
+            oldValues[page] = null;
+        }
+    }
+
+    /**
+     * Allocate internal buffers for a given capacity.
+     *
+     * @param capacity New total capacity (must be a power of two).
+     */
+    @SuppressWarnings({ "boxing", "unchecked" })
+    private void allocateBuffers(final long capacity) {
+
+        final int pageShift = Math.min(this.maxPageShift, Long.numberOfTrailingZeros(capacity));
+        final long nbPages = capacity >>> pageShift;
+
+        if (nbPages > HashContainers.MAX_HASH_ARRAY_LENGTH) {
+
+            throw new BufferAllocationException(
+                    "Maximum number of pages exceeded to grow to %d elements (max page size: %d)",
+                    capacity,
+                    1 << this.maxPageShift);
+        }
+
+        try {
+
+            /*! #if ($TemplateOptions.KTypePrimitive)
+            final KType[][] keys = new KType[(int) nbPages][];
+            #else !*/
+            final KType[][] keys = (KType[][]) new Object[(int) nbPages][];
+            /*! #end !*/
+
+            /*! #if ($TemplateOptions.VTypePrimitive)
+            final VType[][] values = new VType[(int) nbPages][];
+            #else !*/
+            final VType[][] values = (VType[][]) new Object[(int) nbPages][];
+            /*! #end !*/
+
+            for (int page = 0; page < nbPages; page++) {
+
+                keys[page] = Intrinsics.<KType> newArray(1 << pageShift);
+                values[page] = Intrinsics.<VType> newArray(1 << pageShift);
+            }
+
+            this.keys = keys;
+            this.values = values;
+
+            this.mask = capacity - 1;
+            this.pageShift = pageShift;
+            this.pageMask = (1 << pageShift) - 1;
+
+            //allocate so that there is at least one slot that remains allocated = false
+            //this is compulsory to guarantee proper stop in searching loops
+            this.resizeAt = HashContainers.expandAtBigCount(capacity, this.loadFactor);
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0L : this.mask + 1,
+                            capacity);
+        }
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#remove
+     */
+    public VType remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+                /*! #end !*/
+
+                this.allocatedDefaultKey = false;
+                return previousValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        long slot = REHASH(key) & mask;
+
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                final VType value = Intrinsics.<VType> cast(this.values[(int) (slot >>> pageShift)][(int) slot & pageMask]);
+
+                shiftConflictingKeys(slot);
+
+                return value;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(long gapSlot) {
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        final int perturb = this.perturbation;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        long distance = 0;
+
+        while (true) {
+
+            final long slot = (gapSlot + (++distance)) & mask;
+
+            final KType existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            final long idealSlotModMask = REHASH2(existing, perturb) & mask;
+
+            final long shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                keys[(int) (gapSlot >>> pageShift)][(int) gapSlot & pageMask] = existing;
+                values[(int) (gapSlot >>> pageShift)][(int) gapSlot & pageMask] = values[(int) (slot >>> pageShift)][(int) slot & pageMask];
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        keys[(int) (gapSlot >>> pageShift)][(int) gapSlot & pageMask] = Intrinsics.<KType> empty();
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        values[(int) (gapSlot >>> pageShift)][(int) gapSlot & pageMask] = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        this.assigned--;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#removeAll(KTypePredicate)
+     */
+    public long removeAll(final KTypePredicate<? super KType> predicate) {
+        final long before = this.size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty())) {
+                this.allocatedDefaultKey = false;
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+                /*! #end !*/
+            }
+        }
+
+        final long length = this.mask + 1;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        for (long i = 0; i < length;) {
+            KType existing;
+            if (!Intrinsics.<KType> isEmpty(existing = keys[(int) (i >>> pageShift)][(int) i & pageMask]) && predicate.apply(existing)) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+            } else {
+                i++;
+            }
+        }
+
+        return before - this.size();
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#removeAll(KTypeVTypePredicate)
+     */
+    public long removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+        final long before = this.size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+                this.allocatedDefaultKey = false;
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+                /*! #end !*/
+            }
+        }
+
+        final long length = this.mask + 1;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        for (long i = 0; i < length;) {
+            KType existing;
+            if (!Intrinsics.<KType> isEmpty(existing = keys[(int) (i >>> pageShift)][(int) i & pageMask])
+                    && predicate.apply(existing, values[(int) (i >>> pageShift)][(int) i & pageMask])) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+            } else {
+                i++;
+            }
+        }
+
+        return before - this.size();
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#get
+     */
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        long slot = REHASH(key) & mask;
+
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                return Intrinsics.<VType> cast(this.values[(int) (slot >>> pageShift)][(int) slot & pageMask]);
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        long slot = REHASH(key) & mask;
+
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[(int) (slot >>> pageShift)][(int) slot & pageMask])) {
+
+            if (KEYEQUALS(key, existing)) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return false;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#clear
+     */
+    public void clear() {
+        this.assigned = 0;
+
+        // States are always cleared.
+        this.allocatedDefaultKey = false;
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+
+        for (int page = 0; page < keys.length; page++) {
+
+            //Faster than Arrays.fill(keys, null); // Help the GC.
+            KTypeArrays.blankArray(keys[page], 0, keys[page].length);
+        }
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        for (int page = 0; page < values.length; page++) {
+
+            //Faster than Arrays.fill(values, null); // Help the GC.
+            VTypeArrays.<VType> blankArray(values[page], 0, values[page].length);
+        }
+        /*! #end !*/
+    }
+
+    /**
+     * @return the number of keys in the map.
+     */
+    public long size() {
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return the number of keys the map can hold before its buffers are reallocated.
+     */
+    public long capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * @return true if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Applies a given procedure to all keys-value pairs in this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final KType[] keyPage = keys[page];
+            final VType[] valuePage = values[page];
+
+            for (int i = keyPage.length - 1; i >= 0; i--) {
+                KType existing;
+                if (!Intrinsics.<KType> isEmpty(existing = keyPage[i])) {
+                    procedure.apply(existing, valuePage[i]);
+                }
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all keys-value pairs in this map, until
+     * the predicate returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final KType[][] keys = Intrinsics.<KType[][]> cast(this.keys);
+        final VType[][] values = Intrinsics.<VType[][]> cast(this.values);
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final KType[] keyPage = keys[page];
+            final VType[] valuePage = values[page];
+
+            for (int i = keyPage.length - 1; i >= 0; i--) {
+                KType existing;
+                if (!Intrinsics.<KType> isEmpty(existing = keyPage[i])) {
+                    if (!predicate.apply(existing, valuePage[i])) {
+                        return predicate;
+                    }
+                }
+            }
+        } //end for
+
+        return predicate;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+                    buffer.append(", ");
+                }
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Create a new hash map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeBigHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeBigHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeBigHashMap<KType, VType> newInstance(final long initialCapacity,
+            final double loadFactor) {
+        return new KTypeVTypeBigHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<Object,*>==>BitMixer.mix64(hashKey(value) , this.perturbation)",
+    "<*,*>==>BitMixer.mix64(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys to 64 bits.
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private long REHASH(final KType value) {
+
+        return BitMixer.mix64(hashKey(value), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH2(value, perturb)",
+    "<Object,*>==>BitMixer.mix64(hashKey(value) , perturb)",
+    "<*,*>==>BitMixer.mix64(value , perturb)")) !*/
+    /**
+     * REHASH2 method for rehashing the keys to 64 bits with perturbation seed as parameter
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private long REHASH2(final KType value, final int perturb) {
+
+        return BitMixer.mix64(hashKey(value), perturb);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("KEYEQUALS(key1, key2)",
+    "<Object,*>==>equalKeys(key1, key2)",
+    "<*,*>==>Intrinsics.<KType> equalsNotNull(key1, key2)")) !*/
+    /**
+     * macro which hides the applied equality criteria
+     */
+    private boolean KEYEQUALS(final KType key1, final KType key2) {
+
+        return equalKeys(key1, key2);
+    }
+    /*! #end !*/
+}
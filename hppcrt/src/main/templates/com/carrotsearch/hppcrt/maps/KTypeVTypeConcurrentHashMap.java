@@ -0,0 +1,470 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A thread-safe hash map of <code>KType</code> to <code>VType</code>, split into
+ * a power-of-two number of lock-striped segments.
+ * <p>
+ * Each segment is a regular {@link KTypeVTypeHashMap} (open addressing, linear probing, with its own
+ * <code>keys</code>/<code>values</code> arrays) guarded by its own monitor, so that threads working
+ * on keys hashed to different segments never contend. A key is dispatched to its segment
+ * using a hash independent of the one used inside the segment itself.
+ * </p>
+ * <p>
+ * Once presized with the expected number of elements, no operation allocates: segments are only
+ * reallocated when they grow past their own capacity, which is done under the segment lock.
+ * </p>
+ * <p>
+ * Whole-map operations ({@link #size()}, {@link #clear()}, {@link #forEach(KTypeVTypeProcedure)}...)
+ * lock the segments one after the other, so they are not atomic snapshots of the whole map.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeConcurrentHashMap<KType, VType>
+{
+    /**
+     * Default number of segments, the number of processors rounded to the next power of two.
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = BitUtil.nextHighestPowerOfTwo(Containers.NB_OF_PROCESSORS);
+
+    /**
+     * Maximum number of segments.
+     */
+    public static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
+    /**
+     * The lock-striped segments, each one is guarded by its own monitor.
+     */
+    protected final KTypeVTypeHashMap<KType, VType>[] segments;
+
+    /**
+     * segments.length - 1
+     */
+    private final int segmentMask;
+
+    /**
+     * Per-instance perturbation used to dispatch keys to segments, independent
+     * of the perturbations of the segments themselves.
+     */
+    private final int perturbation = Containers.randomSeed32();
+
+    /**
+     * The load factor of the segments.
+     */
+    protected final double loadFactor;
+
+    /**
+     * Default constructor: Creates a map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}, and {@link #DEFAULT_CONCURRENCY_LEVEL} segments.
+     */
+    public KTypeVTypeConcurrentHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}, and {@link #DEFAULT_CONCURRENCY_LEVEL} segments.
+     *
+     * @param initialCapacity Initial capacity of the whole map (greater than zero).
+     */
+    public KTypeVTypeConcurrentHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR, KTypeVTypeConcurrentHashMap.DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a map with the given initial capacity, load factor and number of segments.
+     *
+     * @param initialCapacity Initial capacity of the whole map (greater than zero).
+     * @param loadFactor The load factor of the segments (greater than zero and smaller than 1).
+     * @param concurrencyLevel the expected number of concurrently writing threads, rounded to the next power of two
+     * to give the number of segments.
+     */
+    @SuppressWarnings({ "unchecked", "boxing" })
+    public KTypeVTypeConcurrentHashMap(final int initialCapacity, final double loadFactor, final int concurrencyLevel) {
+
+        if (concurrencyLevel < 1 || concurrencyLevel > KTypeVTypeConcurrentHashMap.MAX_CONCURRENCY_LEVEL) {
+
+            throw new IllegalArgumentException(String.format("concurrencyLevel must be in [1, %d]: %d",
+                    KTypeVTypeConcurrentHashMap.MAX_CONCURRENCY_LEVEL, concurrencyLevel));
+        }
+
+        this.loadFactor = loadFactor;
+
+        final int nbSegments = BitUtil.nextHighestPowerOfTwo(concurrencyLevel);
+
+        //spread the capacity over the segments, rounding up
+        final int segmentCapacity = (Math.max(initialCapacity, 0) + nbSegments - 1) / nbSegments;
+
+        this.segments = new KTypeVTypeHashMap[nbSegments];
+
+        for (int i = 0; i < nbSegments; i++) {
+
+            this.segments[i] = new KTypeVTypeHashMap<KType, VType>(segmentCapacity, loadFactor);
+        }
+
+        this.segmentMask = nbSegments - 1;
+    }
+
+    /**
+     * Applies predicate to the (key, value) pairs of segment, scanning its slots directly,
+     * the segment lock being held by the caller.
+     * @return false if the predicate returned false, i.e. the iteration must stop.
+     */
+    private static <KType, VType> boolean forEachInSegment(final KTypeVTypeHashMap<KType, VType> segment,
+            final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        if (segment.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), segment.allocatedDefaultKeyValue)) {
+
+                return false;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(segment.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(segment.values);
+
+        for (int i = keys.length - 1; i >= 0; i--) {
+            KType existing;
+            if (!Intrinsics.<KType> isEmpty(existing = keys[i])) {
+                if (!predicate.apply(existing, values[i])) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the segment responsible for key.
+     */
+    private KTypeVTypeHashMap<KType, VType> segmentFor(final KType key) {
+
+        return this.segments[SEGMENT_HASH(key) & this.segmentMask];
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.put(key, value);
+        }
+    }
+
+    /**
+     * Atomically puts (key, value) if key is not already in the map.
+     * @see KTypeVTypeHashMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.putIfAbsent(key, value);
+        }
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Atomic version of {@link KTypeVTypeHashMap#putOrAdd}.
+     */
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.putOrAdd(key, putValue, incrementValue);
+        }
+    }
+
+    /**
+     * Atomic version of {@link KTypeVTypeHashMap#addTo}.
+     */
+    public VType addTo(final KType key, final VType incrementValue) {
+
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * @see KTypeVTypeHashMap#get
+     */
+    public VType get(final KType key) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.get(key);
+        }
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.containsKey(key);
+        }
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#remove
+     */
+    public VType remove(final KType key) {
+
+        final KTypeVTypeHashMap<KType, VType> segment = segmentFor(key);
+
+        synchronized (segment) {
+
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * Sum of the segments sizes, each segment being locked in turn.
+     */
+    public int size() {
+
+        int size = 0;
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * True if all the segments are empty.
+     */
+    public boolean isEmpty() {
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                if (!segment.isEmpty()) {
+
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sum of the segments capacities. Since keys are dispatched to segments by hash,
+     * the map as a whole may grow a bit before reaching this number of elements.
+     */
+    public int capacity() {
+
+        int capacity = 0;
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                capacity += segment.capacity();
+            }
+        }
+
+        return capacity;
+    }
+
+    /**
+     * Clear all the segments, each segment being locked in turn.
+     * <p>Does not release internal buffers.</p>
+     */
+    public void clear() {
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies procedure to all (key, value) pairs of the map, segment by segment,
+     * while holding the current segment lock.
+     * Procedure must not access this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                segment.forEach(procedure);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies predicate to all (key, value) pairs of the map, segment by segment,
+     * while holding the current segment lock, until the predicate returns false.
+     * Predicate must not access this map.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                if (!forEachInSegment(segment, predicate)) {
+
+                    break;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Removes all (key, value) pairs matching the predicate, segment by segment,
+     * while holding the current segment lock.
+     * Predicate must not access this map.
+     * @return the number of removed pairs.
+     */
+    public int removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        int count = 0;
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                count += segment.removeAll(predicate);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+
+        return this.segments[0].getDefaultValue();
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value". Not meant to be called concurrently with other operations.
+     */
+    public void setDefaultValue(final VType defaultValue) {
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                segment.setDefaultValue(defaultValue);
+            }
+        }
+    }
+
+    /**
+     * Number of segments of this map.
+     */
+    public int concurrencyLevel() {
+
+        return this.segments.length;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        for (final KTypeVTypeHashMap<KType, VType> segment : this.segments) {
+
+            synchronized (segment) {
+
+                final String segmentString = segment.toString();
+
+                if (segmentString.length() > 2) {
+
+                    if (buffer.length() > 1) {
+                        buffer.append(", ");
+                    }
+
+                    buffer.append(segmentString, 1, segmentString.length() - 1);
+                }
+            }
+        }
+
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Create a new map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeConcurrentHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeConcurrentHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new map with initial capacity, load factor and concurrency level control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeConcurrentHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor, final int concurrencyLevel) {
+        return new KTypeVTypeConcurrentHashMap<KType, VType>(initialCapacity, loadFactor, concurrencyLevel);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("SEGMENT_HASH(key)",
+    "<Object,*>==>(key == null ? 0 : BitMixer.mix(key.hashCode(), this.perturbation))",
+    "<*,*>==>BitMixer.mix(key, this.perturbation)")) !*/
+    /**
+     * SEGMENT_HASH method for dispatching keys to segments.
+     * (inlined in generated code)
+     */
+    private int SEGMENT_HASH(final KType key) {
+
+        return (key == null ? 0 : BitMixer.mix(key.hashCode(), this.perturbation));
+    }
+    /*! #end !*/
+}
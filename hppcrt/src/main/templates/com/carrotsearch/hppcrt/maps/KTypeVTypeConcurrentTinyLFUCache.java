@@ -0,0 +1,849 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A thread-safe bounded cache of <code>KType</code> to <code>VType</code>, with the W-TinyLFU admission and eviction
+ * policy of G. Einziger, R. Friedman and B. Manes (2017), as in the Caffeine library.
+ * <p>
+ * The entries are stored in a {@link KTypeVTypeConcurrentHashMap}, so that {@link #get(Object)} only locks one of its segments.
+ * The policy tracks the keys in 3 LRU queues: a small admission window (1% of {@link #maxSize()}), followed by the main space split
+ * into a probation and a protected (80% of the main space) segments. A new key enters the window; the eldest key of the window then moves
+ * to probation, where it is admitted only if a count-min sketch of the access frequencies, aged by periodic halving, estimates it more frequent
+ * than the eldest probation key, the loser being evicted. A probation key accessed again is promoted to protected,
+ * the eldest protected key being demoted back to probation.
+ * </p>
+ * <p>
+ * The policy is guarded by a single lock. Writes take it, but reads do not: {@link #get(Object)} records its key
+ * in one of a power-of-two number of striped read buffers, chosen by thread. A full buffer is drained in batch into the policy
+ * by the reader filling it, if it gets the policy lock without waiting. Reads recorded in a full buffer are dropped meanwhile, which only
+ * makes the policy slightly less accurate.
+ * </p>
+ * <p>
+ * Everything is allocated at construction for {@link #maxSize()} entries, so that nothing is allocated in steady state.
+ * The evicted entries are given to the optional eviction listener, under the policy lock. Entries removed explicitly
+ * by {@link #remove(Object)} or {@link #clear()} are not.
+ * A miss of {@link #get(Object)} returns the default value, see {@link #setDefaultValue(Object)}.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+ * @see KTypeVTypeLFUCache
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeConcurrentTinyLFUCache<KType, VType>
+{
+    /**
+     * Number of keys recorded in a read buffer before it is drained.
+     */
+    public static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * Policy queue of a key.
+     */
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    /**
+     * The entries.
+     */
+    protected final KTypeVTypeConcurrentHashMap<KType, VType> data;
+
+    /**
+     * Guards the policy and the sketch.
+     */
+    protected final ReentrantLock policyLock = new ReentrantLock();
+
+    /**
+     * The striped read buffers, each one being guarded by its own monitor.
+     */
+    protected final ReadBuffer[] readBuffers;
+
+    /**
+     * Entry-indexed keys of the policy.
+     */
+    protected final/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            policyKeys;
+
+    /**
+     * Hash-indexed table of (entry index + 1) of the non-0/null policy keys, 0 for an empty slot.
+     */
+    protected final int[] table;
+
+    /**
+     * Entry of the 0/null key, or -1 if absent.
+     */
+    protected int defaultKeyEntry = -1;
+
+    /**
+     * Queue links: links[e] for e in [0; capacity[ is the node of entry e, capacity + 2 * q and
+     * capacity + 2 * q + 1 are the head and the tail of queue q, as packed before/after nodes of
+     * {@link com.carrotsearch.hppcrt.lists.KTypeLinkedList}.
+     */
+    protected final long[] links;
+
+    /**
+     * Queue of each entry in use.
+     */
+    protected final byte[] queues;
+
+    /**
+     * Number of entries of each queue.
+     */
+    protected final int[] queueSizes = new int[3];
+
+    /**
+     * Stack of the free entries, in [0; freeEntriesCount[.
+     */
+    protected final int[] freeEntries;
+
+    protected int freeEntriesCount;
+
+    /**
+     * Count-min sketch of 4 rows of 4-bit counters, each long holding 16 counters.
+     */
+    protected final long[] sketch;
+
+    /**
+     * Number of counter increments since the last halving.
+     */
+    protected int sketchAdditions;
+
+    /**
+     * Number of increments triggering the halving of all counters.
+     */
+    protected final int sketchSampleSize;
+
+    protected final int maxSize;
+
+    protected final int windowMaxSize;
+
+    protected final int protectedMaxSize;
+
+    /**
+     * Receives the evicted entries, or null.
+     */
+    protected final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener;
+
+    protected final int perturbation = Containers.randomSeed32();
+
+    protected final int sketchSeed = Containers.randomSeed32();
+
+    /**
+     * Read buffer: a batch of keys, guarded by its own monitor.
+     */
+    protected final class ReadBuffer
+    {
+        public final/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+        Object[]
+                /*! #end !*/
+                keys = Intrinsics.<KType> newArray(KTypeVTypeConcurrentTinyLFUCache.READ_BUFFER_SIZE);
+
+        public int count;
+    }
+
+    /**
+     * Creates a cache of at most maxSize entries, without eviction listener.
+     */
+    public KTypeVTypeConcurrentTinyLFUCache(final int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Creates a cache of at most maxSize entries, with {@link KTypeVTypeConcurrentHashMap#DEFAULT_CONCURRENCY_LEVEL} read buffers
+     * and data segments.
+     * @param maxSize max number of entries (greater than zero)
+     * @param evictionListener receives the evicted entries, or null.
+     */
+    public KTypeVTypeConcurrentTinyLFUCache(final int maxSize, final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener) {
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.evictionListener = evictionListener;
+
+        this.windowMaxSize = Math.max(1, maxSize / 100);
+        this.protectedMaxSize = (int) (0.8 * (maxSize - this.windowMaxSize));
+
+        //maxSize + 1: a new key is inserted before an entry is evicted.
+        final int capacity = maxSize + 1;
+
+        try {
+
+            this.data = new KTypeVTypeConcurrentHashMap<KType, VType>(capacity);
+
+            this.policyKeys = Intrinsics.<KType> newArray(capacity);
+            this.table = new int[HashContainers.minBufferSize(capacity, HashContainers.DEFAULT_LOAD_FACTOR)];
+            this.links = new long[capacity + 6];
+            this.queues = new byte[capacity];
+            this.freeEntries = new int[capacity];
+
+            this.sketch = new long[Math.max(8, BitUtil.nextHighestPowerOfTwo(maxSize))];
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException("Not enough memory to allocate a cache of %d elements", e, maxSize);
+        }
+
+        this.sketchSampleSize = (int) Math.min(10L * this.sketch.length, Integer.MAX_VALUE);
+
+        this.readBuffers = new KTypeVTypeConcurrentTinyLFUCache.ReadBuffer[KTypeVTypeConcurrentHashMap.DEFAULT_CONCURRENCY_LEVEL];
+
+        for (int i = 0; i < this.readBuffers.length; i++) {
+
+            this.readBuffers[i] = new ReadBuffer();
+        }
+
+        resetPolicy();
+    }
+
+    /**
+     * Get the value of key, the read being recorded for the policy.
+     * @return the value, or the default value if key is not in the cache.
+     */
+    public VType get(final KType key) {
+
+        final VType value = this.data.get(key);
+
+        final ReadBuffer buffer = this.readBuffers[(int) BitMixer.mix64(Thread.currentThread().getId(), 0) & (this.readBuffers.length - 1)];
+
+        boolean full;
+
+        synchronized (buffer) {
+
+            if (buffer.count < KTypeVTypeConcurrentTinyLFUCache.READ_BUFFER_SIZE) {
+
+                buffer.keys[buffer.count++] = key;
+            }
+
+            full = (buffer.count == KTypeVTypeConcurrentTinyLFUCache.READ_BUFFER_SIZE);
+        }
+
+        if (full && this.policyLock.tryLock()) {
+
+            try {
+                drainReadBuffers();
+            } finally {
+                this.policyLock.unlock();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Put (key, value) in the cache. An existing key has its value replaced, which counts as an access,
+     * a new key enters the admission window, evicting an entry if the cache is full.
+     * @return the previous value of key, or the default value if key was not in the cache.
+     */
+    public VType put(final KType key, final VType value) {
+
+        this.policyLock.lock();
+
+        try {
+
+            drainReadBuffers();
+
+            if (lookupEntry(key) != -1) {
+
+                onAccess(key);
+
+                return this.data.put(key, value);
+            }
+
+            final VType previous = this.data.put(key, value);
+
+            onInsert(key);
+
+            return previous;
+
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+    /**
+     * @return true if key is in the cache. The access is not recorded.
+     */
+    public boolean containsKey(final KType key) {
+
+        return this.data.containsKey(key);
+    }
+
+    /**
+     * Remove key from the cache, without notifying the eviction listener.
+     * @return the value of key, or the default value if key was not in the cache.
+     */
+    public VType remove(final KType key) {
+
+        this.policyLock.lock();
+
+        try {
+
+            final int entry = lookupEntry(key);
+
+            if (entry != -1) {
+
+                removeEntry(entry);
+            }
+
+            return this.data.remove(key);
+
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+    /**
+     * Remove all the entries, without notifying the eviction listener. The frequencies are forgotten too.
+     */
+    public void clear() {
+
+        this.policyLock.lock();
+
+        try {
+
+            for (final ReadBuffer buffer : this.readBuffers) {
+
+                synchronized (buffer) {
+
+                    /*! #if ($TemplateOptions.KTypeGeneric) !*/
+                    //help the GC
+                    KTypeArrays.blankArray(buffer.keys, 0, buffer.count);
+                    /*! #end !*/
+
+                    buffer.count = 0;
+                }
+            }
+
+            this.data.clear();
+
+            Arrays.fill(this.table, 0);
+            this.defaultKeyEntry = -1;
+
+            /*! #if ($TemplateOptions.KTypeGeneric) !*/
+            //help the GC
+            KTypeArrays.blankArray(this.policyKeys, 0, this.policyKeys.length);
+            /*! #end !*/
+
+            Arrays.fill(this.sketch, 0L);
+            this.sketchAdditions = 0;
+
+            resetPolicy();
+
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+    /**
+     * Apply procedure to all the entries, in no particular order, see {@link KTypeVTypeConcurrentHashMap#forEach(KTypeVTypeProcedure)}.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        return this.data.forEach(procedure);
+    }
+
+    /**
+     * @return the number of entries in the cache.
+     */
+    public int size() {
+
+        return this.data.size();
+    }
+
+    /**
+     * @return true if the cache is empty.
+     */
+    public boolean isEmpty() {
+
+        return this.data.isEmpty();
+    }
+
+    /**
+     * @return the max number of entries of the cache.
+     */
+    public int maxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * @return the estimated access frequency of key, in [0; 15], recorded reads being drained first.
+     */
+    public int frequency(final KType key) {
+
+        this.policyLock.lock();
+
+        try {
+
+            drainReadBuffers();
+
+            return sketchFrequency(key);
+
+        } finally {
+            this.policyLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the "default value" value used in methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.data.getDefaultValue();
+    }
+
+    /**
+     * Set the "default value" value to be used in methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.data.setDefaultValue(defaultValue);
+    }
+
+    @Override
+    public String toString() {
+
+        return this.data.toString();
+    }
+
+    /**
+     * Apply the buffered reads to the policy, under the policy lock.
+     */
+    private void drainReadBuffers() {
+
+        for (final ReadBuffer buffer : this.readBuffers) {
+
+            synchronized (buffer) {
+
+                final int count = buffer.count;
+
+                for (int i = 0; i < count; i++) {
+
+                    onAccess(Intrinsics.<KType> cast(buffer.keys[i]));
+
+                    /*! #if ($TemplateOptions.KTypeGeneric) !*/
+                    //help the GC
+                    buffer.keys[i] = Intrinsics.<KType> empty();
+                    /*! #end !*/
+                }
+
+                buffer.count = 0;
+            }
+        }
+    }
+
+    /**
+     * Record an access of key, in the cache or not.
+     */
+    private void onAccess(final KType key) {
+
+        sketchIncrement(key);
+
+        final int entry = lookupEntry(key);
+
+        if (entry == -1) {
+
+            return;
+        }
+
+        if (this.queues[entry] == KTypeVTypeConcurrentTinyLFUCache.PROBATION) {
+
+            //promote, demoting the eldest protected entry if it overflows
+            moveLast(entry, KTypeVTypeConcurrentTinyLFUCache.PROTECTED);
+
+            if (this.queueSizes[KTypeVTypeConcurrentTinyLFUCache.PROTECTED] > this.protectedMaxSize) {
+
+                moveLast(first(KTypeVTypeConcurrentTinyLFUCache.PROTECTED), KTypeVTypeConcurrentTinyLFUCache.PROBATION);
+            }
+
+        } else {
+
+            moveLast(entry, this.queues[entry]);
+        }
+    }
+
+    /**
+     * Add the new key to the window, then evict if the cache is over its max size.
+     */
+    private void onInsert(final KType key) {
+
+        sketchIncrement(key);
+
+        final int entry = this.freeEntries[--this.freeEntriesCount];
+
+        this.policyKeys[entry] = key;
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            this.defaultKeyEntry = entry;
+
+        } else {
+
+            final int[] table = this.table;
+            final int mask = table.length - 1;
+
+            int slot = REHASH(key) & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = entry + 1;
+        }
+
+        linkLast(entry, KTypeVTypeConcurrentTinyLFUCache.WINDOW);
+
+        if (this.queueSizes[KTypeVTypeConcurrentTinyLFUCache.WINDOW] > this.windowMaxSize) {
+
+            //the eldest of the window becomes the admission candidate, at the end of probation
+            moveLast(first(KTypeVTypeConcurrentTinyLFUCache.WINDOW), KTypeVTypeConcurrentTinyLFUCache.PROBATION);
+        }
+
+        if (this.freeEntriesCount == 0) {
+
+            evict();
+        }
+    }
+
+    /**
+     * Evict the admission candidate or the probation victim, whichever is the least frequent.
+     */
+    private void evict() {
+
+        final int tail = this.maxSize + 1 + 2 * KTypeVTypeConcurrentTinyLFUCache.PROBATION + 1;
+
+        final int candidate = getLinkBefore(this.links[tail]);
+        final int victim = first(KTypeVTypeConcurrentTinyLFUCache.PROBATION);
+
+        int evicted = candidate;
+
+        if (victim != candidate
+                && sketchFrequency(Intrinsics.<KType> cast(this.policyKeys[candidate])) > sketchFrequency(Intrinsics.<KType> cast(this.policyKeys[victim]))) {
+
+            evicted = victim;
+        }
+
+        final KType key = Intrinsics.<KType> cast(this.policyKeys[evicted]);
+
+        removeEntry(evicted);
+
+        final VType value = this.data.remove(key);
+
+        if (this.evictionListener != null) {
+            this.evictionListener.apply(key, value);
+        }
+    }
+
+    /**
+     * @return the policy entry of key, or -1 if not found.
+     */
+    private int lookupEntry(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.defaultKeyEntry;
+        }
+
+        final int[] table = this.table;
+        final int mask = table.length - 1;
+
+        int slot = REHASH(key) & mask;
+        int existing;
+
+        while ((existing = table[slot]) != 0) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, this.policyKeys[existing - 1])) {
+
+                return existing - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Remove entry from the table and from its queue, and free it.
+     */
+    private void removeEntry(final int entry) {
+
+        final KType key = Intrinsics.<KType> cast(this.policyKeys[entry]);
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            this.defaultKeyEntry = -1;
+
+        } else {
+
+            final int[] table = this.table;
+            final int mask = table.length - 1;
+
+            int slot = REHASH(key) & mask;
+
+            while (table[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+
+            shiftConflictingKeys(slot);
+        }
+
+        unlink(entry);
+
+        /*! #if ($TemplateOptions.KTypeGeneric) !*/
+        //help the GC
+        this.policyKeys[entry] = Intrinsics.<KType> empty();
+        /*! #end !*/
+
+        this.freeEntries[this.freeEntriesCount++] = entry;
+    }
+
+    /**
+     * Shift all the slot-conflicting entries of {@link #table} allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(int gapSlot) {
+
+        final int[] table = this.table;
+        final int mask = table.length - 1;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        int distance = 0;
+        while (true) {
+
+            final int slot = (gapSlot + (++distance)) & mask;
+
+            final int existing = table[slot];
+
+            if (existing == 0) {
+                break;
+            }
+
+            final int idealSlotModMask = REHASH(Intrinsics.<KType> cast(this.policyKeys[existing - 1])) & mask;
+
+            final int shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                table[gapSlot] = existing;
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        table[gapSlot] = 0;
+    }
+
+    /**
+     * @return the eldest entry of queue, which must not be empty.
+     */
+    private int first(final int queue) {
+
+        return getLinkAfter(this.links[this.maxSize + 1 + 2 * queue]);
+    }
+
+    private void linkLast(final int entry, final byte queue) {
+
+        final long[] links = this.links;
+        final int tail = this.maxSize + 1 + 2 * queue + 1;
+
+        final int last = getLinkBefore(links[tail]);
+
+        links[entry] = getLinkNodeValue(last, tail);
+        links[last] = setLinkAfterNodeValue(links[last], entry);
+        links[tail] = setLinkBeforeNodeValue(links[tail], entry);
+
+        this.queues[entry] = queue;
+        this.queueSizes[queue]++;
+    }
+
+    private void unlink(final int entry) {
+
+        final long[] links = this.links;
+
+        final int before = getLinkBefore(links[entry]);
+        final int after = getLinkAfter(links[entry]);
+
+        links[before] = setLinkAfterNodeValue(links[before], after);
+        links[after] = setLinkBeforeNodeValue(links[after], before);
+
+        this.queueSizes[this.queues[entry]]--;
+    }
+
+    private void moveLast(final int entry, final byte queue) {
+
+        unlink(entry);
+        linkLast(entry, queue);
+    }
+
+    /**
+     * Free all the entries, with empty queues.
+     */
+    private void resetPolicy() {
+
+        final int capacity = this.maxSize + 1;
+
+        //stack, so that entries are taken from 0 upwards
+        for (int i = 0; i < capacity; i++) {
+
+            this.freeEntries[i] = capacity - 1 - i;
+        }
+
+        this.freeEntriesCount = capacity;
+
+        for (int queue = 0; queue < 3; queue++) {
+
+            final int head = capacity + 2 * queue;
+
+            this.links[head] = getLinkNodeValue(head, head + 1);
+            this.links[head + 1] = getLinkNodeValue(head, head + 1);
+            this.queueSizes[queue] = 0;
+        }
+    }
+
+    /**
+     * Increment the 4 counters of key, unless saturated, halving all the counters every {@link #sketchSampleSize} increments.
+     */
+    private void sketchIncrement(final KType key) {
+
+        final long[] sketch = this.sketch;
+        final int mask = sketch.length - 1;
+        final int hash = SKETCH_HASH(key);
+
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++) {
+
+            final int index = BitMixer.mix(hash, i) & mask;
+            final int shift = ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+
+            if (((sketch[index] >>> shift) & 0xFL) != 0xFL) {
+
+                sketch[index] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if (added && ++this.sketchAdditions == this.sketchSampleSize) {
+
+            for (int i = 0; i < sketch.length; i++) {
+
+                sketch[i] = (sketch[i] >>> 1) & 0x7777777777777777L;
+            }
+
+            this.sketchAdditions >>>= 1;
+        }
+    }
+
+    /**
+     * @return the min of the 4 counters of key.
+     */
+    private int sketchFrequency(final KType key) {
+
+        final long[] sketch = this.sketch;
+        final int mask = sketch.length - 1;
+        final int hash = SKETCH_HASH(key);
+
+        int frequency = 0xF;
+
+        for (int i = 0; i < 4; i++) {
+
+            final int index = BitMixer.mix(hash, i) & mask;
+            final int shift = ((i << 2) + ((hash >>> (i << 3)) & 3)) << 2;
+
+            frequency = Math.min(frequency, (int) ((sketch[index] >>> shift) & 0xFL));
+        }
+
+        return frequency;
+    }
+
+    /*! #if ($TemplateOptions.declareInline("getLinkNodeValue(beforeIndex, afterIndex)",
+     "<*,*>==>((long) beforeIndex << 32) | afterIndex")) !*/
+    /**
+     * Builds a LinkList node value from its before an after links.
+     * (actual method is inlined in generated code)
+     */
+    private long getLinkNodeValue(final int beforeIndex, final int afterIndex) {
+        return ((long) beforeIndex << 32) | afterIndex;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkBefore(nodeValue)", "<*,*>==>(int) (nodeValue >> 32)")) !*/
+    private int getLinkBefore(final long nodeValue) {
+        return (int) (nodeValue >> 32);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkAfter(nodeValue)",
+       "<*,*>==>(int) (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private int getLinkAfter(final long nodeValue) {
+        return (int) (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkBeforeNodeValue(nodeValue, newBefore)",
+     "<*,*>==>((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private long setLinkBeforeNodeValue(final long nodeValue, final int newBefore) {
+        return ((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkAfterNodeValue(nodeValue, newAfter)",
+      "<*,*>==> newAfter | (nodeValue & 0xFFFFFFFF00000000L)")) !*/
+    private long setLinkAfterNodeValue(final long nodeValue, final int newAfter) {
+        return newAfter | (nodeValue & 0xFFFFFFFF00000000L);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(key)",
+    "<Object,*>==>BitMixer.mix(key.hashCode(), this.perturbation)",
+    "<*,*>==>BitMixer.mix(key, this.perturbation)")) !*/
+    /**
+     * REHASH method for the policy table, key being not null.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType key) {
+
+        return BitMixer.mix(key.hashCode(), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("SKETCH_HASH(key)",
+    "<Object,*>==>(key == null ? 0 : BitMixer.mix(key.hashCode(), this.sketchSeed))",
+    "<*,*>==>BitMixer.mix(key, this.sketchSeed)")) !*/
+    /**
+     * SKETCH_HASH method for the counters of the sketch.
+     * (inlined in generated code)
+     */
+    private int SKETCH_HASH(final KType key) {
+
+        return (key == null ? 0 : BitMixer.mix(key.hashCode(), this.sketchSeed));
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,817 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code>, implemented using bucketized cuckoo hashing:
+ * <p>
+ * The buffers {@link #keys} and {@link #values} are made of buckets of {@link #BUCKET_SIZE} consecutive slots, and each key
+ * can only be in one of two buckets, given by two hash functions derived from the 64-bit {@link BitMixer} mix of the key.
+ * So, a lookup, present key or not, reads at most 2 * {@link #BUCKET_SIZE} slots of {@link #keys} in two contiguous memory areas,
+ * whatever the keys distribution: there are no probing sequences, so no clusters.
+ * </p>
+ * <p>
+ * An insertion into two full buckets evicts a key of one of them into its other bucket, and so on, until
+ * a free slot is found. In the unlikely event of too long an eviction chain, the keys are rehashed with a new seed,
+ * or the buffers are grown. Like {@link KTypeVTypeHashMap}, the buffers are always a power of two, doubled when the load factor is reached, and
+ * the 4-way buckets make high load factors possible, up to the default {@link HashContainers#MAX_LOAD_FACTOR}.
+ * </p>
+ * <p>
+ * The keys of a bucket are always packed at its start, so that lookups stop at the first empty slot of a bucket.
+ * </p>
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeCuckooHashMap<KType, VType>
+{
+    /**
+     * Number of slots of a bucket.
+     */
+    public static final int BUCKET_SIZE = 4;
+
+    /**
+     * Max length of an eviction chain before rehashing.
+     */
+    private static final int MAX_EVICTIONS = 500;
+
+    /**
+     * Max number of seeds tried by a rehash before growing the buffers instead.
+     */
+    private static final int MAX_RESEEDS = 8;
+
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Hash-indexed array holding all keys, bucket b being the slots [b * {@link #BUCKET_SIZE}; (b + 1) * {@link #BUCKET_SIZE}[
+     * <p>
+     * Direct map iteration: iterate  {keys[i], values[i]} for i in [0; keys.length[ where keys[i] != 0, then also
+     * {0, {@link #allocatedDefaultKeyValue} } is in the map if {@link #allocatedDefaultKey} = true.
+     * </p>
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Hash-indexed array holding all values associated to the keys.
+     * stored in {@link #keys}.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * True if key = 0 is in the map.
+     */
+    public boolean allocatedDefaultKey = false;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = 0
+     */
+    public VType allocatedDefaultKeyValue;
+
+    /**
+     * Cached number of assigned slots in {@link #keys}.
+     */
+    protected int assigned;
+
+    /**
+     * The load factor for this map (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys} hits this value.
+     */
+    private int resizeAt;
+
+    /**
+     * Seed of the hash of the keys, changed at each failed rehash.
+     */
+    protected int seed = Containers.randomSeed32();
+
+    /**
+     * State of the xorshift choosing the evicted keys.
+     */
+    private int evictionState = Containers.randomSeed32() | 1;
+
+    /**
+     * Value of the key returned by a failed {@link #place}.
+     */
+    private VType homelessValue;
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#MAX_LOAD_FACTOR}.
+     */
+    public KTypeVTypeCuckooHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#MAX_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeCuckooHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeCuckooHashMap(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+
+        final int length = HashContainers.minBufferSize(initialCapacity, loadFactor);
+
+        this.keys = newKeys(length);
+        this.values = newValues(length);
+        this.resizeAt = HashContainers.expandAtCount(length, loadFactor);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+                this.allocatedDefaultKeyValue = value;
+
+                return previousValue;
+            }
+
+            this.allocatedDefaultKeyValue = value;
+            this.allocatedDefaultKey = true;
+
+            return this.defaultValue;
+        }
+
+        final int slot = find(key);
+
+        if (slot >= 0) {
+
+            final VType previousValue = Intrinsics.<VType> cast(this.values[slot]);
+            this.values[slot] = value;
+
+            return previousValue;
+        }
+
+        insert(key, value);
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+        if (!containsKey(key)) {
+            put(key, value);
+            return true;
+        }
+        return false;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * @see KTypeVTypeHashMap#putOrAdd
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final KType key, VType putValue, final VType incrementValue) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                putValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+            }
+
+            this.allocatedDefaultKeyValue = putValue;
+            this.allocatedDefaultKey = true;
+
+            return putValue;
+        }
+
+        final int slot = find(key);
+
+        if (slot >= 0) {
+
+            final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+            putValue = (VType) (Intrinsics.<VType> add(values[slot], incrementValue));
+            values[slot] = putValue;
+
+            return putValue;
+        }
+
+        insert(key, putValue);
+
+        return putValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#addTo
+     */
+    public VType addTo(final KType key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * @see KTypeVTypeHashMap#get
+     */
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final int slot = find(key);
+
+        if (slot >= 0) {
+
+            return Intrinsics.<VType> cast(this.values[slot]);
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return find(key) >= 0;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#remove
+     */
+    public VType remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+
+                this.allocatedDefaultKey = false;
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+
+                return previousValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final int slot = find(key);
+
+        if (slot < 0) {
+
+            return this.defaultValue;
+        }
+
+        final VType previousValue = Intrinsics.<VType> cast(this.values[slot]);
+
+        removeAt(slot);
+
+        return previousValue;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#removeAll(KTypeVTypePredicate)
+     */
+    public int removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        final int before = size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                this.allocatedDefaultKey = false;
+                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        //Iterate backwards, so that the entries moved by removeAt() have already been tested.
+        for (int i = keys.length - 1; i >= 0; i--) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i]) && predicate.apply(keys[i], values[i])) {
+
+                removeAt(i);
+            }
+        }
+
+        return before - size();
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#forEach(KTypeVTypeProcedure)
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                procedure.apply(keys[i], values[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Stops at the first pair for which the predicate returns false.
+     * @see KTypeVTypeHashMap#forEach(KTypeVTypePredicate)
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                if (!predicate.apply(keys[i], values[i])) {
+
+                    break;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#clear
+     * <p>Does not release internal buffers.</p>
+     */
+    public void clear() {
+
+        this.assigned = 0;
+        this.allocatedDefaultKey = false;
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        KTypeArrays.blankArray(this.keys, 0, this.keys.length);
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //Faster than Arrays.fill(values, null); // Help the GC.
+        VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), 0, this.values.length);
+        /*! #end !*/
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#size
+     */
+    public int size() {
+
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#isEmpty
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#capacity
+     */
+    public int capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+
+                    buffer.append(", ");
+                }
+
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+
+        return buffer.toString();
+    }
+
+    /**
+     * @return the slot of key in {@link #keys}, or -1 if not present.
+     */
+    private int find(final KType key) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        final int bucketMask = (keys.length >>> 2) - 1;
+
+        final long hash = HASH(key, this.seed);
+
+        int slot = ((int) hash & bucketMask) << 2;
+
+        for (int i = 0; i < KTypeVTypeCuckooHashMap.BUCKET_SIZE; i++, slot++) {
+
+            final KType existing = keys[slot];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+        }
+
+        slot = (((int) hash ^ ALT(hash)) & bucketMask) << 2;
+
+        for (int i = 0; i < KTypeVTypeCuckooHashMap.BUCKET_SIZE; i++, slot++) {
+
+            final KType existing = keys[slot];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Insert key, not present, growing or rehashing the buffers if needed.
+     */
+    private void insert(final KType key, final VType value) {
+
+        if (this.assigned >= this.resizeAt) {
+
+            rehash(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor), key, value);
+
+        } else {
+
+            final KType homeless = place(Intrinsics.<KType[]> cast(this.keys), Intrinsics.<VType[]> cast(this.values), this.seed, key, value);
+
+            if (!Intrinsics.<KType> isEmpty(homeless)) {
+
+                final VType homelessValue = this.homelessValue;
+                this.homelessValue = Intrinsics.<VType> empty();
+
+                rehash(this.keys.length, homeless, homelessValue);
+            }
+        }
+
+        this.assigned++;
+    }
+
+    /**
+     * Remove the entry at slot, moving the last entry of its bucket into it to keep the bucket packed.
+     */
+    private void removeAt(final int slot) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        int last = slot | (KTypeVTypeCuckooHashMap.BUCKET_SIZE - 1);
+
+        while (Intrinsics.<KType> isEmpty(keys[last])) {
+            last--;
+        }
+
+        keys[slot] = keys[last];
+        values[slot] = values[last];
+
+        keys[last] = Intrinsics.<KType> empty();
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //Help the GC
+        values[last] = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        this.assigned--;
+    }
+
+    /**
+     * Place key, not present, and its value into keys and values, evicting other entries to their other bucket if needed.
+     * @return 0 if placed, else the key left without a slot after {@link #MAX_EVICTIONS} evictions,
+     * which may not be key itself, its value being then in {@link #homelessValue}.
+     */
+    private KType place(final KType[] keys, final VType[] values, final int seed, final KType key, final VType value) {
+
+        final int bucketMask = (keys.length >>> 2) - 1;
+
+        final long hash = HASH(key, seed);
+
+        int bucket = (int) hash & bucketMask;
+
+        int slot = freeSlot(keys, bucket);
+
+        if (slot < 0) {
+
+            bucket = (bucket ^ ALT(hash)) & bucketMask;
+
+            slot = freeSlot(keys, bucket);
+        }
+
+        if (slot >= 0) {
+
+            keys[slot] = key;
+            values[slot] = value;
+
+            return Intrinsics.<KType> empty();
+        }
+
+        //both buckets full: evict random entries along a chain
+        KType homeless = key;
+        VType homelessValue = value;
+
+        for (int eviction = 0; eviction < KTypeVTypeCuckooHashMap.MAX_EVICTIONS; eviction++) {
+
+            int x = this.evictionState;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            this.evictionState = x;
+
+            slot = (bucket << 2) + (x & (KTypeVTypeCuckooHashMap.BUCKET_SIZE - 1));
+
+            final KType evicted = keys[slot];
+            final VType evictedValue = values[slot];
+
+            keys[slot] = homeless;
+            values[slot] = homelessValue;
+
+            homeless = evicted;
+            homelessValue = evictedValue;
+
+            //the other bucket of the evicted key
+            final long evictedHash = HASH(homeless, seed);
+
+            bucket = (bucket ^ ALT(evictedHash)) & bucketMask;
+
+            slot = freeSlot(keys, bucket);
+
+            if (slot >= 0) {
+
+                keys[slot] = homeless;
+                values[slot] = homelessValue;
+
+                return Intrinsics.<KType> empty();
+            }
+        }
+
+        this.homelessValue = homelessValue;
+
+        return homeless;
+    }
+
+    /**
+     * @return the first free slot of bucket, or -1 if full.
+     */
+    private static <KType> int freeSlot(final KType[] keys, final int bucket) {
+
+        final int start = bucket << 2;
+
+        for (int slot = start; slot < start + KTypeVTypeCuckooHashMap.BUCKET_SIZE; slot++) {
+
+            if (Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Rebuild the buffers with at least length slots, with the current entries plus the pending one, not present:
+     * new seeds are tried until all the keys are placed, then the buffers are grown.
+     */
+    private void rehash(int length, final KType pendingKey, final VType pendingValue) {
+
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] oldValues = Intrinsics.<VType[]> cast(this.values);
+
+        int seed = this.seed;
+        int attempts = 0;
+
+        while (true) {
+
+            final KType[] keys = newKeys(length);
+            final VType[] values = newValues(length);
+
+            boolean placed = Intrinsics.<KType> isEmpty(place(keys, values, seed, pendingKey, pendingValue));
+
+            for (int i = oldKeys.length - 1; placed && i >= 0; i--) {
+
+                if (!Intrinsics.<KType> isEmpty(oldKeys[i])) {
+
+                    placed = Intrinsics.<KType> isEmpty(place(keys, values, seed, oldKeys[i], oldValues[i]));
+                }
+            }
+
+            //the homeless entry of a failed attempt is still in the old buffers
+            this.homelessValue = Intrinsics.<VType> empty();
+
+            if (placed) {
+
+                this.keys = keys;
+                this.values = values;
+                this.seed = seed;
+                this.resizeAt = HashContainers.expandAtCount(length, this.loadFactor);
+
+                return;
+            }
+
+            seed = Containers.randomSeed32();
+
+            if (++attempts == KTypeVTypeCuckooHashMap.MAX_RESEEDS) {
+
+                attempts = 0;
+                length = HashContainers.nextBufferSize(length, this.assigned, this.loadFactor);
+            }
+        }
+    }
+
+    private KType[] newKeys(final int length) {
+
+        try {
+
+            return Intrinsics.<KType> newArray(length);
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0 : this.keys.length,
+                            length);
+        }
+    }
+
+    private VType[] newValues(final int length) {
+
+        try {
+
+            return Intrinsics.<VType> newArray(length);
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.values == null) ? 0 : this.values.length,
+                            length);
+        }
+    }
+
+    /**
+     * Create a new map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeCuckooHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeCuckooHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeCuckooHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor) {
+        return new KTypeVTypeCuckooHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*,*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key: its low bits give the first bucket of the key.
+     * (inlined in generated code)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("ALT(hash)",
+    "<*,*>==>(int) (hash >>> 32) | 1")) !*/
+    /**
+     * The two buckets of a key are b and b ^ ALT(hash): being odd, so never 0, the second bucket
+     * is always distinct from the first one, and each bucket gives the other one.
+     * (inlined in generated code)
+     */
+    private static int ALT(final long hash) {
+
+        return (int) (hash >>> 32) | 1;
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,351 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * An immutable hash map of <code>KType</code> to <code>VType</code>, built once from another map by
+ * {@link #from(KTypeVTypeAssociativeContainer)} (or {@link KTypeVTypeHashMap#freeze()}).
+ * <p>
+ * The keys are placed by a {@link MinimalPerfectHash}: the n keys of the map fill exactly the n slots of
+ * {@link #keys} and {@link #values}, instead of the n / loadFactor (rounded up to a power of 2) slots of a {@link KTypeVTypeHashMap},
+ * at the cost of an additional int per {@link MinimalPerfectHash#KEYS_PER_BUCKET} keys.
+ * A lookup reads one displacement, then probes exactly one slot, whether the key is present or not.
+ * </p>
+ * <p>
+ * The build is more costly than filling a {@link KTypeVTypeHashMap}, so this map is intended
+ * for large maps built once and queried many times.
+ * </p>
+ * <p>
+ * The API follows the read-only part of {@link KTypeVTypeMap} ({@link #get}, {@link #containsKey}, {@link #forEach(KTypeVTypeProcedure)}...).
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeFrozenHashMap<KType, VType>
+{
+    /**
+     * Max number of seeds tried by {@link #from(KTypeVTypeAssociativeContainer)} before giving up.
+     */
+    private static final int MAX_SEEDS = 32;
+
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Perfectly hashed array holding all keys but 0, so that keys.length = max(1, number of non-0 keys).
+     * If the map has no non-0 keys, its single slot is 0.
+     */
+    public final/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Array holding the values associated to the keys stored in {@link #keys}.
+     */
+    public final/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * Displacements of the buckets of {@link MinimalPerfectHash}.
+     */
+    protected final int[] displacements;
+
+    /**
+     * Seed of the hashes of the keys.
+     */
+    protected final int seed;
+
+    /**
+     * True if key = 0 is in the map.
+     */
+    public final boolean allocatedDefaultKey;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = 0
+     */
+    public final VType allocatedDefaultKeyValue;
+
+    /**
+     * Use {@link #from(KTypeVTypeAssociativeContainer)}.
+     */
+    private KTypeVTypeFrozenHashMap(final KType[] keys, final VType[] values, final int[] displacements, final int seed,
+            final boolean allocatedDefaultKey, final VType allocatedDefaultKeyValue) {
+
+        this.keys = keys;
+        this.values = values;
+        this.displacements = displacements;
+        this.seed = seed;
+        this.allocatedDefaultKey = allocatedDefaultKey;
+        this.allocatedDefaultKeyValue = allocatedDefaultKeyValue;
+    }
+
+    /**
+     * Create a frozen map with the contents of container.
+     * @throws IllegalArgumentException if no perfect hash could be found, which is extremely unlikely.
+     */
+    public static <KType, VType> KTypeVTypeFrozenHashMap<KType, VType> from(final KTypeVTypeAssociativeContainer<KType, VType> container) {
+
+        final int nbKeys = container.size();
+
+        final KType[] entryKeys = Intrinsics.<KType> newArray(nbKeys);
+        final VType[] entryValues = Intrinsics.<VType> newArray(nbKeys);
+
+        boolean allocatedDefaultKey = false;
+        VType allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+
+        int n = 0;
+
+        for (final KTypeVTypeCursor<KType, VType> c : container) {
+
+            if (Intrinsics.<KType> isEmpty(c.key)) {
+
+                allocatedDefaultKey = true;
+                allocatedDefaultKeyValue = c.value;
+                continue;
+            }
+
+            entryKeys[n] = c.key;
+            entryValues[n] = c.value;
+            n++;
+        }
+
+        final long[] hashes = new long[n];
+        final int[] slots = new int[n];
+
+        int seed = Containers.randomSeed32();
+
+        for (int attempt = 0; attempt < KTypeVTypeFrozenHashMap.MAX_SEEDS; attempt++) {
+
+            for (int i = 0; i < n; i++) {
+
+                final KType key = entryKeys[i];
+                hashes[i] = HASH(key, seed);
+            }
+
+            final int[] displacements = MinimalPerfectHash.build(hashes, n, slots);
+
+            if (displacements != null) {
+
+                final int tableSize = MinimalPerfectHash.tableSize(n);
+
+                final KType[] keys = Intrinsics.<KType> newArray(tableSize);
+                final VType[] values = Intrinsics.<VType> newArray(tableSize);
+
+                for (int i = 0; i < n; i++) {
+
+                    keys[slots[i]] = entryKeys[i];
+                    values[slots[i]] = entryValues[i];
+                }
+
+                return new KTypeVTypeFrozenHashMap<KType, VType>(keys, values, displacements, seed,
+                        allocatedDefaultKey, allocatedDefaultKeyValue);
+            }
+
+            seed = MurmurHash3.mix32(seed + 1);
+        }
+
+        throw new IllegalArgumentException("No perfect hash found for " + n + " keys");
+    }
+
+    /**
+     * @return the slot where key is, if present.
+     */
+    private int slot(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        final int[] displacements = this.displacements;
+
+        return MinimalPerfectHash.slot(hash, displacements[MinimalPerfectHash.bucket(hash, displacements.length)], this.keys.length);
+    }
+
+    /**
+     * @see KTypeVTypeMap#get
+     */
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        final int slot = slot(key);
+
+        if (Intrinsics.<KType> equalsNotNull(key, keys[slot])) {
+
+            return Intrinsics.<VType> cast(this.values[slot]);
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        return Intrinsics.<KType> equalsNotNull(key, keys[slot(key)]);
+    }
+
+    /**
+     * @return the number of keys in the map.
+     */
+    public int size() {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        return (Intrinsics.<KType> isEmpty(keys[0]) ? 0 : keys.length) + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return true if the map is empty.
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * Applies a given procedure to all keys-value pairs in this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                procedure.apply(keys[i], values[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all keys-value pairs in this map, until
+     * the predicate returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                if (!predicate.apply(keys[i], values[i])) {
+
+                    break;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+
+                    buffer.append(", ");
+                }
+
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+
+        this.defaultValue = defaultValue;
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*,*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key, a bijection for a given seed so that distinct keys always have distinct hashes.
+     * (inlined in generated code, where Objects are not generated: they cannot be perfectly hashed)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+}
@@ -1,5 +1,9 @@
 package com.carrotsearch.hppcrt.maps;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
 import com.carrotsearch.hppcrt.predicates.*;
@@ -121,13 +125,23 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /**
      * Resize buffers when {@link #keys} hits this value.
      */
-    private int resizeAt;
+    int resizeAt;
+
+    /**
+     * Number of expansions of the buffers, for stats().
+     */
+    int resizeCount;
 
     /**
      * Per-instance size perturbation
      * introduced in rehashing to create a unique key distribution.
      */
-    private final int perturbation = Containers.randomSeed32();
+    final int perturbation;
+
+    /**
+     * Number of keys packed at once by writeTo(DataOutput, boolean) and readFrom(DataInput).
+     */
+    private static final int IO_CHUNK_SIZE = 1 << 10;
 
     /*! #if ($TemplateOptions.KTypeGeneric) !*/
 
@@ -199,10 +213,21 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      */
     public KTypeVTypeHashMap(final int initialCapacity, final double loadFactor) {
         this.loadFactor = loadFactor;
+        this.perturbation = Containers.randomSeed32();
         //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
         allocateBuffers(HashContainers.minBufferSize(initialCapacity, loadFactor));
     }
 
+    /**
+     * Creates an empty hash map of exactly bufferSize slots (a power of two) hashed with perturbation,
+     * to read back a map dumped as-is, see {@link #readFrom(DataInput)}.
+     */
+    private KTypeVTypeHashMap(final int bufferSize, final double loadFactor, final int perturbation) {
+        this.loadFactor = loadFactor;
+        this.perturbation = perturbation;
+        allocateBuffers(bufferSize);
+    }
+
     /**
      * Create a hash map from all key-value pairs of another container.
      */
@@ -406,12 +431,31 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      */
     @SuppressWarnings("cast")
     @Override
-    public VType putOrAdd(final KType key, VType putValue, final VType incrementValue) {
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                this.allocatedDefaultKeyValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            put(key, putValue);
+            return putValue;
+        }
+
+        //update in place an existing key, found by a single lookup
+        final int slot = lookupSlot(key);
 
-        if (containsKey(key)) {
-            putValue = get(key);
+        if (slot != -1) {
 
-            putValue = (VType) (Intrinsics.<VType> add(putValue, incrementValue));
+            final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+            values[slot] = (VType) (Intrinsics.<VType> add(values[slot], incrementValue));
+
+            return values[slot];
         }
 
         put(key, putValue);
@@ -440,7 +484,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /**
      * Expand the internal storage buffers (capacity) and rehash.
      */
-    private void expandAndPut(final KType pendingKey, final VType pendingValue, final int freeSlot) {
+    void expandAndPut(final KType pendingKey, final VType pendingValue, final int freeSlot) {
         assert this.assigned == this.resizeAt;
 
         //default sentinel value is never in the keys[] array, so never trigger reallocs
@@ -453,6 +497,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
         allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
 
+        this.resizeCount++;
+
         // We have succeeded at allocating new data so insert the pending key/value at
         // the free slot in the old arrays before rehashing.
         this.assigned++;
@@ -486,7 +532,9 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
         //iterate all the old arrays to add in the newly allocated buffers
         //It is important to iterate backwards to minimize the conflict chain length !
+        /*! #if ($RH) !*/
         final int perturb = this.perturbation;
+        /*! #end !*/
 
         for (int i = oldKeys.length; --i >= 0;) {
 
@@ -495,7 +543,11 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                 value = oldValues[i];
 
+                /*! #if ($RH) !*/
                 slot = REHASH2(key, perturb) & mask;
+                /*! #else
+                slot = hashOf(key) & mask;
+                #end !*/
 
                 /*! #if ($RH) !*/
                 initial_slot = slot;
@@ -562,7 +614,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      * @param capacity New capacity (must be a power of two).
      */
     @SuppressWarnings("boxing")
-    private void allocateBuffers(final int capacity) {
+    void allocateBuffers(final int capacity) {
         try {
 
             final KType[] keys = Intrinsics.<KType> newArray(capacity);
@@ -604,12 +656,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                 final VType previousValue = this.allocatedDefaultKeyValue;
 
-                /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                //help the GC
-                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                /*! #end !*/
+                removeDefaultKey();
 
-                this.allocatedDefaultKey = false;
                 return previousValue;
             }
 
@@ -652,7 +700,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /**
      * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
      */
-    private void shiftConflictingKeys(int gapSlot) {
+    void shiftConflictingKeys(int gapSlot) {
         final int mask = this.keys.length - 1;
 
         final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
@@ -660,9 +708,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
         /*! #if ($RH) !*/
         final int[] cached = this.hash_cache;
-        /*!  #else
-         final int perturb = this.perturbation;
-         #end !*/
+        /*!  #end !*/
 
         // Perform shifts of conflicting keys to fill in the gap.
         int distance = 0;
@@ -685,7 +731,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
             assert idealSlotModMask == (REHASH(existing) & mask);
             /*! #end !*/
             /*! #else
-            final int idealSlotModMask = REHASH2(existing, perturb) & mask;
+            final int idealSlotModMask = hashOf(existing) & mask;
             #end !*/
 
             //original HPPC code: shift = (slot - idealSlot) & mask;
@@ -701,6 +747,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
                 keys[gapSlot] = existing;
                 values[gapSlot] = existingValue;
 
+                afterSlotMove(slot, gapSlot);
+
                 /*! #if ($RH) !*/
                 cached[gapSlot] = idealSlotModMask;
                 /*! #if($DEBUG) !*/
@@ -723,6 +771,27 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         this.assigned--;
     }
 
+    /**
+     * Called by {@link #shiftConflictingKeys(int)} when the entry of fromSlot is moved to toSlot,
+     * for the maps of this package which keep more data along the slots. Does nothing here.
+     */
+    void afterSlotMove(final int fromSlot, final int toSlot) {
+        //nothing
+    }
+
+    /**
+     * Remove the key 0/null, which must be in the map.
+     */
+    void removeDefaultKey() {
+
+        this.allocatedDefaultKey = false;
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+        /*! #end !*/
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -739,12 +808,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
             if (this.allocatedDefaultKey) {
 
                 if (other.contains(Intrinsics.<KType> empty())) {
-                    this.allocatedDefaultKey = false;
 
-                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                    //help the GC
-                    this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                    /*! #end !*/
+                    removeDefaultKey();
                 }
             }
 
@@ -782,12 +847,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         if (this.allocatedDefaultKey) {
 
             if (predicate.apply(Intrinsics.<KType> empty())) {
-                this.allocatedDefaultKey = false;
 
-                /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                //help the GC
-                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                /*! #end !*/
+                removeDefaultKey();
             }
         }
 
@@ -818,12 +879,8 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         if (this.allocatedDefaultKey) {
 
             if (predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
-                this.allocatedDefaultKey = false;
 
-                /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                //help the GC
-                this.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                /*! #end !*/
+                removeDefaultKey();
             }
         }
 
@@ -927,6 +984,198 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         return false;
     }
 
+    /**
+     * Slot of the (non-empty) key in {@link #keys}, or -1 if not in the map,
+     * for the maps of this package built on this one to read or update a value in place.
+     */
+    int lookupSlot(final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = hashOf(key) & mask;
+        KType existing;
+
+        /*! #if ($RH) !*/
+        int dist = 0;
+        final int[] cached = this.hash_cache;
+        /*! #end !*/
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])
+                /*! #if ($RH) !*/&& dist <= probe_distance(slot, cached) /*! #end !*/) {
+
+            if (KEYEQUALS(key, existing)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+
+            /*! #if ($RH) !*/
+            dist++;
+            /*! #end !*/
+        } //end while true
+
+        return -1;
+    }
+
+    /**
+     * Batch version of {@link #get}: result[i] = get(keys[i]) for i in [0; keys.length[.
+     * <p>
+     * Keys are processed by batches of {@link HashContainers#BATCH_LOOKUP_SIZE}: the first probes of all the keys of a batch
+     * are issued back to back, before any of them is finished, so that the cache misses of independent lookups overlap
+     * instead of being paid one after another. This is faster than a loop of {@link #get} when the map is
+     * much bigger than the CPU caches.
+     * </p>
+     * @param keys the keys to look up
+     * @param result array receiving the values, at least as big as keys
+     * @return result
+     */
+    public VType[] getAll(final KType[] keys, final VType[] result) {
+
+        if (result.length < keys.length) {
+            throw new IllegalArgumentException("result is smaller than keys: " + result.length + " < " + keys.length);
+        }
+
+        final KType[] buffer = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        final int mask = buffer.length - 1;
+
+        for (int start = 0; start < keys.length; start += HashContainers.BATCH_LOOKUP_SIZE) {
+
+            final int end = Math.min(start + HashContainers.BATCH_LOOKUP_SIZE, keys.length);
+
+            //bit (i - start) is set if keys[i] needs more probes
+            long pending = 0L;
+
+            //1) first probe of the batch: the slots only depend on the keys,
+            //so the loads are independent and their latencies overlap.
+            for (int i = start; i < end; i++) {
+
+                final KType key = keys[i];
+
+                if (Intrinsics.<KType> isEmpty(key)) {
+
+                    result[i] = this.allocatedDefaultKey ? this.allocatedDefaultKeyValue : this.defaultValue;
+                    continue;
+                }
+
+                final int slot = hashOf(key) & mask;
+                final KType existing = buffer[slot];
+
+                if (Intrinsics.<KType> isEmpty(existing)) {
+
+                    result[i] = this.defaultValue;
+
+                } else if (KEYEQUALS(key, existing)) {
+
+                    result[i] = values[slot];
+
+                } else {
+
+                    pending |= (1L << (i - start));
+                }
+            }
+
+            //2) conflicting keys, now in cache: finish the regular way
+            while (pending != 0L) {
+
+                final int i = start + Long.numberOfTrailingZeros(pending);
+
+                result[i] = get(keys[i]);
+
+                pending &= pending - 1;
+            }
+        } //end for batches
+
+        return result;
+    }
+
+    /**
+     * Batch version of {@link #containsKey}: bit i of bits (i.e. bits[i / 64] & (1L << i)) is set if keys[i] is in the map,
+     * cleared otherwise, for i in [0; keys.length[.
+     * <p>
+     * Keys are processed by batches as in {@link #getAll}, so that the cache misses of independent lookups overlap.
+     * </p>
+     * @param keys the keys to look up
+     * @param bits bitset receiving the results, at least (keys.length + 63) / 64 long
+     * @return the number of keys found in the map.
+     */
+    public int containsAll(final KType[] keys, final long[] bits) {
+
+        if (((long) bits.length << 6) < keys.length) {
+            throw new IllegalArgumentException("bits is too small for keys: " + bits.length + " words < " + keys.length + " bits");
+        }
+
+        final KType[] buffer = Intrinsics.<KType[]> cast(this.keys);
+
+        final int mask = buffer.length - 1;
+
+        int count = 0;
+
+        for (int start = 0; start < keys.length; start += HashContainers.BATCH_LOOKUP_SIZE) {
+
+            final int end = Math.min(start + HashContainers.BATCH_LOOKUP_SIZE, keys.length);
+
+            //bit (i - start) is set if keys[i] needs more probes
+            long pending = 0L;
+
+            //1) first probe of the batch: the slots only depend on the keys,
+            //so the loads are independent and their latencies overlap.
+            for (int i = start; i < end; i++) {
+
+                final KType key = keys[i];
+
+                boolean found = false;
+
+                if (Intrinsics.<KType> isEmpty(key)) {
+
+                    found = this.allocatedDefaultKey;
+
+                } else {
+
+                    final KType existing = buffer[hashOf(key) & mask];
+
+                    if (!Intrinsics.<KType> isEmpty(existing)) {
+
+                        if (KEYEQUALS(key, existing)) {
+
+                            found = true;
+                        } else {
+
+                            pending |= (1L << (i - start));
+                        }
+                    }
+                }
+
+                if (found) {
+
+                    bits[i >> 6] |= (1L << i);
+                    count++;
+                } else {
+
+                    bits[i >> 6] &= ~(1L << i);
+                }
+            }
+
+            //2) conflicting keys, now in cache: finish the regular way
+            while (pending != 0L) {
+
+                final int i = start + Long.numberOfTrailingZeros(pending);
+
+                if (containsKey(keys[i])) {
+
+                    bits[i >> 6] |= (1L << i);
+                    count++;
+                }
+
+                pending &= pending - 1;
+            }
+        } //end for batches
+
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1058,7 +1307,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      * Holds a KTypeVTypeCursor returning
      * (key, value, index) = (KType key, VType value, index the position in keys {@link KTypeVTypeHashMap#keys}, or keys.length for key = 0/null)
      */
-    public final class EntryIterator extends AbstractIterator<KTypeVTypeCursor<KType, VType>>
+    public class EntryIterator extends AbstractIterator<KTypeVTypeCursor<KType, VType>>
     {
         public final KTypeVTypeCursor<KType, VType> cursor;
 
@@ -1115,7 +1364,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                 @Override
                 public EntryIterator create() {
-                    return new EntryIterator();
+                    return newEntryIterator();
                 }
 
                 @Override
@@ -1212,7 +1461,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /**
      * A view of the keys inside this map.
      */
-    public final class KeysCollection extends AbstractKTypeCollection<KType> implements KTypeLookupContainer<KType>
+    public class KeysCollection extends AbstractKTypeCollection<KType> implements KTypeLookupContainer<KType>
     {
         private final KTypeVTypeHashMap<KType, VType> owner = KTypeVTypeHashMap.this;
 
@@ -1324,7 +1573,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                     @Override
                     public KeysIterator create() {
-                        return new KeysIterator();
+                        return newKeysIterator();
                     }
 
                     @Override
@@ -1368,7 +1617,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      * An iterator over the set of keys.
      * Holds a KTypeCursor returning (value, index) = (KType key, index the position in buffer {@link KTypeVTypeHashMap#keys}, or keys.length for key = 0/null.)
      */
-    public final class KeysIterator extends AbstractIterator<KTypeCursor<KType>>
+    public class KeysIterator extends AbstractIterator<KTypeCursor<KType>>
     {
         public final KTypeCursor<KType> cursor;
 
@@ -1428,7 +1677,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /**
      * A view over the set of values of this map.
      */
-    public final class ValuesCollection extends AbstractKTypeCollection<VType>
+    public class ValuesCollection extends AbstractKTypeCollection<VType>
     {
         private final KTypeVTypeHashMap<KType, VType> owner = KTypeVTypeHashMap.this;
 
@@ -1531,12 +1780,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                 if (Intrinsics.<VType> equals(e, this.owner.allocatedDefaultKeyValue)) {
 
-                    this.owner.allocatedDefaultKey = false;
-
-                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                    //help the GC
-                    this.owner.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                    /*! #end !*/
+                    removeDefaultKey();
                 }
             }
 
@@ -1568,12 +1812,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                 if (predicate.apply(this.owner.allocatedDefaultKeyValue)) {
 
-                    this.owner.allocatedDefaultKey = false;
-
-                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
-                    //help the GC
-                    this.owner.allocatedDefaultKeyValue = Intrinsics.<VType> empty();
-                    /*! #end !*/
+                    removeDefaultKey();
                 }
             }
 
@@ -1609,7 +1848,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
 
                     @Override
                     public ValuesIterator create() {
-                        return new ValuesIterator();
+                        return newValuesIterator();
                     }
 
                     @Override
@@ -1655,7 +1894,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
      * Holds a KTypeCursor returning (value, index) = (VType value, index the position in buffer {@link KTypeVTypeHashMap#values},
      * or values.length for value = {@link KTypeVTypeHashMap#allocatedDefaultKeyValue}).
      */
-    public final class ValuesIterator extends AbstractIterator<KTypeCursor<VType>>
+    public class ValuesIterator extends AbstractIterator<KTypeCursor<VType>>
     {
         public final KTypeCursor<VType> cursor;
 
@@ -1702,6 +1941,27 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         }
     }
 
+    /**
+     * Create an iterator for {@link #entryIteratorPool}, overridden by the maps of this package which iterate in another order.
+     */
+    EntryIterator newEntryIterator() {
+        return new EntryIterator();
+    }
+
+    /**
+     * Create an iterator for the pool of {@link KeysCollection}, overridden by the maps of this package which iterate in another order.
+     */
+    KeysIterator newKeysIterator() {
+        return new KeysIterator();
+    }
+
+    /**
+     * Create an iterator for the pool of {@link ValuesCollection}, overridden by the maps of this package which iterate in another order.
+     */
+    ValuesIterator newValuesIterator() {
+        return new ValuesIterator();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1738,6 +1998,222 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
         return buffer.toString();
     }
 
+    /**
+     * Compute the statistics of the layout of the buffers, in a single pass over {@link #keys}:
+     * see {@link HashStats}. This is an O(buffer size) diagnostic, not meant to be called on every operation.
+     */
+    public HashStats stats() {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final int mask = keys.length - 1;
+
+        final int[] clusterSizeHistogram = new int[HashStats.HISTOGRAM_LENGTH];
+
+        int nbProbed = 0;
+        int maxProbeLength = 0;
+        long sumProbeLengths = 0;
+        int maxClusterSize = 0;
+        int clusterSize = 0;
+
+        //start the pass right after an empty slot (there is always one at least),
+        //so that no cluster wraps around the end of the pass.
+        int start = 0;
+
+        while (!Intrinsics.<KType> isEmpty(keys[start])) {
+            start++;
+        }
+
+        for (int i = 1; i <= keys.length; i++) {
+
+            final int slot = (start + i) & mask;
+
+            KType existing;
+
+            if (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+                final int probeLength = ((slot - hashOf(existing)) & mask) + 1;
+
+                nbProbed++;
+                sumProbeLengths += probeLength;
+                maxProbeLength = Math.max(maxProbeLength, probeLength);
+                clusterSize++;
+
+            } else if (clusterSize > 0) {
+
+                clusterSizeHistogram[HashStats.histogramBucket(clusterSize)]++;
+                maxClusterSize = Math.max(maxClusterSize, clusterSize);
+                clusterSize = 0;
+            }
+        }
+
+        return new HashStats(size(), keys.length, this.loadFactor, this.resizeCount,
+                nbProbed, maxProbeLength, sumProbeLengths, maxClusterSize, clusterSizeHistogram);
+    }
+
+    /*! #if ($TemplateOptions.KTypePrimitive && $TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Write the map to out, its keys and values being written in bulk.
+     * <p>
+     * If asIs = false, only the entries are written, and {@link #readFrom(DataInput)} rehashes them. If asIs = true,
+     * the whole hash table is dumped as-is (including the empty slots), and {@link #readFrom(DataInput)} only
+     * has to read it back, without any rehashing.
+     * </p>
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @param asIs true to dump the hash table as-is.
+     */
+    public void writeTo(final DataOutput out, final boolean asIs) throws IOException {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        out.writeBoolean(asIs);
+        out.writeDouble(this.loadFactor);
+        out.writeBoolean(this.allocatedDefaultKey);
+
+        if (this.allocatedDefaultKey) {
+
+            /*! #if ($TemplateOptions.VTypePrimitive)
+            out.write${TemplateOptions.VType.BoxedType}(this.allocatedDefaultKeyValue);
+            #end !*/
+        }
+
+        out.writeInt(this.assigned);
+
+        if (asIs) {
+
+            out.writeInt(this.perturbation);
+            out.writeInt(keys.length);
+
+            KTypeArrays.writeTo(out, keys, 0, keys.length);
+            VTypeArrays.writeTo(out, values, 0, values.length);
+
+            return;
+        }
+
+        //pack the entries, by chunks
+        final int chunkSize = Math.min(this.assigned, KTypeVTypeHashMap.IO_CHUNK_SIZE);
+
+        final KType[] keyChunk = Intrinsics.<KType> newArray(chunkSize);
+        final VType[] valueChunk = Intrinsics.<VType> newArray(chunkSize);
+        int count = 0;
+
+        for (int i = keys.length; --i >= 0;) {
+
+            if (is_allocated(i, keys)) {
+
+                keyChunk[count] = keys[i];
+                valueChunk[count] = values[i];
+                count++;
+
+                if (count == chunkSize) {
+
+                    KTypeArrays.writeTo(out, keyChunk, 0, count);
+                    VTypeArrays.writeTo(out, valueChunk, 0, count);
+                    count = 0;
+                }
+            }
+        }
+
+        KTypeArrays.writeTo(out, keyChunk, 0, count);
+        VTypeArrays.writeTo(out, valueChunk, 0, count);
+    }
+
+    /**
+     * Read a map written by {@link #writeTo(DataOutput, boolean)}.
+     */
+    @SuppressWarnings("boxing")
+    public static <KType, VType> KTypeVTypeHashMap<KType, VType> readFrom(final DataInput in) throws IOException {
+
+        final boolean asIs = in.readBoolean();
+        final double loadFactor = in.readDouble();
+
+        if (!(loadFactor >= HashContainers.MIN_LOAD_FACTOR && loadFactor <= HashContainers.MAX_LOAD_FACTOR)) {
+
+            throw new IOException("Corrupted map, load factor: " + loadFactor);
+        }
+
+        final boolean allocatedDefaultKey = in.readBoolean();
+
+        VType allocatedDefaultKeyValue = Intrinsics.<VType> empty();
+
+        if (allocatedDefaultKey) {
+
+            /*! #if ($TemplateOptions.VTypePrimitive)
+            allocatedDefaultKeyValue = in.read${TemplateOptions.VType.BoxedType}();
+            #end !*/
+        }
+
+        final int assigned = in.readInt();
+
+        if (asIs) {
+
+            final int perturbation = in.readInt();
+            final int length = in.readInt();
+
+            if (length < HashContainers.MIN_HASH_ARRAY_LENGTH || length > HashContainers.MAX_HASH_ARRAY_LENGTH
+                    || Integer.bitCount(length) != 1 || assigned < 0 || assigned > HashContainers.expandAtCount(length, loadFactor)) {
+
+                throw new IOException(String.format("Corrupted map, %d keys in %d slots", assigned, length));
+            }
+
+            final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>(length, loadFactor, perturbation);
+
+            KTypeArrays.readFrom(in, Intrinsics.<KType[]> cast(map.keys), 0, length);
+            VTypeArrays.readFrom(in, Intrinsics.<VType[]> cast(map.values), 0, length);
+
+            map.assigned = assigned;
+            map.allocatedDefaultKey = allocatedDefaultKey;
+            map.allocatedDefaultKeyValue = allocatedDefaultKeyValue;
+
+            return map;
+        }
+
+        if (assigned < 0 || assigned > HashContainers.maxElements(loadFactor)) {
+
+            throw new IOException("Corrupted map, size: " + assigned);
+        }
+
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>(assigned, loadFactor);
+
+        final int chunkSize = Math.min(assigned, KTypeVTypeHashMap.IO_CHUNK_SIZE);
+
+        final KType[] keyChunk = Intrinsics.<KType> newArray(chunkSize);
+        final VType[] valueChunk = Intrinsics.<VType> newArray(chunkSize);
+
+        for (int remaining = assigned; remaining > 0;) {
+
+            final int count = Math.min(remaining, chunkSize);
+
+            KTypeArrays.readFrom(in, keyChunk, 0, count);
+            VTypeArrays.readFrom(in, valueChunk, 0, count);
+
+            for (int i = 0; i < count; i++) {
+
+                map.put(keyChunk[i], valueChunk[i]);
+            }
+
+            remaining -= count;
+        }
+
+        map.allocatedDefaultKey = allocatedDefaultKey;
+        map.allocatedDefaultKeyValue = allocatedDefaultKeyValue;
+
+        return map;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Create an immutable copy of this map, perfectly hashed: see {@link KTypeVTypeFrozenHashMap}.
+     */
+    public KTypeVTypeFrozenHashMap<KType, VType> freeze() {
+
+        return KTypeVTypeFrozenHashMap.from(this);
+    }
+
+    /*! #end !*/
+
     /**
      * Creates a hash map from two index-aligned arrays of key-value pairs. Default load factor is used.
      */
@@ -1812,7 +2288,7 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     /*! #end !*/
 
     /*! #if ($RH) !*/
-    private int probe_distance(final int slot, final int[] cache) {
+    int probe_distance(final int slot, final int[] cache) {
 
         final int rh = cache[slot];
 
@@ -1831,6 +2307,15 @@ implements KTypeVTypeMap<KType, VType>, Cloneable
     }
     /*! #end !*/
 
+    /**
+     * Hash of a (non-empty) key, before masking: REHASH(key) here, overridden by the maps of this package
+     * which hash the keys differently, so that they share the probing code which is not inlined.
+     */
+    int hashOf(final KType key) {
+
+        return REHASH(key);
+    }
+
     /*! #if ($TemplateOptions.declareInline("REHASH(value)",
     "<Object,*>==>BitMixer.mix(hashKey(value) , this.perturbation)",
     "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
@@ -0,0 +1,897 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateVType("Object")} !*/
+/**
+ * A hash multimap of <code>KType</code> to lists of primitive <code>VType</code> values, a compact replacement for
+ * a <code>KTypeVTypeHashMap</code> of lists, like the posting lists of an inverted index:
+ * <p>
+ * The keys are hashed in {@link #keys} with linear probing like {@link KTypeVTypeHashMap}, but instead of one list object per key,
+ * all the values are stored in a single shared array {@link #slab}, each key owning a chain of blocks of the slab.
+ * The blocks of a chain double in size, from 1 up to 2^{@link #MAX_BLOCK_SIZE_BITS} values, so that a key of n values
+ * takes O(log(n)) blocks and less than 2 * n slots of the slab.
+ * A block is only an offset in {@link #slab} plus the index of the next block of its chain: no object, no object header per key.
+ * </p>
+ * <p>
+ * The values of a key are kept in insertion order. {@link #removeAll(Object)} releases the blocks of the key in free lists per block size,
+ * reused by the next allocations of blocks of the same size, so the slab does not grow under a steady stream of removals and insertions.
+ * </p>
+ * <p>
+ * Note that unlike {@link KTypeVTypeHashMap}, there is no iterator: values are read with forEach(key, procedure) which walks the chain
+ * of the key, so there is no iterator pool either.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeHashMultimap<KType, VType>
+{
+    /**
+     * Max size of a block is 2^MAX_BLOCK_SIZE_BITS values.
+     */
+    public static final int MAX_BLOCK_SIZE_BITS = 10;
+
+    /**
+     * End of a chain of blocks, or of a free list.
+     */
+    private static final int NO_BLOCK = -1;
+
+    /**
+     * Growth of {@link #slab} and of the blocks arrays.
+     */
+    private static final ArraySizingStrategy RESIZER = new BoundedProportionalArraySizingStrategy();
+
+    /**
+     * Hash-indexed array holding all keys.
+     * <p>
+     * Direct iteration: the keys are the keys[i] for i in [0; keys.length[ where keys[i] != 0/null,
+     * then also 0/null if counts[keys.length] != 0.
+     * </p>
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * First block of the chain of the key of the same slot in {@link #keys}, the last slot
+     * keys.length being for the key 0/null.
+     */
+    protected int[] heads;
+
+    /**
+     * Last block of the chain of the key of the same slot in {@link #keys}, the last slot
+     * keys.length being for the key 0/null.
+     */
+    protected int[] tails;
+
+    /**
+     * Number of values of the key of the same slot in {@link #keys}, the last slot
+     * keys.length being for the key 0/null. 0 for a free slot.
+     */
+    protected int[] counts;
+
+    /**
+     * All the values, by blocks. Only [0; {@link #slabSize}[ is allocated to blocks.
+     */
+    public VType[] slab;
+
+    /**
+     * Number of slots of {@link #slab} allocated to blocks, in use or free.
+     */
+    protected int slabSize;
+
+    /**
+     * Offset in {@link #slab} of each block.
+     */
+    protected int[] blockOffsets;
+
+    /**
+     * Next block of the chain (or free list) of each block, or NO_BLOCK.
+     */
+    protected int[] blockNexts;
+
+    /**
+     * Number of blocks ever allocated, in use or free.
+     */
+    protected int blockCount;
+
+    /**
+     * freeBlocks[b] is the first free block of size 2^b, or NO_BLOCK.
+     */
+    protected final int[] freeBlocks = new int[KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS + 1];
+
+    /**
+     * Cached number of assigned slots in {@link #keys}.
+     */
+    protected int assigned;
+
+    /**
+     * Total number of values.
+     */
+    protected int size;
+
+    /**
+     * The load factor for this multimap (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys} hits this value.
+     */
+    private int resizeAt;
+
+    /**
+     * We perturb hash values with a container-unique
+     * seed to avoid problems with nearly-sorted-by-hash
+     * values on iterations.
+     */
+    protected int perturbation = Containers.randomSeed32();
+
+    /*! #if ($TemplateOptions.KTypeGeneric) !*/
+
+    /**
+     * Override this method, together with {@link #equalKeys(Object, Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with a non-null key argument.
+     * By default, this method calls key.{@link #hashCode()}.
+     * @param key KType to be hashed.
+     * @return the hashed value of key, following the same semantic
+     * as {@link #hashCode()};
+     * @see #hashCode()
+     * @see #equalKeys(Object, Object)
+     */
+    protected int hashKey(final KType key) {
+
+        //default maps on Object.hashCode()
+        return key.hashCode();
+    }
+
+    /**
+     * Override this method together with {@link #hashKey(Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with both non-null arguments.
+     * By default, this method calls a.{@link #equals(b)}.
+     * @param a not-null KType to be compared
+     * @param b not-null KType to be compared
+     * @return true if a and b are considered equal, following the same
+     * semantic as {@link #equals(Object)}.
+     * @see #equals(Object)
+     * @see #hashKey(Object)
+     */
+    protected boolean equalKeys(final KType a, final KType b) {
+
+        //default maps on Object.equals()
+        return Intrinsics.<KType> equalsNotNull(a, b);
+    }
+
+    /*! #end !*/
+
+    /**
+     * Default constructor: Creates a multimap with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS} keys,
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeHashMultimap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a multimap with the given initial capacity of keys, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity of keys (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeHashMultimap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a multimap with the given initial capacity of keys,
+     * load factor.
+     *
+     * @param loadFactor The load factor of the keys (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeHashMultimap(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
+        allocateBuffers(HashContainers.minBufferSize(initialCapacity, loadFactor));
+
+        this.slab = Intrinsics.<VType> newArray(Math.max(Containers.DEFAULT_EXPECTED_ELEMENTS, initialCapacity));
+        this.blockOffsets = new int[Math.max(Containers.DEFAULT_EXPECTED_ELEMENTS, initialCapacity)];
+        this.blockNexts = new int[this.blockOffsets.length];
+
+        Arrays.fill(this.freeBlocks, KTypeVTypeHashMultimap.NO_BLOCK);
+    }
+
+    /**
+     * Appends value to the values of key.
+     */
+    public void put(final KType key, final VType value) {
+
+        final int slot = allocateSlot(key);
+
+        final int count = this.counts[slot];
+
+        int offset;
+
+        if (count == 0) {
+
+            final int block = allocateBlock(0);
+
+            this.heads[slot] = block;
+            this.tails[slot] = block;
+            offset = this.blockOffsets[block];
+
+        } else {
+
+            final int chainLength = KTypeVTypeHashMultimap.chainLength(count);
+            final int chainCapacity = KTypeVTypeHashMultimap.chainCapacity(chainLength);
+
+            if (count == chainCapacity) {
+
+                //last block is full, chain a new one
+                final int block = allocateBlock(KTypeVTypeHashMultimap.blockSizeBits(chainLength));
+
+                this.blockNexts[this.tails[slot]] = block;
+                this.tails[slot] = block;
+                offset = this.blockOffsets[block];
+
+            } else {
+
+                offset = this.blockOffsets[this.tails[slot]] + count - KTypeVTypeHashMultimap.chainCapacity(chainLength - 1);
+            }
+        }
+
+        this.slab[offset] = value;
+        this.counts[slot] = count + 1;
+        this.size++;
+    }
+
+    /**
+     * Appends all the values to the values of key.
+     */
+    public void putAll(final KType key, final KTypeContainer<? extends VType> values) {
+
+        for (final KTypeCursor<? extends VType> c : values) {
+
+            put(key, c.value);
+        }
+    }
+
+    /**
+     * Applies procedure to the values of key, in insertion order.
+     * @return procedure
+     */
+    public <T extends KTypeProcedure<? super VType>> T forEach(final KType key, final T procedure) {
+
+        final int slot = findSlot(key);
+
+        if (slot != -1) {
+
+            final VType[] slab = Intrinsics.<VType[]> cast(this.slab);
+            final int[] blockOffsets = this.blockOffsets;
+            final int[] blockNexts = this.blockNexts;
+
+            int remaining = this.counts[slot];
+            int block = this.heads[slot];
+
+            for (int i = 0; remaining > 0; i++) {
+
+                final int offset = blockOffsets[block];
+                final int length = Math.min(remaining, 1 << KTypeVTypeHashMultimap.blockSizeBits(i));
+
+                for (int j = offset; j < offset + length; j++) {
+
+                    procedure.apply(slab[j]);
+                }
+
+                remaining -= length;
+                block = blockNexts[block];
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies predicate to the values of key, in insertion order, until it returns false.
+     * @return predicate
+     */
+    public <T extends KTypePredicate<? super VType>> T forEach(final KType key, final T predicate) {
+
+        final int slot = findSlot(key);
+
+        if (slot != -1) {
+
+            final VType[] slab = Intrinsics.<VType[]> cast(this.slab);
+            final int[] blockOffsets = this.blockOffsets;
+            final int[] blockNexts = this.blockNexts;
+
+            int remaining = this.counts[slot];
+            int block = this.heads[slot];
+
+            for (int i = 0; remaining > 0; i++) {
+
+                final int offset = blockOffsets[block];
+                final int length = Math.min(remaining, 1 << KTypeVTypeHashMultimap.blockSizeBits(i));
+
+                for (int j = offset; j < offset + length; j++) {
+
+                    if (!predicate.apply(slab[j])) {
+
+                        return predicate;
+                    }
+                }
+
+                remaining -= length;
+                block = blockNexts[block];
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Applies procedure to all the (key, value) pairs, the values of a key in insertion order.
+     * @return procedure
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        if (this.counts[keys.length] != 0) {
+
+            forEachValue(Intrinsics.<KType> empty(), keys.length, procedure);
+        }
+
+        for (int slot = 0; slot < keys.length; slot++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                forEachValue(keys[slot], slot, procedure);
+            }
+        }
+
+        return procedure;
+    }
+
+    private void forEachValue(final KType key, final int slot, final KTypeVTypeProcedure<? super KType, ? super VType> procedure) {
+
+        final VType[] slab = Intrinsics.<VType[]> cast(this.slab);
+
+        int remaining = this.counts[slot];
+        int block = this.heads[slot];
+
+        for (int i = 0; remaining > 0; i++) {
+
+            final int offset = this.blockOffsets[block];
+            final int length = Math.min(remaining, 1 << KTypeVTypeHashMultimap.blockSizeBits(i));
+
+            for (int j = offset; j < offset + length; j++) {
+
+                procedure.apply(key, slab[j]);
+            }
+
+            remaining -= length;
+            block = this.blockNexts[block];
+        }
+    }
+
+    /**
+     * @return the number of values of key, 0 if key is not in the multimap.
+     */
+    public int count(final KType key) {
+
+        final int slot = findSlot(key);
+
+        return slot == -1 ? 0 : this.counts[slot];
+    }
+
+    /**
+     * @return true if key has at least one value.
+     */
+    public boolean containsKey(final KType key) {
+
+        return findSlot(key) != -1;
+    }
+
+    /**
+     * Removes key and all its values, releasing their blocks for reuse.
+     * @return the number of removed values.
+     */
+    public int removeAll(final KType key) {
+
+        final int slot = findSlot(key);
+
+        if (slot == -1) {
+
+            return 0;
+        }
+
+        final int count = this.counts[slot];
+
+        releaseChain(this.heads[slot], count);
+
+        this.size -= count;
+
+        if (slot == this.keys.length) {
+
+            this.counts[slot] = 0;
+
+        } else {
+
+            shiftConflictingKeys(slot);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the total number of values.
+     */
+    public int size() {
+
+        return this.size;
+    }
+
+    /**
+     * @return the number of distinct keys.
+     */
+    public int keyCount() {
+
+        return this.assigned + (this.counts[this.keys.length] != 0 ? 1 : 0);
+    }
+
+    /**
+     * @return true if there are no values.
+     */
+    public boolean isEmpty() {
+
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the keys and values, keeping the buffers.
+     */
+    public void clear() {
+
+        this.assigned = 0;
+        this.size = 0;
+        this.slabSize = 0;
+        this.blockCount = 0;
+
+        //Faster than Arrays.fill(keys, null); // Help the GC.
+        KTypeArrays.blankArray(this.keys, 0, this.keys.length);
+        Arrays.fill(this.counts, 0);
+        Arrays.fill(this.freeBlocks, KTypeVTypeHashMultimap.NO_BLOCK);
+    }
+
+    /**
+     * Convert the contents of this multimap to a human-friendly string, like "[key1=>[v1, v2], key2=>[v3]]".
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int slot = 0; slot <= keys.length; slot++) {
+
+            if (this.counts[slot] == 0) {
+
+                continue;
+            }
+
+            final KType key = (slot == keys.length) ? Intrinsics.<KType> empty() : keys[slot];
+
+            if (buffer.length() > 1) {
+
+                buffer.append(", ");
+            }
+
+            buffer.append(key);
+            buffer.append("=>[");
+
+            forEach(key, new KTypeProcedure<VType>() {
+
+                boolean first = true;
+
+                @Override
+                public void apply(final VType value) {
+
+                    if (!this.first) {
+
+                        buffer.append(", ");
+                    }
+
+                    buffer.append(value);
+                    this.first = false;
+                }
+            });
+
+            buffer.append("]");
+        }
+
+        buffer.append("]");
+
+        return buffer.toString();
+    }
+
+    /**
+     * @return the slot of key, keys.length for the key 0/null, or -1 if key is not in the multimap.
+     */
+    private int findSlot(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.counts[this.keys.length] != 0 ? this.keys.length : -1;
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the slot of key, inserting it with no values if not in the multimap.
+     */
+    private int allocateSlot(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.keys.length;
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.assigned == this.resizeAt) {
+
+            expand();
+
+            return allocateSlot(key);
+        }
+
+        this.assigned++;
+        keys[slot] = key;
+
+        return slot;
+    }
+
+    /**
+     * Grow the keys buffers, rehashing the keys with their chains.
+     */
+    private void expand() {
+
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+        final int[] oldHeads = this.heads;
+        final int[] oldTails = this.tails;
+        final int[] oldCounts = this.counts;
+
+        allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final int[] heads = this.heads;
+        final int[] tails = this.tails;
+        final int[] counts = this.counts;
+
+        final int perturb = this.perturbation;
+
+        //It is important to iterate backwards to minimize the conflict chain length !
+        for (int i = oldKeys.length; --i >= 0;) {
+
+            final KType key = oldKeys[i];
+
+            if (!Intrinsics.<KType> isEmpty(key)) {
+
+                int slot = REHASH2(key, perturb) & mask;
+
+                while (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = key;
+                heads[slot] = oldHeads[i];
+                tails[slot] = oldTails[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+
+        //the key 0/null
+        heads[keys.length] = oldHeads[oldKeys.length];
+        tails[keys.length] = oldTails[oldKeys.length];
+        counts[keys.length] = oldCounts[oldKeys.length];
+    }
+
+    /**
+     * Allocate the keys buffers for a given capacity.
+     *
+     * @param capacity New capacity (must be a power of two).
+     */
+    private void allocateBuffers(final int capacity) {
+        try {
+
+            final KType[] keys = Intrinsics.<KType> newArray(capacity);
+
+            //one more slot for the key 0/null
+            final int[] heads = new int[capacity + 1];
+            final int[] tails = new int[capacity + 1];
+            final int[] counts = new int[capacity + 1];
+
+            this.keys = keys;
+            this.heads = heads;
+            this.tails = tails;
+            this.counts = counts;
+
+            //allocate so that there is at least one slot that remains allocated = false
+            //this is compulsory to guarantee proper stop in searching loops
+            this.resizeAt = HashContainers.expandAtCount(capacity, this.loadFactor);
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0 : this.keys.length,
+                            capacity);
+        }
+    }
+
+    /**
+     * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(int gapSlot) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final int[] heads = this.heads;
+        final int[] tails = this.tails;
+        final int[] counts = this.counts;
+
+        final int perturb = this.perturbation;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        int distance = 0;
+
+        while (true) {
+
+            final int slot = (gapSlot + (++distance)) & mask;
+
+            final KType existing = keys[slot];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            final int idealSlotModMask = REHASH2(existing, perturb) & mask;
+
+            final int shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                keys[gapSlot] = existing;
+                heads[gapSlot] = heads[slot];
+                tails[gapSlot] = tails[slot];
+                counts[gapSlot] = counts[slot];
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        keys[gapSlot] = Intrinsics.<KType> empty();
+        counts[gapSlot] = 0;
+
+        this.assigned--;
+    }
+
+    /**
+     * @return a block of 2^sizeBits values, reused from the free list if any, else taken at the end of {@link #slab}.
+     */
+    private int allocateBlock(final int sizeBits) {
+
+        int block = this.freeBlocks[sizeBits];
+
+        if (block != KTypeVTypeHashMultimap.NO_BLOCK) {
+
+            this.freeBlocks[sizeBits] = this.blockNexts[block];
+            this.blockNexts[block] = KTypeVTypeHashMultimap.NO_BLOCK;
+
+            return block;
+        }
+
+        final int blockSize = 1 << sizeBits;
+
+        try {
+
+            if (this.blockCount == this.blockOffsets.length) {
+
+                final int newLength = KTypeVTypeHashMultimap.RESIZER.grow(this.blockOffsets.length, this.blockCount, 1);
+
+                final int[] blockOffsets = new int[newLength];
+                final int[] blockNexts = new int[newLength];
+
+                System.arraycopy(this.blockOffsets, 0, blockOffsets, 0, this.blockCount);
+                System.arraycopy(this.blockNexts, 0, blockNexts, 0, this.blockCount);
+
+                this.blockOffsets = blockOffsets;
+                this.blockNexts = blockNexts;
+            }
+
+            if (this.slabSize > this.slab.length - blockSize) {
+
+                final VType[] slab = Intrinsics.<VType> newArray(KTypeVTypeHashMultimap.RESIZER.grow(this.slab.length, this.slabSize, blockSize));
+
+                System.arraycopy(this.slab, 0, slab, 0, this.slabSize);
+
+                this.slab = slab;
+            }
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate a block of %d values, with %d values allocated",
+                    e,
+                    blockSize,
+                    this.slabSize);
+        }
+
+        block = this.blockCount++;
+
+        this.blockOffsets[block] = this.slabSize;
+        this.blockNexts[block] = KTypeVTypeHashMultimap.NO_BLOCK;
+        this.slabSize += blockSize;
+
+        return block;
+    }
+
+    /**
+     * Push the blocks of the chain starting at head, holding count values, to the free lists.
+     */
+    private void releaseChain(int head, final int count) {
+
+        final int chainLength = KTypeVTypeHashMultimap.chainLength(count);
+
+        for (int i = 0; i < chainLength; i++) {
+
+            final int sizeBits = KTypeVTypeHashMultimap.blockSizeBits(i);
+            final int next = this.blockNexts[head];
+
+            this.blockNexts[head] = this.freeBlocks[sizeBits];
+            this.freeBlocks[sizeBits] = head;
+
+            head = next;
+        }
+    }
+
+    /**
+     * @return the size (log2) of the i-th block of a chain.
+     */
+    private static int blockSizeBits(final int i) {
+
+        return Math.min(i, KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS);
+    }
+
+    /**
+     * @return the number of values of a chain of chainLength blocks.
+     */
+    private static int chainCapacity(final int chainLength) {
+
+        if (chainLength <= KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS + 1) {
+
+            return (1 << chainLength) - 1;
+        }
+
+        return (1 << (KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS + 1)) - 1 +
+                ((chainLength - KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS - 1) << KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS);
+    }
+
+    /**
+     * @return the number of blocks of a chain holding count (strictly positive) values.
+     */
+    private static int chainLength(final int count) {
+
+        final int doublingCapacity = (1 << (KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS + 1)) - 1;
+
+        if (count <= doublingCapacity) {
+
+            return 32 - Integer.numberOfLeadingZeros(count);
+        }
+
+        return KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS + 1 +
+                (int) (((long) count - doublingCapacity + (1 << KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS) - 1) >>> KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<Object,*>==>BitMixer.mix(hashKey(value) , this.perturbation)",
+    "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(hashKey(value), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH2(value, perturb)",
+    "<Object,*>==>BitMixer.mix(hashKey(value) , perturb)",
+    "<*,*>==>BitMixer.mix(value , perturb)")) !*/
+    /**
+     * REHASH2 method for rehashing the keys with perturbation seed as parameter
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private int REHASH2(final KType value, final int perturb) {
+
+        return BitMixer.mix(hashKey(value), perturb);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("KEYEQUALS(key1, key2)",
+    "<Object,*>==>equalKeys(key1, key2)",
+    "<*,*>==>Intrinsics.<KType> equalsNotNull(key1, key2)")) !*/
+    /**
+     * macro which hides the applied equality criteria
+     */
+    private boolean KEYEQUALS(final KType key1, final KType key2) {
+
+        return equalKeys(key1, key2);
+    }
+    /*! #end !*/
+}
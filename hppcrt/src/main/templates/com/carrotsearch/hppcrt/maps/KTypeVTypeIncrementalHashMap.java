@@ -0,0 +1,495 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code> which grows by incremental rehashing,
+ * made of {@link KTypeVTypeHashMap}s.
+ * <p>
+ * A regular {@link KTypeVTypeHashMap} rehashes all its entries at once when it must grow,
+ * which for big maps is a pause proportional to the map size. Instead, when this map is full, a new
+ * map of twice the capacity becomes the current map, and the full one is kept aside as the old map.
+ * Then, each subsequent {@link #put}, {@link #remove}... migrates a bounded number ({@link #MIGRATION_STEP})
+ * of slots of the old map into the current one, until the old map is empty and discarded.
+ * Only the modifications migrate: lookups ({@link #get}, {@link #containsKey}...) never modify the map,
+ * so that a map no longer modified can be read by several threads, as a {@link KTypeVTypeHashMap}.
+ * </p>
+ * <p>
+ * While the old map is not empty, every key is in either the current map or the old map, so that lookups
+ * may cost two map lookups instead of one. The migration is guaranteed to complete before the current map is full again.
+ * Note that the allocation of the new buffers of the current map is still done at once (and zeroed by the JVM), but it is
+ * much cheaper than a whole rehash.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeIncrementalHashMap<KType, VType>
+{
+    /**
+     * Max number of slots of the old map visited by each migration step.
+     */
+    public static final int MIGRATION_STEP = 16;
+
+    /**
+     * Map receiving all the insertions.
+     */
+    protected KTypeVTypeHashMap<KType, VType> current;
+
+    /**
+     * Map being migrated into {@link #current}, or null if no migration is in progress.
+     */
+    protected KTypeVTypeHashMap<KType, VType> old;
+
+    /**
+     * Next slot of {@link #old} to migrate. All the slots
+     * between the start of migration and migrationSlot (circularly) are empty.
+     */
+    private int migrationSlot;
+
+    /**
+     * The load factor of the maps.
+     */
+    protected final double loadFactor;
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeIncrementalHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeIncrementalHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeIncrementalHashMap(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        this.current = new KTypeVTypeHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        if (this.old != null) {
+
+            migrate(KTypeVTypeIncrementalHashMap.MIGRATION_STEP);
+
+            final int slot = slotInOld(key);
+
+            if (slot != -1) {
+
+                //update in place, the key is migrated later
+                final VType[] oldValues = Intrinsics.<VType[]> cast(this.old.values);
+
+                final VType previousValue = oldValues[slot];
+                oldValues[slot] = value;
+
+                return previousValue;
+            }
+        }
+
+        ensureRoomFor(key);
+
+        return this.current.put(key, value);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+        if (!containsKey(key)) {
+            put(key, value);
+            return true;
+        }
+        return false;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * @see KTypeVTypeHashMap#putOrAdd
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        if (this.old != null) {
+
+            migrate(KTypeVTypeIncrementalHashMap.MIGRATION_STEP);
+
+            final int slot = slotInOld(key);
+
+            if (slot != -1) {
+
+                //update in place, the key is migrated later
+                final VType[] oldValues = Intrinsics.<VType[]> cast(this.old.values);
+
+                oldValues[slot] = (VType) (Intrinsics.<VType> add(oldValues[slot], incrementValue));
+
+                return oldValues[slot];
+            }
+        }
+
+        ensureRoomFor(key);
+
+        return this.current.putOrAdd(key, putValue, incrementValue);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#addTo
+     */
+    public VType addTo(final KType key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * @see KTypeVTypeHashMap#get
+     */
+    public VType get(final KType key) {
+
+        final int slot = slotInOld(key);
+
+        if (slot != -1) {
+
+            return Intrinsics.<VType> cast(this.old.values[slot]);
+        }
+
+        return this.current.get(key);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        return slotInOld(key) != -1 || this.current.containsKey(key);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#remove
+     */
+    public VType remove(final KType key) {
+
+        if (this.old != null) {
+
+            migrate(KTypeVTypeIncrementalHashMap.MIGRATION_STEP);
+
+            final int slot = slotInOld(key);
+
+            if (slot != -1) {
+
+                final VType previousValue = Intrinsics.<VType> cast(this.old.values[slot]);
+
+                this.old.shiftConflictingKeys(slot);
+
+                if (this.old.isEmpty()) {
+                    this.old = null;
+                }
+
+                return previousValue;
+            }
+        }
+
+        return this.current.remove(key);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#removeAll(KTypeVTypePredicate)
+     */
+    public int removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        int removed = this.current.removeAll(predicate);
+
+        if (this.old != null) {
+
+            //removals preserve the invariant that the already migrated slots are empty
+            removed += this.old.removeAll(predicate);
+
+            if (this.old.isEmpty()) {
+                this.old = null;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#forEach(KTypeVTypeProcedure)
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.old != null) {
+            this.old.forEach(procedure);
+        }
+
+        return this.current.forEach(procedure);
+    }
+
+    /**
+     * Stops at the first pair for which the predicate returns false.
+     * @see KTypeVTypeHashMap#forEach(KTypeVTypePredicate)
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.old != null) {
+
+            //old never holds the 0/null key, see ensureRoomForNewKey()
+            final KType[] oldKeys = Intrinsics.<KType[]> cast(this.old.keys);
+            final VType[] oldValues = Intrinsics.<VType[]> cast(this.old.values);
+
+            for (int i = oldKeys.length - 1; i >= 0; i--) {
+                KType existing;
+                if (!Intrinsics.<KType> isEmpty(existing = oldKeys[i])) {
+                    if (!predicate.apply(existing, oldValues[i])) {
+                        return predicate;
+                    }
+                }
+            }
+        }
+
+        return this.current.forEach(predicate);
+    }
+
+    /**
+     * Clear the map, terminating any migration in progress.
+     * <p>Does not release internal buffers of the current map.</p>
+     */
+    public void clear() {
+
+        this.old = null;
+        this.current.clear();
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#size
+     */
+    public int size() {
+
+        return this.current.size() + (this.old != null ? this.old.size() : 0);
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#isEmpty
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * @return the capacity of the current map.
+     * @see KTypeVTypeHashMap#capacity
+     */
+    public int capacity() {
+
+        return this.current.capacity();
+    }
+
+    /**
+     * @return true if a migration is in progress.
+     */
+    public boolean isMigrating() {
+
+        return this.old != null;
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+
+        return this.current.getDefaultValue();
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+
+        this.current.setDefaultValue(defaultValue);
+
+        if (this.old != null) {
+            this.old.setDefaultValue(defaultValue);
+        }
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        if (this.old == null) {
+            return this.current.toString();
+        }
+
+        final String oldString = this.old.toString();
+        final String currentString = this.current.toString();
+
+        if (this.old.isEmpty()) {
+            return currentString;
+        }
+
+        if (this.current.isEmpty()) {
+            return oldString;
+        }
+
+        //concat the 2 lists
+        return oldString.substring(0, oldString.length() - 1) + ", " + currentString.substring(1);
+    }
+
+    /**
+     * Slot of key in {@link #old}, or -1 if key is not there or no migration is in progress.
+     * The 0/null key is never in old.
+     */
+    private int slotInOld(final KType key) {
+
+        if (this.old == null || Intrinsics.<KType> isEmpty(key)) {
+
+            return -1;
+        }
+
+        return this.old.lookupSlot(key);
+    }
+
+    /**
+     * Called before putting key in current, only probing current again if current is full.
+     */
+    private void ensureRoomFor(final KType key) {
+
+        if (this.current.assigned == this.current.capacity() && !this.current.containsKey(key)) {
+
+            ensureRoomForNewKey();
+        }
+    }
+
+    /**
+     * Called before inserting a new key in current: if current is full,
+     * make it the old map and start migrating it into a new bigger one.
+     */
+    private void ensureRoomForNewKey() {
+
+        if (this.current.assigned < this.current.capacity()) {
+            return;
+        }
+
+        if (this.old != null) {
+            //Should not happen, migration steps are big enough to empty old before current is full.
+            migrate(Integer.MAX_VALUE);
+        }
+
+        final KTypeVTypeHashMap<KType, VType> full = this.current;
+
+        //at least twice the buffer size of full
+        final KTypeVTypeHashMap<KType, VType> next = new KTypeVTypeHashMap<KType, VType>(full.capacity() + 1, this.loadFactor);
+
+        next.setDefaultValue(full.getDefaultValue());
+
+        //the 0/null key is not in the buffers, move it immediately
+        if (full.allocatedDefaultKey) {
+
+            next.put(Intrinsics.<KType> empty(), full.allocatedDefaultKeyValue);
+            full.remove(Intrinsics.<KType> empty());
+        }
+
+        this.current = next;
+        this.old = full;
+
+        //Start migrating at an empty slot, so that every following slot is either empty or belongs to a cluster starting
+        //after it: then removals (which only shift keys backwards, towards their ideal slot) never move keys into already migrated slots.
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(full.keys);
+
+        int slot = 0;
+
+        while (!Intrinsics.<KType> isEmpty(oldKeys[slot])) {
+            slot++;
+        }
+
+        this.migrationSlot = slot;
+    }
+
+    /**
+     * Migrate at most nbSlots slots of {@link #old} into {@link #current},
+     * discarding old when empty.
+     */
+    private void migrate(int nbSlots) {
+
+        final KTypeVTypeHashMap<KType, VType> old = this.old;
+
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(old.keys);
+        final VType[] oldValues = Intrinsics.<VType[]> cast(old.values);
+
+        final int mask = oldKeys.length - 1;
+
+        int slot = this.migrationSlot;
+
+        while (nbSlots-- > 0 && old.assigned > 0) {
+
+            final KType key = oldKeys[slot];
+
+            if (Intrinsics.<KType> isEmpty(key)) {
+
+                slot = (slot + 1) & mask;
+
+            } else {
+
+                //keys of old are never in current, put() just inserts.
+                this.current.put(key, oldValues[slot]);
+
+                //removal may shift a following key into slot: do not advance.
+                old.shiftConflictingKeys(slot);
+            }
+        }
+
+        this.migrationSlot = slot;
+
+        if (old.assigned == 0 && !old.allocatedDefaultKey) {
+
+            this.old = null;
+        }
+    }
+
+    /**
+     * Create a new map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeIncrementalHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeIncrementalHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeIncrementalHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor) {
+        return new KTypeVTypeIncrementalHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+}
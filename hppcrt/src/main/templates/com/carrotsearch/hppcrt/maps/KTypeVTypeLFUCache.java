@@ -0,0 +1,836 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A bounded cache of <code>KType</code> to <code>VType</code>, evicting the least-frequently used entry
+ * when a new key is put while the cache already holds {@link #maxSize()} entries. Among the entries
+ * of the same frequency, the least-recently used one is evicted first.
+ * <p>
+ * All operations are O(1), following the LFU scheme of K. Shah, A. Mitra and D. Matani (2010): the entries
+ * are chained in lists by frequency, the frequency lists (buckets) being themselves chained by increasing frequency.
+ * An access moves its entry from the list of frequency f to the list of frequency f + 1, which is either the next bucket or
+ * a bucket inserted right after it, and the evicted entry is the eldest of the first bucket.
+ * </p>
+ * <p>
+ * The entries are stored by index in {@link #keys} and {@link #values}, and found by an open addressing table
+ * {@link #table} of entry indices with linear probing. All the links are the packed before/after <code>long</code> nodes
+ * of {@link com.carrotsearch.hppcrt.lists.KTypeLinkedList}. Everything is allocated at construction for {@link #maxSize()} entries,
+ * and free entries and buckets are recycled by free lists, so that nothing is allocated in steady state.
+ * </p>
+ * <p>
+ * The evicted entries are given to the optional eviction listener, before their removal. Entries removed explicitly
+ * by {@link #remove(Object)} or {@link #clear()} are not.
+ * A miss of {@link #get(Object)} returns the default value, see {@link #setDefaultValue(Object)}.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+ * @see KTypeVTypeLRUCache
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLFUCache<KType, VType>
+{
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Entry-indexed array holding the keys, for the entries in use.
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Entry-indexed array holding the values associated to the keys.
+     * stored in {@link #keys}.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * Hash-indexed table of (entry index + 1) of the non-0/null keys, 0 for an empty slot.
+     * The entry of the 0/null key is {@link #defaultKeyEntry}.
+     */
+    protected int[] table;
+
+    /**
+     * Entry of the 0/null key, or -1 if absent.
+     */
+    protected int defaultKeyEntry = -1;
+
+    /**
+     * Links of the lists of entries, one list per bucket:
+     * entryLinks[e] for e in [0; maxSize[ is the node of entry e,
+     * entryLinks[maxSize + 2 * b] and entryLinks[maxSize + 2 * b + 1] are the head and the tail of the list of bucket b.
+     */
+    protected long[] entryLinks;
+
+    /**
+     * Bucket of each entry in use.
+     */
+    protected int[] entryBuckets;
+
+    /**
+     * Links of the list of buckets, by increasing frequency: bucketLinks[b] for b in [0; maxSize[ is the node of bucket b,
+     * bucketLinks[maxSize] and bucketLinks[maxSize + 1] are the head and the tail of the list.
+     */
+    protected long[] bucketLinks;
+
+    /**
+     * Frequency of the entries of each bucket in use.
+     */
+    protected long[] frequencies;
+
+    /**
+     * Stack of the free entries, in [0; freeEntriesCount[.
+     */
+    protected int[] freeEntries;
+
+    protected int freeEntriesCount;
+
+    /**
+     * Stack of the free buckets, in [0; freeBucketsCount[.
+     */
+    protected int[] freeBuckets;
+
+    protected int freeBucketsCount;
+
+    /**
+     * Max number of entries.
+     */
+    protected final int maxSize;
+
+    /**
+     * Receives the evicted entries, or null.
+     */
+    protected final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener;
+
+    /**
+     * We perturb hash values with a container-unique
+     * seed to avoid problems with nearly-sorted-by-hash
+     * values on iterations.
+     */
+    protected final int perturbation = Containers.randomSeed32();
+
+    /*! #if ($TemplateOptions.KTypeGeneric) !*/
+
+    /**
+     * Override this method, together with {@link #equalKeys(Object, Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with a non-null key argument.
+     * By default, this method calls key.{@link #hashCode()}.
+     * @param key KType to be hashed.
+     * @return the hashed value of key, following the same semantic
+     * as {@link #hashCode()};
+     * @see #hashCode()
+     * @see #equalKeys(Object, Object)
+     */
+    protected int hashKey(final KType key) {
+
+        //default maps on Object.hashCode()
+        return key.hashCode();
+    }
+
+    /**
+     * Override this method together with {@link #hashKey(Object)}
+     * to customize the hashing strategy. Note that this method is guaranteed
+     * to be called with both non-null arguments.
+     * By default, this method calls a.{@link #equals(b)}.
+     * @param a not-null KType to be compared
+     * @param b not-null KType to be compared
+     * @return true if a and b are considered equal, following the same
+     * semantic as {@link #equals(Object)}.
+     * @see #equals(Object)
+     * @see #hashKey(Object)
+     */
+    protected boolean equalKeys(final KType a, final KType b) {
+
+        //default maps on Object.equals()
+        return Intrinsics.<KType> equalsNotNull(a, b);
+    }
+
+    /*! #end !*/
+
+    /**
+     * Creates a cache of at most maxSize entries, without eviction listener.
+     */
+    public KTypeVTypeLFUCache(final int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Creates a cache of at most maxSize entries.
+     * @param maxSize max number of entries (greater than zero)
+     * @param evictionListener receives the evicted entries, or null.
+     */
+    public KTypeVTypeLFUCache(final int maxSize, final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener) {
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.evictionListener = evictionListener;
+
+        try {
+
+            this.keys = Intrinsics.<KType> newArray(maxSize);
+            this.values = Intrinsics.<VType> newArray(maxSize);
+            this.table = new int[HashContainers.minBufferSize(maxSize, HashContainers.DEFAULT_LOAD_FACTOR)];
+
+            this.entryLinks = new long[3 * maxSize];
+            this.entryBuckets = new int[maxSize];
+            this.bucketLinks = new long[maxSize + 2];
+            this.frequencies = new long[maxSize];
+            this.freeEntries = new int[maxSize];
+            this.freeBuckets = new int[maxSize];
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException("Not enough memory to allocate a cache of %d elements", e, maxSize);
+        }
+
+        resetLists();
+    }
+
+    /**
+     * Get the value of key, a hit incrementing its frequency.
+     * @return the value, or the default value if key is not in the cache.
+     */
+    public VType get(final KType key) {
+
+        final int entry = lookupEntry(key);
+
+        if (entry == -1) {
+
+            return this.defaultValue;
+        }
+
+        touch(entry);
+
+        return Intrinsics.<VType> cast(this.values[entry]);
+    }
+
+    /**
+     * Put (key, value) in the cache. An existing key has its value replaced and its frequency incremented,
+     * a new key starts with a frequency of 1, after the eviction of an entry if the cache is full.
+     * @return the previous value of key, or the default value if key was not in the cache.
+     */
+    public VType put(final KType key, final VType value) {
+
+        final int entry = lookupEntry(key);
+
+        if (entry != -1) {
+
+            final VType previousValue = Intrinsics.<VType> cast(this.values[entry]);
+            this.values[entry] = value;
+
+            touch(entry);
+
+            return previousValue;
+        }
+
+        if (this.freeEntriesCount == 0) {
+
+            evict();
+        }
+
+        insert(key, value);
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @return true if key is in the cache. Its frequency is not changed.
+     */
+    public boolean containsKey(final KType key) {
+
+        return lookupEntry(key) != -1;
+    }
+
+    /**
+     * @return the frequency of key, i.e. the number of put() and successful get() of key since its insertion,
+     * or 0 if key is not in the cache.
+     */
+    public long frequency(final KType key) {
+
+        final int entry = lookupEntry(key);
+
+        if (entry == -1) {
+
+            return 0L;
+        }
+
+        return this.frequencies[this.entryBuckets[entry]];
+    }
+
+    /**
+     * Remove key from the cache, without notifying the eviction listener.
+     * @return the value of key, or the default value if key was not in the cache.
+     */
+    public VType remove(final KType key) {
+
+        final int entry = lookupEntry(key);
+
+        if (entry == -1) {
+
+            return this.defaultValue;
+        }
+
+        final VType value = Intrinsics.<VType> cast(this.values[entry]);
+
+        removeEntry(entry);
+
+        return value;
+    }
+
+    /**
+     * Apply procedure to all the entries, in eviction order: by increasing frequency, then from
+     * the least-recently used to the most-recently used.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        final long[] bucketLinks = this.bucketLinks;
+        final long[] entryLinks = this.entryLinks;
+        final int maxSize = this.maxSize;
+
+        int bucket = getLinkAfter(bucketLinks[maxSize]);
+
+        while (bucket != maxSize + 1) {
+
+            final int bucketTail = maxSize + 2 * bucket + 1;
+
+            int entry = getLinkAfter(entryLinks[maxSize + 2 * bucket]);
+
+            while (entry != bucketTail) {
+
+                procedure.apply(Intrinsics.<KType> cast(this.keys[entry]), Intrinsics.<VType> cast(this.values[entry]));
+
+                entry = getLinkAfter(entryLinks[entry]);
+            }
+
+            bucket = getLinkAfter(bucketLinks[bucket]);
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Apply predicate to the entries in eviction order, as {@link #forEach(KTypeVTypeProcedure)}, until it returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        final long[] bucketLinks = this.bucketLinks;
+        final long[] entryLinks = this.entryLinks;
+        final int maxSize = this.maxSize;
+
+        int bucket = getLinkAfter(bucketLinks[maxSize]);
+
+        while (bucket != maxSize + 1) {
+
+            final int bucketTail = maxSize + 2 * bucket + 1;
+
+            int entry = getLinkAfter(entryLinks[maxSize + 2 * bucket]);
+
+            while (entry != bucketTail) {
+
+                if (!predicate.apply(Intrinsics.<KType> cast(this.keys[entry]), Intrinsics.<VType> cast(this.values[entry]))) {
+
+                    return predicate;
+                }
+
+                entry = getLinkAfter(entryLinks[entry]);
+            }
+
+            bucket = getLinkAfter(bucketLinks[bucket]);
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Remove all the entries, without notifying the eviction listener.
+     */
+    public void clear() {
+
+        Arrays.fill(this.table, 0);
+        this.defaultKeyEntry = -1;
+
+        /*! #if ($TemplateOptions.KTypeGeneric) !*/
+        //help the GC
+        KTypeArrays.blankArray(this.keys, 0, this.keys.length);
+        /*! #end !*/
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), 0, this.values.length);
+        /*! #end !*/
+
+        resetLists();
+    }
+
+    /**
+     * @return the number of entries in the cache.
+     */
+    public int size() {
+        return this.maxSize - this.freeEntriesCount;
+    }
+
+    /**
+     * @return true if the cache is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the max number of entries of the cache.
+     */
+    public int maxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the "default value" value used in methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Convert the contents of this cache to a human-friendly string, in eviction order.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+                    buffer.append(", ");
+                }
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * @return the entry of key, or -1 if not found.
+     */
+    private int lookupEntry(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.defaultKeyEntry;
+        }
+
+        final int[] table = this.table;
+        final int mask = table.length - 1;
+
+        int slot = REHASH(key) & mask;
+        int existing;
+
+        while ((existing = table[slot]) != 0) {
+
+            if (KEYEQUALS(key, Intrinsics.<KType> cast(this.keys[existing - 1]))) {
+
+                return existing - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Insert a new key in a free entry, with a frequency of 1.
+     */
+    private void insert(final KType key, final VType value) {
+
+        final int entry = this.freeEntries[--this.freeEntriesCount];
+
+        this.keys[entry] = key;
+        this.values[entry] = value;
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            this.defaultKeyEntry = entry;
+
+        } else {
+
+            final int[] table = this.table;
+            final int mask = table.length - 1;
+
+            int slot = REHASH(key) & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = entry + 1;
+        }
+
+        //frequency 1 is the first bucket, if any
+        int bucket = getLinkAfter(this.bucketLinks[this.maxSize]);
+
+        if (bucket == this.maxSize + 1 || this.frequencies[bucket] != 1L) {
+
+            bucket = allocateBucket(1L, this.maxSize);
+        }
+
+        linkEntryLast(entry, bucket);
+    }
+
+    /**
+     * Evict the eldest entry of the lowest frequency.
+     */
+    private void evict() {
+
+        final int bucket = getLinkAfter(this.bucketLinks[this.maxSize]);
+        final int entry = getLinkAfter(this.entryLinks[this.maxSize + 2 * bucket]);
+
+        if (this.evictionListener != null) {
+            this.evictionListener.apply(Intrinsics.<KType> cast(this.keys[entry]), Intrinsics.<VType> cast(this.values[entry]));
+        }
+
+        removeEntry(entry);
+    }
+
+    /**
+     * Move entry from its bucket of frequency f to the bucket of frequency f + 1.
+     */
+    private void touch(final int entry) {
+
+        final long[] entryLinks = this.entryLinks;
+
+        final int bucket = this.entryBuckets[entry];
+        final long frequency = this.frequencies[bucket];
+        final int nextBucket = getLinkAfter(this.bucketLinks[bucket]);
+
+        final boolean alone = getLinkBefore(entryLinks[entry]) == this.maxSize + 2 * bucket
+                && getLinkAfter(entryLinks[entry]) == this.maxSize + 2 * bucket + 1;
+
+        if (nextBucket != this.maxSize + 1 && this.frequencies[nextBucket] == frequency + 1) {
+
+            unlinkEntry(entry);
+            linkEntryLast(entry, nextBucket);
+
+            if (alone) {
+                releaseBucket(bucket);
+            }
+
+        } else if (alone) {
+
+            //the bucket stays in place, between frequencies < f and > f + 1
+            this.frequencies[bucket] = frequency + 1;
+
+        } else {
+
+            final int newBucket = allocateBucket(frequency + 1, bucket);
+
+            unlinkEntry(entry);
+            linkEntryLast(entry, newBucket);
+        }
+    }
+
+    /**
+     * Remove entry from the table and from its bucket, and free it.
+     */
+    private void removeEntry(final int entry) {
+
+        final KType key = Intrinsics.<KType> cast(this.keys[entry]);
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            this.defaultKeyEntry = -1;
+
+        } else {
+
+            final int[] table = this.table;
+            final int mask = table.length - 1;
+
+            int slot = REHASH(key) & mask;
+
+            while (table[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+
+            shiftConflictingKeys(slot);
+        }
+
+        final int bucket = this.entryBuckets[entry];
+
+        unlinkEntry(entry);
+
+        if (getLinkAfter(this.entryLinks[this.maxSize + 2 * bucket]) == this.maxSize + 2 * bucket + 1) {
+
+            releaseBucket(bucket);
+        }
+
+        /*! #if ($TemplateOptions.KTypeGeneric) !*/
+        //help the GC
+        this.keys[entry] = Intrinsics.<KType> empty();
+        /*! #end !*/
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.values[entry] = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        this.freeEntries[this.freeEntriesCount++] = entry;
+    }
+
+    /**
+     * Shift all the slot-conflicting entries of {@link #table} allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(int gapSlot) {
+
+        final int[] table = this.table;
+        final int mask = table.length - 1;
+
+        final int perturb = this.perturbation;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        int distance = 0;
+        while (true) {
+
+            final int slot = (gapSlot + (++distance)) & mask;
+
+            final int existing = table[slot];
+
+            if (existing == 0) {
+                break;
+            }
+
+            final int idealSlotModMask = REHASH2(Intrinsics.<KType> cast(this.keys[existing - 1]), perturb) & mask;
+
+            final int shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                table[gapSlot] = existing;
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        table[gapSlot] = 0;
+    }
+
+    /**
+     * Take a free bucket of the given frequency, with an empty list of entries, linked after afterBucket
+     * (a bucket, or the head of the list of buckets).
+     */
+    private int allocateBucket(final long frequency, final int afterBucket) {
+
+        final long[] bucketLinks = this.bucketLinks;
+        final int bucket = this.freeBuckets[--this.freeBucketsCount];
+
+        this.frequencies[bucket] = frequency;
+
+        final int head = this.maxSize + 2 * bucket;
+        this.entryLinks[head] = getLinkNodeValue(head, head + 1);
+        this.entryLinks[head + 1] = getLinkNodeValue(head, head + 1);
+
+        final int next = getLinkAfter(bucketLinks[afterBucket]);
+
+        bucketLinks[bucket] = getLinkNodeValue(afterBucket, next);
+        bucketLinks[afterBucket] = setLinkAfterNodeValue(bucketLinks[afterBucket], bucket);
+        bucketLinks[next] = setLinkBeforeNodeValue(bucketLinks[next], bucket);
+
+        return bucket;
+    }
+
+    /**
+     * Unlink an empty bucket, and free it.
+     */
+    private void releaseBucket(final int bucket) {
+
+        final long[] bucketLinks = this.bucketLinks;
+
+        final int before = getLinkBefore(bucketLinks[bucket]);
+        final int after = getLinkAfter(bucketLinks[bucket]);
+
+        bucketLinks[before] = setLinkAfterNodeValue(bucketLinks[before], after);
+        bucketLinks[after] = setLinkBeforeNodeValue(bucketLinks[after], before);
+
+        this.freeBuckets[this.freeBucketsCount++] = bucket;
+    }
+
+    /**
+     * Link entry at the end of the list of bucket.
+     */
+    private void linkEntryLast(final int entry, final int bucket) {
+
+        final long[] entryLinks = this.entryLinks;
+        final int tail = this.maxSize + 2 * bucket + 1;
+
+        final int last = getLinkBefore(entryLinks[tail]);
+
+        entryLinks[entry] = getLinkNodeValue(last, tail);
+        entryLinks[last] = setLinkAfterNodeValue(entryLinks[last], entry);
+        entryLinks[tail] = setLinkBeforeNodeValue(entryLinks[tail], entry);
+
+        this.entryBuckets[entry] = bucket;
+    }
+
+    /**
+     * Unlink entry from the list of its bucket.
+     */
+    private void unlinkEntry(final int entry) {
+
+        final long[] entryLinks = this.entryLinks;
+
+        final int before = getLinkBefore(entryLinks[entry]);
+        final int after = getLinkAfter(entryLinks[entry]);
+
+        entryLinks[before] = setLinkAfterNodeValue(entryLinks[before], after);
+        entryLinks[after] = setLinkBeforeNodeValue(entryLinks[after], before);
+    }
+
+    /**
+     * Free all the entries and buckets, with an empty list of buckets.
+     */
+    private void resetLists() {
+
+        final int maxSize = this.maxSize;
+
+        //stacks, so that entries and buckets are taken from 0 upwards
+        for (int i = 0; i < maxSize; i++) {
+
+            this.freeEntries[i] = maxSize - 1 - i;
+            this.freeBuckets[i] = maxSize - 1 - i;
+        }
+
+        this.freeEntriesCount = maxSize;
+        this.freeBucketsCount = maxSize;
+
+        this.bucketLinks[maxSize] = getLinkNodeValue(maxSize, maxSize + 1);
+        this.bucketLinks[maxSize + 1] = getLinkNodeValue(maxSize, maxSize + 1);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("getLinkNodeValue(beforeIndex, afterIndex)",
+     "<*,*>==>((long) beforeIndex << 32) | afterIndex")) !*/
+    /**
+     * Builds a LinkList node value from its before an after links.
+     * (actual method is inlined in generated code)
+     */
+    private long getLinkNodeValue(final int beforeIndex, final int afterIndex) {
+        return ((long) beforeIndex << 32) | afterIndex;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkBefore(nodeValue)", "<*,*>==>(int) (nodeValue >> 32)")) !*/
+    private int getLinkBefore(final long nodeValue) {
+        return (int) (nodeValue >> 32);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkAfter(nodeValue)",
+       "<*,*>==>(int) (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private int getLinkAfter(final long nodeValue) {
+        return (int) (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkBeforeNodeValue(nodeValue, newBefore)",
+     "<*,*>==>((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private long setLinkBeforeNodeValue(final long nodeValue, final int newBefore) {
+        return ((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkAfterNodeValue(nodeValue, newAfter)",
+      "<*,*>==> newAfter | (nodeValue & 0xFFFFFFFF00000000L)")) !*/
+    private long setLinkAfterNodeValue(final long nodeValue, final int newAfter) {
+        return newAfter | (nodeValue & 0xFFFFFFFF00000000L);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<Object,*>==>BitMixer.mix(hashKey(value) , this.perturbation)",
+    "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(hashKey(value), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH2(value, perturb)",
+    "<Object,*>==>BitMixer.mix(hashKey(value) , perturb)",
+    "<*,*>==>BitMixer.mix(value , perturb)")) !*/
+    /**
+     * REHASH2 method for rehashing the keys with perturbation seed as parameter
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private int REHASH2(final KType value, final int perturb) {
+
+        return BitMixer.mix(hashKey(value), perturb);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("KEYEQUALS(key1, key2)",
+    "<Object,*>==>equalKeys(key1, key2)",
+    "<*,*>==>Intrinsics.<KType> equalsNotNull(key1, key2)")) !*/
+    /**
+     * macro which hides the applied equality criteria
+     */
+    private boolean KEYEQUALS(final KType key1, final KType key2) {
+
+        return equalKeys(key1, key2);
+    }
+    /*! #end !*/
+}
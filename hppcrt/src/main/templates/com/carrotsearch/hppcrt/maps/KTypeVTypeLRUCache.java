@@ -0,0 +1,99 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A bounded cache of <code>KType</code> to <code>VType</code>, evicting the least-recently used entry
+ * when a new key is put while the cache already holds {@link #maxSize()} entries.
+ * <p>
+ * This is a {@link KTypeVTypeLinkedHashMap} in access order, whose {@link #removeEldestEntry} evicts the eldest entry
+ * past {@link #maxSize()}: {@link #get(Object)} and {@link #put(Object, Object)} are O(1), and since the buffers are allocated
+ * for {@link #maxSize()} entries at construction, the cache never reallocates and allocates nothing in steady state.
+ * </p>
+ * <p>
+ * The evicted entries are given to the optional eviction listener, before their removal. Entries removed explicitly
+ * by {@link #remove(Object)}, removeAll() or {@link #clear()} are not.
+ * A miss of {@link #get(Object)} returns the default value, see {@link #setDefaultValue(Object)}.
+ * </p>
+ * @see KTypeVTypeLFUCache
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLRUCache<KType, VType>
+extends KTypeVTypeLinkedHashMap<KType, VType>
+{
+    /**
+     * Max number of entries.
+     */
+    protected final int maxSize;
+
+    /**
+     * Receives the evicted entries, or null.
+     */
+    protected final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener;
+
+    /**
+     * Creates a cache of at most maxSize entries, without eviction listener.
+     */
+    public KTypeVTypeLRUCache(final int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Creates a cache of at most maxSize entries.
+     * @param maxSize max number of entries (greater than zero)
+     * @param evictionListener receives the evicted entries, or null.
+     */
+    public KTypeVTypeLRUCache(final int maxSize, final KTypeVTypeProcedure<? super KType, ? super VType> evictionListener) {
+        //maxSize + 1: a new key is inserted before the eldest one is evicted.
+        super(maxSize + 1, HashContainers.DEFAULT_LOAD_FACTOR, true);
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Evicts the eldest entry when the cache holds more than {@link #maxSize()} entries.
+     */
+    @Override
+    protected boolean removeEldestEntry(final KType eldestKey, final VType eldestValue) {
+
+        if (size() > this.maxSize) {
+
+            if (this.evictionListener != null) {
+                this.evictionListener.apply(eldestKey, eldestValue);
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the max number of entries of the cache.
+     */
+    public int maxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The clone has the same max size and eviction listener, and the same access order.</p>
+     */
+    @Override
+    public KTypeVTypeLRUCache<KType, VType> clone() {
+
+        final KTypeVTypeLRUCache<KType, VType> cloned = new KTypeVTypeLRUCache<KType, VType>(this.maxSize, this.evictionListener);
+
+        cloned.setDefaultValue(getDefaultValue());
+        cloned.putAll(this);
+
+        return cloned;
+    }
+}
@@ -0,0 +1,1230 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+// Must be the same as in KTypeVTypeHashMap, whose buffers are shared:
+/*! #set( $ROBIN_HOOD_FOR_GENERICS = true) !*/
+// If RH is defined, RobinHood Hashing is in effect :
+/*! #set( $RH = ($TemplateOptions.KTypeGeneric && $ROBIN_HOOD_FOR_GENERICS) ) !*/
+/**
+ * A {@link KTypeVTypeHashMap} whose entries are in addition chained in a doubly-linked list giving a predictable iteration order:
+ * <p>
+ * - in insertion order (the default): re-inserting an existing key does not change its position,
+ * </p>
+ * <p>
+ * - in access order: a successful {@link #get(Object)} or {@link #put(Object, Object)} moves the key to the end of the list,
+ * so that the list goes from the least-recently accessed key to the most-recently accessed one, the order of a LRU cache.
+ * </p>
+ * <p>
+ * The hashing, lookups and removals are the ones of {@link KTypeVTypeHashMap}, on the same buffers. The links are the packed before/after
+ * <code>long</code> nodes of {@link com.carrotsearch.hppcrt.lists.KTypeLinkedList},
+ * stored in {@link #beforeAfterPointers} along the slots of {@link #keys} and {@link #values}: the node of slot i is
+ * beforeAfterPointers[i], followed by the node of the 0/null key, then the head and the tail of the list.
+ * Nothing is allocated per entry, and when keys are moved by the backward-shift deletion, their node moves with them.
+ * </p>
+ * <p>
+ * Iterators, forEach() and the keys() and values() views follow the list order, from the eldest entry to the newest one.
+ * {@link #removeEldestEntry} can be overridden to automatically evict the eldest entry on insertion, like
+ * <code>java.util.LinkedHashMap</code> does.
+ * </p>
+ *
+#if ($TemplateOptions.KTypeGeneric)
+ * <p> In addition, the hashing strategy can be changed
+ * by overriding ({@link #equalKeys(Object, Object)} and {@link #hashKey(Object)}) together,
+ * which then replaces the usual ({@link #equals(Object)} and {@link #hashCode()}) from the keys themselves.
+ * This is useful to define the equivalence of keys when the user has no control over the keys implementation.
+ * </p>
+#end
+ *
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ *
+#if ($RH)
+ * <p>As in {@link KTypeVTypeHashMap}, Robin-Hood hashing is used: the nodes of the keys displaced by an insertion
+ * are moved along with them, through two spare nodes after the tail.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLinkedHashMap<KType, VType>
+extends KTypeVTypeHashMap<KType, VType>
+{
+    /**
+     * Links of the list of entries, as in {@link com.carrotsearch.hppcrt.lists.KTypeLinkedList}:
+     * the 32 highest bits of a node are the index of the node before it, and the 32 lowest bits the index of the node after it.
+     * <p>
+     * - beforeAfterPointers[i] for i in [0; keys.length[ is the node of the key in slot i, if any,
+     * </p>
+     * <p>
+     * - beforeAfterPointers[keys.length] is the node of the key 0/null, if {@link #allocatedDefaultKey} = true,
+     * </p>
+     * <p>
+     * - beforeAfterPointers[keys.length + 1] and beforeAfterPointers[keys.length + 2] are the head and the tail of the list.
+     * The node "before" the head is the head, and the node "after" the tail is the tail.
+     * </p>
+#if ($RH)
+     * <p>
+     * - beforeAfterPointers[keys.length + 3] and beforeAfterPointers[keys.length + 4] are spare nodes, carrying the nodes of
+     * the keys displaced by an insertion.
+     * </p>
+#end
+     */
+    public long[] beforeAfterPointers;
+
+    /**
+     * True for access order, false for insertion order.
+     */
+    protected final boolean accessOrder;
+
+    /**
+     * Default constructor: Creates a hash map in insertion order with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeLinkedHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map in insertion order with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeLinkedHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map in insertion order with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeLinkedHashMap(final int initialCapacity, final double loadFactor) {
+        this(initialCapacity, loadFactor, false);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor and ordering.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     * @param accessOrder true for access order, false for insertion order.
+     */
+    public KTypeVTypeLinkedHashMap(final int initialCapacity, final double loadFactor, final boolean accessOrder) {
+        super(initialCapacity, loadFactor);
+        this.accessOrder = accessOrder;
+    }
+
+    /**
+     * Create a hash map in insertion order from all key-value pairs of another container,
+     * in the iteration order of the container.
+     */
+    public KTypeVTypeLinkedHashMap(final KTypeVTypeAssociativeContainer<KType, VType> container) {
+        this(container.size());
+        putAll(container);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>In access order, an existing key is moved to the end of the list.</p>
+     */
+    @Override
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            final int defaultNode = this.keys.length;
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+                this.allocatedDefaultKeyValue = value;
+
+                if (this.accessOrder) {
+                    moveToLast(defaultNode);
+                }
+
+                return previousValue;
+            }
+
+            this.allocatedDefaultKeyValue = value;
+            this.allocatedDefaultKey = true;
+
+            linkLast(defaultNode);
+            afterInsertion();
+
+            return this.defaultValue;
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        /*! #if ($RH) !*/
+        final int[] cached = this.hash_cache;
+        int dist = 0;
+        /*! #end !*/
+
+        //as in lookupSlot(), stop at the first free slot, or at the first slot
+        //where the Robin-hood insertion would swap key in.
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])
+                /*! #if ($RH) !*/&& dist <= probe_distance(slot, cached) /*! #end !*/) {
+
+            if (KEYEQUALS(key, existing)) {
+
+                final VType oldValue = Intrinsics.<VType> cast(this.values[slot]);
+                this.values[slot] = value;
+
+                if (this.accessOrder) {
+                    moveToLast(slot);
+                }
+
+                return oldValue;
+            }
+
+            slot = (slot + 1) & mask;
+
+            /*! #if ($RH) !*/
+            dist++;
+            /*! #end !*/
+        } //end while
+
+        // Check if we need to grow. If so, reallocate new data, fill in the last element
+        // and rehash.
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, value);
+        } else {
+
+            this.assigned++;
+
+            /*! #if ($RH) !*/
+            insertAt(key, value, slot, dist);
+            /*! #else
+            keys[slot] = key;
+            this.values[slot] = value;
+            #end !*/
+
+            linkLast(slot);
+        }
+
+        afterInsertion();
+
+        return this.defaultValue;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * {@inheritDoc}
+     * <p>In access order, an existing key is moved to the end of the list.</p>
+     */
+    @SuppressWarnings("cast")
+    @Override
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        //update in place an existing key, found by a single lookup
+        final int node = lookupNode(key);
+
+        if (node == -1) {
+
+            put(key, putValue);
+            return putValue;
+        }
+
+        final VType newValue;
+
+        if (node == this.keys.length) {
+
+            this.allocatedDefaultKeyValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+            newValue = this.allocatedDefaultKeyValue;
+
+        } else {
+
+            final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+            values[node] = (VType) (Intrinsics.<VType> add(values[node], incrementValue));
+            newValue = values[node];
+        }
+
+        if (this.accessOrder) {
+            moveToLast(node);
+        }
+
+        return newValue;
+    }
+
+    /*! #end !*/
+
+    /**
+     * Called after the insertion of a new key by {@link #put(Object, Object)} with the eldest entry of the map,
+     * i.e the least-recently inserted one in insertion order, or the least-recently accessed one in access order.
+     * If it returns true, the eldest entry is removed: this is the hook to implement a bounded cache.
+     * <p>
+     * By default, returns false: the map is unbounded. The implementation may also modify the map itself,
+     * then returning false.
+     * </p>
+     * @param eldestKey the key of the eldest entry
+     * @param eldestValue the value of the eldest entry
+     * @return true if the eldest entry must be removed.
+     */
+    protected boolean removeEldestEntry(final KType eldestKey, final VType eldestValue) {
+
+        return false;
+    }
+
+    /**
+     * The key of the eldest entry, first of the iteration order. The map must not be empty.
+     */
+    public KType eldestKey() {
+        assert size() > 0 : "The map is empty.";
+
+        return keyAt(getLinkAfter(this.beforeAfterPointers[this.keys.length + 1]));
+    }
+
+    /**
+     * The value of the eldest entry, first of the iteration order. The map must not be empty.
+     */
+    public VType eldestValue() {
+        assert size() > 0 : "The map is empty.";
+
+        return valueAt(getLinkAfter(this.beforeAfterPointers[this.keys.length + 1]));
+    }
+
+    /**
+     * Remove the eldest entry, first of the iteration order. The map must not be empty.
+     * @return the value of the removed entry.
+     */
+    public VType removeEldest() {
+        assert size() > 0 : "The map is empty.";
+
+        final int eldest = getLinkAfter(this.beforeAfterPointers[this.keys.length + 1]);
+
+        final VType value = valueAt(eldest);
+
+        removeNode(eldest);
+
+        return value;
+    }
+
+    /**
+     * Evict the eldest entry if {@link #removeEldestEntry} tells so.
+     */
+    private void afterInsertion() {
+
+        final int eldest = getLinkAfter(this.beforeAfterPointers[this.keys.length + 1]);
+
+        if (removeEldestEntry(keyAt(eldest), valueAt(eldest))) {
+
+            //removeEldestEntry() may have modified the map
+            if (size() > 0) {
+
+                removeNode(getLinkAfter(this.beforeAfterPointers[this.keys.length + 1]));
+            }
+        }
+    }
+
+    /**
+     * Expand the internal storage buffers (capacity) and rehash, keeping the order of the list.
+     */
+    private void expandAndPut(final KType pendingKey, final VType pendingValue) {
+        assert this.assigned == this.resizeAt;
+
+        //default sentinel value is never in the keys[] array, so never trigger reallocs
+        assert !Intrinsics.<KType> isEmpty(pendingKey);
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] oldValues = Intrinsics.<VType[]> cast(this.values);
+        final long[] oldPointers = this.beforeAfterPointers;
+
+        allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
+
+        this.resizeCount++;
+
+        final int oldDefaultNode = oldKeys.length;
+        final int oldTail = oldKeys.length + 2;
+
+        //re-insert the keys following the old list, so that they are linked in the same order.
+        int node = getLinkAfter(oldPointers[oldKeys.length + 1]);
+
+        while (node != oldTail) {
+
+            if (node == oldDefaultNode) {
+
+                linkLast(this.keys.length);
+
+            } else {
+
+                insertLast(oldKeys[node], oldValues[node]);
+            }
+
+            node = getLinkAfter(oldPointers[node]);
+        } //end while
+
+        //finally insert the pending key, the newest of the list.
+        this.assigned++;
+
+        insertLast(pendingKey, pendingValue);
+    }
+
+    /**
+     * Insert a key known to be absent, with no growth check, and link it at the end of the list.
+     */
+    private void insertLast(final KType key, final VType value) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+
+        /*! #if ($RH) !*/
+        final int[] cached = this.hash_cache;
+        int dist = 0;
+        /*! #end !*/
+
+        while (is_allocated(slot, keys)
+                /*! #if ($RH) !*/&& dist <= probe_distance(slot, cached) /*! #end !*/) {
+
+            slot = (slot + 1) & mask;
+
+            /*! #if ($RH) !*/
+            dist++;
+            /*! #end !*/
+        }
+
+        /*! #if ($RH) !*/
+        insertAt(key, value, slot, dist);
+        /*! #else
+        keys[slot] = key;
+        this.values[slot] = value;
+        #end !*/
+
+        linkLast(slot);
+    }
+
+    /*! #if ($RH) !*/
+    /**
+     * Robin-hood insertion of a key known to be absent at slot, reached at the probe distance dist: the entry found there, if any,
+     * is pushed further as in {@link KTypeVTypeHashMap#put(Object, Object)}, with its node. So the node of slot is free for key.
+     */
+    private void insertAt(KType key, VType value, int slot, int dist) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+        final int[] cached = this.hash_cache;
+
+        //the spare nodes alternately hold the node of the entry being pushed, -1 while it is key itself, not linked yet.
+        final int spareNode = this.keys.length + 3;
+        int carriedNode = -1;
+
+        KType tmpKey;
+        VType tmpValue;
+        int tmpAllocated;
+        int initial_slot = (slot - dist) & mask;
+        int existing_distance = 0;
+
+        while (is_allocated(slot, keys)) {
+
+            existing_distance = probe_distance(slot, cached);
+
+            if (dist > existing_distance) {
+
+                //swap current (key, value, initial_slot) with slot places
+                tmpKey = keys[slot];
+                keys[slot] = key;
+                key = tmpKey;
+
+                tmpAllocated = cached[slot];
+                cached[slot] = initial_slot;
+                initial_slot = tmpAllocated;
+
+                tmpValue = values[slot];
+                values[slot] = value;
+                value = tmpValue;
+
+                //swap the nodes the same way, through the free spare node
+                final int freeNode = (carriedNode == spareNode) ? spareNode + 1 : spareNode;
+
+                moveNode(slot, freeNode);
+
+                if (carriedNode != -1) {
+                    moveNode(carriedNode, slot);
+                }
+
+                carriedNode = freeNode;
+
+                dist = existing_distance;
+            }
+
+            slot = (slot + 1) & mask;
+            dist++;
+        } //end while
+
+        cached[slot] = initial_slot;
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (carriedNode != -1) {
+            moveNode(carriedNode, slot);
+        }
+    }
+
+    /*! #end !*/
+
+    /**
+     * {@inheritDoc}
+     * <p>The links are allocated too, with an empty list.</p>
+     */
+    @Override
+    void allocateBuffers(final int capacity) {
+
+        final long[] pointers;
+
+        //allocate the links first: if we OOM, the map is left untouched.
+        try {
+
+            pointers = new long[capacity + /*! #if ($RH) !*/5/*! #else 3 #end !*/];
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0 : this.keys.length,
+                            capacity);
+        }
+
+        super.allocateBuffers(capacity);
+
+        this.beforeAfterPointers = pointers;
+
+        resetLinks();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The node of gapSlot is unlinked first, then the nodes of the shifted keys move along with them.</p>
+     */
+    @Override
+    void shiftConflictingKeys(final int gapSlot) {
+
+        unlink(gapSlot);
+
+        super.shiftConflictingKeys(gapSlot);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void afterSlotMove(final int fromSlot, final int toSlot) {
+
+        moveNode(fromSlot, toSlot);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void removeDefaultKey() {
+
+        unlink(this.keys.length);
+
+        super.removeDefaultKey();
+    }
+
+    /**
+     * Remove the entry of node, either a slot or the node of the key 0/null.
+     */
+    private void removeNode(final int node) {
+
+        if (node == this.keys.length) {
+
+            removeDefaultKey();
+
+        } else {
+
+            shiftConflictingKeys(node);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>In access order, a found key is moved to the end of the list.</p>
+     */
+    @Override
+    public VType get(final KType key) {
+
+        if (!this.accessOrder) {
+
+            return super.get(key);
+        }
+
+        final int node = lookupNode(key);
+
+        if (node == -1) {
+
+            return this.defaultValue;
+        }
+
+        moveToLast(node);
+
+        return valueAt(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>In access order, this is a loop of {@link #get}, moving the found keys to the end of the list in turn.</p>
+     */
+    @Override
+    public VType[] getAll(final KType[] keys, final VType[] result) {
+
+        if (!this.accessOrder) {
+
+            return super.getAll(keys, result);
+        }
+
+        if (result.length < keys.length) {
+            throw new IllegalArgumentException("result is smaller than keys: " + result.length + " < " + keys.length);
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+
+            result[i] = get(keys[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+
+        super.clear();
+
+        //nodes of free slots are never read, only the list needs to be emptied.
+        resetLinks();
+    }
+
+    /**
+     * @return true if this map is in access order, false if in insertion order.
+     */
+    public boolean isAccessOrder() {
+        return this.accessOrder;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>As for <code>java.util.LinkedHashMap</code>, the order of the entries is not compared.</p>
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj != null) {
+            if (obj == this) {
+                return true;
+            }
+
+            //must be of the same class, subclasses are not comparable
+            if (obj.getClass() != this.getClass()) {
+                return false;
+            }
+
+            /* #if ($TemplateOptions.AnyGeneric) */
+            @SuppressWarnings("unchecked")
+            final/* #end */
+            KTypeVTypeLinkedHashMap<KType, VType> other = (KTypeVTypeLinkedHashMap<KType, VType>) obj;
+
+            //must be of the same size
+            if (other.size() != this.size()) {
+                return false;
+            }
+
+            final EntryIterator it = this.iterator();
+
+            while (it.hasNext()) {
+                final KTypeVTypeCursor<KType, VType> c = it.next();
+
+                //do not use get(), which would reorder other in access order.
+                final int otherNode = other.lookupNode(c.key);
+
+                if (otherNode < 0 || !Intrinsics.<VType> equals(c.value, other.valueAt(otherNode))) {
+                    //recycle
+                    it.release();
+                    return false;
+                }
+            } //end while
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * An iterator implementation for {@link #iterator}, following the list order.
+     * Holds a KTypeVTypeCursor returning
+     * (key, value, index) = (KType key, VType value, index the position in keys {@link KTypeVTypeLinkedHashMap#keys}, or keys.length for key = 0/null)
+     */
+    public final class LinkedEntryIterator extends EntryIterator
+    {
+        @Override
+        protected KTypeVTypeCursor<KType, VType> fetch() {
+
+            final int next = getLinkAfter(KTypeVTypeLinkedHashMap.this.beforeAfterPointers[this.cursor.index]);
+
+            if (next == KTypeVTypeLinkedHashMap.this.keys.length + 2) {
+                return done();
+            }
+
+            this.cursor.index = next;
+            this.cursor.key = keyAt(next);
+            this.cursor.value = valueAt(next);
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The iteration starts at the head of the list, whose index is keys.length + 1 too.</p>
+     */
+    @Override
+    EntryIterator newEntryIterator() {
+        return new LinkedEntryIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        final long[] pointers = this.beforeAfterPointers;
+        final int tail = this.keys.length + 2;
+
+        int node = getLinkAfter(pointers[this.keys.length + 1]);
+
+        while (node != tail) {
+
+            procedure.apply(keyAt(node), valueAt(node));
+
+            node = getLinkAfter(pointers[node]);
+        }
+
+        return procedure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        final long[] pointers = this.beforeAfterPointers;
+        final int tail = this.keys.length + 2;
+
+        int node = getLinkAfter(pointers[this.keys.length + 1]);
+
+        while (node != tail) {
+
+            if (!predicate.apply(keyAt(node), valueAt(node))) {
+                break;
+            }
+
+            node = getLinkAfter(pointers[node]);
+        }
+
+        return predicate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return a new KeysCollection view of the keys of this map, in the list order.
+     */
+    @Override
+    public KeysCollection keys() {
+        return new LinkedKeysCollection();
+    }
+
+    /**
+     * A view of the keys inside this map, in the list order.
+     */
+    public final class LinkedKeysCollection extends KeysCollection
+    {
+        private final KTypeVTypeLinkedHashMap<KType, VType> owner = KTypeVTypeLinkedHashMap.this;
+
+        @Override
+        public <T extends KTypeProcedure<? super KType>> T forEach(final T procedure) {
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                procedure.apply(this.owner.keyAt(node));
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            return procedure;
+        }
+
+        @Override
+        public <T extends KTypePredicate<? super KType>> T forEach(final T predicate) {
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                if (!predicate.apply(this.owner.keyAt(node))) {
+                    break;
+                }
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            return predicate;
+        }
+
+        @Override
+        public KType[] toArray(final KType[] target) {
+            int count = 0;
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                target[count++] = this.owner.keyAt(node);
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            assert count == this.owner.size();
+            return target;
+        }
+    }
+
+    /**
+     * An iterator over the set of keys, following the list order.
+     * Holds a KTypeCursor returning (value, index) = (KType key, index the position in buffer {@link KTypeVTypeLinkedHashMap#keys}, or keys.length for key = 0/null.)
+     */
+    public final class LinkedKeysIterator extends KeysIterator
+    {
+        @Override
+        protected KTypeCursor<KType> fetch() {
+
+            final int next = getLinkAfter(KTypeVTypeLinkedHashMap.this.beforeAfterPointers[this.cursor.index]);
+
+            if (next == KTypeVTypeLinkedHashMap.this.keys.length + 2) {
+                return done();
+            }
+
+            this.cursor.index = next;
+            this.cursor.value = keyAt(next);
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    KeysIterator newKeysIterator() {
+        return new LinkedKeysIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return a new ValuesCollection view of the values of this map, in the list order.
+     */
+    @Override
+    public ValuesCollection values() {
+        return new LinkedValuesCollection();
+    }
+
+    /**
+     * A view over the set of values of this map, in the list order.
+     */
+    public final class LinkedValuesCollection extends ValuesCollection
+    {
+        private final KTypeVTypeLinkedHashMap<KType, VType> owner = KTypeVTypeLinkedHashMap.this;
+
+        @Override
+        public <T extends KTypeProcedure<? super VType>> T forEach(final T procedure) {
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                procedure.apply(this.owner.valueAt(node));
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            return procedure;
+        }
+
+        @Override
+        public <T extends KTypePredicate<? super VType>> T forEach(final T predicate) {
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                if (!predicate.apply(this.owner.valueAt(node))) {
+                    break;
+                }
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            return predicate;
+        }
+
+        @Override
+        public VType[] toArray(final VType[] target) {
+            int count = 0;
+
+            final long[] pointers = this.owner.beforeAfterPointers;
+            final int tail = this.owner.keys.length + 2;
+
+            int node = getLinkAfter(pointers[this.owner.keys.length + 1]);
+
+            while (node != tail) {
+
+                target[count++] = this.owner.valueAt(node);
+
+                node = getLinkAfter(pointers[node]);
+            }
+
+            assert count == this.owner.size();
+            return target;
+        }
+    }
+
+    /**
+     * An iterator over the set of values, following the list order.
+     * Holds a KTypeCursor returning (value, index) = (VType value, index the position in buffer {@link KTypeVTypeLinkedHashMap#values},
+     * or values.length for value = {@link KTypeVTypeLinkedHashMap#allocatedDefaultKeyValue}).
+     */
+    public final class LinkedValuesIterator extends ValuesIterator
+    {
+        @Override
+        protected KTypeCursor<VType> fetch() {
+
+            final int next = getLinkAfter(KTypeVTypeLinkedHashMap.this.beforeAfterPointers[this.cursor.index]);
+
+            if (next == KTypeVTypeLinkedHashMap.this.keys.length + 2) {
+                return done();
+            }
+
+            this.cursor.index = next;
+            this.cursor.value = valueAt(next);
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    ValuesIterator newValuesIterator() {
+        return new LinkedValuesIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The clone has the same ordering and the same list order.</p>
+     */
+    @Override
+    public KTypeVTypeLinkedHashMap<KType, VType> clone() {
+        //clone to size() to prevent some cases of exponential sizes,
+        final KTypeVTypeLinkedHashMap<KType, VType> cloned = new KTypeVTypeLinkedHashMap<KType, VType>(this.size(), this.loadFactor, this.accessOrder);
+
+        //We must NOT clone because of independent perturbations seeds
+        cloned.putAll(this);
+
+        return cloned;
+    }
+
+    /**
+     * Creates a hash map in insertion order from two index-aligned arrays of key-value pairs. Default load factor is used.
+     */
+    public static <KType, VType> KTypeVTypeLinkedHashMap<KType, VType> from(final KType[] keys, final VType[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Arrays of keys and values must have an identical length.");
+        }
+
+        final KTypeVTypeLinkedHashMap<KType, VType> map = new KTypeVTypeLinkedHashMap<KType, VType>(keys.length);
+
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Create a hash map in insertion order from another associative container. (constructor shortcut) Default load factor is used.
+     */
+    public static <KType, VType> KTypeVTypeLinkedHashMap<KType, VType> from(
+            final KTypeVTypeAssociativeContainer<KType, VType> container) {
+        return new KTypeVTypeLinkedHashMap<KType, VType>(container);
+    }
+
+    /**
+     * Create a new hash map in insertion order without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeLinkedHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeLinkedHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity, load factor and ordering control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeLinkedHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor, final boolean accessOrder) {
+        return new KTypeVTypeLinkedHashMap<KType, VType>(initialCapacity, loadFactor, accessOrder);
+    }
+
+    /**
+     * The node of key: its slot, keys.length for the key 0/null, or -1 if not found.
+     */
+    private int lookupNode(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey ? this.keys.length : -1;
+        }
+
+        return lookupSlot(key);
+    }
+
+    /**
+     * The key of an allocated node.
+     */
+    private KType keyAt(final int node) {
+
+        if (node == this.keys.length) {
+
+            return Intrinsics.<KType> empty();
+        }
+
+        return Intrinsics.<KType> cast(this.keys[node]);
+    }
+
+    /**
+     * The value of an allocated node.
+     */
+    private VType valueAt(final int node) {
+
+        if (node == this.keys.length) {
+
+            return this.allocatedDefaultKeyValue;
+        }
+
+        return Intrinsics.<VType> cast(this.values[node]);
+    }
+
+    /**
+     * Empty the list: the head is linked to the tail.
+     */
+    private void resetLinks() {
+
+        final int head = this.keys.length + 1;
+        final int tail = this.keys.length + 2;
+
+        //the element "before" the head is still the head,
+        //and the element "after" the tail is the tail, so that it is impossible to go out of range.
+        this.beforeAfterPointers[head] = getLinkNodeValue(head, tail);
+        this.beforeAfterPointers[tail] = getLinkNodeValue(head, tail);
+    }
+
+    /**
+     * Link node at the end of the list, just before the tail.
+     */
+    private void linkLast(final int node) {
+
+        final long[] pointers = this.beforeAfterPointers;
+        final int tail = this.keys.length + 2;
+
+        final int last = getLinkBefore(pointers[tail]);
+
+        //link it as: [last | tail]
+        pointers[node] = getLinkNodeValue(last, tail);
+
+        //[.. | tail] ==> [.. | node]
+        pointers[last] = setLinkAfterNodeValue(pointers[last], node);
+
+        //[last | ..] ==> [node | ..]
+        pointers[tail] = setLinkBeforeNodeValue(pointers[tail], node);
+    }
+
+    /**
+     * Unlink node from the list, linking its neighbours together.
+     */
+    private void unlink(final int node) {
+
+        final long[] pointers = this.beforeAfterPointers;
+
+        final int before = getLinkBefore(pointers[node]);
+        final int after = getLinkAfter(pointers[node]);
+
+        //[... | node] ==> [... | after]
+        pointers[before] = setLinkAfterNodeValue(pointers[before], after);
+
+        //[node | ...] ==> [before | ...]
+        pointers[after] = setLinkBeforeNodeValue(pointers[after], before);
+    }
+
+    /**
+     * Move node to the end of the list, if not already there.
+     */
+    private void moveToLast(final int node) {
+
+        if (getLinkAfter(this.beforeAfterPointers[node]) != this.keys.length + 2) {
+
+            unlink(node);
+            linkLast(node);
+        }
+    }
+
+    /**
+     * Move the node of a linked slot to an unlinked slot, re-linking its neighbours
+     * to it, so that its position in the list is unchanged.
+     */
+    private void moveNode(final int fromSlot, final int toSlot) {
+
+        final long[] pointers = this.beforeAfterPointers;
+
+        final int before = getLinkBefore(pointers[fromSlot]);
+        final int after = getLinkAfter(pointers[fromSlot]);
+
+        pointers[toSlot] = pointers[fromSlot];
+
+        //[... | fromSlot] ==> [... | toSlot]
+        pointers[before] = setLinkAfterNodeValue(pointers[before], toSlot);
+
+        //[fromSlot | ...] ==> [toSlot | ...]
+        pointers[after] = setLinkBeforeNodeValue(pointers[after], toSlot);
+    }
+
+    //Test for existence in template
+    /*! #if ($TemplateOptions.declareInline("is_allocated(slot, keys)",
+        "<*,*>==>!Intrinsics.<KType>isEmpty(keys[slot])")) !*/
+    /**
+     *  template version
+     * (actual method is inlined in generated code)
+     */
+    private boolean is_allocated(final int slot, final KType[] keys) {
+
+        return !Intrinsics.<KType> isEmpty(keys[slot]);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkNodeValue(beforeIndex, afterIndex)",
+     "<*,*>==>((long) beforeIndex << 32) | afterIndex")) !*/
+    /**
+     * Builds a LinkList node value from its before an after links.
+     * (actual method is inlined in generated code)
+     */
+    private long getLinkNodeValue(final int beforeIndex, final int afterIndex) {
+        return ((long) beforeIndex << 32) | afterIndex;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkBefore(nodeValue)", "<*,*>==>(int) (nodeValue >> 32)")) !*/
+    private int getLinkBefore(final long nodeValue) {
+        return (int) (nodeValue >> 32);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("getLinkAfter(nodeValue)",
+       "<*,*>==>(int) (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private int getLinkAfter(final long nodeValue) {
+        return (int) (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkBeforeNodeValue(nodeValue, newBefore)",
+     "<*,*>==>((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL)")) !*/
+    private long setLinkBeforeNodeValue(final long nodeValue, final int newBefore) {
+        return ((long) newBefore << 32) | (nodeValue & 0x00000000FFFFFFFFL);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("setLinkAfterNodeValue(nodeValue, newAfter)",
+      "<*,*>==> newAfter | (nodeValue & 0xFFFFFFFF00000000L)")) !*/
+    private long setLinkAfterNodeValue(final long nodeValue, final int newAfter) {
+        return newAfter | (nodeValue & 0xFFFFFFFF00000000L);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<Object,*>==>BitMixer.mix(hashKey(value) , this.perturbation)",
+    "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     * Thanks to single array mode, no need to check for null/0 or booleans.
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(hashKey(value), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("KEYEQUALS(key1, key2)",
+    "<Object,*>==>equalKeys(key1, key2)",
+    "<*,*>==>Intrinsics.<KType> equalsNotNull(key1, key2)")) !*/
+    /**
+     * macro which hides the applied equality criteria
+     */
+    private boolean KEYEQUALS(final KType key1, final KType key2) {
+
+        return equalKeys(key1, key2);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,738 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/*! ${TemplateOptions.doNotGenerateVType("Object")} !*/
+/**
+ * A read-only hash map of <code>KType</code> to <code>VType</code>, memory-mapped from a file
+ * written by {@link #write(KTypeVTypeHashMap, File)}.
+ * <p>
+ * The file is an image of the buffers of a {@link KTypeVTypeHashMap}: same power-of-two table,
+ * same perturbation and {@link BitMixer} mix, so that the lookups of this map follow exactly the same probing sequences
+ * as in the original map. Opening a file with {@link #open(File)} only reads a fixed-size header and maps
+ * the buffers, whatever the map size: there is no deserialization nor rehashing, and the pages are loaded lazily
+ * by the OS as the lookups touch them. Several processes may map the same file and share its memory.
+ * </p>
+ * <p>
+ * The file is written in the native byte order, and can be read back on any platform.
+ * The file must not be modified while mapped. The mapping is released by {@link #close()}, after which the map must not be used anymore.
+ * </p>
+ * <p>
+ * The API follows the read-only part of {@link KTypeVTypeMap} ({@link #get}, {@link #containsKey}, {@link #forEach(KTypeVTypeProcedure)}...).
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeMappedHashMap<KType, VType> implements Closeable
+{
+    /**
+     * "HPPCRTMM", the first 8 bytes of the file.
+     */
+    private static final long MAGIC = 0x4850504352544D4DL;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the file header, the keys start right after it.
+     */
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * Offset of the value associated to the key 0 in the header.
+     */
+    private static final int HEADER_DEFAULT_KEY_VALUE = 32;
+
+    /*! #if ($TemplateOptions.KTypePrimitive)
+    private static final String KEY_TYPE = "$TemplateOptions.KType.Type";
+    #else !*/
+    private static final String KEY_TYPE = "Object";
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive)
+    private static final String VALUE_TYPE = "$TemplateOptions.VType.Type";
+    #else !*/
+    private static final String VALUE_TYPE = "Object";
+    /*! #end !*/
+
+    /**
+     * Identifies the key and value types of the file.
+     */
+    private static final int SIGNATURE = (KTypeVTypeMappedHashMap.KEY_TYPE + "->" + KTypeVTypeMappedHashMap.VALUE_TYPE).hashCode();
+
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Hash-indexed pages mapping all keys: slot i is the (i & {@link #pageMask})-th key of page keys[i >>> {@link #pageShift}].
+     */
+    public ByteBuffer[] keys;
+
+    /**
+     * Hash-indexed pages mapping all values associated to the keys
+     * stored in {@link #keys}.
+     */
+    public ByteBuffer[] values;
+
+    /**
+     * True if key = 0 is in the map.
+     */
+    public final boolean allocatedDefaultKey;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = 0
+     */
+    public final VType allocatedDefaultKeyValue;
+
+    /**
+     * Number of assigned slots in {@link #keys}.
+     */
+    protected final int assigned;
+
+    /**
+     * Total number of slots of the buffers minus 1.
+     */
+    protected final int mask;
+
+    /**
+     * Slot i is in page i >>> pageShift.
+     */
+    protected final int pageShift;
+
+    /**
+     * Slot i is at index i & pageMask of its page.
+     */
+    protected final int pageMask;
+
+    /**
+     * Perturbation of the written map, so that keys are found where it had put them.
+     */
+    protected final int perturbation;
+
+    /**
+     * Use {@link #open(File)}.
+     */
+    private KTypeVTypeMappedHashMap(final ByteBuffer[] keys, final ByteBuffer[] values, final int length, final int pageShift,
+            final int perturbation, final int assigned, final boolean allocatedDefaultKey, final VType allocatedDefaultKeyValue) {
+
+        this.keys = keys;
+        this.values = values;
+        this.mask = length - 1;
+        this.pageShift = pageShift;
+        this.pageMask = (1 << pageShift) - 1;
+        this.perturbation = perturbation;
+        this.assigned = assigned;
+        this.allocatedDefaultKey = allocatedDefaultKey;
+        this.allocatedDefaultKeyValue = allocatedDefaultKeyValue;
+    }
+
+    /**
+     * Write the contents of map to file, replacing it if it exists, so that it can be mapped by {@link #open(File)}.
+     * (a {@link KTypeVTypeStrategyHashMap} is first copied into a map with the default hashing)
+     */
+    public static <KType, VType> void write(final KTypeVTypeHashMap<KType, VType> map, final File file) throws IOException {
+
+        if (map instanceof KTypeVTypeStrategyHashMap<?, ?>) {
+
+            //the lookups of the mapped map follow the default hashing
+            KTypeVTypeMappedHashMap.write(new KTypeVTypeHashMap<KType, VType>(map), file);
+            return;
+        }
+
+        final int length = map.keys.length;
+        final int pageShift = KTypeVTypeMappedHashMap.pageShift(length, HashContainers.MAX_HASH_ARRAY_LENGTH);
+
+        final ByteBuffer header = ByteBuffer.allocate(KTypeVTypeMappedHashMap.HEADER_SIZE).order(ByteOrder.nativeOrder());
+
+        header.putLong(0, KTypeVTypeMappedHashMap.MAGIC);
+        header.putInt(8, KTypeVTypeMappedHashMap.VERSION);
+        header.putInt(12, KTypeVTypeMappedHashMap.SIGNATURE);
+        header.putInt(16, map.perturbation);
+        header.putInt(20, length);
+        header.putInt(24, map.assigned);
+        header.putInt(28, map.allocatedDefaultKey ? 1 : 0);
+
+        if (map.allocatedDefaultKey) {
+
+            setValue(header, KTypeVTypeMappedHashMap.HEADER_DEFAULT_KEY_VALUE / VALUE_BYTES(1), map.allocatedDefaultKeyValue);
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+
+            final FileChannel channel = raf.getChannel();
+
+            raf.setLength(0L);
+            raf.setLength(KTypeVTypeMappedHashMap.fileSize(length));
+
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            final ByteBuffer[] keyPages = KTypeVTypeMappedHashMap.mapKeys(channel, FileChannel.MapMode.READ_WRITE, length, pageShift);
+            final ByteBuffer[] valuePages = KTypeVTypeMappedHashMap.mapValues(channel, FileChannel.MapMode.READ_WRITE, length, pageShift);
+
+            final KType[] keys = Intrinsics.<KType[]> cast(map.keys);
+            final VType[] values = Intrinsics.<VType[]> cast(map.values);
+
+            final int pageMask = (1 << pageShift) - 1;
+
+            for (int page = 0; page < keyPages.length; page++) {
+
+                final ByteBuffer keyPage = keyPages[page];
+                final ByteBuffer valuePage = valuePages[page];
+
+                final int start = page << pageShift;
+
+                //the file is zero-filled, only write the assigned slots
+                for (int i = 0; i <= pageMask; i++) {
+
+                    final KType existing = keys[start + i];
+
+                    if (!Intrinsics.<KType> isEmpty(existing)) {
+
+                        setKey(keyPage, i, existing);
+                        setValue(valuePage, i, values[start + i]);
+                    }
+                }
+
+                KTypeVTypeMappedHashMap.force(keyPage);
+                KTypeVTypeMappedHashMap.force(valuePage);
+
+                DirectBuffers.release(keyPage);
+                DirectBuffers.release(valuePage);
+            }
+        } finally {
+
+            raf.close();
+        }
+    }
+
+    /**
+     * Map a file written by {@link #write(KTypeVTypeHashMap, File)}, in constant time.
+     */
+    public static <KType, VType> KTypeVTypeMappedHashMap<KType, VType> open(final File file) throws IOException {
+
+        return KTypeVTypeMappedHashMap.open(file, HashContainers.MAX_HASH_ARRAY_LENGTH);
+    }
+
+    /**
+     * Map a file written by {@link #write(KTypeVTypeHashMap, File)}, with pages of at most maxPageSize slots
+     * (a power of two). The maximum of 1GB per page still applies.
+     */
+    @SuppressWarnings("boxing")
+    static <KType, VType> KTypeVTypeMappedHashMap<KType, VType> open(final File file, final int maxPageSize) throws IOException {
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+
+            final FileChannel channel = raf.getChannel();
+
+            if (channel.size() < KTypeVTypeMappedHashMap.HEADER_SIZE) {
+
+                throw new IOException("Not a mapped hash map file, too small: " + file);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(KTypeVTypeMappedHashMap.HEADER_SIZE);
+
+            while (header.hasRemaining()) {
+
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Unexpected end of file: " + file);
+                }
+            }
+
+            //the magic number tells the byte order of the file
+            final long magic = header.order(ByteOrder.BIG_ENDIAN).getLong(0);
+
+            if (magic == Long.reverseBytes(KTypeVTypeMappedHashMap.MAGIC)) {
+
+                header.order(ByteOrder.LITTLE_ENDIAN);
+
+            } else if (magic != KTypeVTypeMappedHashMap.MAGIC) {
+
+                throw new IOException("Not a mapped hash map file: " + file);
+            }
+
+            if (header.getInt(8) != KTypeVTypeMappedHashMap.VERSION) {
+
+                throw new IOException(String.format("Unsupported mapped hash map version %d: %s", header.getInt(8), file));
+            }
+
+            if (header.getInt(12) != KTypeVTypeMappedHashMap.SIGNATURE) {
+
+                throw new IOException("Not a mapped hash map of " + KTypeVTypeMappedHashMap.KEY_TYPE + " to "
+                        + KTypeVTypeMappedHashMap.VALUE_TYPE + ": " + file);
+            }
+
+            final int perturbation = header.getInt(16);
+            final int length = header.getInt(20);
+            final int assigned = header.getInt(24);
+            final boolean allocatedDefaultKey = header.getInt(28) != 0;
+
+            if (length < HashContainers.MIN_HASH_ARRAY_LENGTH || length > HashContainers.MAX_HASH_ARRAY_LENGTH
+                    || Integer.bitCount(length) != 1 || channel.size() < KTypeVTypeMappedHashMap.fileSize(length)) {
+
+                throw new IOException(String.format("Corrupted mapped hash map file, buffer length %d: %s", length, file));
+            }
+
+            final int defaultKeyValueIndex = KTypeVTypeMappedHashMap.HEADER_DEFAULT_KEY_VALUE / VALUE_BYTES(1);
+            final VType allocatedDefaultKeyValue = allocatedDefaultKey ? VALUE_GET(header, defaultKeyValueIndex) : Intrinsics.<VType> empty();
+
+            final int pageShift = KTypeVTypeMappedHashMap.pageShift(length, maxPageSize);
+
+            final ByteBuffer[] keys = KTypeVTypeMappedHashMap.mapKeys(channel, FileChannel.MapMode.READ_ONLY, length, pageShift);
+
+            //the mappings remain valid after the channel is closed
+            for (final ByteBuffer page : keys) {
+                page.order(header.order());
+            }
+
+            final ByteBuffer[] values = KTypeVTypeMappedHashMap.mapValues(channel, FileChannel.MapMode.READ_ONLY, length, pageShift);
+
+            for (final ByteBuffer page : values) {
+                page.order(header.order());
+            }
+
+            return new KTypeVTypeMappedHashMap<KType, VType>(keys, values, length, pageShift,
+                    perturbation, assigned, allocatedDefaultKey, allocatedDefaultKeyValue);
+
+        } finally {
+
+            raf.close();
+        }
+    }
+
+    /**
+     * log2 of the number of slots of the pages of a buffer of length slots.
+     */
+    private static int pageShift(final int length, final int maxPageSize) {
+
+        //a page of keys or values must fit a ByteBuffer
+        final int maxPageSlots = Math.min(HashContainers.MAX_HASH_ARRAY_LENGTH / Math.max(KEY_BYTES(1), VALUE_BYTES(1)), maxPageSize);
+
+        return Math.min(Integer.numberOfTrailingZeros(length), Integer.numberOfTrailingZeros(maxPageSlots));
+    }
+
+    /**
+     * Total size of the file for a buffer of length slots.
+     */
+    private static long fileSize(final int length) {
+
+        return KTypeVTypeMappedHashMap.HEADER_SIZE + (long) KEY_BYTES(1) * length + (long) VALUE_BYTES(1) * length;
+    }
+
+    private static ByteBuffer[] mapKeys(final FileChannel channel, final FileChannel.MapMode mode, final int length, final int pageShift)
+            throws IOException {
+
+        final ByteBuffer[] pages = new ByteBuffer[length >>> pageShift];
+        final int pageBytes = KEY_BYTES(1) << pageShift;
+
+        for (int page = 0; page < pages.length; page++) {
+
+            pages[page] = channel.map(mode, KTypeVTypeMappedHashMap.HEADER_SIZE + (long) page * pageBytes, pageBytes)
+                    .order(ByteOrder.nativeOrder());
+        }
+
+        return pages;
+    }
+
+    private static ByteBuffer[] mapValues(final FileChannel channel, final FileChannel.MapMode mode, final int length, final int pageShift)
+            throws IOException {
+
+        final ByteBuffer[] pages = new ByteBuffer[length >>> pageShift];
+        final int pageBytes = VALUE_BYTES(1) << pageShift;
+
+        //values start right after the keys, which are at least 8 bytes long and a power of 2.
+        final long start = KTypeVTypeMappedHashMap.HEADER_SIZE + (long) KEY_BYTES(1) * length;
+
+        for (int page = 0; page < pages.length; page++) {
+
+            pages[page] = channel.map(mode, start + (long) page * pageBytes, pageBytes).order(ByteOrder.nativeOrder());
+        }
+
+        return pages;
+    }
+
+    private static void force(final ByteBuffer page) {
+
+        ((MappedByteBuffer) page).force();
+    }
+
+    /**
+     * @see KTypeVTypeMap#get
+     */
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final int mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        int slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[slot >>> pageShift];
+            final int index = slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final ByteBuffer valuePage = this.values[slot >>> pageShift];
+
+                return VALUE_GET(valuePage, index);
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final int mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        int slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[slot >>> pageShift];
+            final int index = slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return false;
+    }
+
+    /**
+     * Unmap the file immediately, if the running JVM allows it, else leave it to the GC.
+     * The map must not be used anymore after this call.
+     * Calling close() more than once has no effect.
+     */
+    @Override
+    public void close() {
+
+        if (this.keys == null) {
+            return;
+        }
+
+        for (int page = 0; page < this.keys.length; page++) {
+
+            DirectBuffers.release(this.keys[page]);
+            DirectBuffers.release(this.values[page]);
+        }
+
+        this.keys = null;
+        this.values = null;
+    }
+
+    /**
+     * @return the number of keys in the map.
+     */
+    public int size() {
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return true if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Applies a given procedure to all keys-value pairs in this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+        final int pageMask = this.pageMask;
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final ByteBuffer keyPage = keys[page];
+            final ByteBuffer valuePage = values[page];
+
+            for (int i = pageMask; i >= 0; i--) {
+
+                final KType existing = KEY_GET(keyPage, i);
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+                    procedure.apply(existing, VALUE_GET(valuePage, i));
+                }
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all keys-value pairs in this map, until
+     * the predicate returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+        final int pageMask = this.pageMask;
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final ByteBuffer keyPage = keys[page];
+            final ByteBuffer valuePage = values[page];
+
+            for (int i = pageMask; i >= 0; i--) {
+
+                final KType existing = KEY_GET(keyPage, i);
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+                    if (!predicate.apply(existing, VALUE_GET(valuePage, i))) {
+                        return predicate;
+                    }
+                }
+            }
+        } //end for
+
+        return predicate;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+                    buffer.append(", ");
+                }
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /*! #if ($TemplateOptions.declareInline("KEY_GET(buf, idx)",
+    "<byte,*>==>buf.get(idx)",
+    "<char,*>==>buf.getChar(idx << 1)",
+    "<short,*>==>buf.getShort(idx << 1)",
+    "<int,*>==>buf.getInt(idx << 2)",
+    "<long,*>==>buf.getLong(idx << 3)",
+    "<float,*>==>buf.getFloat(idx << 2)",
+    "<double,*>==>buf.getDouble(idx << 3)")) !*/
+    /**
+     * Read the idx-th key of a page.
+     * (inlined in generated code: Objects cannot be mapped, so the template version stores Long keys, 0 being the empty key)
+     */
+    private static <KType> KType KEY_GET(final ByteBuffer buf, final int idx) {
+
+        final long key = buf.getLong(idx << 3);
+
+        return key == 0L ? null : Intrinsics.<KType> cast(Long.valueOf(key));
+    }
+
+    /*! #end !*/
+
+    /**
+     * Write the idx-th key of a page.
+     * (a regular method, not an inlined form, being a statement)
+     */
+    private static <KType> void setKey(final ByteBuffer buf, final int idx, final KType val) {
+
+        /*! #if ($TemplateOptions.isKType("byte"))
+        buf.put(idx, val);
+        #elseif ($TemplateOptions.KTypePrimitive)
+        buf.put${TemplateOptions.KType.BoxedType}(KEY_BYTES(idx), val);
+        #else !*/
+        buf.putLong(KEY_BYTES(idx), val == null ? 0L : ((Long) val).longValue());
+        /*! #end !*/
+    }
+
+    /*! #if ($TemplateOptions.declareInline("KEY_BYTES(nb)",
+    "<byte,*>==>nb",
+    "<char,*>==>nb << 1",
+    "<short,*>==>nb << 1",
+    "<int,*>==>nb << 2",
+    "<long,*>==>nb << 3",
+    "<float,*>==>nb << 2",
+    "<double,*>==>nb << 3")) !*/
+    /**
+     * Size in bytes of nb keys.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private static int KEY_BYTES(final int nb) {
+
+        return nb << 3;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("VALUE_GET(buf, idx)",
+    "<*,byte>==>buf.get(idx)",
+    "<*,char>==>buf.getChar(idx << 1)",
+    "<*,short>==>buf.getShort(idx << 1)",
+    "<*,int>==>buf.getInt(idx << 2)",
+    "<*,long>==>buf.getLong(idx << 3)",
+    "<*,float>==>buf.getFloat(idx << 2)",
+    "<*,double>==>buf.getDouble(idx << 3)")) !*/
+    /**
+     * Read the idx-th value of a page.
+     * (inlined in generated code: Objects cannot be mapped, so the template version stores Long values)
+     */
+    private static <VType> VType VALUE_GET(final ByteBuffer buf, final int idx) {
+
+        return Intrinsics.<VType> cast(Long.valueOf(buf.getLong(idx << 3)));
+    }
+
+    /*! #end !*/
+
+    /**
+     * Write the idx-th value of a page.
+     * (a regular method, not an inlined form, being a statement)
+     */
+    private static <VType> void setValue(final ByteBuffer buf, final int idx, final VType val) {
+
+        /*! #if ($TemplateOptions.isVType("byte"))
+        buf.put(idx, val);
+        #elseif ($TemplateOptions.VTypePrimitive)
+        buf.put${TemplateOptions.VType.BoxedType}(VALUE_BYTES(idx), val);
+        #else !*/
+        buf.putLong(VALUE_BYTES(idx), val == null ? 0L : ((Long) val).longValue());
+        /*! #end !*/
+    }
+
+    /*! #if ($TemplateOptions.declareInline("VALUE_BYTES(nb)",
+    "<*,byte>==>nb",
+    "<*,char>==>nb << 1",
+    "<*,short>==>nb << 1",
+    "<*,int>==>nb << 2",
+    "<*,long>==>nb << 3",
+    "<*,float>==>nb << 2",
+    "<*,double>==>nb << 3")) !*/
+    /**
+     * Size in bytes of nb values.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private static int VALUE_BYTES(final int nb) {
+
+        return nb << 3;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys, the same as {@link KTypeVTypeHashMap}.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(value.hashCode(), this.perturbation);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,1035 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/*! ${TemplateOptions.doNotGenerateVType("Object")} !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code>, implemented using open
+ * addressing with linear probing for collision resolution, whose buffers live outside of the Java heap.
+ * <p>
+ * This map has the same layout and algorithms as {@link KTypeVTypeBigHashMap}, except that its
+ * pages are direct {@link ByteBuffer}s (in native byte order) instead of Java arrays, so that
+ * big maps put no pressure on the GC, and do not appear in heap dumps.
+ * Only the key 0 and its value (if present) are kept on the heap.
+ * </p>
+ * <p>
+ * The direct memory is released explicitly by {@link #close()}, after which the map must not be used anymore.
+ * Memory of the previous buffers is released as well when the map grows.
+ * </p>
+ * <p>
+ * The API follows {@link KTypeVTypeMap} ({@link #put}, {@link #get}, {@link #addTo}, {@link #forEach(KTypeVTypeProcedure)}...),
+ * with <code>long</code> sizes.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeOffHeapHashMap<KType, VType> implements Closeable
+{
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Hash-indexed pages holding all keys: slot i is the (i & {@link #pageMask})-th key of page keys[i >>> {@link #pageShift}].
+     */
+    public ByteBuffer[] keys;
+
+    /**
+     * Hash-indexed pages holding all values associated to the keys
+     * stored in {@link #keys}.
+     */
+    public ByteBuffer[] values;
+
+    /**
+     * True if key = 0 is in the map.
+     */
+    public boolean allocatedDefaultKey = false;
+
+    /**
+     * if allocatedDefaultKey = true, contains the associated V to the key = 0
+     */
+    public VType allocatedDefaultKeyValue;
+
+    /**
+     * Cached number of assigned slots in {@link #keys}.
+     */
+    protected long assigned;
+
+    /**
+     * The load factor for this map (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys} hits this value.
+     */
+    private long resizeAt;
+
+    /**
+     * Total number of slots of the buffers minus 1.
+     */
+    protected long mask;
+
+    /**
+     * Slot i is in page i >>> pageShift.
+     */
+    protected int pageShift;
+
+    /**
+     * Slot i is at index i & pageMask of its page.
+     */
+    protected int pageMask;
+
+    /**
+     * log2 of the max number of slots of a page.
+     */
+    protected final int maxPageShift;
+
+    /**
+     * Per-instance size perturbation
+     * introduced in rehashing to create a unique key distribution.
+     */
+    protected final int perturbation = Containers.randomSeed32();
+
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeOffHeapHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeOffHeapHashMap(final long initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor, and pages of at most {@link HashContainers#DEFAULT_BIG_HASH_PAGE_SIZE} slots.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeOffHeapHashMap(final long initialCapacity, final double loadFactor) {
+        this(initialCapacity, loadFactor, HashContainers.DEFAULT_BIG_HASH_PAGE_SIZE);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor, and max page size.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     * @param maxPageSize Max number of slots of a page of the buffers (automatically
+     *            rounded to the next power of two, in [{@link HashContainers#MIN_HASH_ARRAY_LENGTH}; {@link HashContainers#MAX_HASH_ARRAY_LENGTH}],
+     *            and reduced so that a page is at most 1GB).
+     */
+    public KTypeVTypeOffHeapHashMap(final long initialCapacity, final double loadFactor, final int maxPageSize) {
+        this.loadFactor = loadFactor;
+
+        //a page of keys or values must fit a ByteBuffer
+        final int maxPageSlots = Math.min(HashContainers.MAX_HASH_ARRAY_LENGTH / Math.max(KEY_BYTES(1), VALUE_BYTES(1)), maxPageSize);
+
+        this.maxPageShift = Integer.numberOfTrailingZeros(BitUtil.nextHighestPowerOfTwo(
+                Math.max(HashContainers.MIN_HASH_ARRAY_LENGTH, maxPageSlots)));
+
+        //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
+        allocateBuffers(HashContainers.minBigBufferSize(initialCapacity, loadFactor));
+    }
+
+    /**
+     * @see KTypeVTypeMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                final VType previousValue = this.allocatedDefaultKeyValue;
+                this.allocatedDefaultKeyValue = value;
+
+                return previousValue;
+            }
+
+            this.allocatedDefaultKeyValue = value;
+            this.allocatedDefaultKey = true;
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        long slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final ByteBuffer valuePage = this.values[(int) (slot >>> pageShift)];
+
+                final VType oldValue = VALUE_GET(valuePage, index);
+                setValue(valuePage, index, value);
+
+                return oldValue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        // Check if we need to grow. If so, reallocate new data,
+        // fill in the last element and rehash.
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, value, slot);
+
+        } else {
+
+            this.assigned++;
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final ByteBuffer valuePage = this.values[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            setKey(keyPage, index, key);
+            setValue(valuePage, index, value);
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+        if (!containsKey(key)) {
+            put(key, value);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @see KTypeVTypeMap#putOrAdd
+     */
+    @SuppressWarnings("cast")
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                this.allocatedDefaultKeyValue = (VType) (Intrinsics.<VType> add(this.allocatedDefaultKeyValue, incrementValue));
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            this.allocatedDefaultKeyValue = putValue;
+            this.allocatedDefaultKey = true;
+
+            return putValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        long slot = REHASH(key) & mask;
+
+        //a single probe: update in place an existing key, or insert in the free slot ending the probe
+        while (true) {
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final ByteBuffer valuePage = this.values[(int) (slot >>> pageShift)];
+
+                final VType newValue = (VType) (Intrinsics.<VType> add(VALUE_GET(valuePage, index), incrementValue));
+                setValue(valuePage, index, newValue);
+
+                return newValue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, putValue, slot);
+
+        } else {
+
+            this.assigned++;
+
+            setKey(keys[(int) (slot >>> pageShift)], (int) slot & pageMask, key);
+            setValue(this.values[(int) (slot >>> pageShift)], (int) slot & pageMask, putValue);
+        }
+
+        return putValue;
+    }
+
+    /**
+     * @see KTypeVTypeMap#addTo
+     */
+    public VType addTo(final KType key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /**
+     * Expand the internal storage buffers (capacity) and rehash.
+     */
+    private void expandAndPut(final KType pendingKey, final VType pendingValue, final long freeSlot) {
+        assert this.assigned == this.resizeAt;
+
+        //default sentinel value is never in the keys[] array, so never trigger reallocs
+        assert !Intrinsics.<KType> isEmpty(pendingKey);
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final ByteBuffer[] oldKeys = this.keys;
+        final ByteBuffer[] oldValues = this.values;
+
+        final int oldPageShift = this.pageShift;
+        final int oldPageMask = this.pageMask;
+
+        allocateBuffers(HashContainers.nextBigBufferSize(this.mask + 1, this.assigned, this.loadFactor));
+
+        // We have succeeded at allocating new data so insert the pending key/value at
+        // the free slot in the old buffers before rehashing.
+        this.assigned++;
+
+        final ByteBuffer freeKeyPage = oldKeys[(int) (freeSlot >>> oldPageShift)];
+        final ByteBuffer freeValuePage = oldValues[(int) (freeSlot >>> oldPageShift)];
+        final int freeIndex = (int) freeSlot & oldPageMask;
+
+        setKey(freeKeyPage, freeIndex, pendingKey);
+        setValue(freeValuePage, freeIndex, pendingValue);
+
+        //for inserts
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+
+        final int perturb = this.perturbation;
+
+        //iterate all the old pages to add in the newly allocated buffers
+        //It is important to iterate backwards to minimize the conflict chain length !
+        for (int page = oldKeys.length; --page >= 0;) {
+
+            final ByteBuffer oldKeyPage = oldKeys[page];
+            final ByteBuffer oldValuePage = oldValues[page];
+
+            for (int i = oldPageMask; i >= 0; i--) {
+
+                final KType key = KEY_GET(oldKeyPage, i);
+
+                //only consider non-empty slots, of course
+                if (!Intrinsics.<KType> isEmpty(key)) {
+
+                    final VType value = VALUE_GET(oldValuePage, i);
+
+                    long slot = REHASH2(key, perturb) & mask;
+
+                    ByteBuffer keyPage;
+                    int index;
+
+                    //similar to put(), except all inserted keys are known to be unique.
+                    while (true) {
+
+                        keyPage = keys[(int) (slot >>> pageShift)];
+                        index = (int) slot & pageMask;
+
+                        final KType existing = KEY_GET(keyPage, index);
+
+                        if (Intrinsics.<KType> isEmpty(existing)) {
+                            break;
+                        }
+
+                        slot = (slot + 1) & mask;
+                    }
+
+                    final ByteBuffer valuePage = values[(int) (slot >>> pageShift)];
+
+                    setKey(keyPage, index, key);
+                    setValue(valuePage, index, value);
+                }
+            }
+
+            //this page is done, free its memory now
+            DirectBuffers.release(oldKeyPage);
+            DirectBuffers.release(oldValuePage);
+
+            oldKeys[page] = null;
+            oldValues[page] = null;
+        }
+    }
+
+    /**
+     * Allocate internal buffers for a given capacity.
+     *
+     * @param capacity New total capacity (must be a power of two).
+     */
+    @SuppressWarnings("boxing")
+    private void allocateBuffers(final long capacity) {
+
+        final int pageShift = Math.min(this.maxPageShift, Long.numberOfTrailingZeros(capacity));
+        final long nbPages = capacity >>> pageShift;
+
+        if (nbPages > HashContainers.MAX_HASH_ARRAY_LENGTH) {
+
+            throw new BufferAllocationException(
+                    "Maximum number of pages exceeded to grow to %d elements (max page size: %d)",
+                    capacity,
+                    1 << this.maxPageShift);
+        }
+
+        final ByteBuffer[] keys = new ByteBuffer[(int) nbPages];
+        final ByteBuffer[] values = new ByteBuffer[(int) nbPages];
+
+        try {
+
+            for (int page = 0; page < nbPages; page++) {
+
+                keys[page] = DirectBuffers.allocate(KEY_BYTES(1 << pageShift));
+                values[page] = DirectBuffers.allocate(VALUE_BYTES(1 << pageShift));
+            }
+        } catch (final BufferAllocationException e) {
+
+            //give back what was allocated so far
+            for (int page = 0; page < nbPages; page++) {
+
+                DirectBuffers.release(keys[page]);
+                DirectBuffers.release(values[page]);
+            }
+
+            throw new BufferAllocationException(
+                    "Not enough direct memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0L : this.mask + 1,
+                            capacity);
+        }
+
+        this.keys = keys;
+        this.values = values;
+
+        this.mask = capacity - 1;
+        this.pageShift = pageShift;
+        this.pageMask = (1 << pageShift) - 1;
+
+        //allocate so that there is at least one slot that remains allocated = false
+        //this is compulsory to guarantee proper stop in searching loops
+        this.resizeAt = HashContainers.expandAtBigCount(capacity, this.loadFactor);
+    }
+
+    /**
+     * @see KTypeVTypeMap#remove
+     */
+    public VType remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                this.allocatedDefaultKey = false;
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        long slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final ByteBuffer valuePage = this.values[(int) (slot >>> pageShift)];
+
+                final VType value = VALUE_GET(valuePage, index);
+
+                shiftConflictingKeys(slot);
+
+                return value;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return this.defaultValue;
+    }
+
+    /**
+     * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
+     */
+    private void shiftConflictingKeys(long gapSlot) {
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+
+        final int perturb = this.perturbation;
+
+        // Perform shifts of conflicting keys to fill in the gap.
+        long distance = 0;
+
+        while (true) {
+
+            final long slot = (gapSlot + (++distance)) & mask;
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            final long idealSlotModMask = REHASH2(existing, perturb) & mask;
+
+            final long shift = (slot - idealSlotModMask) & mask;
+
+            if (shift >= distance) {
+                // Entry at this position was originally at or before the gap slot.
+                // Move the conflict-shifted entry to the gap's position and repeat the procedure
+                // for any entries to the right of the current position, treating it
+                // as the new gap.
+                final ByteBuffer valuePage = values[(int) (slot >>> pageShift)];
+                final VType existingValue = VALUE_GET(valuePage, index);
+
+                final ByteBuffer gapKeyPage = keys[(int) (gapSlot >>> pageShift)];
+                final ByteBuffer gapValuePage = values[(int) (gapSlot >>> pageShift)];
+                final int gapIndex = (int) gapSlot & pageMask;
+
+                setKey(gapKeyPage, gapIndex, existing);
+                setValue(gapValuePage, gapIndex, existingValue);
+
+                gapSlot = slot;
+                distance = 0;
+            }
+        } //end while
+
+        // Mark the last found gap slot without a conflict as empty.
+        final ByteBuffer gapKeyPage = keys[(int) (gapSlot >>> pageShift)];
+        final int gapIndex = (int) gapSlot & pageMask;
+        final KType emptyKey = Intrinsics.<KType> empty();
+
+        setKey(gapKeyPage, gapIndex, emptyKey);
+
+        this.assigned--;
+    }
+
+    /**
+     * @see KTypeVTypeMap#removeAll(KTypeVTypePredicate)
+     */
+    public long removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+        final long before = this.size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+                this.allocatedDefaultKey = false;
+            }
+        }
+
+        final long length = this.mask + 1;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+
+        for (long i = 0; i < length;) {
+
+            final ByteBuffer keyPage = keys[(int) (i >>> pageShift)];
+            final ByteBuffer valuePage = values[(int) (i >>> pageShift)];
+            final int index = (int) i & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (!Intrinsics.<KType> isEmpty(existing)
+                    && predicate.apply(existing, VALUE_GET(valuePage, index))) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+            } else {
+                i++;
+            }
+        }
+
+        return before - this.size();
+    }
+
+    /**
+     * @see KTypeVTypeMap#get
+     */
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return this.allocatedDefaultKeyValue;
+            }
+
+            return this.defaultValue;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        long slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final ByteBuffer valuePage = this.values[(int) (slot >>> pageShift)];
+
+                return VALUE_GET(valuePage, index);
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return this.defaultValue;
+    }
+
+    /**
+     * @see KTypeVTypeMap#containsKey
+     */
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final long mask = this.mask;
+        final int pageShift = this.pageShift;
+        final int pageMask = this.pageMask;
+
+        final ByteBuffer[] keys = this.keys;
+
+        long slot = REHASH(key) & mask;
+
+        while (true) {
+
+            final ByteBuffer keyPage = keys[(int) (slot >>> pageShift)];
+            final int index = (int) slot & pageMask;
+
+            final KType existing = KEY_GET(keyPage, index);
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+                return true;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while true
+
+        return false;
+    }
+
+    /**
+     * @see KTypeVTypeMap#clear
+     */
+    public void clear() {
+        this.assigned = 0;
+
+        // States are always cleared.
+        this.allocatedDefaultKey = false;
+
+        for (final ByteBuffer keyPage : this.keys) {
+
+            DirectBuffers.blank(keyPage);
+        }
+    }
+
+    /**
+     * Release the direct memory of the buffers immediately. The map must not be used anymore after this call.
+     * Calling close() more than once has no effect.
+     */
+    @Override
+    public void close() {
+
+        if (this.keys == null) {
+            return;
+        }
+
+        for (int page = 0; page < this.keys.length; page++) {
+
+            DirectBuffers.release(this.keys[page]);
+            DirectBuffers.release(this.values[page]);
+        }
+
+        this.keys = null;
+        this.values = null;
+
+        this.assigned = 0;
+        this.allocatedDefaultKey = false;
+        this.resizeAt = 0;
+    }
+
+    /**
+     * @return the number of keys in the map.
+     */
+    public long size() {
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return the number of keys the map can hold before its buffers are reallocated.
+     */
+    public long capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * @return true if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Applies a given procedure to all keys-value pairs in this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue);
+        }
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+        final int pageMask = this.pageMask;
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final ByteBuffer keyPage = keys[page];
+            final ByteBuffer valuePage = values[page];
+
+            for (int i = pageMask; i >= 0; i--) {
+
+                final KType existing = KEY_GET(keyPage, i);
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+                    procedure.apply(existing, VALUE_GET(valuePage, i));
+                }
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all keys-value pairs in this map, until
+     * the predicate returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty(), this.allocatedDefaultKeyValue)) {
+
+                return predicate;
+            }
+        }
+
+        final ByteBuffer[] keys = this.keys;
+        final ByteBuffer[] values = this.values;
+        final int pageMask = this.pageMask;
+
+        //Iterate in reverse for side-stepping the longest conflict chain
+        //in another hash, in case apply() is actually used to fill another hash container.
+        for (int page = keys.length - 1; page >= 0; page--) {
+
+            final ByteBuffer keyPage = keys[page];
+            final ByteBuffer valuePage = values[page];
+
+            for (int i = pageMask; i >= 0; i--) {
+
+                final KType existing = KEY_GET(keyPage, i);
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+                    if (!predicate.apply(existing, VALUE_GET(valuePage, i))) {
+                        return predicate;
+                    }
+                }
+            }
+        } //end for
+
+        return predicate;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                if (!this.first) {
+                    buffer.append(", ");
+                }
+                buffer.append(key);
+                buffer.append("=>");
+                buffer.append(value);
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Create a new hash map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeOffHeapHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeOffHeapHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeOffHeapHashMap<KType, VType> newInstance(final long initialCapacity,
+            final double loadFactor) {
+        return new KTypeVTypeOffHeapHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /*! #if ($TemplateOptions.declareInline("KEY_GET(buf, idx)",
+    "<byte,*>==>buf.get(idx)",
+    "<char,*>==>buf.getChar(idx << 1)",
+    "<short,*>==>buf.getShort(idx << 1)",
+    "<int,*>==>buf.getInt(idx << 2)",
+    "<long,*>==>buf.getLong(idx << 3)",
+    "<float,*>==>buf.getFloat(idx << 2)",
+    "<double,*>==>buf.getDouble(idx << 3)")) !*/
+    /**
+     * Read the idx-th key of a page.
+     * (inlined in generated code: Objects cannot live off-heap, so the template version stores Long keys, 0 being the empty key)
+     */
+    private KType KEY_GET(final ByteBuffer buf, final int idx) {
+
+        final long key = buf.getLong(idx << 3);
+
+        return key == 0L ? null : Intrinsics.<KType> cast(Long.valueOf(key));
+    }
+
+    /*! #end !*/
+
+    /**
+     * Write the idx-th key of a page.
+     * (a regular method, not an inlined form, being a statement)
+     */
+    private void setKey(final ByteBuffer buf, final int idx, final KType val) {
+
+        /*! #if ($TemplateOptions.isKType("byte"))
+        buf.put(idx, val);
+        #elseif ($TemplateOptions.KTypePrimitive)
+        buf.put${TemplateOptions.KType.BoxedType}(KEY_BYTES(idx), val);
+        #else !*/
+        buf.putLong(KEY_BYTES(idx), val == null ? 0L : ((Long) val).longValue());
+        /*! #end !*/
+    }
+
+    /*! #if ($TemplateOptions.declareInline("KEY_BYTES(nb)",
+    "<byte,*>==>nb",
+    "<char,*>==>nb << 1",
+    "<short,*>==>nb << 1",
+    "<int,*>==>nb << 2",
+    "<long,*>==>nb << 3",
+    "<float,*>==>nb << 2",
+    "<double,*>==>nb << 3")) !*/
+    /**
+     * Size in bytes of nb keys.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private static int KEY_BYTES(final int nb) {
+
+        return nb << 3;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("VALUE_GET(buf, idx)",
+    "<*,byte>==>buf.get(idx)",
+    "<*,char>==>buf.getChar(idx << 1)",
+    "<*,short>==>buf.getShort(idx << 1)",
+    "<*,int>==>buf.getInt(idx << 2)",
+    "<*,long>==>buf.getLong(idx << 3)",
+    "<*,float>==>buf.getFloat(idx << 2)",
+    "<*,double>==>buf.getDouble(idx << 3)")) !*/
+    /**
+     * Read the idx-th value of a page.
+     * (inlined in generated code: Objects cannot live off-heap, so the template version stores Long values)
+     */
+    private VType VALUE_GET(final ByteBuffer buf, final int idx) {
+
+        return Intrinsics.<VType> cast(Long.valueOf(buf.getLong(idx << 3)));
+    }
+
+    /*! #end !*/
+
+    /**
+     * Write the idx-th value of a page.
+     * (a regular method, not an inlined form, being a statement)
+     */
+    private void setValue(final ByteBuffer buf, final int idx, final VType val) {
+
+        /*! #if ($TemplateOptions.isVType("byte"))
+        buf.put(idx, val);
+        #elseif ($TemplateOptions.VTypePrimitive)
+        buf.put${TemplateOptions.VType.BoxedType}(VALUE_BYTES(idx), val);
+        #else !*/
+        buf.putLong(VALUE_BYTES(idx), val == null ? 0L : ((Long) val).longValue());
+        /*! #end !*/
+    }
+
+    /*! #if ($TemplateOptions.declareInline("VALUE_BYTES(nb)",
+    "<*,byte>==>nb",
+    "<*,char>==>nb << 1",
+    "<*,short>==>nb << 1",
+    "<*,int>==>nb << 2",
+    "<*,long>==>nb << 3",
+    "<*,float>==>nb << 2",
+    "<*,double>==>nb << 3")) !*/
+    /**
+     * Size in bytes of nb values.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private static int VALUE_BYTES(final int nb) {
+
+        return nb << 3;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*,*>==>BitMixer.mix64(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys to 64 bits.
+     * (template version only: actual method is inlined in generated code)
+     */
+    private long REHASH(final KType value) {
+
+        return BitMixer.mix64(value.hashCode(), this.perturbation);
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("REHASH2(value, perturb)",
+    "<*,*>==>BitMixer.mix64(value , perturb)")) !*/
+    /**
+     * REHASH2 method for rehashing the keys to 64 bits with perturbation seed as parameter
+     * (template version only: actual method is inlined in generated code)
+     */
+    private long REHASH2(final KType value, final int perturb) {
+
+        return BitMixer.mix64(value.hashCode(), perturb);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,499 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A thread-safe hash map of <code>KType</code> to <code>VType</code> tuned for read-mostly workloads,
+ * wrapping a regular {@link KTypeVTypeHashMap}.
+ * <p>
+ * Writers are serialized by a lock and bump a sequence counter before and after each modification,
+ * so that the counter is odd while a modification is in progress.
+ * {@link #get(Object)} and {@link #containsKey(Object)} take neither a lock nor a CAS: they read the sequence,
+ * probe the <code>keys</code>/<code>values</code> arrays of the wrapped map directly,
+ * then validate that the sequence did not change in the meantime (a seqlock, like the optimistic reads of
+ * <code>java.util.concurrent.locks.StampedLock</code>). If a concurrent modification was detected a few times in a row
+ * (typically because of a reallocation and rehash of the whole map), the read falls back to taking the lock.
+ * </p>
+ * <p>
+ * As with <code>StampedLock</code>, the reads of the arrays are kept before the validation by a load fence,
+ * and the modifications after the odd sequence by a store fence, see {@link Fences}. On a JVM without fences,
+ * reads always take the lock.
+ * </p>
+ * <p>
+ * Reads do not allocate and the wrapped map keeps its usual primitive <code>keys</code>/<code>values</code> layout.
+ * Writes cost one uncontended lock on top of the {@link KTypeVTypeHashMap} operation.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys. As optimistic reads may observe a map being modified,
+ * keys <code>equals()</code> and <code>hashCode()</code> must not have side effects.</p>
+#end
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeReadMostlyHashMap<KType, VType>
+{
+    /**
+     * Number of optimistic read attempts before falling back to a locked read.
+     */
+    public static final int MAX_OPTIMISTIC_READS = 8;
+
+    /**
+     * The wrapped map, which is also the writers lock.
+     */
+    protected final KTypeVTypeHashMap<KType, VType> map;
+
+    /**
+     * Writers sequence: odd while a modification is in progress,
+     * incremented twice by each modification.
+     */
+    private volatile int sequence = 0;
+
+    /**
+     * Default constructor: Creates a map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeReadMostlyHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeReadMostlyHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a map with the given initial capacity, load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeReadMostlyHashMap(final int initialCapacity, final double loadFactor) {
+        this.map = new KTypeVTypeHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Lock-free version of {@link KTypeVTypeHashMap#get}.
+     */
+    public VType get(final KType key) {
+
+        final KTypeVTypeHashMap<KType, VType> map = this.map;
+
+        final int maxAttempts = Fences.AVAILABLE ? KTypeVTypeReadMostlyHashMap.MAX_OPTIMISTIC_READS : 0;
+
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+
+            final int stamp = this.sequence;
+
+            if ((stamp & 1) != 0) {
+                //a writer is in progress
+                continue;
+            }
+
+            VType result;
+
+            try {
+
+                if (Intrinsics.<KType> isEmpty(key)) {
+
+                    result = map.allocatedDefaultKey ? map.allocatedDefaultKeyValue : map.defaultValue;
+                } else {
+
+                    final int slot = probe(map, key);
+
+                    result = (slot >= 0) ? Intrinsics.<VType> cast(map.values[slot]) : map.defaultValue;
+                }
+            } catch (final RuntimeException e) {
+                //inconsistent state read during a modification, e.g. keys and values across a reallocation: retry
+                continue;
+            }
+
+            //the reads above must complete before the validation
+            Fences.loadFence();
+
+            if (stamp == this.sequence) {
+
+                return result;
+            }
+        } //end for
+
+        synchronized (map) {
+
+            return map.get(key);
+        }
+    }
+
+    /**
+     * Lock-free version of {@link KTypeVTypeHashMap#containsKey}.
+     */
+    public boolean containsKey(final KType key) {
+
+        final KTypeVTypeHashMap<KType, VType> map = this.map;
+
+        final int maxAttempts = Fences.AVAILABLE ? KTypeVTypeReadMostlyHashMap.MAX_OPTIMISTIC_READS : 0;
+
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+
+            final int stamp = this.sequence;
+
+            if ((stamp & 1) != 0) {
+                //a writer is in progress
+                continue;
+            }
+
+            boolean result;
+
+            try {
+
+                if (Intrinsics.<KType> isEmpty(key)) {
+
+                    result = map.allocatedDefaultKey;
+                } else {
+
+                    result = probe(map, key) >= 0;
+                }
+            } catch (final RuntimeException e) {
+                //inconsistent state read during a modification: retry
+                continue;
+            }
+
+            //the reads above must complete before the validation
+            Fences.loadFence();
+
+            if (stamp == this.sequence) {
+
+                return result;
+            }
+        } //end for
+
+        synchronized (map) {
+
+            return map.containsKey(key);
+        }
+    }
+
+    /**
+     * Search for key in map.keys, without any locking.
+     * @return the slot of key, or -1 if not found.
+     */
+    private int probe(final KTypeVTypeHashMap<KType, VType> map, final KType key) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(map.keys);
+
+        final int mask = keys.length - 1;
+
+        int slot = REHASH(map, key) & mask;
+        KType existing;
+
+        //The number of probes is bounded because a concurrent writer may
+        //transiently fill all the slots seen by this reader.
+        for (int probes = 0; probes <= mask; probes++) {
+
+            if (Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+                return -1;
+            }
+
+            if (KEYEQUALS(map, key, existing)) {
+
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Writers enter here, while holding the lock.
+     */
+    private void beginWrite() {
+
+        assert (this.sequence & 1) == 0;
+        this.sequence++;
+
+        //the modifications must not be visible before the odd sequence
+        if (Fences.AVAILABLE) {
+            Fences.storeFence();
+        }
+    }
+
+    /**
+     * Writers exit here, while holding the lock.
+     */
+    private void endWrite() {
+
+        this.sequence++;
+        assert (this.sequence & 1) == 0;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#put
+     */
+    public VType put(final KType key, final VType value) {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                return this.map.put(key, value);
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Atomically puts (key, value) if key is not already in the map.
+     * @see KTypeVTypeHashMap#putIfAbsent
+     */
+    public boolean putIfAbsent(final KType key, final VType value) {
+
+        synchronized (this.map) {
+
+            if (this.map.containsKey(key)) {
+
+                return false;
+            }
+
+            beginWrite();
+
+            try {
+                this.map.put(key, value);
+            } finally {
+                endWrite();
+            }
+
+            return true;
+        }
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Atomic version of {@link KTypeVTypeHashMap#putOrAdd}.
+     */
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                return this.map.putOrAdd(key, putValue, incrementValue);
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Atomic version of {@link KTypeVTypeHashMap#addTo}.
+     */
+    public VType addTo(final KType key, final VType incrementValue) {
+
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * @see KTypeVTypeHashMap#remove
+     */
+    public VType remove(final KType key) {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                return this.map.remove(key);
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Removes all (key, value) pairs matching the predicate, while holding the lock.
+     * Predicate must not access this map.
+     * @return the number of removed pairs.
+     */
+    public int removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                return this.map.removeAll(predicate);
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Clear the map, while holding the lock.
+     * <p>Does not release internal buffers.</p>
+     */
+    public void clear() {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                this.map.clear();
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#size
+     */
+    public int size() {
+
+        synchronized (this.map) {
+
+            return this.map.size();
+        }
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#isEmpty
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * @see KTypeVTypeHashMap#capacity
+     */
+    public int capacity() {
+
+        synchronized (this.map) {
+
+            return this.map.capacity();
+        }
+    }
+
+    /**
+     * Applies procedure to all (key, value) pairs of the map, while holding the lock.
+     * Procedure must not access this map.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        synchronized (this.map) {
+
+            return this.map.forEach(procedure);
+        }
+    }
+
+    /**
+     * Applies predicate to all (key, value) pairs of the map while holding the lock, until the predicate returns false.
+     * Predicate must not access this map.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        synchronized (this.map) {
+
+            return this.map.forEach(predicate);
+        }
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    public VType getDefaultValue() {
+
+        return this.map.getDefaultValue();
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    public void setDefaultValue(final VType defaultValue) {
+
+        synchronized (this.map) {
+
+            beginWrite();
+
+            try {
+                this.map.setDefaultValue(defaultValue);
+            } finally {
+                endWrite();
+            }
+        }
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        synchronized (this.map) {
+
+            return this.map.toString();
+        }
+    }
+
+    /**
+     * Create a new map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeReadMostlyHashMap<KType, VType> newInstance() {
+        return new KTypeVTypeReadMostlyHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new map with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeReadMostlyHashMap<KType, VType> newInstance(final int initialCapacity,
+            final double loadFactor) {
+        return new KTypeVTypeReadMostlyHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(map, value)",
+    "<Object,*>==>BitMixer.mix(map.hashKey(value) , map.perturbation)",
+    "<*,*>==>BitMixer.mix(value , map.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys, identical to the wrapped map one.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KTypeVTypeHashMap<KType, VType> map, final KType value) {
+
+        return BitMixer.mix(map.hashKey(value), map.perturbation);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("KEYEQUALS(map, key1, key2)",
+    "<Object,*>==>map.equalKeys(key1, key2)",
+    "<*,*>==>Intrinsics.<KType> equalsNotNull(key1, key2)")) !*/
+    /**
+     * macro which hides the applied equality criteria, identical to the wrapped map one.
+     */
+    private boolean KEYEQUALS(final KTypeVTypeHashMap<KType, VType> map, final KType key1, final KType key2) {
+
+        return map.equalKeys(key1, key2);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,395 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code>, implemented using open
+ * addressing with linear probing and Robin-Hood hashing for collision resolution.
+ * <p>
+ * This is an opt-in variant of {@link KTypeVTypeHashMap}, with the same buffers and API: on insertion, a key
+ * takes over the slot of any key nearer to its own ideal slot than the inserted key is (the "rich"),
+ * so that the keys of a cluster are always ordered by ideal slot. This minimizes the variance of the probe lengths,
+ * and a lookup of an absent key stops as soon as it meets a key nearer to its ideal slot than the searched key would be,
+ * instead of scanning the whole cluster. This pays off for lookups of absent keys at high load factors, at the cost of
+ * slower insertions and lookups of present keys: see BenchmarkRobinHood.
+ * </p>
+ * <p>
+ * Contrary to the Robin-Hood mode of the generic {@link KTypeVTypeHashMap}, there is no cache of the hashed slots:
+ * the probe distance of a key is recomputed from its rehash, which is cheap for primitive keys,
+ * so there is no extra memory compared to {@link KTypeVTypeHashMap}.
+ * </p>
+ * <p>
+ * The buffers remain valid linear probing tables, so they can be
+ * written by writeTo(DataOutput, boolean) and read back as a plain {@link KTypeVTypeHashMap}.
+ * </p>
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeRobinHoodHashMap<KType, VType>
+extends KTypeVTypeHashMap<KType, VType>
+{
+    /**
+     * Default constructor: Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeVTypeRobinHoodHashMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeRobinHoodHashMap(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeVTypeRobinHoodHashMap(final int initialCapacity, final double loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Create a hash map from all key-value pairs of another container.
+     */
+    public KTypeVTypeRobinHoodHashMap(final KTypeVTypeAssociativeContainer<KType, VType> container) {
+        this(container.size());
+        putAll(container);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.put(key, value);
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final VType oldValue = Intrinsics.<VType> cast(this.values[slot]);
+                this.values[slot] = value;
+
+                return oldValue;
+            }
+
+            //the keys of a cluster are ordered by ideal slot, so key cannot be further than
+            //the first key nearer to its ideal slot: this is where key is to be inserted.
+            if (dist > PROBE_DISTANCE(slot, existing, mask)) {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+            dist++;
+        } //end while
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, value);
+        } else {
+
+            this.assigned++;
+            insertAt(slot, key, value);
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.remove(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return this.defaultValue;
+        }
+
+        final VType value = Intrinsics.<VType> cast(this.values[slot]);
+
+        //the backward shift deletion keeps the clusters ordered by ideal slot
+        shiftConflictingKeys(slot);
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.get(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return this.defaultValue;
+        }
+
+        return Intrinsics.<VType> cast(this.values[slot]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return lookupSlot(key) != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeVTypeRobinHoodHashMap<KType, VType> clone() {
+
+        //clone to size() to prevent eventual exponential growth
+        final KTypeVTypeRobinHoodHashMap<KType, VType> cloned =
+                new KTypeVTypeRobinHoodHashMap<KType, VType>(size(), this.loadFactor);
+
+        //We must NOT clone because of the independent perturbation seeds
+        cloned.putAll(this);
+
+        return cloned;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int lookupSlot(final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+
+            //Robin-hood shortcut: key can only be found while dist <= the probe distance of the existing keys,
+            //only computed on mismatches, so that a hit on its ideal slot costs no more than linear probing.
+            if (dist > PROBE_DISTANCE(slot, existing, mask)) {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+            dist++;
+        } //end while
+
+        return -1;
+    }
+
+    /**
+     * Insert a key known to be absent at its Robin-hood position slot, shifting
+     * the rest of the cluster by one slot.
+     */
+    private void insertAt(final int slot, final KType key, final VType value) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        //end of the cluster, there is always one empty slot at least
+        int gapSlot = slot;
+
+        while (!Intrinsics.<KType> isEmpty(keys[gapSlot])) {
+
+            gapSlot = (gapSlot + 1) & mask;
+        }
+
+        //shift [slot; gapSlot[ by one, each key moving one slot further from its ideal slot.
+        while (gapSlot != slot) {
+
+            final int previous = (gapSlot - 1) & mask;
+
+            keys[gapSlot] = keys[previous];
+            values[gapSlot] = values[previous];
+
+            gapSlot = previous;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Expand the internal storage buffers (capacity), re-insert
+     * the existing keys and the pending one.
+     */
+    private void expandAndPut(final KType pendingKey, final VType pendingValue) {
+
+        assert this.assigned == this.resizeAt;
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] oldValues = Intrinsics.<VType[]> cast(this.values);
+
+        allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
+
+        this.resizeCount++;
+
+        this.assigned++;
+
+        for (int i = oldKeys.length; --i >= 0;) {
+
+            if (!Intrinsics.<KType> isEmpty(oldKeys[i])) {
+
+                insertUnique(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        insertUnique(pendingKey, pendingValue);
+    }
+
+    /**
+     * Insert a key known to be absent, with no growth check.
+     */
+    private void insertUnique(final KType key, final VType value) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        //only look for the Robin-hood position of key
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot]) && dist <= PROBE_DISTANCE(slot, existing, mask)) {
+
+            slot = (slot + 1) & mask;
+            dist++;
+        }
+
+        insertAt(slot, key, value);
+    }
+
+    /**
+     * Creates a hash map from two index-aligned arrays of key-value pairs.
+     */
+    public static <KType, VType> KTypeVTypeRobinHoodHashMap<KType, VType> from(final KType[] keys, final VType[] values) {
+
+        if (keys.length != values.length) {
+
+            throw new IllegalArgumentException("Arrays of keys and values must have an identical length.");
+        }
+
+        final KTypeVTypeRobinHoodHashMap<KType, VType> map = new KTypeVTypeRobinHoodHashMap<KType, VType>(keys.length);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            map.put(keys[i], values[i]);
+        }
+
+        return map;
+    }
+
+    /**
+     * Create a hash map from another associative container.
+     */
+    public static <KType, VType> KTypeVTypeRobinHoodHashMap<KType, VType> from(final KTypeVTypeAssociativeContainer<KType, VType> container) {
+
+        return new KTypeVTypeRobinHoodHashMap<KType, VType>(container);
+    }
+
+    /**
+     * Create a new hash map without providing the full generic signature (constructor
+     * shortcut).
+     */
+    public static <KType, VType> KTypeVTypeRobinHoodHashMap<KType, VType> newInstance() {
+
+        return new KTypeVTypeRobinHoodHashMap<KType, VType>();
+    }
+
+    /**
+     * Create a new hash map with initial capacity and load factor control. (constructor
+     * shortcut).
+     */
+    public static <KType, VType> KTypeVTypeRobinHoodHashMap<KType, VType> newInstance(final int initialCapacity, final double loadFactor) {
+
+        return new KTypeVTypeRobinHoodHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*,*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(hashKey(value), this.perturbation);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("PROBE_DISTANCE(slot, existing, mask)",
+    "<*,*>==>(slot - BitMixer.mix(existing , this.perturbation)) & mask")) !*/
+    /**
+     * Probe distance of the existing key at slot, i.e its distance to its ideal slot, recomputed from its rehash.
+     * (inlined in generated code)
+     */
+    private int PROBE_DISTANCE(final int slot, final KType existing, final int mask) {
+
+        return (slot - BitMixer.mix(hashKey(existing), this.perturbation)) & mask;
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,2049 @@
+package com.carrotsearch.hppcrt.maps;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A map of <code>KType</code> to <code>VType</code> sorted by keys, implemented as a B+tree:
+ * the entries are stored sorted in leaves of {@link #NODE_SIZE} keys and values, chained in key order,
+ * under inner nodes of up to {@link #NODE_SIZE} separator keys.
+ * <p>
+ * There are no node objects: the nodes are slices of a few flat arrays, so that the keys and values of a leaf are contiguous
+ * primitive arrays in {@link #keys} and {@link #values}, and the inner nodes only hold keys and <code>int</code> node indices.
+ * The arrays are grown by doubling, and freed nodes are recycled.
+ * </p>
+ * <p>
+ * Entries are designated by their index in {@link #keys} and {@link #values}, as returned by {@link #floorIndex(Object)} or {@link #ceilingIndex(Object)},
+ * which stays valid until the next modification of the map. Iterators, forEach() and the keys() and values() views follow the key order.
+ * Range scans on [fromKey; toKey[ are available by {@link #forEach(Object, Object, KTypeVTypeProcedure)} and the pooled {@link #iterator(Object, Object)}.
+ * </p>
+ * <p>
+ * Leaves are split in half when full, except when the new key goes at the end of a leaf, where it starts a new leaf instead,
+ * so that keys inserted in increasing order (such as timestamps) fill their leaves.
+ * </p>
+ * <p>
+ * Removals do not borrow from or merge with the sibling nodes: {@link #remove(Object)} only frees a leaf when it is emptied,
+ * so that many scattered removals can leave sparse leaves, with lookups still logarithmic but in a number of leaves
+ * greater than needed. The bulk removals by {@link #removeAll(KTypeVTypePredicate)} (and the other removeAll()) repack the
+ * remaining entries into the leaves and rebuild the inner nodes, and {@link #clone()} copies into full leaves.
+ * </p>
+ * <p>
+ * Keys are compared by their natural order, i.e by {@link Float#compare(float, float)} and {@link Double#compare(double, double)}
+ * for floating-point keys. There is no special key: 0 is stored like any other key.
+ * </p>
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeSortedMap<KType, VType>
+implements KTypeVTypeMap<KType, VType>, Cloneable
+{
+    /**
+     * Max number of keys of a node.
+     */
+    public static final int NODE_SIZE = 32;
+
+    /**
+     * Max number of children of an inner node.
+     */
+    private static final int NODE_CHILDREN = KTypeVTypeSortedMap.NODE_SIZE + 1;
+
+    protected VType defaultValue = Intrinsics.<VType> empty();
+
+    /**
+     * Keys of the leaves: leaf l holds its keys sorted in keys[l * NODE_SIZE + i], for i in [0; {@link #leafCounts}[l][.
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Values of the leaves, along the keys of {@link #keys}.
+     */
+    public/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            values;
+
+    /**
+     * Number of entries of each leaf.
+     */
+    protected int[] leafCounts;
+
+    /**
+     * Next leaf in key order, or -1. For a free leaf, next free leaf.
+     */
+    protected int[] leafNext;
+
+    /**
+     * Previous leaf in key order, or -1.
+     */
+    protected int[] leafPrev;
+
+    /**
+     * Number of leaves ever allocated in the buffers, free ones included.
+     */
+    protected int leavesAllocated;
+
+    /**
+     * Head of the free leaves chained by {@link #leafNext}, or -1.
+     */
+    protected int freeLeaf = -1;
+
+    protected int firstLeaf;
+
+    protected int lastLeaf;
+
+    /**
+     * Separator keys of the inner nodes: inner node n holds its keys sorted in innerKeys[n * NODE_SIZE + i],
+     * for i in [0; {@link #innerCounts}[n][. Child i holds the keys k such that innerKeys[n * NODE_SIZE + i - 1] <= k < innerKeys[n * NODE_SIZE + i].
+     */
+    protected/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            innerKeys;
+
+    /**
+     * Children of the inner nodes: inner node n has its (innerCounts[n] + 1) children in children[n * (NODE_SIZE + 1) + i].
+     * For a free inner node, children[n * (NODE_SIZE + 1)] is the next free inner node.
+     */
+    protected int[] children;
+
+    /**
+     * Number of separator keys of each inner node.
+     */
+    protected int[] innerCounts;
+
+    /**
+     * Number of inner nodes ever allocated in the buffers, free ones included.
+     */
+    protected int innersAllocated;
+
+    /**
+     * Head of the free inner nodes, or -1.
+     */
+    protected int freeInner = -1;
+
+    /**
+     * Root node: a leaf if {@link #height} = 0, else an inner node.
+     */
+    protected int root;
+
+    /**
+     * Number of inner levels above the leaves.
+     */
+    protected int height;
+
+    protected int size;
+
+    /**
+     * Path of the last descent: inner node and child index taken at each depth.
+     */
+    private int[] pathNodes = new int[8];
+
+    private int[] pathChildIndexes = new int[8];
+
+    /**
+     * Scratch buffers for the splits.
+     */
+    private final/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            scratchKeys = Intrinsics.<KType> newArray(KTypeVTypeSortedMap.NODE_SIZE + 1);
+
+    private final/*! #if ($TemplateOptions.VTypePrimitive)
+          VType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            scratchValues = Intrinsics.<VType> newArray(KTypeVTypeSortedMap.NODE_SIZE + 1);
+
+    private final int[] scratchChildren = new int[KTypeVTypeSortedMap.NODE_CHILDREN + 1];
+
+    /**
+     * Default constructor: Creates an empty map.
+     */
+    public KTypeVTypeSortedMap() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a map able to hold at least <code>initialCapacity</code> entries without growing its buffers,
+     * with half-full leaves.
+     */
+    public KTypeVTypeSortedMap(final int initialCapacity) {
+
+        final int nbLeaves = Math.max(initialCapacity, 0) / (KTypeVTypeSortedMap.NODE_SIZE / 2) + 1;
+
+        allocateLeaves(nbLeaves);
+        allocateInners(nbLeaves / (KTypeVTypeSortedMap.NODE_CHILDREN / 2) + 1);
+
+        resetTree();
+    }
+
+    /**
+     * Create a map containing the entries of <code>container</code>.
+     */
+    public KTypeVTypeSortedMap(final KTypeVTypeAssociativeContainer<KType, VType> container) {
+        this(container.size());
+        putAll(container);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType put(final KType key, final VType value) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index >= 0) {
+
+            final VType previous = Intrinsics.<VType> cast(this.values[index]);
+            this.values[index] = value;
+
+            return previous;
+        }
+
+        insert(leaf, -index - 1 - leaf * KTypeVTypeSortedMap.NODE_SIZE, key, value);
+
+        return this.defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int putAll(final KTypeVTypeAssociativeContainer<? extends KType, ? extends VType> container) {
+        return putAll((Iterable<? extends KTypeVTypeCursor<? extends KType, ? extends VType>>) container);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int putAll(final Iterable<? extends KTypeVTypeCursor<? extends KType, ? extends VType>> iterable) {
+        final int count = this.size;
+        for (final KTypeVTypeCursor<? extends KType, ? extends VType> c : iterable) {
+            put(c.key, c.value);
+        }
+        return this.size - count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean putIfAbsent(final KType key, final VType value) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index >= 0) {
+            return false;
+        }
+
+        insert(leaf, -index - 1 - leaf * KTypeVTypeSortedMap.NODE_SIZE, key, value);
+
+        return true;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * If <code>key</code> exists, <code>putValue</code> is inserted into the map,
+     * otherwise any existing value is incremented by <code>additionValue</code>.
+     *
+     * @param key
+     *          The key of the value to adjust.
+     * @param putValue
+     *          The value to put if <code>key</code> does not exist.
+     * @param incrementValue
+     *          The value to add to the existing value if <code>key</code> exists.
+     * @return Returns the current value associated with <code>key</code> (after
+     *         changes).
+     */
+    @SuppressWarnings("cast")
+    @Override
+    public VType putOrAdd(final KType key, final VType putValue, final VType incrementValue) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index >= 0) {
+
+            this.values[index] = (VType) (Intrinsics.<VType> add(Intrinsics.<VType> cast(this.values[index]), incrementValue));
+
+            return Intrinsics.<VType> cast(this.values[index]);
+        }
+
+        insert(leaf, -index - 1 - leaf * KTypeVTypeSortedMap.NODE_SIZE, key, putValue);
+
+        return putValue;
+    }
+
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Adds <code>incrementValue</code> to any existing value for the given <code>key</code>
+     * or inserts <code>incrementValue</code> if <code>key</code> did not previously exist.
+     *
+     * @param key The key of the value to adjust.
+     * @param incrementValue The value to put or add to the existing value if <code>key</code> exists.
+     * @return Returns the current value associated with <code>key</code> (after changes).
+     */
+    @Override
+    public VType addTo(final KType key, final VType incrementValue)
+    {
+        return putOrAdd(key, incrementValue, incrementValue);
+    }
+
+    /*! #end !*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType get(final KType key) {
+
+        final int index = searchLeaf(descend(key), key);
+
+        if (index >= 0) {
+            return Intrinsics.<VType> cast(this.values[index]);
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final KType key) {
+
+        return searchLeaf(descend(key), key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType remove(final KType key) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index < 0) {
+            return this.defaultValue;
+        }
+
+        final VType value = Intrinsics.<VType> cast(this.values[index]);
+
+        final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+        final int count = this.leafCounts[leaf];
+
+        System.arraycopy(this.keys, index + 1, this.keys, index, base + count - index - 1);
+        System.arraycopy(this.values, index + 1, this.values, index, base + count - index - 1);
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        this.values[base + count - 1] = Intrinsics.<VType> empty();
+        /*! #end !*/
+
+        this.leafCounts[leaf] = count - 1;
+        this.size--;
+
+        if (count == 1 && this.height > 0) {
+
+            //the path of the descent is still valid
+            removeLeaf(leaf);
+        }
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public int removeAll(final KTypeContainer<? super KType> other) {
+
+        //1) other is a KTypeLookupContainer, so with fast lookup guarantees
+        //and is bigger than this, so take advantage of both and iterate over this
+        //and test other elements by their contains().
+        if (other.size() >= this.size && other instanceof KTypeLookupContainer<?>) {
+
+            return removeAll(new KTypeVTypePredicate<KType, VType>() {
+
+                @Override
+                public boolean apply(final KType key, final VType value) {
+
+                    return other.contains(key);
+                }
+            });
+        }
+
+        //2) Do not use contains() from container, which may lead to O(n**2) execution times,
+        //so it iterate linearly and call remove() from map which is O(log(n)).
+        final int before = this.size;
+
+        for (final KTypeCursor<? super KType> c : other) {
+
+            remove(Intrinsics.<KType> cast(c.value));
+        }
+
+        return before - this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int removeAll(final KTypePredicate<? super KType> predicate) {
+
+        return removeAll(new KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                return predicate.apply(key);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The leaves are compacted in place, then merged with their previous leaf when the entries of both fit in one, and the inner nodes are rebuilt.
+     * This is also done if predicate throws, keeping the entries it has not seen.</p>
+     */
+    @Override
+    public int removeAll(final KTypeVTypePredicate<? super KType, ? super VType> predicate) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        final int before = this.size;
+
+        try {
+
+            for (int leaf = this.firstLeaf; leaf != -1; leaf = this.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int count = this.leafCounts[leaf];
+
+                int kept = 0;
+                int i = 0;
+
+                try {
+
+                    for (; i < count; i++) {
+
+                        if (!predicate.apply(keys[base + i], values[base + i])) {
+
+                            keys[base + kept] = keys[base + i];
+                            values[base + kept] = values[base + i];
+                            kept++;
+                        }
+                    }
+                } finally {
+
+                    //keep the entries not seen if predicate threw
+                    System.arraycopy(keys, base + i, keys, base + kept, count - i);
+                    System.arraycopy(values, base + i, values, base + kept, count - i);
+                    kept += count - i;
+
+                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                    //help the GC
+                    VTypeArrays.<VType> blankArray(values, base + kept, base + count);
+                    /*! #end !*/
+
+                    this.leafCounts[leaf] = kept;
+                    this.size -= count - kept;
+                }
+            }
+        } finally {
+
+            if (this.size != before && this.height > 0) {
+
+                //unlink the emptied leaves, merge the sparse ones and rebuild the inner nodes
+                rebuildInnerNodes();
+            }
+        }
+
+        return before - this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+
+        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+        //help the GC
+        VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), 0, this.values.length);
+        /*! #end !*/
+
+        resetTree();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int capacity() {
+
+        return this.leafCounts.length * KTypeVTypeSortedMap.NODE_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return the smallest key of the map, which must not be empty.
+     */
+    public KType firstKey() {
+        assert this.size > 0 : "The map is empty.";
+
+        return Intrinsics.<KType> cast(this.keys[this.firstLeaf * KTypeVTypeSortedMap.NODE_SIZE]);
+    }
+
+    /**
+     * @return the greatest key of the map, which must not be empty.
+     */
+    public KType lastKey() {
+        assert this.size > 0 : "The map is empty.";
+
+        return Intrinsics.<KType> cast(this.keys[this.lastLeaf * KTypeVTypeSortedMap.NODE_SIZE + this.leafCounts[this.lastLeaf] - 1]);
+    }
+
+    /**
+     * @return the index of the entry of the greatest key less than or equal to key, or -1 if there is none.
+     * @see #keyAt(int)
+     * @see #valueAt(int)
+     */
+    public int floorIndex(final KType key) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index >= 0) {
+            return index;
+        }
+
+        final int insertionIndex = -index - 1;
+
+        if (insertionIndex > leaf * KTypeVTypeSortedMap.NODE_SIZE) {
+            return insertionIndex - 1;
+        }
+
+        //all the keys of the previous leaves are smaller than key
+        final int previous = this.leafPrev[leaf];
+
+        return previous == -1 ? -1 : previous * KTypeVTypeSortedMap.NODE_SIZE + this.leafCounts[previous] - 1;
+    }
+
+    /**
+     * @return the index of the entry of the smallest key greater than or equal to key, or -1 if there is none.
+     * @see #keyAt(int)
+     * @see #valueAt(int)
+     */
+    public int ceilingIndex(final KType key) {
+
+        final int leaf = descend(key);
+        final int index = searchLeaf(leaf, key);
+
+        if (index >= 0) {
+            return index;
+        }
+
+        final int insertionIndex = -index - 1;
+
+        if (insertionIndex < leaf * KTypeVTypeSortedMap.NODE_SIZE + this.leafCounts[leaf]) {
+            return insertionIndex;
+        }
+
+        //all the keys of the next leaves are greater than key
+        final int next = this.leafNext[leaf];
+
+        return next == -1 ? -1 : next * KTypeVTypeSortedMap.NODE_SIZE;
+    }
+
+    /**
+     * @return the greatest key less than or equal to key, or the default key <code>0</code> if there is none.
+     * As <code>0</code> may also be a key of the map, use {@link #floorIndex(Object)} to tell both cases apart.
+     */
+    public KType floorKey(final KType key) {
+
+        final int index = floorIndex(key);
+
+        return index == -1 ? Intrinsics.<KType> empty() : Intrinsics.<KType> cast(this.keys[index]);
+    }
+
+    /**
+     * @return the smallest key greater than or equal to key, or the default key <code>0</code> if there is none.
+     * As <code>0</code> may also be a key of the map, use {@link #ceilingIndex(Object)} to tell both cases apart.
+     */
+    public KType ceilingKey(final KType key) {
+
+        final int index = ceilingIndex(key);
+
+        return index == -1 ? Intrinsics.<KType> empty() : Intrinsics.<KType> cast(this.keys[index]);
+    }
+
+    /**
+     * @return the key of the entry at index, as returned by {@link #floorIndex(Object)} or {@link #ceilingIndex(Object)}.
+     */
+    public KType keyAt(final int index) {
+
+        return Intrinsics.<KType> cast(this.keys[index]);
+    }
+
+    /**
+     * @return the value of the entry at index, as returned by {@link #floorIndex(Object)} or {@link #ceilingIndex(Object)}.
+     */
+    public VType valueAt(final int index) {
+
+        return Intrinsics.<VType> cast(this.values[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int leaf = this.firstLeaf; leaf != -1; leaf = this.leafNext[leaf]) {
+
+            final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+            final int end = base + this.leafCounts[leaf];
+
+            for (int i = base; i < end; i++) {
+
+                h += BitMixer.mix(keys[i]) ^ BitMixer.mix(values[i]);
+            }
+        }
+
+        return h;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj != null) {
+            if (obj == this) {
+                return true;
+            }
+
+            //must be of the same class, subclasses are not comparable
+            if (obj.getClass() != this.getClass()) {
+                return false;
+            }
+
+            /* #if ($TemplateOptions.AnyGeneric) */
+            @SuppressWarnings("unchecked")
+            final/* #end */
+            KTypeVTypeSortedMap<KType, VType> other = (KTypeVTypeSortedMap<KType, VType>) obj;
+
+            //must be of the same size
+            if (other.size() != this.size()) {
+                return false;
+            }
+
+            //both are sorted: compare entries pairwise
+            int leaf = this.firstLeaf;
+            int i = 0;
+            int otherLeaf = other.firstLeaf;
+            int otherI = 0;
+
+            for (int n = 0; n < this.size; n++) {
+
+                while (i == this.leafCounts[leaf]) {
+                    leaf = this.leafNext[leaf];
+                    i = 0;
+                }
+
+                while (otherI == other.leafCounts[otherLeaf]) {
+                    otherLeaf = other.leafNext[otherLeaf];
+                    otherI = 0;
+                }
+
+                final int index = leaf * KTypeVTypeSortedMap.NODE_SIZE + i;
+                final int otherIndex = otherLeaf * KTypeVTypeSortedMap.NODE_SIZE + otherI;
+
+                if (!Intrinsics.<KType> equals(this.keys[index], other.keys[otherIndex])
+                        || !Intrinsics.<VType> equals(this.values[index], other.values[otherIndex])) {
+                    return false;
+                }
+
+                i++;
+                otherI++;
+            }
+
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * An iterator implementation for {@link #iterator}, in key order, optionally bounded by an excluded upper key.
+     * Holds a KTypeVTypeCursor returning
+     * (key, value, index) = (KType key, VType value, index the position of the entry in {@link KTypeVTypeSortedMap#keys})
+     */
+    public final class EntryIterator extends AbstractIterator<KTypeVTypeCursor<KType, VType>>
+    {
+        public final KTypeVTypeCursor<KType, VType> cursor;
+
+        private int leaf;
+
+        private int position;
+
+        private boolean bounded;
+
+        private KType toKey;
+
+        public EntryIterator() {
+            this.cursor = new KTypeVTypeCursor<KType, VType>();
+            this.cursor.index = -1;
+        }
+
+        @Override
+        protected KTypeVTypeCursor<KType, VType> fetch() {
+
+            while (this.leaf != -1 && this.position == KTypeVTypeSortedMap.this.leafCounts[this.leaf]) {
+
+                this.leaf = KTypeVTypeSortedMap.this.leafNext[this.leaf];
+                this.position = 0;
+            }
+
+            if (this.leaf == -1) {
+                return done();
+            }
+
+            final int index = this.leaf * KTypeVTypeSortedMap.NODE_SIZE + this.position;
+            final KType key = Intrinsics.<KType> cast(KTypeVTypeSortedMap.this.keys[index]);
+
+            if (this.bounded && !(Intrinsics.<KType> isCompInfUnchecked(key, this.toKey))) {
+                return done();
+            }
+
+            this.cursor.index = index;
+            this.cursor.key = key;
+            this.cursor.value = Intrinsics.<VType> cast(KTypeVTypeSortedMap.this.values[index]);
+
+            this.position++;
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * internal pool of EntryIterator
+     */
+    protected final IteratorPool<KTypeVTypeCursor<KType, VType>, EntryIterator> entryIteratorPool = new IteratorPool<KTypeVTypeCursor<KType, VType>, EntryIterator>(
+            new ObjectFactory<EntryIterator>() {
+
+                @Override
+                public EntryIterator create() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public void initialize(final EntryIterator obj) {
+                    obj.cursor.index = -1;
+                    obj.leaf = KTypeVTypeSortedMap.this.firstLeaf;
+                    obj.position = 0;
+                    obj.bounded = false;
+                }
+
+                @Override
+                public void reset(final EntryIterator obj) {
+                    /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                    obj.cursor.value = null;
+                    /*! #end !*/
+                }
+            });
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EntryIterator iterator() {
+        //return new EntryIterator();
+        return this.entryIteratorPool.borrow();
+    }
+
+    /**
+     * Returns a pooled iterator over the entries of keys in [fromKey; toKey[, in key order.
+     */
+    public EntryIterator iterator(final KType fromKey, final KType toKey) {
+
+        final EntryIterator it = this.entryIteratorPool.borrow();
+
+        final int start = ceilingIndex(fromKey);
+
+        if (start == -1) {
+
+            it.leaf = -1;
+
+        } else {
+
+            it.leaf = start / KTypeVTypeSortedMap.NODE_SIZE;
+            it.position = start % KTypeVTypeSortedMap.NODE_SIZE;
+        }
+
+        it.bounded = true;
+        it.toKey = toKey;
+
+        return it;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final T procedure) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int leaf = this.firstLeaf; leaf != -1; leaf = this.leafNext[leaf]) {
+
+            final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+            final int end = base + this.leafCounts[leaf];
+
+            for (int i = base; i < end; i++) {
+
+                procedure.apply(keys[i], values[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final T predicate) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        for (int leaf = this.firstLeaf; leaf != -1; leaf = this.leafNext[leaf]) {
+
+            final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+            final int end = base + this.leafCounts[leaf];
+
+            for (int i = base; i < end; i++) {
+
+                if (!predicate.apply(keys[i], values[i])) {
+                    return predicate;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Applies procedure to the entries of keys in [fromKey; toKey[, in key order.
+     */
+    public <T extends KTypeVTypeProcedure<? super KType, ? super VType>> T forEach(final KType fromKey, final KType toKey, final T procedure) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        final int start = ceilingIndex(fromKey);
+
+        if (start == -1) {
+            return procedure;
+        }
+
+        //the scan starts in the middle of the first leaf, at the start of the next ones
+        int from = start;
+
+        for (int leaf = start / KTypeVTypeSortedMap.NODE_SIZE; leaf != -1; leaf = this.leafNext[leaf]) {
+
+            final int end = leaf * KTypeVTypeSortedMap.NODE_SIZE + this.leafCounts[leaf];
+
+            for (int i = from; i < end; i++) {
+
+                if (!(Intrinsics.<KType> isCompInfUnchecked(keys[i], toKey))) {
+                    return procedure;
+                }
+
+                procedure.apply(keys[i], values[i]);
+            }
+
+            from = this.leafNext[leaf] * KTypeVTypeSortedMap.NODE_SIZE;
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies predicate to the entries of keys in [fromKey; toKey[, in key order, until it returns false.
+     */
+    public <T extends KTypeVTypePredicate<? super KType, ? super VType>> T forEach(final KType fromKey, final KType toKey, final T predicate) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final VType[] values = Intrinsics.<VType[]> cast(this.values);
+
+        final int start = ceilingIndex(fromKey);
+
+        if (start == -1) {
+            return predicate;
+        }
+
+        //the scan starts in the middle of the first leaf, at the start of the next ones
+        int from = start;
+
+        for (int leaf = start / KTypeVTypeSortedMap.NODE_SIZE; leaf != -1; leaf = this.leafNext[leaf]) {
+
+            final int end = leaf * KTypeVTypeSortedMap.NODE_SIZE + this.leafCounts[leaf];
+
+            for (int i = from; i < end; i++) {
+
+                if (!(Intrinsics.<KType> isCompInfUnchecked(keys[i], toKey)) || !predicate.apply(keys[i], values[i])) {
+                    return predicate;
+                }
+            }
+
+            from = this.leafNext[leaf] * KTypeVTypeSortedMap.NODE_SIZE;
+        }
+
+        return predicate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return a new KeysCollection view of the keys of this map.
+     */
+    @Override
+    public KeysCollection keys() {
+        return new KeysCollection();
+    }
+
+    /**
+     * A view of the keys inside this map, in key order.
+     */
+    public final class KeysCollection extends AbstractKTypeCollection<KType> implements KTypeLookupContainer<KType>
+    {
+        private final KTypeVTypeSortedMap<KType, VType> owner = KTypeVTypeSortedMap.this;
+
+        @Override
+        public boolean contains(final KType e) {
+            return containsKey(e);
+        }
+
+        @Override
+        public <T extends KTypeProcedure<? super KType>> T forEach(final T procedure) {
+
+            final KType[] keys = Intrinsics.<KType[]> cast(this.owner.keys);
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int end = base + this.owner.leafCounts[leaf];
+
+                for (int i = base; i < end; i++) {
+
+                    procedure.apply(keys[i]);
+                }
+            }
+
+            return procedure;
+        }
+
+        @Override
+        public <T extends KTypePredicate<? super KType>> T forEach(final T predicate) {
+
+            final KType[] keys = Intrinsics.<KType[]> cast(this.owner.keys);
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int end = base + this.owner.leafCounts[leaf];
+
+                for (int i = base; i < end; i++) {
+
+                    if (!predicate.apply(keys[i])) {
+                        return predicate;
+                    }
+                }
+            }
+
+            return predicate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public KeysIterator iterator() {
+            //return new KeysIterator();
+            return this.keyIteratorPool.borrow();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return this.owner.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int capacity() {
+
+            return this.owner.capacity();
+        }
+
+        @Override
+        public void clear() {
+            this.owner.clear();
+        }
+
+        @Override
+        public int removeAll(final KTypePredicate<? super KType> predicate) {
+            return this.owner.removeAll(predicate);
+        }
+
+        @Override
+        public int removeAll(final KType e) {
+            final boolean hasKey = this.owner.containsKey(e);
+            int result = 0;
+            if (hasKey) {
+                this.owner.remove(e);
+                result = 1;
+            }
+            return result;
+        }
+
+        /**
+         * internal pool of KeysIterator
+         */
+        protected final IteratorPool<KTypeCursor<KType>, KeysIterator> keyIteratorPool = new IteratorPool<KTypeCursor<KType>, KeysIterator>(
+                new ObjectFactory<KeysIterator>() {
+
+                    @Override
+                    public KeysIterator create() {
+                        return new KeysIterator();
+                    }
+
+                    @Override
+                    public void initialize(final KeysIterator obj) {
+                        obj.cursor.index = -1;
+                        obj.leaf = KTypeVTypeSortedMap.this.firstLeaf;
+                        obj.position = 0;
+                    }
+
+                    @Override
+                    public void reset(final KeysIterator obj) {
+                        //nothing
+                    }
+                });
+
+        @Override
+        public KType[] toArray(final KType[] target) {
+
+            int count = 0;
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int length = this.owner.leafCounts[leaf];
+
+                System.arraycopy(this.owner.keys, leaf * KTypeVTypeSortedMap.NODE_SIZE, target, count, length);
+                count += length;
+            }
+
+            assert count == this.owner.size();
+            return target;
+        }
+    };
+
+    /**
+     * An iterator over the set of keys, in key order.
+     * Holds a KTypeCursor returning (value, index) = (KType key, index the position in buffer {@link KTypeVTypeSortedMap#keys}.)
+     */
+    public final class KeysIterator extends AbstractIterator<KTypeCursor<KType>>
+    {
+        public final KTypeCursor<KType> cursor;
+
+        private int leaf;
+
+        private int position;
+
+        public KeysIterator() {
+            this.cursor = new KTypeCursor<KType>();
+            this.cursor.index = -1;
+        }
+
+        @Override
+        protected KTypeCursor<KType> fetch() {
+
+            while (this.leaf != -1 && this.position == KTypeVTypeSortedMap.this.leafCounts[this.leaf]) {
+
+                this.leaf = KTypeVTypeSortedMap.this.leafNext[this.leaf];
+                this.position = 0;
+            }
+
+            if (this.leaf == -1) {
+                return done();
+            }
+
+            this.cursor.index = this.leaf * KTypeVTypeSortedMap.NODE_SIZE + this.position;
+            this.cursor.value = Intrinsics.<KType> cast(KTypeVTypeSortedMap.this.keys[this.cursor.index]);
+
+            this.position++;
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return a new ValuesCollection view of the values of this map.
+     */
+    @Override
+    public ValuesCollection values() {
+        return new ValuesCollection();
+    }
+
+    /**
+     * A view over the set of values of this map, in key order.
+     */
+    public final class ValuesCollection extends AbstractKTypeCollection<VType>
+    {
+        private final KTypeVTypeSortedMap<KType, VType> owner = KTypeVTypeSortedMap.this;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return this.owner.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int capacity() {
+
+            return this.owner.capacity();
+        }
+
+        @Override
+        public boolean contains(final VType value) {
+
+            // This is a linear scan over the values, but it's in the contract, so be it.
+            final VType[] values = Intrinsics.<VType[]> cast(this.owner.values);
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int end = base + this.owner.leafCounts[leaf];
+
+                for (int i = base; i < end; i++) {
+
+                    if (Intrinsics.<VType> equals(value, values[i])) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public <T extends KTypeProcedure<? super VType>> T forEach(final T procedure) {
+
+            final VType[] values = Intrinsics.<VType[]> cast(this.owner.values);
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int end = base + this.owner.leafCounts[leaf];
+
+                for (int i = base; i < end; i++) {
+
+                    procedure.apply(values[i]);
+                }
+            }
+
+            return procedure;
+        }
+
+        @Override
+        public <T extends KTypePredicate<? super VType>> T forEach(final T predicate) {
+
+            final VType[] values = Intrinsics.<VType[]> cast(this.owner.values);
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int end = base + this.owner.leafCounts[leaf];
+
+                for (int i = base; i < end; i++) {
+
+                    if (!predicate.apply(values[i])) {
+                        return predicate;
+                    }
+                }
+            }
+
+            return predicate;
+        }
+
+        @Override
+        public ValuesIterator iterator() {
+            // return new ValuesIterator();
+            return this.valuesIteratorPool.borrow();
+        }
+
+        /**
+         * {@inheritDoc}
+         * Indeed removes all the (key,value) pairs matching
+         * (key ? ,  e) with the  same  e,  from  the map.
+         */
+        @Override
+        public int removeAll(final VType e) {
+
+            return this.owner.removeAll(new KTypeVTypePredicate<KType, VType>() {
+
+                @Override
+                public boolean apply(final KType key, final VType value) {
+
+                    return Intrinsics.<VType> equals(e, value);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         * Indeed removes all the (key,value) pairs matching
+         * the predicate for the values, from  the map.
+         */
+        @Override
+        public int removeAll(final KTypePredicate<? super VType> predicate) {
+
+            return this.owner.removeAll(new KTypeVTypePredicate<KType, VType>() {
+
+                @Override
+                public boolean apply(final KType key, final VType value) {
+
+                    return predicate.apply(value);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         *  Alias for clear() the whole map.
+         */
+        @Override
+        public void clear() {
+            this.owner.clear();
+        }
+
+        /**
+         * internal pool of ValuesIterator
+         */
+        protected final IteratorPool<KTypeCursor<VType>, ValuesIterator> valuesIteratorPool = new IteratorPool<KTypeCursor<VType>, ValuesIterator>(
+                new ObjectFactory<ValuesIterator>() {
+
+                    @Override
+                    public ValuesIterator create() {
+                        return new ValuesIterator();
+                    }
+
+                    @Override
+                    public void initialize(final ValuesIterator obj) {
+                        obj.cursor.index = -1;
+                        obj.leaf = KTypeVTypeSortedMap.this.firstLeaf;
+                        obj.position = 0;
+                    }
+
+                    @Override
+                    public void reset(final ValuesIterator obj) {
+
+                        /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                        obj.cursor.value = null;
+                        /*! #end !*/
+                    }
+                });
+
+        @Override
+        public VType[] toArray(final VType[] target) {
+
+            int count = 0;
+
+            for (int leaf = this.owner.firstLeaf; leaf != -1; leaf = this.owner.leafNext[leaf]) {
+
+                final int length = this.owner.leafCounts[leaf];
+
+                System.arraycopy(this.owner.values, leaf * KTypeVTypeSortedMap.NODE_SIZE, target, count, length);
+                count += length;
+            }
+
+            assert count == this.owner.size();
+            return target;
+        }
+    }
+
+    /**
+     * An iterator over the set of values, in key order.
+     * Holds a KTypeCursor returning (value, index) = (VType value, index the position in buffer {@link KTypeVTypeSortedMap#values}).
+     */
+    public final class ValuesIterator extends AbstractIterator<KTypeCursor<VType>>
+    {
+        public final KTypeCursor<VType> cursor;
+
+        private int leaf;
+
+        private int position;
+
+        public ValuesIterator() {
+            this.cursor = new KTypeCursor<VType>();
+            this.cursor.index = -1;
+        }
+
+        @Override
+        protected KTypeCursor<VType> fetch() {
+
+            while (this.leaf != -1 && this.position == KTypeVTypeSortedMap.this.leafCounts[this.leaf]) {
+
+                this.leaf = KTypeVTypeSortedMap.this.leafNext[this.leaf];
+                this.position = 0;
+            }
+
+            if (this.leaf == -1) {
+                return done();
+            }
+
+            this.cursor.index = this.leaf * KTypeVTypeSortedMap.NODE_SIZE + this.position;
+            this.cursor.value = Intrinsics.<VType> cast(KTypeVTypeSortedMap.this.values[this.cursor.index]);
+
+            this.position++;
+
+            return this.cursor;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeVTypeSortedMap<KType, VType> clone() {
+
+        final KTypeVTypeSortedMap<KType, VType> cloned = new KTypeVTypeSortedMap<KType, VType>(this.size);
+
+        //in key order, so that leaves are filled.
+        cloned.putAll(this);
+
+        cloned.defaultValue = this.defaultValue;
+
+        return cloned;
+    }
+
+    /**
+     * Convert the contents of this map to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        boolean first = true;
+        for (final KTypeVTypeCursor<KType, VType> cursor : this) {
+            if (!first) {
+                buffer.append(", ");
+            }
+            buffer.append(cursor.key);
+            buffer.append("=>");
+            buffer.append(cursor.value);
+            first = false;
+        }
+        buffer.append("]");
+        return buffer.toString();
+    }
+
+    /**
+     * Creates a sorted map from two index-aligned arrays of key-value pairs.
+     */
+    public static <KType, VType> KTypeVTypeSortedMap<KType, VType> from(final KType[] keys, final VType[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Arrays of keys and values must have an identical length.");
+        }
+
+        final KTypeVTypeSortedMap<KType, VType> map = new KTypeVTypeSortedMap<KType, VType>(keys.length);
+
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Create a sorted map from another associative container. (constructor shortcut)
+     */
+    public static <KType, VType> KTypeVTypeSortedMap<KType, VType> from(
+            final KTypeVTypeAssociativeContainer<KType, VType> container) {
+        return new KTypeVTypeSortedMap<KType, VType>(container);
+    }
+
+    /**
+     * Create a new sorted map without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeSortedMap<KType, VType> newInstance() {
+        return new KTypeVTypeSortedMap<KType, VType>();
+    }
+
+    /**
+     * Create a new sorted map with initial capacity
+     * (constructor shortcut).
+     */
+    public static <KType, VType> KTypeVTypeSortedMap<KType, VType> newInstance(final int initialCapacity) {
+        return new KTypeVTypeSortedMap<KType, VType>(initialCapacity);
+    }
+
+    /**
+     * Returns the "default value" value used in containers methods returning
+     * "default value"
+     */
+    @Override
+    public VType getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Set the "default value" value to be used in containers methods returning
+     * "default value"
+     */
+    @Override
+    public void setDefaultValue(final VType defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Descend from the root to the leaf where key is or would be, recording the path.
+     */
+    private int descend(final KType key) {
+
+        final KType[] innerKeys = Intrinsics.<KType[]> cast(this.innerKeys);
+        final int[] children = this.children;
+
+        int node = this.root;
+
+        for (int depth = 0; depth < this.height; depth++) {
+
+            //child index = number of separators <= key
+            final int base = node * KTypeVTypeSortedMap.NODE_SIZE;
+
+            int low = 0;
+            int high = this.innerCounts[node];
+
+            while (low < high) {
+
+                final int mid = (low + high) >>> 1;
+
+                if (Intrinsics.<KType> isCompSupUnchecked(innerKeys[base + mid], key)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+
+            this.pathNodes[depth] = node;
+            this.pathChildIndexes[depth] = low;
+
+            node = children[node * KTypeVTypeSortedMap.NODE_CHILDREN + low];
+        }
+
+        return node;
+    }
+
+    /**
+     * Binary search of key in leaf.
+     * @return the index of key in {@link #keys} if found, else -(insertion index) - 1.
+     */
+    private int searchLeaf(final int leaf, final KType key) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int low = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+        int high = low + this.leafCounts[leaf] - 1;
+
+        while (low <= high) {
+
+            final int mid = (low + high) >>> 1;
+            final int cmp = Intrinsics.<KType> compareUnchecked(keys[mid], key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    /**
+     * Insert a new (key, value) at position in leaf, the path to leaf being the one of the last descent.
+     */
+    private void insert(final int leaf, final int position, final KType key, final VType value) {
+
+        final int count = this.leafCounts[leaf];
+        final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+
+        this.size++;
+
+        if (count < KTypeVTypeSortedMap.NODE_SIZE) {
+
+            System.arraycopy(this.keys, base + position, this.keys, base + position + 1, count - position);
+            System.arraycopy(this.values, base + position, this.values, base + position + 1, count - position);
+
+            this.keys[base + position] = key;
+            this.values[base + position] = value;
+            this.leafCounts[leaf] = count + 1;
+
+            return;
+        }
+
+        //full leaf: split it
+        final int right = allocateLeaf();
+        final int rightBase = right * KTypeVTypeSortedMap.NODE_SIZE;
+
+        final KType separator;
+
+        if (position == KTypeVTypeSortedMap.NODE_SIZE) {
+
+            //append: start a new leaf, leaving this one full
+            this.keys[rightBase] = key;
+            this.values[rightBase] = value;
+            this.leafCounts[right] = 1;
+
+            separator = key;
+
+        } else {
+
+            final KType[] scratchKeys = Intrinsics.<KType[]> cast(this.scratchKeys);
+            final VType[] scratchValues = Intrinsics.<VType[]> cast(this.scratchValues);
+
+            System.arraycopy(this.keys, base, scratchKeys, 0, position);
+            System.arraycopy(this.values, base, scratchValues, 0, position);
+            scratchKeys[position] = key;
+            scratchValues[position] = value;
+            System.arraycopy(this.keys, base + position, scratchKeys, position + 1, count - position);
+            System.arraycopy(this.values, base + position, scratchValues, position + 1, count - position);
+
+            final int half = (KTypeVTypeSortedMap.NODE_SIZE + 1) / 2;
+
+            System.arraycopy(scratchKeys, 0, this.keys, base, half);
+            System.arraycopy(scratchValues, 0, this.values, base, half);
+            System.arraycopy(scratchKeys, half, this.keys, rightBase, KTypeVTypeSortedMap.NODE_SIZE + 1 - half);
+            System.arraycopy(scratchValues, half, this.values, rightBase, KTypeVTypeSortedMap.NODE_SIZE + 1 - half);
+
+            /*! #if ($TemplateOptions.VTypeGeneric) !*/
+            //help the GC
+            VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), base + half, base + count);
+            VTypeArrays.<VType> blankArray(scratchValues, 0, scratchValues.length);
+            /*! #end !*/
+
+            this.leafCounts[leaf] = half;
+            this.leafCounts[right] = KTypeVTypeSortedMap.NODE_SIZE + 1 - half;
+
+            separator = scratchKeys[half];
+        }
+
+        //link right after leaf
+        final int next = this.leafNext[leaf];
+
+        this.leafNext[right] = next;
+        this.leafPrev[right] = leaf;
+        this.leafNext[leaf] = right;
+
+        if (next == -1) {
+            this.lastLeaf = right;
+        } else {
+            this.leafPrev[next] = right;
+        }
+
+        insertInParent(this.height - 1, separator, right);
+    }
+
+    /**
+     * Insert separator and its right child after the child of the path node at depth, splitting
+     * the full nodes up to the root.
+     */
+    private void insertInParent(int depth, KType separator, int right) {
+
+        while (depth >= 0) {
+
+            final int node = this.pathNodes[depth];
+            final int childIndex = this.pathChildIndexes[depth];
+            final int count = this.innerCounts[node];
+
+            final int base = node * KTypeVTypeSortedMap.NODE_SIZE;
+            final int childBase = node * KTypeVTypeSortedMap.NODE_CHILDREN;
+
+            if (count < KTypeVTypeSortedMap.NODE_SIZE) {
+
+                System.arraycopy(this.innerKeys, base + childIndex, this.innerKeys, base + childIndex + 1, count - childIndex);
+                System.arraycopy(this.children, childBase + childIndex + 1, this.children, childBase + childIndex + 2, count - childIndex);
+
+                this.innerKeys[base + childIndex] = separator;
+                this.children[childBase + childIndex + 1] = right;
+                this.innerCounts[node] = count + 1;
+
+                return;
+            }
+
+            //full inner node: split it
+            final int newNode = allocateInner();
+            final int newBase = newNode * KTypeVTypeSortedMap.NODE_SIZE;
+            final int newChildBase = newNode * KTypeVTypeSortedMap.NODE_CHILDREN;
+
+            final KType up;
+
+            if (childIndex == count) {
+
+                //append: the new node only has the new child
+                this.children[newChildBase] = right;
+                this.innerCounts[newNode] = 0;
+
+                up = separator;
+
+            } else {
+
+                final KType[] scratchKeys = Intrinsics.<KType[]> cast(this.scratchKeys);
+                final int[] scratchChildren = this.scratchChildren;
+
+                System.arraycopy(this.innerKeys, base, scratchKeys, 0, childIndex);
+                scratchKeys[childIndex] = separator;
+                System.arraycopy(this.innerKeys, base + childIndex, scratchKeys, childIndex + 1, count - childIndex);
+
+                System.arraycopy(this.children, childBase, scratchChildren, 0, childIndex + 1);
+                scratchChildren[childIndex + 1] = right;
+                System.arraycopy(this.children, childBase + childIndex + 1, scratchChildren, childIndex + 2, count - childIndex);
+
+                //keys [0; middle[ stay, middle goes up, ]middle; NODE_SIZE] go right
+                final int middle = (KTypeVTypeSortedMap.NODE_SIZE + 1) / 2;
+                final int rightCount = KTypeVTypeSortedMap.NODE_SIZE - middle;
+
+                System.arraycopy(scratchKeys, 0, this.innerKeys, base, middle);
+                System.arraycopy(scratchChildren, 0, this.children, childBase, middle + 1);
+
+                System.arraycopy(scratchKeys, middle + 1, this.innerKeys, newBase, rightCount);
+                System.arraycopy(scratchChildren, middle + 1, this.children, newChildBase, rightCount + 1);
+
+                this.innerCounts[node] = middle;
+                this.innerCounts[newNode] = rightCount;
+
+                up = scratchKeys[middle];
+            }
+
+            separator = up;
+            right = newNode;
+            depth--;
+        }
+
+        //the root was split: grow a new root
+        final int newRoot = allocateInner();
+
+        this.innerKeys[newRoot * KTypeVTypeSortedMap.NODE_SIZE] = separator;
+        this.children[newRoot * KTypeVTypeSortedMap.NODE_CHILDREN] = this.root;
+        this.children[newRoot * KTypeVTypeSortedMap.NODE_CHILDREN + 1] = right;
+        this.innerCounts[newRoot] = 1;
+
+        this.root = newRoot;
+        this.height++;
+
+        if (this.height > this.pathNodes.length) {
+
+            this.pathNodes = KTypeVTypeSortedMap.copyOf(this.pathNodes, 2 * this.height);
+            this.pathChildIndexes = KTypeVTypeSortedMap.copyOf(this.pathChildIndexes, 2 * this.height);
+        }
+    }
+
+    /**
+     * Free an emptied leaf which is not the root, the path to leaf being the one of the last descent.
+     */
+    private void removeLeaf(final int leaf) {
+
+        final int previous = this.leafPrev[leaf];
+        final int next = this.leafNext[leaf];
+
+        if (previous == -1) {
+            this.firstLeaf = next;
+        } else {
+            this.leafNext[previous] = next;
+        }
+
+        if (next == -1) {
+            this.lastLeaf = previous;
+        } else {
+            this.leafPrev[next] = previous;
+        }
+
+        this.leafNext[leaf] = this.freeLeaf;
+        this.freeLeaf = leaf;
+
+        //remove the child from its parent, and the emptied parents in turn
+        for (int depth = this.height - 1; depth >= 0; depth--) {
+
+            final int node = this.pathNodes[depth];
+            final int childIndex = this.pathChildIndexes[depth];
+            final int count = this.innerCounts[node];
+
+            if (count == 0) {
+
+                //its only child is gone
+                assert depth > 0 : "the root has at least 2 children";
+
+                freeInner(node);
+                continue;
+            }
+
+            final int base = node * KTypeVTypeSortedMap.NODE_SIZE;
+            final int childBase = node * KTypeVTypeSortedMap.NODE_CHILDREN;
+
+            //remove the separator on the left of the child, or on its right for the first child
+            final int keyIndex = childIndex == 0 ? 0 : childIndex - 1;
+
+            System.arraycopy(this.innerKeys, base + keyIndex + 1, this.innerKeys, base + keyIndex, count - keyIndex - 1);
+            System.arraycopy(this.children, childBase + childIndex + 1, this.children, childBase + childIndex, count - childIndex);
+
+            this.innerCounts[node] = count - 1;
+            break;
+        }
+
+        //collapse the roots with a single child
+        while (this.height > 0 && this.innerCounts[this.root] == 0) {
+
+            final int oldRoot = this.root;
+
+            this.root = this.children[oldRoot * KTypeVTypeSortedMap.NODE_CHILDREN];
+            this.height--;
+
+            freeInner(oldRoot);
+        }
+    }
+
+    /**
+     * Free the empty leaves, move the entries of each leaf into the previous one when they fit, and rebuild
+     * all the inner nodes bottom-up over the remaining leaves, in key order.
+     */
+    private void rebuildInnerNodes() {
+
+        int[] level = new int[this.leavesAllocated];
+        final KType[] minKeys = Intrinsics.<KType> newArray(this.leavesAllocated);
+
+        int count = 0;
+        int previous = -1;
+
+        for (int leaf = this.firstLeaf; leaf != -1;) {
+
+            final int next = this.leafNext[leaf];
+            final int leafCount = this.leafCounts[leaf];
+
+            if (previous != -1 && this.leafCounts[previous] + leafCount <= KTypeVTypeSortedMap.NODE_SIZE) {
+
+                //merge into the previous leaf, an empty leaf included
+                final int previousCount = this.leafCounts[previous];
+                final int base = leaf * KTypeVTypeSortedMap.NODE_SIZE;
+                final int previousEnd = previous * KTypeVTypeSortedMap.NODE_SIZE + previousCount;
+
+                System.arraycopy(this.keys, base, this.keys, previousEnd, leafCount);
+                System.arraycopy(this.values, base, this.values, previousEnd, leafCount);
+
+                /*! #if ($TemplateOptions.VTypeGeneric) !*/
+                //help the GC
+                VTypeArrays.<VType> blankArray(Intrinsics.<VType[]> cast(this.values), base, base + leafCount);
+                /*! #end !*/
+
+                this.leafCounts[previous] = previousCount + leafCount;
+                this.leafCounts[leaf] = 0;
+
+                this.leafNext[leaf] = this.freeLeaf;
+                this.freeLeaf = leaf;
+
+            } else if (leafCount == 0) {
+
+                this.leafNext[leaf] = this.freeLeaf;
+                this.freeLeaf = leaf;
+
+            } else {
+
+                if (previous == -1) {
+                    this.firstLeaf = leaf;
+                } else {
+                    this.leafNext[previous] = leaf;
+                }
+
+                this.leafPrev[leaf] = previous;
+                previous = leaf;
+
+                level[count] = leaf;
+                minKeys[count] = Intrinsics.<KType> cast(this.keys[leaf * KTypeVTypeSortedMap.NODE_SIZE]);
+                count++;
+            }
+
+            leaf = next;
+        }
+
+        if (count == 0) {
+
+            resetTree();
+            return;
+        }
+
+        this.leafNext[previous] = -1;
+        this.lastLeaf = previous;
+
+        //all the inner nodes are free
+        this.innersAllocated = 0;
+        this.freeInner = -1;
+        this.height = 0;
+
+        while (count > 1) {
+
+            int newCount = 0;
+
+            for (int i = 0; i < count; i += KTypeVTypeSortedMap.NODE_CHILDREN) {
+
+                final int nbChildren = Math.min(KTypeVTypeSortedMap.NODE_CHILDREN, count - i);
+                final int node = allocateInner();
+
+                for (int j = 0; j < nbChildren; j++) {
+
+                    this.children[node * KTypeVTypeSortedMap.NODE_CHILDREN + j] = level[i + j];
+
+                    if (j > 0) {
+                        this.innerKeys[node * KTypeVTypeSortedMap.NODE_SIZE + j - 1] = minKeys[i + j];
+                    }
+                }
+
+                this.innerCounts[node] = nbChildren - 1;
+
+                level[newCount] = node;
+                minKeys[newCount] = minKeys[i];
+                newCount++;
+            }
+
+            count = newCount;
+            this.height++;
+        }
+
+        this.root = level[0];
+
+        if (this.height > this.pathNodes.length) {
+
+            this.pathNodes = new int[2 * this.height];
+            this.pathChildIndexes = new int[2 * this.height];
+        }
+
+        //help the GC
+        level = null;
+    }
+
+    /**
+     * Reset to an empty tree made of a single leaf.
+     */
+    private void resetTree() {
+
+        this.leavesAllocated = 0;
+        this.freeLeaf = -1;
+        this.innersAllocated = 0;
+        this.freeInner = -1;
+
+        this.root = allocateLeaf();
+        this.firstLeaf = this.root;
+        this.lastLeaf = this.root;
+        this.height = 0;
+        this.size = 0;
+    }
+
+    private int allocateLeaf() {
+
+        int leaf = this.freeLeaf;
+
+        if (leaf != -1) {
+
+            this.freeLeaf = this.leafNext[leaf];
+
+        } else {
+
+            if (this.leavesAllocated == this.leafCounts.length) {
+                allocateLeaves(2 * this.leafCounts.length);
+            }
+
+            leaf = this.leavesAllocated++;
+        }
+
+        this.leafCounts[leaf] = 0;
+        this.leafNext[leaf] = -1;
+        this.leafPrev[leaf] = -1;
+
+        return leaf;
+    }
+
+    private int allocateInner() {
+
+        int node = this.freeInner;
+
+        if (node != -1) {
+
+            this.freeInner = this.children[node * KTypeVTypeSortedMap.NODE_CHILDREN];
+
+        } else {
+
+            if (this.innersAllocated == this.innerCounts.length) {
+                allocateInners(2 * this.innerCounts.length);
+            }
+
+            node = this.innersAllocated++;
+        }
+
+        this.innerCounts[node] = 0;
+
+        return node;
+    }
+
+    private void freeInner(final int node) {
+
+        this.children[node * KTypeVTypeSortedMap.NODE_CHILDREN] = this.freeInner;
+        this.freeInner = node;
+    }
+
+    /**
+     * Grow the leaves buffers to nbLeaves leaves, keeping their content.
+     */
+    private void allocateLeaves(final int nbLeaves) {
+
+        try {
+
+            final KType[] newKeys = Intrinsics.<KType> newArray(nbLeaves * KTypeVTypeSortedMap.NODE_SIZE);
+            final VType[] newValues = Intrinsics.<VType> newArray(nbLeaves * KTypeVTypeSortedMap.NODE_SIZE);
+
+            if (this.keys != null) {
+
+                System.arraycopy(this.keys, 0, newKeys, 0, this.keys.length);
+                System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+
+                this.leafCounts = KTypeVTypeSortedMap.copyOf(this.leafCounts, nbLeaves);
+                this.leafNext = KTypeVTypeSortedMap.copyOf(this.leafNext, nbLeaves);
+                this.leafPrev = KTypeVTypeSortedMap.copyOf(this.leafPrev, nbLeaves);
+
+            } else {
+
+                this.leafCounts = new int[nbLeaves];
+                this.leafNext = new int[nbLeaves];
+                this.leafPrev = new int[nbLeaves];
+            }
+
+            this.keys = newKeys;
+            this.values = newValues;
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d leaves",
+                    e,
+                    this.keys == null ? 0 : this.leafCounts.length,
+                    nbLeaves);
+        }
+    }
+
+    /**
+     * Grow the inner nodes buffers to nbInners nodes, keeping their content.
+     */
+    private void allocateInners(final int nbInners) {
+
+        try {
+
+            final KType[] newInnerKeys = Intrinsics.<KType> newArray(nbInners * KTypeVTypeSortedMap.NODE_SIZE);
+
+            if (this.innerKeys != null) {
+
+                System.arraycopy(this.innerKeys, 0, newInnerKeys, 0, this.innerKeys.length);
+
+                this.children = KTypeVTypeSortedMap.copyOf(this.children, nbInners * KTypeVTypeSortedMap.NODE_CHILDREN);
+                this.innerCounts = KTypeVTypeSortedMap.copyOf(this.innerCounts, nbInners);
+
+            } else {
+
+                this.children = new int[nbInners * KTypeVTypeSortedMap.NODE_CHILDREN];
+                this.innerCounts = new int[nbInners];
+            }
+
+            this.innerKeys = newInnerKeys;
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d inner nodes",
+                    e,
+                    this.innerKeys == null ? 0 : this.innerCounts.length,
+                    nbInners);
+        }
+    }
+
+    /**
+     * Copy of the first length elements of array, zero-padded (Arrays.copyOf(int[], int) is not in Java 5).
+     */
+    private static int[] copyOf(final int[] array, final int length) {
+
+        final int[] copy = new int[length];
+
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+
+        return copy;
+    }
+}
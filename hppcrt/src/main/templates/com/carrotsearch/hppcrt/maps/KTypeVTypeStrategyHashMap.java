@@ -0,0 +1,302 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.strategies.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash map of <code>KType</code> to <code>VType</code>, implemented using open
+ * addressing with linear probing for collision resolution, whose keys are hashed by a {@link KTypeHashingStrategy}
+ * instead of the default {@link com.carrotsearch.hppcrt.hash.BitMixer} mixing.
+ * <p>
+ * This is an opt-in variant of {@link KTypeVTypeHashMap}, with the same buffers and API, so that {@link KTypeVTypeHashMap}
+ * itself keeps its inlined mixing with no indirection at all. Here, the strategy is called at every
+ * hashing: as long as an application uses a single strategy class for all its maps of a given key type, the call site
+ * stays monomorphic and the JIT inlines it.
+ * </p>
+ * <p>
+ * The strategy is kept by {@link #clone()}, but is not written by writeTo(DataOutput, boolean):
+ * the map is read back as a plain {@link KTypeVTypeHashMap}.
+ * </p>
+ *
+#if ($TemplateOptions.VTypeGeneric)
+ * <p>This implementation supports <code>null</code> values.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeStrategyHashMap<KType, VType>
+extends KTypeVTypeHashMap<KType, VType>
+{
+    /**
+     * The hashing of the keys.
+     */
+    protected final KTypeHashingStrategy<KType> hashingStrategy;
+
+    /**
+     * Creates a hash map with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}, and the given hashing of the keys.
+     */
+    public KTypeVTypeStrategyHashMap(final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS, HashContainers.DEFAULT_LOAD_FACTOR, hashingStrategy);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}, and the given hashing of the keys.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeVTypeStrategyHashMap(final int initialCapacity, final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR, hashingStrategy);
+    }
+
+    /**
+     * Creates a hash map with the given initial capacity,
+     * load factor, and hashing of the keys.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     * @param hashingStrategy The hashing of the keys, not null.
+     */
+    public KTypeVTypeStrategyHashMap(final int initialCapacity, final double loadFactor, final KTypeHashingStrategy<KType> hashingStrategy) {
+        super(initialCapacity, loadFactor);
+
+        if (hashingStrategy == null) {
+
+            throw new IllegalArgumentException("hashingStrategy must not be null");
+        }
+
+        this.hashingStrategy = hashingStrategy;
+    }
+
+    /**
+     * Create a hash map from all key-value pairs of another container, with the given hashing of the keys.
+     */
+    public KTypeVTypeStrategyHashMap(final KTypeVTypeAssociativeContainer<KType, VType> container,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(container.size(), hashingStrategy);
+        putAll(container);
+    }
+
+    /**
+     * The hashing of the keys.
+     */
+    public KTypeHashingStrategy<KType> getHashingStrategy() {
+
+        return this.hashingStrategy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType put(final KType key, final VType value) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.put(key, value);
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                final VType oldValue = Intrinsics.<VType> cast(this.values[slot]);
+                this.values[slot] = value;
+
+                return oldValue;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndPut(key, value, slot);
+        } else {
+
+            this.assigned++;
+
+            keys[slot] = key;
+            this.values[slot] = value;
+        }
+
+        return this.defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.remove(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return this.defaultValue;
+        }
+
+        final VType value = Intrinsics.<VType> cast(this.values[slot]);
+
+        shiftConflictingKeys(slot);
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VType get(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.get(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return this.defaultValue;
+        }
+
+        return Intrinsics.<VType> cast(this.values[slot]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return lookupSlot(key) != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeVTypeStrategyHashMap<KType, VType> clone() {
+
+        //clone to size() to prevent eventual exponential growth
+        final KTypeVTypeStrategyHashMap<KType, VType> cloned =
+                new KTypeVTypeStrategyHashMap<KType, VType>(size(), this.loadFactor, this.hashingStrategy);
+
+        //We must NOT clone because of the independent perturbation seeds
+        cloned.putAll(this);
+
+        return cloned;
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The hashing strategy cannot be written, and the map read back uses the default hashing: so the entries are
+     * always written alone, whatever asIs.
+     * </p>
+     */
+    @Override
+    public void writeTo(final DataOutput out, final boolean asIs) throws IOException {
+
+        super.writeTo(out, false);
+    }
+
+    /*! #end !*/
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int hashOf(final KType key) {
+
+        return REHASH(key);
+    }
+
+    /**
+     * Creates a hash map from two index-aligned arrays of key-value pairs, with the given hashing of the keys.
+     */
+    public static <KType, VType> KTypeVTypeStrategyHashMap<KType, VType> from(final KType[] keys, final VType[] values,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+
+        if (keys.length != values.length) {
+
+            throw new IllegalArgumentException("Arrays of keys and values must have an identical length.");
+        }
+
+        final KTypeVTypeStrategyHashMap<KType, VType> map = new KTypeVTypeStrategyHashMap<KType, VType>(keys.length, hashingStrategy);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            map.put(keys[i], values[i]);
+        }
+
+        return map;
+    }
+
+    /**
+     * Create a hash map from another associative container, with the given hashing of the keys.
+     */
+    public static <KType, VType> KTypeVTypeStrategyHashMap<KType, VType> from(final KTypeVTypeAssociativeContainer<KType, VType> container,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+
+        return new KTypeVTypeStrategyHashMap<KType, VType>(container, hashingStrategy);
+    }
+
+    /**
+     * Create a new hash map with the given hashing of the keys, without providing the full generic signature (constructor
+     * shortcut).
+     */
+    public static <KType, VType> KTypeVTypeStrategyHashMap<KType, VType> newInstance(final KTypeHashingStrategy<KType> hashingStrategy) {
+
+        return new KTypeVTypeStrategyHashMap<KType, VType>(hashingStrategy);
+    }
+
+    /**
+     * Create a new hash map with initial capacity, load factor and hashing of the keys control. (constructor
+     * shortcut).
+     */
+    public static <KType, VType> KTypeVTypeStrategyHashMap<KType, VType> newInstance(final int initialCapacity, final double loadFactor,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+
+        return new KTypeVTypeStrategyHashMap<KType, VType>(initialCapacity, loadFactor, hashingStrategy);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*,*>==>this.hashingStrategy.computeHashCode(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType value) {
+
+        return this.hashingStrategy.computeHashCode(value, this.perturbation);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,11 @@
+package com.carrotsearch.hppcrt.predicates;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object", "BYTE", "CHAR", "SHORT", "FLOAT", "DOUBLE")} !*/
+/**
+ * A predicate that applies to (<code>KType</code>, <code>KType</code>) keys and their <code>VType</code> values.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public interface KTypeKTypeVTypePredicate<KType, VType>
+{
+    boolean apply(KType key1, KType key2, VType value);
+}
@@ -0,0 +1,11 @@
+package com.carrotsearch.hppcrt.procedures;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object", "BYTE", "CHAR", "SHORT", "FLOAT", "DOUBLE")} !*/
+/**
+ * A procedure that applies to (<code>KType</code>, <code>KType</code>) keys and their <code>VType</code> values.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public interface KTypeKTypeVTypeProcedure<KType, VType>
+{
+    void apply(KType key1, KType key2, VType value);
+}
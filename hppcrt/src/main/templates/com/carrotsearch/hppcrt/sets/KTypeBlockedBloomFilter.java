@@ -0,0 +1,364 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A cache-line blocked Bloom filter of <code>KType</code>s (Putze, Sanders and Singler): like {@link KTypeBloomFilter},
+ * an approximate set with no false negatives, but all the bits of a key are set in a single block of
+ * {@link #BLOCK_BITS} bits, i.e one 64-byte cache line, chosen by the hash of the key.
+ * <p>
+ * A lookup then costs at most one cache miss instead of up to {@link #numHashFunctions}, which makes the filter much faster
+ * than {@link KTypeBloomFilter} once it is bigger than the CPU caches, for a slightly higher false positive rate
+ * at the same number of bits, because of the uneven filling of the blocks.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeBlockedBloomFilter<KType> implements Cloneable
+{
+    /**
+     * The number of bits of a block: a 64-byte cache line.
+     */
+    public static final int BLOCK_BITS = 512;
+
+    /**
+     * The number of long words of a block.
+     */
+    private static final int BLOCK_WORDS = KTypeBlockedBloomFilter.BLOCK_BITS / 64;
+
+    /**
+     * The bits of the filter, {@link #numBlocks} blocks of {@link #BLOCK_WORDS} words.
+     */
+    public final long[] bits;
+
+    /**
+     * The number of blocks of the filter.
+     */
+    protected final int numBlocks;
+
+    /**
+     * The number of bits set for each key, in its block.
+     */
+    protected final int numHashFunctions;
+
+    /**
+     * Seed of the hashes of the keys.
+     */
+    protected final int seed;
+
+    /**
+     * Create a blocked Bloom filter sized for the given number of keys, and the expected false positive rate at that number of keys
+     * of a {@link KTypeBloomFilter}.
+     */
+    public KTypeBlockedBloomFilter(final int expectedElements, final double falsePositiveRate) {
+
+        this(KTypeBloomFilter.optimalNumBits(expectedElements, falsePositiveRate),
+                KTypeBloomFilter.optimalNumHashFunctions(expectedElements, KTypeBloomFilter.optimalNumBits(expectedElements, falsePositiveRate)),
+                Containers.randomSeed32());
+    }
+
+    /**
+     * Create a blocked Bloom filter with explicit parameters, for instance to {@link #union} it with another one.
+     * @param numBits The number of bits, rounded up to a multiple of {@link #BLOCK_BITS}.
+     * @param numHashFunctions The number of bits set by each key, in [1; 32].
+     * @param seed The seed of the hashes of the keys.
+     */
+    public KTypeBlockedBloomFilter(final int numBits, final int numHashFunctions, final int seed) {
+
+        if (numBits <= 0) {
+            throw new IllegalArgumentException("numBits must be > 0: " + numBits);
+        }
+
+        if (numHashFunctions < 1 || numHashFunctions > 32) {
+            throw new IllegalArgumentException("numHashFunctions must be in [1; 32]: " + numHashFunctions);
+        }
+
+        final int numBlocks = (int) ((numBits + (long) KTypeBlockedBloomFilter.BLOCK_BITS - 1) / KTypeBlockedBloomFilter.BLOCK_BITS);
+
+        try {
+
+            this.bits = new long[numBlocks * KTypeBlockedBloomFilter.BLOCK_WORDS];
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate a blocked Bloom filter of %d -> %d blocks",
+                    e,
+                    0,
+                    numBlocks);
+        }
+
+        this.numBlocks = numBlocks;
+        this.numHashFunctions = numHashFunctions;
+        this.seed = seed;
+    }
+
+    /**
+     * Add a key to the filter.
+     * @return true if some bits were set by key, false if they were all already set,
+     * i.e if {@link #mightContain} was true before.
+     */
+    public boolean add(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        //the high half selects the block, the low half the bits in it.
+        final int block = KTypeBloomFilter.reduce((int) (hash >>> 32), this.numBlocks) * KTypeBlockedBloomFilter.BLOCK_WORDS;
+
+        final int h1 = (int) hash;
+        final int h2 = Integer.rotateLeft(h1, 15) * 0x9E3779B9 | 1;
+
+        final long[] bits = this.bits;
+
+        long changed = 0;
+
+        for (int i = 0; i < this.numHashFunctions; i++) {
+
+            //top 9 bits: a bit of the block
+            final int bit = (h1 + i * h2) >>> 23;
+
+            final int index = block + (bit >>> 6);
+            final long word = bits[index];
+            final long mask = 1L << bit;
+
+            changed |= ~word & mask;
+            bits[index] = word | mask;
+        }
+
+        return changed != 0;
+    }
+
+    /**
+     * Add all keys of a container to the filter.
+     * @return the number of keys which set some bits.
+     */
+    public int addAll(final KTypeContainer<? extends KType> container) {
+
+        int count = 0;
+
+        for (final KTypeCursor<? extends KType> cursor : container) {
+
+            if (add(cursor.value)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return false if key was never added to the filter, true if it was
+     * or, with a probability of about {@link #expectedFalsePositiveRate()}, if it was not.
+     */
+    public boolean mightContain(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        final int block = KTypeBloomFilter.reduce((int) (hash >>> 32), this.numBlocks) * KTypeBlockedBloomFilter.BLOCK_WORDS;
+
+        final int h1 = (int) hash;
+        final int h2 = Integer.rotateLeft(h1, 15) * 0x9E3779B9 | 1;
+
+        final long[] bits = this.bits;
+
+        for (int i = 0; i < this.numHashFunctions; i++) {
+
+            final int bit = (h1 + i * h2) >>> 23;
+
+            if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Merge the keys of another filter into this one.
+     * @throws IllegalArgumentException if both filters have not the same number of blocks, of hash functions, and the same seed.
+     */
+    public void union(final KTypeBlockedBloomFilter<? extends KType> other) {
+
+        if (other.numBlocks != this.numBlocks || other.numHashFunctions != this.numHashFunctions || other.seed != this.seed) {
+
+            throw new IllegalArgumentException("Incompatible filters: " + other + " vs. " + this);
+        }
+
+        final long[] bits = this.bits;
+        final long[] otherBits = other.bits;
+
+        for (int i = 0; i < bits.length; i++) {
+
+            bits[i] |= otherBits[i];
+        }
+    }
+
+    /**
+     * @return the number of set bits of the filter.
+     */
+    public long cardinality() {
+
+        return BitUtil.pop_array(this.bits, 0, this.bits.length);
+    }
+
+    /**
+     * Estimate of the number of distinct keys added to the filter, as the sum
+     * of the estimates of each block from its number of set bits X: n = -b / k * ln(1 - X / b)
+     */
+    public double approximateSize() {
+
+        final double bitsPerHash = (double) KTypeBlockedBloomFilter.BLOCK_BITS / this.numHashFunctions;
+
+        double size = 0.0;
+
+        for (int block = 0; block < this.bits.length; block += KTypeBlockedBloomFilter.BLOCK_WORDS) {
+
+            final long setBits = BitUtil.pop_array(this.bits, block, KTypeBlockedBloomFilter.BLOCK_WORDS);
+
+            if (setBits >= KTypeBlockedBloomFilter.BLOCK_BITS) {
+
+                return Double.POSITIVE_INFINITY;
+            }
+
+            size -= bitsPerHash * Math.log1p(-(double) setBits / KTypeBlockedBloomFilter.BLOCK_BITS);
+        }
+
+        return size;
+    }
+
+    /**
+     * The current false positive rate of the filter: the average over the blocks
+     * of (X / b) ^ k, X being the number of set bits of a block.
+     */
+    public double expectedFalsePositiveRate() {
+
+        double rate = 0.0;
+
+        for (int block = 0; block < this.bits.length; block += KTypeBlockedBloomFilter.BLOCK_WORDS) {
+
+            final long setBits = BitUtil.pop_array(this.bits, block, KTypeBlockedBloomFilter.BLOCK_WORDS);
+
+            rate += Math.pow((double) setBits / KTypeBlockedBloomFilter.BLOCK_BITS, this.numHashFunctions);
+        }
+
+        return rate / this.numBlocks;
+    }
+
+    /**
+     * @return the number of bits of the filter.
+     */
+    public int numBits() {
+
+        return this.numBlocks * KTypeBlockedBloomFilter.BLOCK_BITS;
+    }
+
+    /**
+     * @return the number of bits set by each key.
+     */
+    public int numHashFunctions() {
+
+        return this.numHashFunctions;
+    }
+
+    /**
+     * @return the seed of the hashes of the keys.
+     */
+    public int seed() {
+
+        return this.seed;
+    }
+
+    /**
+     * Remove all keys from the filter.
+     */
+    public void clear() {
+
+        Arrays.fill(this.bits, 0L);
+    }
+
+    /**
+     * @return true if no key was added to the filter since its creation or last {@link #clear()}.
+     */
+    public boolean isEmpty() {
+
+        for (final long word : this.bits) {
+
+            if (word != 0L) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeBlockedBloomFilter<KType> clone() {
+
+        final KTypeBlockedBloomFilter<KType> cloned = new KTypeBlockedBloomFilter<KType>(numBits(), this.numHashFunctions, this.seed);
+
+        System.arraycopy(this.bits, 0, cloned.bits, 0, this.bits.length);
+
+        return cloned;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+
+        return Arrays.hashCode(this.bits) + BitMixer.mix(this.seed ^ this.numHashFunctions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        }
+
+        final KTypeBlockedBloomFilter<?> other = (KTypeBlockedBloomFilter<?>) obj;
+
+        return other.numBlocks == this.numBlocks && other.numHashFunctions == this.numHashFunctions && other.seed == this.seed
+                && Arrays.equals(other.bits, this.bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "[numBlocks=" + this.numBlocks + ", numHashFunctions=" + this.numHashFunctions + ", seed="
+                + this.seed + ", cardinality=" + cardinality() + "]";
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key.
+     * (inlined in generated code)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+}
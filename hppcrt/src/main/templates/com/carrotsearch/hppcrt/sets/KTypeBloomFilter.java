@@ -0,0 +1,368 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A Bloom filter of <code>KType</code>s: an approximate set answering {@link #mightContain} with no false negatives,
+ * and false positives with a probability chosen at construction, in about 1.44 * log2(1 / falsePositiveRate) bits per key.
+ * <p>
+ * A key sets {@link #numHashFunctions} bits of {@link #bits}, whose positions are derived from a single
+ * 64-bit {@link BitMixer} hash of the key by double hashing (Kirsch and Mitzenmacher), so adding or looking up a key
+ * costs one hash and {@link #numHashFunctions} random memory accesses. See {@link KTypeBlockedBloomFilter}
+ * for a single cache miss per lookup, and {@link KTypeXorFilter} for a smaller filter built once.
+ * </p>
+ * <p>
+ * The filter cannot remove keys, but several filters created with the same parameters, seed included,
+ * can be merged by {@link #union}.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeBloomFilter<KType> implements Cloneable
+{
+    /**
+     * The bits of the filter, {@link #numBits} bits in (numBits / 64) words.
+     */
+    public final long[] bits;
+
+    /**
+     * The number of bits of the filter, a multiple of 64.
+     */
+    protected final int numBits;
+
+    /**
+     * The number of bits set for each key.
+     */
+    protected final int numHashFunctions;
+
+    /**
+     * Seed of the hashes of the keys.
+     */
+    protected final int seed;
+
+    /**
+     * Create a Bloom filter sized for the given number of keys and the expected false positive rate at that number of keys.
+     */
+    public KTypeBloomFilter(final int expectedElements, final double falsePositiveRate) {
+
+        this(KTypeBloomFilter.optimalNumBits(expectedElements, falsePositiveRate),
+                KTypeBloomFilter.optimalNumHashFunctions(expectedElements, KTypeBloomFilter.optimalNumBits(expectedElements, falsePositiveRate)),
+                Containers.randomSeed32());
+    }
+
+    /**
+     * Create a Bloom filter with explicit parameters, for instance to {@link #union} it with another one.
+     * @param numBits The number of bits, rounded up to a multiple of 64.
+     * @param numHashFunctions The number of bits set by each key, in [1; 32].
+     * @param seed The seed of the hashes of the keys.
+     */
+    public KTypeBloomFilter(final int numBits, final int numHashFunctions, final int seed) {
+
+        if (numBits <= 0) {
+            throw new IllegalArgumentException("numBits must be > 0: " + numBits);
+        }
+
+        if (numHashFunctions < 1 || numHashFunctions > 32) {
+            throw new IllegalArgumentException("numHashFunctions must be in [1; 32]: " + numHashFunctions);
+        }
+
+        final int numWords = (int) ((numBits + 63L) >>> 6);
+
+        try {
+
+            this.bits = new long[numWords];
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate a Bloom filter of %d -> %d words",
+                    e,
+                    0,
+                    numWords);
+        }
+
+        this.numBits = (int) Math.min((long) numWords << 6, Integer.MAX_VALUE);
+        this.numHashFunctions = numHashFunctions;
+        this.seed = seed;
+    }
+
+    /**
+     * The number of bits m minimizing the size of a filter of n keys at the false positive rate p:
+     * m = -n * ln(p) / ln(2)^2
+     */
+    public static int optimalNumBits(final int expectedElements, final double falsePositiveRate) {
+
+        if (falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+            throw new IllegalArgumentException("falsePositiveRate must be in ]0; 1[: " + falsePositiveRate);
+        }
+
+        final double n = Math.max(1, expectedElements);
+
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    }
+
+    /**
+     * The number of hash functions k minimizing the false positive rate of a filter of n keys in m bits:
+     * k = m / n * ln(2)
+     */
+    public static int optimalNumHashFunctions(final int expectedElements, final int numBits) {
+
+        final double k = (double) numBits / Math.max(1, expectedElements) * Math.log(2);
+
+        return (int) Math.max(1, Math.min(32, Math.round(k)));
+    }
+
+    /**
+     * Add a key to the filter.
+     * @return true if some bits were set by key, false if they were all already set,
+     * i.e if {@link #mightContain} was true before.
+     */
+    public boolean add(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+
+        final long[] bits = this.bits;
+        final int numBits = this.numBits;
+
+        long changed = 0;
+
+        for (int i = 0; i < this.numHashFunctions; i++) {
+
+            final int bit = KTypeBloomFilter.reduce(h1 + i * h2, numBits);
+
+            final long word = bits[bit >>> 6];
+            final long mask = 1L << bit;
+
+            changed |= ~word & mask;
+            bits[bit >>> 6] = word | mask;
+        }
+
+        return changed != 0;
+    }
+
+    /**
+     * Add all keys of a container to the filter.
+     * @return the number of keys which set some bits.
+     */
+    public int addAll(final KTypeContainer<? extends KType> container) {
+
+        int count = 0;
+
+        for (final KTypeCursor<? extends KType> cursor : container) {
+
+            if (add(cursor.value)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return false if key was never added to the filter, true if it was
+     * or, with a probability of about {@link #expectedFalsePositiveRate()}, if it was not.
+     */
+    public boolean mightContain(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32);
+
+        final long[] bits = this.bits;
+        final int numBits = this.numBits;
+
+        for (int i = 0; i < this.numHashFunctions; i++) {
+
+            final int bit = KTypeBloomFilter.reduce(h1 + i * h2, numBits);
+
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Merge the keys of another filter into this one.
+     * @throws IllegalArgumentException if both filters have not the same number of bits, of hash functions, and the same seed.
+     */
+    public void union(final KTypeBloomFilter<? extends KType> other) {
+
+        if (other.numBits != this.numBits || other.numHashFunctions != this.numHashFunctions || other.seed != this.seed) {
+
+            throw new IllegalArgumentException("Incompatible filters: " + other + " vs. " + this);
+        }
+
+        final long[] bits = this.bits;
+        final long[] otherBits = other.bits;
+
+        for (int i = 0; i < bits.length; i++) {
+
+            bits[i] |= otherBits[i];
+        }
+    }
+
+    /**
+     * @return the number of set bits of the filter.
+     */
+    public long cardinality() {
+
+        return BitUtil.pop_array(this.bits, 0, this.bits.length);
+    }
+
+    /**
+     * Estimate of the number of distinct keys added to the filter, from the number of set bits X (Swamidass and Baldi):
+     * n = -m / k * ln(1 - X / m)
+     */
+    public double approximateSize() {
+
+        final long setBits = cardinality();
+
+        if (setBits >= this.numBits) {
+
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return -(double) this.numBits / this.numHashFunctions * Math.log1p(-(double) setBits / this.numBits);
+    }
+
+    /**
+     * The current false positive rate of the filter, from its number of set bits X:
+     * p = (X / m) ^ k
+     */
+    public double expectedFalsePositiveRate() {
+
+        return Math.pow((double) cardinality() / this.numBits, this.numHashFunctions);
+    }
+
+    /**
+     * @return the number of bits of the filter.
+     */
+    public int numBits() {
+
+        return this.numBits;
+    }
+
+    /**
+     * @return the number of bits set by each key.
+     */
+    public int numHashFunctions() {
+
+        return this.numHashFunctions;
+    }
+
+    /**
+     * @return the seed of the hashes of the keys.
+     */
+    public int seed() {
+
+        return this.seed;
+    }
+
+    /**
+     * Remove all keys from the filter.
+     */
+    public void clear() {
+
+        Arrays.fill(this.bits, 0L);
+    }
+
+    /**
+     * @return true if no key was added to the filter since its creation or last {@link #clear()}.
+     */
+    public boolean isEmpty() {
+
+        for (final long word : this.bits) {
+
+            if (word != 0L) {
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeBloomFilter<KType> clone() {
+
+        final KTypeBloomFilter<KType> cloned = new KTypeBloomFilter<KType>(this.numBits, this.numHashFunctions, this.seed);
+
+        System.arraycopy(this.bits, 0, cloned.bits, 0, this.bits.length);
+
+        return cloned;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+
+        return Arrays.hashCode(this.bits) + BitMixer.mix(this.seed ^ this.numHashFunctions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        }
+
+        final KTypeBloomFilter<?> other = (KTypeBloomFilter<?>) obj;
+
+        return other.numBits == this.numBits && other.numHashFunctions == this.numHashFunctions && other.seed == this.seed
+                && Arrays.equals(other.bits, this.bits);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "[numBits=" + this.numBits + ", numHashFunctions=" + this.numHashFunctions + ", seed="
+                + this.seed + ", cardinality=" + cardinality() + "]";
+    }
+
+    /**
+     * Map a 32-bit hash to [0; n[ by multiply-shift, which unlike a modulo uses the high bits of the hash.
+     */
+    static int reduce(final int hash, final int n) {
+
+        return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key.
+     * (inlined in generated code)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+}
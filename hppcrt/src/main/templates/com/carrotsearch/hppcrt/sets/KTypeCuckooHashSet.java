@@ -0,0 +1,601 @@
+package com.carrotsearch.hppcrt.sets;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash set of <code>KType</code>s, implemented using bucketized cuckoo hashing:
+ * <p>
+ * The buffer {@link #keys} is made of buckets of {@link #BUCKET_SIZE} consecutive slots, and each key
+ * can only be in one of two buckets, given by two hash functions derived from the 64-bit {@link BitMixer} mix of the key.
+ * So, a lookup, present key or not, reads at most 2 * {@link #BUCKET_SIZE} slots in two contiguous memory areas,
+ * whatever the keys distribution: there are no probing sequences, so no clusters.
+ * </p>
+ * <p>
+ * An insertion into two full buckets evicts a key of one of them into its other bucket, and so on, until
+ * a free slot is found. In the unlikely event of too long an eviction chain, the keys are rehashed with a new seed,
+ * or the buffer is grown. Like {@link KTypeHashSet}, the buffer is always a power of two, doubled when the load factor is reached, and
+ * the 4-way buckets make high load factors possible, up to the default {@link HashContainers#MAX_LOAD_FACTOR}.
+ * </p>
+ * <p>
+ * The keys of a bucket are always packed at its start, so that lookups stop at the first empty slot of a bucket.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeCuckooHashSet<KType>
+{
+    /**
+     * Number of slots of a bucket.
+     */
+    public static final int BUCKET_SIZE = 4;
+
+    /**
+     * Max length of an eviction chain before rehashing.
+     */
+    private static final int MAX_EVICTIONS = 500;
+
+    /**
+     * Max number of seeds tried by a rehash before growing the buffer instead.
+     */
+    private static final int MAX_RESEEDS = 8;
+
+    /**
+     * Hash-indexed array holding all set entries, bucket b being the slots [b * {@link #BUCKET_SIZE}; (b + 1) * {@link #BUCKET_SIZE}[
+     * <p>
+     * Direct set iteration: iterate  {keys[i]} for i in [0; keys.length[ where keys[i] != 0, then also
+     * {0} is in the set if {@link #allocatedDefaultKey} = true.
+     * </p>
+     */
+    public/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * True if key = 0 is in the set.
+     */
+    public boolean allocatedDefaultKey = false;
+
+    /**
+     * Cached number of assigned slots in {@link #keys}.
+     */
+    protected int assigned;
+
+    /**
+     * The load factor for this set (fraction of allocated slots
+     * before the buffers must be rehashed or reallocated).
+     */
+    protected final double loadFactor;
+
+    /**
+     * Resize buffers when {@link #keys} hits this value.
+     */
+    private int resizeAt;
+
+    /**
+     * Seed of the hash of the keys, changed at each failed rehash.
+     */
+    protected int seed = Containers.randomSeed32();
+
+    /**
+     * State of the xorshift choosing the evicted keys.
+     */
+    private int evictionState = Containers.randomSeed32() | 1;
+
+    /**
+     * Default constructor: Creates a hash set with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#MAX_LOAD_FACTOR}.
+     */
+    public KTypeCuckooHashSet() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash set with the given initial capacity, default load factor of
+     * {@link HashContainers#MAX_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeCuckooHashSet(final int initialCapacity) {
+        this(initialCapacity, HashContainers.MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash set with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeCuckooHashSet(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        this.keys = newBuffer(HashContainers.minBufferSize(initialCapacity, loadFactor));
+        this.resizeAt = HashContainers.expandAtCount(this.keys.length, loadFactor);
+    }
+
+    /**
+     * @see KTypeHashSet#add
+     */
+    public boolean add(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            if (this.allocatedDefaultKey) {
+
+                return false;
+            }
+
+            this.allocatedDefaultKey = true;
+
+            return true;
+        }
+
+        if (find(key) >= 0) {
+
+            return false;
+        }
+
+        if (this.assigned >= this.resizeAt) {
+
+            rehash(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor), key);
+
+        } else {
+
+            final KType homeless = place(Intrinsics.<KType[]> cast(this.keys), this.seed, key);
+
+            if (!Intrinsics.<KType> isEmpty(homeless)) {
+
+                rehash(this.keys.length, homeless);
+            }
+        }
+
+        this.assigned++;
+
+        return true;
+    }
+
+    /**
+     * @see KTypeHashSet#contains
+     */
+    public boolean contains(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return find(key) >= 0;
+    }
+
+    /**
+     * @see KTypeHashSet#remove
+     */
+    public boolean remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            final boolean hadDefaultKey = this.allocatedDefaultKey;
+
+            this.allocatedDefaultKey = false;
+
+            return hadDefaultKey;
+        }
+
+        final int slot = find(key);
+
+        if (slot < 0) {
+
+            return false;
+        }
+
+        removeAt(slot);
+
+        return true;
+    }
+
+    /**
+     * @see KTypeHashSet#removeAll(KTypePredicate)
+     */
+    public int removeAll(final KTypePredicate<? super KType> predicate) {
+
+        final int before = size();
+
+        if (this.allocatedDefaultKey) {
+
+            if (predicate.apply(Intrinsics.<KType> empty())) {
+
+                this.allocatedDefaultKey = false;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        //Iterate backwards, so that the keys moved by removeAt() have already been tested.
+        for (int i = keys.length - 1; i >= 0; i--) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i]) && predicate.apply(keys[i])) {
+
+                removeAt(i);
+            }
+        }
+
+        return before - size();
+    }
+
+    /**
+     * @see KTypeHashSet#forEach(KTypeProcedure)
+     */
+    public <T extends KTypeProcedure<? super KType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty());
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                procedure.apply(keys[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Stops at the first key for which the predicate returns false.
+     * @see KTypeHashSet#forEach(KTypePredicate)
+     */
+    public <T extends KTypePredicate<? super KType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty())) {
+
+                return predicate;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                if (!predicate.apply(keys[i])) {
+
+                    break;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * @see KTypeHashSet#clear
+     * <p>Does not release internal buffers.</p>
+     */
+    public void clear() {
+
+        this.assigned = 0;
+        this.allocatedDefaultKey = false;
+
+        KTypeArrays.blankArray(this.keys, 0, this.keys.length);
+    }
+
+    /**
+     * @see KTypeHashSet#size
+     */
+    public int size() {
+
+        return this.assigned + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @see KTypeHashSet#isEmpty
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * @see KTypeHashSet#capacity
+     */
+    public int capacity() {
+
+        return this.resizeAt;
+    }
+
+    /**
+     * Convert the contents of this set to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeProcedure<KType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key) {
+
+                if (!this.first) {
+
+                    buffer.append(", ");
+                }
+
+                buffer.append(key);
+
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+
+        return buffer.toString();
+    }
+
+    /**
+     * @return the slot of key in {@link #keys}, or -1 if not present.
+     */
+    private int find(final KType key) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        final int bucketMask = (keys.length >>> 2) - 1;
+
+        final long hash = HASH(key, this.seed);
+
+        int slot = ((int) hash & bucketMask) << 2;
+
+        for (int i = 0; i < KTypeCuckooHashSet.BUCKET_SIZE; i++, slot++) {
+
+            final KType existing = keys[slot];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+        }
+
+        slot = (((int) hash ^ ALT(hash)) & bucketMask) << 2;
+
+        for (int i = 0; i < KTypeCuckooHashSet.BUCKET_SIZE; i++, slot++) {
+
+            final KType existing = keys[slot];
+
+            if (Intrinsics.<KType> isEmpty(existing)) {
+
+                break;
+            }
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Remove the key at slot, moving the last key of its bucket into it to keep the bucket packed.
+     */
+    private void removeAt(final int slot) {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int last = slot | (KTypeCuckooHashSet.BUCKET_SIZE - 1);
+
+        while (Intrinsics.<KType> isEmpty(keys[last])) {
+            last--;
+        }
+
+        keys[slot] = keys[last];
+        keys[last] = Intrinsics.<KType> empty();
+
+        this.assigned--;
+    }
+
+    /**
+     * Place key, not present, into keys, evicting other keys to their other bucket if needed.
+     * @return 0 if placed, else the key left without a slot after {@link #MAX_EVICTIONS} evictions,
+     * which may not be key itself.
+     */
+    private KType place(final KType[] keys, final int seed, final KType key) {
+
+        final int bucketMask = (keys.length >>> 2) - 1;
+
+        final long hash = HASH(key, seed);
+
+        int bucket = (int) hash & bucketMask;
+
+        int slot = freeSlot(keys, bucket);
+
+        if (slot < 0) {
+
+            bucket = (bucket ^ ALT(hash)) & bucketMask;
+
+            slot = freeSlot(keys, bucket);
+        }
+
+        if (slot >= 0) {
+
+            keys[slot] = key;
+
+            return Intrinsics.<KType> empty();
+        }
+
+        //both buckets full: evict random keys along a chain
+        KType homeless = key;
+
+        for (int eviction = 0; eviction < KTypeCuckooHashSet.MAX_EVICTIONS; eviction++) {
+
+            int x = this.evictionState;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            this.evictionState = x;
+
+            slot = (bucket << 2) + (x & (KTypeCuckooHashSet.BUCKET_SIZE - 1));
+
+            final KType evicted = keys[slot];
+            keys[slot] = homeless;
+            homeless = evicted;
+
+            //the other bucket of the evicted key
+            final long evictedHash = HASH(homeless, seed);
+
+            bucket = (bucket ^ ALT(evictedHash)) & bucketMask;
+
+            slot = freeSlot(keys, bucket);
+
+            if (slot >= 0) {
+
+                keys[slot] = homeless;
+
+                return Intrinsics.<KType> empty();
+            }
+        }
+
+        return homeless;
+    }
+
+    /**
+     * @return the first free slot of bucket, or -1 if full.
+     */
+    private static <KType> int freeSlot(final KType[] keys, final int bucket) {
+
+        final int start = bucket << 2;
+
+        for (int slot = start; slot < start + KTypeCuckooHashSet.BUCKET_SIZE; slot++) {
+
+            if (Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Rebuild the buffer with at least length slots, with the current keys plus the pending key, not present:
+     * new seeds are tried until all the keys are placed, then the buffer is grown.
+     */
+    private void rehash(int length, final KType pendingKey) {
+
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+
+        int seed = this.seed;
+        int attempts = 0;
+
+        while (true) {
+
+            final KType[] keys = newBuffer(length);
+
+            boolean placed = Intrinsics.<KType> isEmpty(place(keys, seed, pendingKey));
+
+            for (int i = oldKeys.length - 1; placed && i >= 0; i--) {
+
+                if (!Intrinsics.<KType> isEmpty(oldKeys[i])) {
+
+                    placed = Intrinsics.<KType> isEmpty(place(keys, seed, oldKeys[i]));
+                }
+            }
+
+            if (placed) {
+
+                this.keys = keys;
+                this.seed = seed;
+                this.resizeAt = HashContainers.expandAtCount(length, this.loadFactor);
+
+                return;
+            }
+
+            seed = Containers.randomSeed32();
+
+            if (++attempts == KTypeCuckooHashSet.MAX_RESEEDS) {
+
+                attempts = 0;
+                length = HashContainers.nextBufferSize(length, this.assigned, this.loadFactor);
+            }
+        }
+    }
+
+    private KType[] newBuffer(final int length) {
+
+        try {
+
+            return Intrinsics.<KType> newArray(length);
+
+        } catch (final OutOfMemoryError e) {
+
+            throw new BufferAllocationException(
+                    "Not enough memory to allocate buffers to grow from %d -> %d elements",
+                    e,
+                    (this.keys == null) ? 0 : this.keys.length,
+                            length);
+        }
+    }
+
+    /**
+     * Create a new set without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType> KTypeCuckooHashSet<KType> newInstance() {
+        return new KTypeCuckooHashSet<KType>();
+    }
+
+    /**
+     * Create a new set with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType> KTypeCuckooHashSet<KType> newInstance(final int initialCapacity, final double loadFactor) {
+        return new KTypeCuckooHashSet<KType>(initialCapacity, loadFactor);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key: its low bits give the first bucket of the key.
+     * (inlined in generated code)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("ALT(hash)",
+    "<*>==>(int) (hash >>> 32) | 1")) !*/
+    /**
+     * The two buckets of a key are b and b ^ ALT(hash): being odd, so never 0, the second bucket
+     * is always distinct from the first one, and each bucket gives the other one.
+     * (inlined in generated code)
+     */
+    private static int ALT(final long hash) {
+
+        return (int) (hash >>> 32) | 1;
+    }
+    /*! #end !*/
+}
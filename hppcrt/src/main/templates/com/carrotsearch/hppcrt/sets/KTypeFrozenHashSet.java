@@ -0,0 +1,269 @@
+package com.carrotsearch.hppcrt.sets;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * An immutable hash set of <code>KType</code>s, built once from another container by
+ * {@link #from(KTypeContainer)} (or {@link KTypeHashSet#freeze()}).
+ * <p>
+ * The keys are placed by a {@link MinimalPerfectHash}: the n keys of the set fill exactly the n slots of
+ * {@link #keys}, instead of the n / loadFactor (rounded up to a power of 2) slots of a {@link KTypeHashSet},
+ * at the cost of an additional int per {@link MinimalPerfectHash#KEYS_PER_BUCKET} keys.
+ * A lookup reads one displacement, then probes exactly one slot, whether the key is present or not.
+ * </p>
+ * <p>
+ * The build is more costly than filling a {@link KTypeHashSet}, so this set is intended
+ * for large sets built once and queried many times.
+ * </p>
+ * <p>
+ * The API follows the read-only part of {@link KTypeSet} ({@link #contains}, {@link #forEach(KTypeProcedure)}...).
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeFrozenHashSet<KType>
+{
+    /**
+     * Max number of seeds tried by {@link #from(KTypeContainer)} before giving up.
+     */
+    private static final int MAX_SEEDS = 32;
+
+    /**
+     * Perfectly hashed array holding all keys but 0, so that keys.length = max(1, number of non-0 keys).
+     * If the set has no non-0 keys, its single slot is 0.
+     */
+    public final/*! #if ($TemplateOptions.KTypePrimitive)
+          KType []
+          #else !*/
+    Object[]
+            /*! #end !*/
+            keys;
+
+    /**
+     * Displacements of the buckets of {@link MinimalPerfectHash}.
+     */
+    protected final int[] displacements;
+
+    /**
+     * Seed of the hashes of the keys.
+     */
+    protected final int seed;
+
+    /**
+     * True if key = 0 is in the set.
+     */
+    public final boolean allocatedDefaultKey;
+
+    /**
+     * Use {@link #from(KTypeContainer)}.
+     */
+    private KTypeFrozenHashSet(final KType[] keys, final int[] displacements, final int seed, final boolean allocatedDefaultKey) {
+
+        this.keys = keys;
+        this.displacements = displacements;
+        this.seed = seed;
+        this.allocatedDefaultKey = allocatedDefaultKey;
+    }
+
+    /**
+     * Create a frozen set with the distinct contents of container.
+     * @throws IllegalArgumentException if no perfect hash could be found, which is extremely unlikely.
+     */
+    public static <KType> KTypeFrozenHashSet<KType> from(final KTypeContainer<KType> container) {
+
+        //remove duplicates, if any
+        final KTypeHashSet<KType> distinct = (container instanceof KTypeSet<?>) ? null : new KTypeHashSet<KType>(container);
+
+        final KTypeContainer<KType> source = (distinct == null) ? container : distinct;
+
+        final KType[] entryKeys = Intrinsics.<KType> newArray(source.size());
+
+        boolean allocatedDefaultKey = false;
+
+        int n = 0;
+
+        for (final KTypeCursor<KType> c : source) {
+
+            if (Intrinsics.<KType> isEmpty(c.value)) {
+
+                allocatedDefaultKey = true;
+                continue;
+            }
+
+            entryKeys[n++] = c.value;
+        }
+
+        final long[] hashes = new long[n];
+        final int[] slots = new int[n];
+
+        int seed = Containers.randomSeed32();
+
+        for (int attempt = 0; attempt < KTypeFrozenHashSet.MAX_SEEDS; attempt++) {
+
+            for (int i = 0; i < n; i++) {
+
+                final KType key = entryKeys[i];
+                hashes[i] = HASH(key, seed);
+            }
+
+            final int[] displacements = MinimalPerfectHash.build(hashes, n, slots);
+
+            if (displacements != null) {
+
+                final KType[] keys = Intrinsics.<KType> newArray(MinimalPerfectHash.tableSize(n));
+
+                for (int i = 0; i < n; i++) {
+
+                    keys[slots[i]] = entryKeys[i];
+                }
+
+                return new KTypeFrozenHashSet<KType>(keys, displacements, seed, allocatedDefaultKey);
+            }
+
+            seed = MurmurHash3.mix32(seed + 1);
+        }
+
+        throw new IllegalArgumentException("No perfect hash found for " + n + " keys");
+    }
+
+    /**
+     * @see KTypeSet#contains
+     */
+    public boolean contains(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        final long hash = HASH(key, this.seed);
+
+        final int[] displacements = this.displacements;
+
+        final int slot = MinimalPerfectHash.slot(hash, displacements[MinimalPerfectHash.bucket(hash, displacements.length)], keys.length);
+
+        return Intrinsics.<KType> equalsNotNull(key, keys[slot]);
+    }
+
+    /**
+     * @return the number of keys in the set.
+     */
+    public int size() {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        return (Intrinsics.<KType> isEmpty(keys[0]) ? 0 : keys.length) + (this.allocatedDefaultKey ? 1 : 0);
+    }
+
+    /**
+     * @return true if the set is empty.
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * Applies a given procedure to all keys of this set.
+     */
+    public <T extends KTypeProcedure<? super KType>> T forEach(final T procedure) {
+
+        if (this.allocatedDefaultKey) {
+
+            procedure.apply(Intrinsics.<KType> empty());
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                procedure.apply(keys[i]);
+            }
+        }
+
+        return procedure;
+    }
+
+    /**
+     * Applies a given predicate to all keys of this set, until
+     * the predicate returns false.
+     */
+    public <T extends KTypePredicate<? super KType>> T forEach(final T predicate) {
+
+        if (this.allocatedDefaultKey) {
+
+            if (!predicate.apply(Intrinsics.<KType> empty())) {
+
+                return predicate;
+            }
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[i])) {
+
+                if (!predicate.apply(keys[i])) {
+
+                    break;
+                }
+            }
+        }
+
+        return predicate;
+    }
+
+    /**
+     * Convert the contents of this set to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("[");
+
+        forEach(new KTypeProcedure<KType>() {
+
+            boolean first = true;
+
+            @Override
+            public void apply(final KType key) {
+
+                if (!this.first) {
+
+                    buffer.append(", ");
+                }
+
+                buffer.append(key);
+
+                this.first = false;
+            }
+        });
+
+        buffer.append("]");
+
+        return buffer.toString();
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key, a bijection for a given seed so that distinct keys always have distinct hashes.
+     * (inlined in generated code, where Objects are not generated: they cannot be perfectly hashed)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+}
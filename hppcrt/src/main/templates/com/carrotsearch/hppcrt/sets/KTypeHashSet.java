@@ -1,5 +1,9 @@
 package com.carrotsearch.hppcrt.sets;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import com.carrotsearch.hppcrt.*;
 import com.carrotsearch.hppcrt.cursors.*;
 import com.carrotsearch.hppcrt.predicates.*;
@@ -102,13 +106,23 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
     /**
      * Resize buffers when {@link #keys} hits this value.
      */
-    private int resizeAt;
+    int resizeAt;
+
+    /**
+     * Number of expansions of the buffers, for stats().
+     */
+    int resizeCount;
 
     /**
      * Per-instance perturbation
      * introduced in rehashing to create a unique key distribution.
      */
-    private final int perturbation = Containers.randomSeed32();
+    final int perturbation;
+
+    /**
+     * Number of keys packed at once by writeTo(DataOutput, boolean) and readFrom(DataInput).
+     */
+    private static final int IO_CHUNK_SIZE = 1 << 10;
 
     /*! #if ($TemplateOptions.KTypeGeneric) !*/
 
@@ -170,10 +184,21 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
      */
     public KTypeHashSet(final int initialCapacity, final double loadFactor) {
         this.loadFactor = loadFactor;
+        this.perturbation = Containers.randomSeed32();
         //take into account of the load factor to guarantee no reallocations before reaching  initialCapacity.
         allocateBuffers(HashContainers.minBufferSize(initialCapacity, loadFactor));
     }
 
+    /**
+     * Creates an empty hash set of exactly bufferSize slots (a power of two) hashed with perturbation,
+     * see {@link #newInstanceLike(KTypeHashSet)}.
+     */
+    KTypeHashSet(final int bufferSize, final double loadFactor, final int perturbation) {
+        this.loadFactor = loadFactor;
+        this.perturbation = perturbation;
+        allocateBuffers(bufferSize);
+    }
+
     /**
      * Creates a hash set from elements of another container. Default load factor is used.
      */
@@ -347,9 +372,75 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
      */
     @Override
     public int addAll(final KTypeContainer<? extends KType> container) {
+
+        if (container instanceof KTypeHashSet<?>) {
+
+            return addAll((KTypeHashSet<? extends KType>) container);
+        }
+
         return addAll((Iterable<? extends KTypeCursor<? extends KType>>) container);
     }
 
+    /**
+     * Adds all the elements of another hash set, reading its buffer directly instead of going through its iterator.
+     * If both sets have the same layout (see {@link #newInstanceLike(KTypeHashSet)}), the buffers are walked side by side
+     * and the elements already at the same slot in this set are skipped without probing.
+     * @return the number of elements added to this set.
+     */
+    public int addAll(final KTypeHashSet<? extends KType> other) {
+
+        if (other == this) {
+
+            return 0;
+        }
+
+        int count = 0;
+
+        if (other.allocatedDefaultKey && !this.allocatedDefaultKey) {
+
+            this.allocatedDefaultKey = true;
+            count++;
+        }
+
+        final KType[] otherKeys = Intrinsics.<KType[]> cast(other.keys);
+
+        if (sameLayout(other)) {
+
+            //in slot order, so that the probes of this set follow the scan of the other
+            for (int i = 0; i < otherKeys.length; i++) {
+
+                final KType existing = otherKeys[i];
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+
+                    //this may have been resized by a previous add()
+                    if (this.keys.length == otherKeys.length && is_allocated(i, Intrinsics.<KType[]> cast(this.keys))
+                            && KEYEQUALS(existing, Intrinsics.<KType> cast(this.keys[i]))) {
+
+                        continue;
+                    }
+
+                    if (add(existing)) {
+                        count++;
+                    }
+                }
+            }
+        } else {
+
+            //Iterate in reverse for side-stepping the longest conflict chains, as in expandAndAdd()
+            for (int i = otherKeys.length - 1; i >= 0; i--) {
+
+                final KType existing = otherKeys[i];
+
+                if (!Intrinsics.<KType> isEmpty(existing) && add(existing)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -368,7 +459,7 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
      * Expand the internal storage buffers (capacity) or rehash current
      * keys and values if there are a lot of deleted slots.
      */
-    private void expandAndAdd(final KType pendingKey, final int freeSlot) {
+    void expandAndAdd(final KType pendingKey, final int freeSlot) {
         assert this.assigned == this.resizeAt;
 
         //default sentinel value is never in the keys[] array, so never trigger reallocs
@@ -380,6 +471,8 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
 
         allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
 
+        this.resizeCount++;
+
         // We have succeeded at allocating new data so insert the pending key/value at
         // the free slot in the old arrays before rehashing.
 
@@ -410,14 +503,20 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
 
         //iterate all the old arrays to add in the newly allocated buffers
         //It is important to iterate backwards to minimize the conflict chain length !
+        /*! #if ($RH) !*/
         final int perturb = this.perturbation;
+        /*! #end !*/
 
         for (int i = oldKeys.length; --i >= 0;) {
 
             //only consider non-empty slots, of course
             if (!Intrinsics.<KType> isEmpty(key = oldKeys[i])) {
 
+                /*! #if ($RH) !*/
                 slot = REHASH2(key, perturb) & mask;
+                /*! #else
+                slot = hashOf(key) & mask;
+                #end !*/
 
                 /*! #if ($RH) !*/
                 initial_slot = slot;
@@ -480,7 +579,7 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
      * @param capacity New capacity (must be a power of two).
      */
     @SuppressWarnings("boxing")
-    private void allocateBuffers(final int capacity) {
+    void allocateBuffers(final int capacity) {
         try {
 
             final KType[] keys = Intrinsics.<KType> newArray(capacity);
@@ -565,7 +664,7 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
     /**
      * Shift all the slot-conflicting keys allocated to (and including) <code>slot</code>.
      */
-    private void shiftConflictingKeys(int gapSlot) {
+    void shiftConflictingKeys(int gapSlot) {
 
         final int mask = this.keys.length - 1;
 
@@ -573,9 +672,7 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
 
         /*! #if ($RH) !*/
         final int[] cached = this.hash_cache;
-        /*!  #else
-         final int perturb = this.perturbation;
-         #end !*/
+        /*!  #end !*/
 
         // Perform shifts of conflicting keys to fill in the gap.
         int distance = 0;
@@ -598,7 +695,7 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
             assert idealSlotModMask == (REHASH(existing) & mask);
             /*! #end !*/
             /*! #else
-            final int idealSlotModMask = REHASH2(existing, perturb) & mask;
+            final int idealSlotModMask = hashOf(existing) & mask;
             #end !*/
 
             //original HPPC code: shift = (slot - idealSlot) & mask;
@@ -669,6 +766,94 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
         return false;
     }
 
+    /**
+     * Batch version of {@link #contains}: bit i of bits (i.e. bits[i / 64] & (1L << i)) is set if keys[i] is in the set,
+     * cleared otherwise, for i in [0; keys.length[.
+     * <p>
+     * Keys are processed by batches of {@link HashContainers#BATCH_LOOKUP_SIZE}: the first probes of all the keys of a batch
+     * are issued back to back, before any of them is finished, so that the cache misses of independent lookups overlap
+     * instead of being paid one after another. This is faster than a loop of {@link #contains} when the set is
+     * much bigger than the CPU caches.
+     * </p>
+     * @param keys the keys to look up
+     * @param bits bitset receiving the results, at least (keys.length + 63) / 64 long
+     * @return the number of keys found in the set.
+     */
+    public int containsAll(final KType[] keys, final long[] bits) {
+
+        if (((long) bits.length << 6) < keys.length) {
+            throw new IllegalArgumentException("bits is too small for keys: " + bits.length + " words < " + keys.length + " bits");
+        }
+
+        final KType[] buffer = Intrinsics.<KType[]> cast(this.keys);
+
+        final int mask = buffer.length - 1;
+
+        int count = 0;
+
+        for (int start = 0; start < keys.length; start += HashContainers.BATCH_LOOKUP_SIZE) {
+
+            final int end = Math.min(start + HashContainers.BATCH_LOOKUP_SIZE, keys.length);
+
+            //bit (i - start) is set if keys[i] needs more probes
+            long pending = 0L;
+
+            //1) first probe of the batch: the slots only depend on the keys,
+            //so the loads are independent and their latencies overlap.
+            for (int i = start; i < end; i++) {
+
+                final KType key = keys[i];
+
+                boolean found = false;
+
+                if (Intrinsics.<KType> isEmpty(key)) {
+
+                    found = this.allocatedDefaultKey;
+
+                } else {
+
+                    final KType existing = buffer[hashOf(key) & mask];
+
+                    if (!Intrinsics.<KType> isEmpty(existing)) {
+
+                        if (KEYEQUALS(key, existing)) {
+
+                            found = true;
+                        } else {
+
+                            pending |= (1L << (i - start));
+                        }
+                    }
+                }
+
+                if (found) {
+
+                    bits[i >> 6] |= (1L << i);
+                    count++;
+                } else {
+
+                    bits[i >> 6] &= ~(1L << i);
+                }
+            }
+
+            //2) conflicting keys, now in cache: finish the regular way
+            while (pending != 0L) {
+
+                final int i = start + Long.numberOfTrailingZeros(pending);
+
+                if (contains(keys[i])) {
+
+                    bits[i >> 6] |= (1L << i);
+                    count++;
+                }
+
+                pending &= pending - 1;
+            }
+        } //end for batches
+
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -970,6 +1155,392 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
         return before - this.size();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int removeAll(final KTypeLookupContainer<? super KType> c) {
+
+        if (c instanceof KTypeHashSet<?>) {
+
+            return removeAll((KTypeHashSet<? super KType>) c);
+        }
+
+        return super.removeAll(c);
+    }
+
+    /**
+     * Removes all the elements of another hash set, reading the buffers directly instead of going through
+     * a predicate. If both sets have the same layout (see {@link #newInstanceLike(KTypeHashSet)}), the buffers
+     * are walked side by side, else the smaller set is scanned and the other one probed.
+     * @return the number of elements removed from this set.
+     */
+    public int removeAll(final KTypeHashSet<? super KType> other) {
+
+        final int before = this.size();
+
+        if (other == this) {
+
+            clear();
+            return before;
+        }
+
+        if (other.allocatedDefaultKey) {
+
+            this.allocatedDefaultKey = false;
+        }
+
+        final boolean sameLayout = sameLayout(other);
+
+        if (!sameLayout && sameHashing(other) && other.size() < this.size()) {
+
+            final KType[] otherKeys = Intrinsics.<KType[]> cast(other.keys);
+
+            for (int i = otherKeys.length - 1; i >= 0; i--) {
+
+                final KType existing = otherKeys[i];
+
+                if (!Intrinsics.<KType> isEmpty(existing)) {
+
+                    remove(existing);
+                }
+            }
+
+            return before - this.size();
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length;) {
+
+            final KType existing = keys[i];
+
+            if (!Intrinsics.<KType> isEmpty(existing) && containsAt(other, sameLayout, i, existing)) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+            } else {
+                i++;
+            }
+        }
+
+        return before - this.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int retainAll(final KTypeLookupContainer<? super KType> c) {
+
+        if (c instanceof KTypeHashSet<?>) {
+
+            return retainAll((KTypeHashSet<? super KType>) c);
+        }
+
+        return super.retainAll(c);
+    }
+
+    /**
+     * Keeps only the elements of this set which are in another hash set, reading the buffers directly instead of going through
+     * a predicate. If both sets have the same layout (see {@link #newInstanceLike(KTypeHashSet)}), the buffers
+     * are walked side by side.
+     * @return the number of elements removed from this set.
+     */
+    public int retainAll(final KTypeHashSet<? super KType> other) {
+
+        if (other == this) {
+
+            return 0;
+        }
+
+        final int before = this.size();
+
+        if (!other.allocatedDefaultKey) {
+
+            this.allocatedDefaultKey = false;
+        }
+
+        final boolean sameLayout = sameLayout(other);
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length;) {
+
+            final KType existing = keys[i];
+
+            if (!Intrinsics.<KType> isEmpty(existing) && !containsAt(other, sameLayout, i, existing)) {
+
+                shiftConflictingKeys(i);
+                // Shift, do not increment slot.
+            } else {
+                i++;
+            }
+        }
+
+        return before - this.size();
+    }
+
+    /**
+     * Count the elements in both this set and another one, without building the intersection.
+     * If both sets have the same layout (see {@link #newInstanceLike(KTypeHashSet)}), the buffers
+     * are walked side by side, else the smaller set is scanned and the other one probed.
+     */
+    public int intersectionSize(final KTypeHashSet<? super KType> other) {
+
+        if (other == this) {
+
+            return this.size();
+        }
+
+        int count = (this.allocatedDefaultKey && other.allocatedDefaultKey) ? 1 : 0;
+
+        final boolean sameLayout = sameLayout(other);
+
+        if (!sameLayout && sameHashing(other) && other.size() < this.size()) {
+
+            final KType[] otherKeys = Intrinsics.<KType[]> cast(other.keys);
+
+            for (int i = 0; i < otherKeys.length; i++) {
+
+                final KType existing = otherKeys[i];
+
+                if (!Intrinsics.<KType> isEmpty(existing) && contains(existing)) {
+
+                    count++;
+                }
+            }
+
+            return count;
+        }
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            final KType existing = keys[i];
+
+            if (!Intrinsics.<KType> isEmpty(existing) && containsAt(other, sameLayout, i, existing)) {
+
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * True if other hashes and compares its keys as this set does, so that either set can be probed
+     * for the keys of the other.
+     */
+    boolean sameHashing(final KTypeHashSet<?> other) {
+
+        return other.getClass() == this.getClass();
+    }
+
+    /**
+     * True if other hashes its keys exactly as this set does, in a buffer of the same size,
+     * so that a key is at the same slot, or close to it, in both sets.
+     */
+    private boolean sameLayout(final KTypeHashSet<?> other) {
+
+        return sameHashing(other) && other.keys.length == this.keys.length && other.perturbation == this.perturbation;
+    }
+
+    /**
+     * True if key, found at slot in this set, is also in other: if both sets have the same layout, the same slot of other
+     * is tested first, without hashing.
+     */
+    private boolean containsAt(final KTypeHashSet<? super KType> other, final boolean sameLayout, final int slot, final KType key) {
+
+        if (sameLayout && is_allocated(slot, Intrinsics.<KType[]> cast(other.keys))
+                && KEYEQUALS(key, Intrinsics.<KType> cast(other.keys[slot]))) {
+
+            return true;
+        }
+
+        return other.contains(key);
+    }
+
+    /**
+     * Compute the statistics of the layout of the buffers, in a single pass over {@link #keys}:
+     * see {@link HashStats}. This is an O(buffer size) diagnostic, not meant to be called on every operation.
+     */
+    public HashStats stats() {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+        final int mask = keys.length - 1;
+
+        final int[] clusterSizeHistogram = new int[HashStats.HISTOGRAM_LENGTH];
+
+        int nbProbed = 0;
+        int maxProbeLength = 0;
+        long sumProbeLengths = 0;
+        int maxClusterSize = 0;
+        int clusterSize = 0;
+
+        //start the pass right after an empty slot (there is always one at least),
+        //so that no cluster wraps around the end of the pass.
+        int start = 0;
+
+        while (!Intrinsics.<KType> isEmpty(keys[start])) {
+            start++;
+        }
+
+        for (int i = 1; i <= keys.length; i++) {
+
+            final int slot = (start + i) & mask;
+
+            KType existing;
+
+            if (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+                final int probeLength = ((slot - hashOf(existing)) & mask) + 1;
+
+                nbProbed++;
+                sumProbeLengths += probeLength;
+                maxProbeLength = Math.max(maxProbeLength, probeLength);
+                clusterSize++;
+
+            } else if (clusterSize > 0) {
+
+                clusterSizeHistogram[HashStats.histogramBucket(clusterSize)]++;
+                maxClusterSize = Math.max(maxClusterSize, clusterSize);
+                clusterSize = 0;
+            }
+        }
+
+        return new HashStats(size(), keys.length, this.loadFactor, this.resizeCount,
+                nbProbed, maxProbeLength, sumProbeLengths, maxClusterSize, clusterSizeHistogram);
+    }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    /**
+     * Write the set to out, its keys being written in bulk.
+     * <p>
+     * If asIs = false, only the keys are written, and {@link #readFrom(DataInput)} rehashes them. If asIs = true,
+     * the whole hash table is dumped as-is (including the empty slots), and {@link #readFrom(DataInput)} only
+     * has to read it back, without any rehashing.
+     * </p>
+     * (use {@link java.nio.channels.Channels#newOutputStream} to write to a channel)
+     * @param asIs true to dump the hash table as-is.
+     */
+    public void writeTo(final DataOutput out, final boolean asIs) throws IOException {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        out.writeBoolean(asIs);
+        out.writeDouble(this.loadFactor);
+        out.writeBoolean(this.allocatedDefaultKey);
+        out.writeInt(this.assigned);
+
+        if (asIs) {
+
+            out.writeInt(this.perturbation);
+            out.writeInt(keys.length);
+
+            KTypeArrays.writeTo(out, keys, 0, keys.length);
+
+            return;
+        }
+
+        //pack the keys, by chunks
+        final KType[] chunk = Intrinsics.<KType> newArray(Math.min(this.assigned, KTypeHashSet.IO_CHUNK_SIZE));
+        int count = 0;
+
+        for (int i = keys.length; --i >= 0;) {
+
+            if (is_allocated(i, keys)) {
+
+                chunk[count++] = keys[i];
+
+                if (count == chunk.length) {
+
+                    KTypeArrays.writeTo(out, chunk, 0, count);
+                    count = 0;
+                }
+            }
+        }
+
+        KTypeArrays.writeTo(out, chunk, 0, count);
+    }
+
+    /**
+     * Read a set written by {@link #writeTo(DataOutput, boolean)}.
+     */
+    @SuppressWarnings("boxing")
+    public static <KType> KTypeHashSet<KType> readFrom(final DataInput in) throws IOException {
+
+        final boolean asIs = in.readBoolean();
+        final double loadFactor = in.readDouble();
+
+        if (!(loadFactor >= HashContainers.MIN_LOAD_FACTOR && loadFactor <= HashContainers.MAX_LOAD_FACTOR)) {
+
+            throw new IOException("Corrupted set, load factor: " + loadFactor);
+        }
+
+        final boolean allocatedDefaultKey = in.readBoolean();
+        final int assigned = in.readInt();
+
+        if (asIs) {
+
+            final int perturbation = in.readInt();
+            final int length = in.readInt();
+
+            if (length < HashContainers.MIN_HASH_ARRAY_LENGTH || length > HashContainers.MAX_HASH_ARRAY_LENGTH
+                    || Integer.bitCount(length) != 1 || assigned < 0 || assigned > HashContainers.expandAtCount(length, loadFactor)) {
+
+                throw new IOException(String.format("Corrupted set, %d keys in %d slots", assigned, length));
+            }
+
+            final KTypeHashSet<KType> set = new KTypeHashSet<KType>(length, loadFactor, perturbation);
+
+            KTypeArrays.readFrom(in, Intrinsics.<KType[]> cast(set.keys), 0, length);
+
+            set.assigned = assigned;
+            set.allocatedDefaultKey = allocatedDefaultKey;
+
+            return set;
+        }
+
+        if (assigned < 0 || assigned > HashContainers.maxElements(loadFactor)) {
+
+            throw new IOException("Corrupted set, size: " + assigned);
+        }
+
+        final KTypeHashSet<KType> set = new KTypeHashSet<KType>(assigned, loadFactor);
+
+        final KType[] chunk = Intrinsics.<KType> newArray(Math.min(assigned, KTypeHashSet.IO_CHUNK_SIZE));
+
+        for (int remaining = assigned; remaining > 0;) {
+
+            final int count = Math.min(remaining, chunk.length);
+
+            KTypeArrays.readFrom(in, chunk, 0, count);
+
+            for (int i = 0; i < count; i++) {
+
+                set.add(chunk[i]);
+            }
+
+            remaining -= count;
+        }
+
+        set.allocatedDefaultKey = allocatedDefaultKey;
+
+        return set;
+    }
+
+    /**
+     * Create an immutable copy of this set, perfectly hashed: see {@link KTypeFrozenHashSet}.
+     */
+    public KTypeFrozenHashSet<KType> freeze() {
+
+        return KTypeFrozenHashSet.from(this);
+    }
+
+    /*! #end !*/
+
     /**
      * Create a set from a variable number of arguments or an array of <code>KType</code>.
      */
@@ -1002,6 +1573,19 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
         return new KTypeHashSet<KType>(initialCapacity, loadFactor);
     }
 
+    /**
+     * Create a new empty set with the same buffer size, load factor and perturbation
+     * as <code>layout</code>: as long as none of them is resized, bulk operations between such sets
+     * ({@link #addAll(KTypeHashSet)}, {@link #removeAll(KTypeHashSet)}, {@link #retainAll(KTypeHashSet)},
+     * {@link #intersectionSize(KTypeHashSet)}) walk both buffers side by side.
+     * <p><b>Important note.</b> Copying the keys of a bigger set of the same hashing in iteration order into a smaller one
+     * leads to long conflict chains, which the per-instance perturbation normally prevents.</p>
+     */
+    public static <KType> KTypeHashSet<KType> newInstanceLike(final KTypeHashSet<KType> layout) {
+
+        return new KTypeHashSet<KType>(layout.keys.length, layout.loadFactor, layout.perturbation);
+    }
+
     //Test for existence in template
     /*! #if ($TemplateOptions.declareInline("is_allocated(slot, keys)",
     "<*>==>!Intrinsics.<KType>isEmpty(keys[slot])")) !*/
@@ -1036,6 +1620,15 @@ implements KTypeLookupContainer<KType>, KTypeSet<KType>, Cloneable
     }
     /*! #end !*/
 
+    /**
+     * Hash of a (non-empty) key, before masking: REHASH(key) here, overridden by the sets of this package
+     * which hash the keys differently, so that they share the probing code which is not inlined.
+     */
+    int hashOf(final KType key) {
+
+        return REHASH(key);
+    }
+
     /*! #if ($TemplateOptions.declareInline("REHASH(value)",
     "<Object>==>BitMixer.mix(hashKey(value) , this.perturbation)",
     "<*>==>BitMixer.mix(value , this.perturbation)")) !*/
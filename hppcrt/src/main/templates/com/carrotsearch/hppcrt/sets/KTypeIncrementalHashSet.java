@@ -0,0 +1,366 @@
+package com.carrotsearch.hppcrt.sets;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * A hash set of <code>KType</code>s which grows by incremental rehashing,
+ * made of {@link KTypeHashSet}s.
+ * <p>
+ * A regular {@link KTypeHashSet} rehashes all its keys at once when it must grow,
+ * which for big sets is a pause proportional to the set size. Instead, when this set is full, a new
+ * set of twice the capacity becomes the current set, and the full one is kept aside as the old set.
+ * Then, each subsequent {@link #add}, {@link #remove}... migrates a bounded number ({@link #MIGRATION_STEP})
+ * of slots of the old set into the current one, until the old set is empty and discarded.
+ * Only the modifications migrate: {@link #contains} never modifies the set,
+ * so that a set no longer modified can be read by several threads, as a {@link KTypeHashSet}.
+ * </p>
+ * <p>
+ * While the old set is not empty, every key is in either the current set or the old set, so that lookups
+ * may cost two set lookups instead of one. The migration is guaranteed to complete before the current set is full again.
+ * Note that the allocation of the new buffers of the current set is still done at once (and zeroed by the JVM), but it is
+ * much cheaper than a whole rehash.
+ * </p>
+#if ($TemplateOptions.KTypeGeneric)
+ * <p>This implementation supports <code>null</code> keys.</p>
+#end
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeIncrementalHashSet<KType>
+{
+    /**
+     * Max number of slots of the old set visited by each migration step.
+     */
+    public static final int MIGRATION_STEP = 16;
+
+    /**
+     * Set receiving all the insertions.
+     */
+    protected KTypeHashSet<KType> current;
+
+    /**
+     * Set being migrated into {@link #current}, or null if no migration is in progress.
+     */
+    protected KTypeHashSet<KType> old;
+
+    /**
+     * Next slot of {@link #old} to migrate. All the slots
+     * between the start of migration and migrationSlot (circularly) are empty.
+     */
+    private int migrationSlot;
+
+    /**
+     * The load factor of the sets.
+     */
+    protected final double loadFactor;
+
+    /**
+     * Default constructor: Creates a hash set with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeIncrementalHashSet() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS);
+    }
+
+    /**
+     * Creates a hash set with the given initial capacity, default load factor of
+     * {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     *
+     * @param initialCapacity Initial capacity (greater than zero and automatically
+     *            rounded to the next power of two).
+     */
+    public KTypeIncrementalHashSet(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash set with the given initial capacity,
+     * load factor.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     */
+    public KTypeIncrementalHashSet(final int initialCapacity, final double loadFactor) {
+        this.loadFactor = loadFactor;
+        this.current = new KTypeHashSet<KType>(initialCapacity, loadFactor);
+    }
+
+    /**
+     * @see KTypeHashSet#add
+     */
+    public boolean add(final KType key) {
+
+        if (this.old != null) {
+
+            migrate(KTypeIncrementalHashSet.MIGRATION_STEP);
+
+            if (this.old != null && this.old.contains(key)) {
+
+                return false;
+            }
+        }
+
+        if (this.current.assigned == this.current.capacity() && !this.current.contains(key)) {
+
+            ensureRoomForNewKey();
+        }
+
+        return this.current.add(key);
+    }
+
+    /**
+     * @see KTypeHashSet#contains
+     */
+    public boolean contains(final KType key) {
+
+        return (this.old != null && this.old.contains(key)) || this.current.contains(key);
+    }
+
+    /**
+     * @see KTypeHashSet#remove
+     */
+    public boolean remove(final KType key) {
+
+        if (this.old != null) {
+
+            migrate(KTypeIncrementalHashSet.MIGRATION_STEP);
+
+            if (this.old != null && this.old.remove(key)) {
+
+                if (this.old.isEmpty()) {
+                    this.old = null;
+                }
+
+                return true;
+            }
+        }
+
+        return this.current.remove(key);
+    }
+
+    /**
+     * @see KTypeHashSet#removeAll(KTypePredicate)
+     */
+    public int removeAll(final KTypePredicate<? super KType> predicate) {
+
+        int removed = this.current.removeAll(predicate);
+
+        if (this.old != null) {
+
+            //removals preserve the invariant that the already migrated slots are empty
+            removed += this.old.removeAll(predicate);
+
+            if (this.old.isEmpty()) {
+                this.old = null;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * @see KTypeHashSet#forEach(KTypeProcedure)
+     */
+    public <T extends KTypeProcedure<? super KType>> T forEach(final T procedure) {
+
+        if (this.old != null) {
+            this.old.forEach(procedure);
+        }
+
+        return this.current.forEach(procedure);
+    }
+
+    /**
+     * Stops at the first key for which the predicate returns false.
+     * @see KTypeHashSet#forEach(KTypePredicate)
+     */
+    public <T extends KTypePredicate<? super KType>> T forEach(final T predicate) {
+
+        if (this.old != null) {
+
+            //old never holds the 0/null key, see ensureRoomForNewKey()
+            final KType[] oldKeys = Intrinsics.<KType[]> cast(this.old.keys);
+
+            for (int i = oldKeys.length - 1; i >= 0; i--) {
+                KType existing;
+                if (!Intrinsics.<KType> isEmpty(existing = oldKeys[i])) {
+                    if (!predicate.apply(existing)) {
+                        return predicate;
+                    }
+                }
+            }
+        }
+
+        return this.current.forEach(predicate);
+    }
+
+    /**
+     * Clear the set, terminating any migration in progress.
+     * <p>Does not release internal buffers of the current set.</p>
+     */
+    public void clear() {
+
+        this.old = null;
+        this.current.clear();
+    }
+
+    /**
+     * @see KTypeHashSet#size
+     */
+    public int size() {
+
+        return this.current.size() + (this.old != null ? this.old.size() : 0);
+    }
+
+    /**
+     * @see KTypeHashSet#isEmpty
+     */
+    public boolean isEmpty() {
+
+        return size() == 0;
+    }
+
+    /**
+     * @return the capacity of the current set.
+     * @see KTypeHashSet#capacity
+     */
+    public int capacity() {
+
+        return this.current.capacity();
+    }
+
+    /**
+     * @return true if a migration is in progress.
+     */
+    public boolean isMigrating() {
+
+        return this.old != null;
+    }
+
+    /**
+     * Convert the contents of this set to a human-friendly string.
+     */
+    @Override
+    public String toString() {
+
+        if (this.old == null) {
+            return this.current.toString();
+        }
+
+        final String oldString = this.old.toString();
+        final String currentString = this.current.toString();
+
+        if (this.old.isEmpty()) {
+            return currentString;
+        }
+
+        if (this.current.isEmpty()) {
+            return oldString;
+        }
+
+        //concat the 2 lists
+        return oldString.substring(0, oldString.length() - 1) + ", " + currentString.substring(1);
+    }
+
+    /**
+     * Called before inserting a new key in current: if current is full,
+     * make it the old set and start migrating it into a new bigger one.
+     */
+    private void ensureRoomForNewKey() {
+
+        if (this.current.assigned < this.current.capacity()) {
+            return;
+        }
+
+        if (this.old != null) {
+            //Should not happen, migration steps are big enough to empty old before current is full.
+            migrate(Integer.MAX_VALUE);
+        }
+
+        final KTypeHashSet<KType> full = this.current;
+
+        //at least twice the buffer size of full
+        final KTypeHashSet<KType> next = new KTypeHashSet<KType>(full.capacity() + 1, this.loadFactor);
+
+        //the 0/null key is not in the buffers, move it immediately
+        if (full.allocatedDefaultKey) {
+
+            final KType emptyKey = Intrinsics.<KType> empty();
+
+            next.add(emptyKey);
+            full.remove(emptyKey);
+        }
+
+        this.current = next;
+        this.old = full;
+
+        //Start migrating at an empty slot, so that every following slot is either empty or belongs to a cluster starting
+        //after it: then removals (which only shift keys backwards, towards their ideal slot) never move keys into already migrated slots.
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(full.keys);
+
+        int slot = 0;
+
+        while (!Intrinsics.<KType> isEmpty(oldKeys[slot])) {
+            slot++;
+        }
+
+        this.migrationSlot = slot;
+    }
+
+    /**
+     * Migrate at most nbSlots slots of {@link #old} into {@link #current},
+     * discarding old when empty.
+     */
+    private void migrate(int nbSlots) {
+
+        final KTypeHashSet<KType> old = this.old;
+
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(old.keys);
+
+        final int mask = oldKeys.length - 1;
+
+        int slot = this.migrationSlot;
+
+        while (nbSlots-- > 0 && old.assigned > 0) {
+
+            final KType key = oldKeys[slot];
+
+            if (Intrinsics.<KType> isEmpty(key)) {
+
+                slot = (slot + 1) & mask;
+
+            } else {
+
+                //keys of old are never in current, add() just inserts.
+                this.current.add(key);
+
+                //removal may shift a following key into slot: do not advance.
+                old.shiftConflictingKeys(slot);
+            }
+        }
+
+        this.migrationSlot = slot;
+
+        if (old.assigned == 0 && !old.allocatedDefaultKey) {
+
+            this.old = null;
+        }
+    }
+
+    /**
+     * Create a new set without providing the full generic signature
+     * (constructor shortcut).
+     */
+    public static <KType> KTypeIncrementalHashSet<KType> newInstance() {
+        return new KTypeIncrementalHashSet<KType>();
+    }
+
+    /**
+     * Create a new set with initial capacity and load factor control.
+     * (constructor shortcut).
+     */
+    public static <KType> KTypeIncrementalHashSet<KType> newInstance(final int initialCapacity, final double loadFactor) {
+        return new KTypeIncrementalHashSet<KType>(initialCapacity, loadFactor);
+    }
+}
@@ -0,0 +1,329 @@
+package com.carrotsearch.hppcrt.sets;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash set of <code>KType</code>s, implemented using open
+ * addressing with linear probing and Robin-Hood hashing for collision resolution.
+ * <p>
+ * This is an opt-in variant of {@link KTypeHashSet}, with the same buffers and API: on insertion, a key
+ * takes over the slot of any key nearer to its own ideal slot than the inserted key is,
+ * so that the keys of a cluster are always ordered by ideal slot. This minimizes the variance of the probe lengths,
+ * and a lookup of an absent key stops as soon as it meets a key nearer to its ideal slot than the searched key would be.
+ * </p>
+ * <p>
+ * The probe distance of a key is recomputed from its rehash instead of being cached,
+ * so there is no extra memory compared to {@link KTypeHashSet}.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeRobinHoodHashSet<KType>
+extends KTypeHashSet<KType>
+{
+    /**
+     * Default constructor: Creates a hash set with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeRobinHoodHashSet() {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash set with the given capacity,
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}.
+     */
+    public KTypeRobinHoodHashSet(final int initialCapacity) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a hash set with the given capacity and load factor.
+     */
+    public KTypeRobinHoodHashSet(final int initialCapacity, final double loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Creates a hash set from elements of another container. Default load factor is used.
+     */
+    public KTypeRobinHoodHashSet(final KTypeContainer<KType> container) {
+        this(container.size());
+        addAll(container);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.add(key);
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return false;
+            }
+
+            //the keys of a cluster are ordered by ideal slot, so key cannot be further than
+            //the first key nearer to its ideal slot: this is where key is to be inserted.
+            if (dist > PROBE_DISTANCE(slot, existing, mask)) {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+            dist++;
+        } //end while
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndAdd(key);
+        } else {
+
+            this.assigned++;
+            insertAt(slot, key);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.remove(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return false;
+        }
+
+        //the backward shift deletion keeps the clusters ordered by ideal slot
+        shiftConflictingKeys(slot);
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return lookupSlot(key) != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeRobinHoodHashSet<KType> clone() {
+
+        //clone to size() to prevent eventual exponential growth
+        final KTypeRobinHoodHashSet<KType> cloned = new KTypeRobinHoodHashSet<KType>(size(), this.loadFactor);
+
+        //We must NOT clone, because of the independent perturbation seeds
+        cloned.addAll(this);
+
+        return cloned;
+    }
+
+    /**
+     * Slot of the (non-empty) key, or -1 if not in the set.
+     */
+    private int lookupSlot(final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+
+            //Robin-hood shortcut: key can only be found while dist <= the probe distance of the existing keys,
+            //only computed on mismatches, so that a hit on its ideal slot costs no more than linear probing.
+            if (dist > PROBE_DISTANCE(slot, existing, mask)) {
+                break;
+            }
+
+            slot = (slot + 1) & mask;
+            dist++;
+        } //end while
+
+        return -1;
+    }
+
+    /**
+     * Insert a key known to be absent at its Robin-hood position slot, shifting
+     * the rest of the cluster by one slot.
+     */
+    private void insertAt(final int slot, final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        //end of the cluster, there is always one empty slot at least
+        int gapSlot = slot;
+
+        while (!Intrinsics.<KType> isEmpty(keys[gapSlot])) {
+
+            gapSlot = (gapSlot + 1) & mask;
+        }
+
+        //shift [slot; gapSlot[ by one, each key moving one slot further from its ideal slot.
+        while (gapSlot != slot) {
+
+            final int previous = (gapSlot - 1) & mask;
+
+            keys[gapSlot] = keys[previous];
+
+            gapSlot = previous;
+        }
+
+        keys[slot] = key;
+    }
+
+    /**
+     * Expand the internal storage buffers (capacity), re-insert
+     * the existing keys and the pending one.
+     */
+    private void expandAndAdd(final KType pendingKey) {
+
+        assert this.assigned == this.resizeAt;
+
+        // Try to allocate new buffers first. If we OOM, it'll be now without
+        // leaving the data structure in an inconsistent state.
+        final KType[] oldKeys = Intrinsics.<KType[]> cast(this.keys);
+
+        allocateBuffers(HashContainers.nextBufferSize(this.keys.length, this.assigned, this.loadFactor));
+
+        this.resizeCount++;
+
+        this.assigned++;
+
+        for (int i = oldKeys.length; --i >= 0;) {
+
+            if (!Intrinsics.<KType> isEmpty(oldKeys[i])) {
+
+                insertUnique(oldKeys[i]);
+            }
+        }
+
+        insertUnique(pendingKey);
+    }
+
+    /**
+     * Insert a key known to be absent, with no growth check.
+     */
+    private void insertUnique(final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        //only look for the Robin-hood position of key
+        int slot = REHASH(key) & mask;
+        int dist = 0;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot]) && dist <= PROBE_DISTANCE(slot, existing, mask)) {
+
+            slot = (slot + 1) & mask;
+            dist++;
+        }
+
+        insertAt(slot, key);
+    }
+
+    /**
+     * Create a set from a variable number of arguments or an array of <code>KType</code>.
+     */
+    public static <KType> KTypeRobinHoodHashSet<KType> from(final KType... elements) {
+        final KTypeRobinHoodHashSet<KType> set = new KTypeRobinHoodHashSet<KType>(elements.length);
+        set.add(elements);
+        return set;
+    }
+
+    /**
+     * Create a set from elements of another container.
+     */
+    public static <KType> KTypeRobinHoodHashSet<KType> from(final KTypeContainer<KType> container) {
+        return new KTypeRobinHoodHashSet<KType>(container);
+    }
+
+    /**
+     * Create a new hash set with default parameters (shortcut
+     * instead of using a constructor).
+     */
+    public static <KType> KTypeRobinHoodHashSet<KType> newInstance() {
+        return new KTypeRobinHoodHashSet<KType>();
+    }
+
+    /**
+     * Returns a new object of this class with no need to declare generic type (shortcut
+     * instead of using a constructor).
+     */
+    public static <KType> KTypeRobinHoodHashSet<KType> newInstance(final int initialCapacity, final double loadFactor) {
+        return new KTypeRobinHoodHashSet<KType>(initialCapacity, loadFactor);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*>==>BitMixer.mix(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType value) {
+
+        return BitMixer.mix(hashKey(value), this.perturbation);
+    }
+    /*! #end !*/
+
+    /*! #if ($TemplateOptions.declareInline("PROBE_DISTANCE(slot, existing, mask)",
+    "<*>==>(slot - BitMixer.mix(existing , this.perturbation)) & mask")) !*/
+    /**
+     * Probe distance of the existing key at slot, i.e its distance to its ideal slot, recomputed from its rehash.
+     * (inlined in generated code)
+     */
+    private int PROBE_DISTANCE(final int slot, final KType existing, final int mask) {
+
+        return (slot - BitMixer.mix(hashKey(existing), this.perturbation)) & mask;
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,301 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.strategies.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * A hash set of <code>KType</code>s, implemented using open
+ * addressing with linear probing for collision resolution, whose keys are hashed by a {@link KTypeHashingStrategy}
+ * instead of the default {@link com.carrotsearch.hppcrt.hash.BitMixer} mixing.
+ * <p>
+ * This is an opt-in variant of {@link KTypeHashSet}, with the same buffers and API, so that {@link KTypeHashSet}
+ * itself keeps its inlined mixing with no indirection at all. Here, the strategy is called at every
+ * hashing: as long as an application uses a single strategy class for all its sets of a given key type, the call site
+ * stays monomorphic and the JIT inlines it.
+ * </p>
+ * <p>
+ * The strategy is kept by {@link #clone()}, but is not written by {@link #writeTo(DataOutput, boolean)}:
+ * the set is read back as a plain {@link KTypeHashSet}.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeStrategyHashSet<KType>
+extends KTypeHashSet<KType>
+{
+    /**
+     * The hashing of the keys.
+     */
+    protected final KTypeHashingStrategy<KType> hashingStrategy;
+
+    /**
+     * Creates a hash set with the default capacity of {@link Containers#DEFAULT_EXPECTED_ELEMENTS},
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}, and the given hashing of the keys.
+     */
+    public KTypeStrategyHashSet(final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(Containers.DEFAULT_EXPECTED_ELEMENTS, HashContainers.DEFAULT_LOAD_FACTOR, hashingStrategy);
+    }
+
+    /**
+     * Creates a hash set with the given capacity,
+     * load factor of {@link HashContainers#DEFAULT_LOAD_FACTOR}, and the given hashing of the keys.
+     */
+    public KTypeStrategyHashSet(final int initialCapacity, final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(initialCapacity, HashContainers.DEFAULT_LOAD_FACTOR, hashingStrategy);
+    }
+
+    /**
+     * Creates a hash set with the given capacity, load factor and hashing of the keys.
+     *
+     * @param loadFactor The load factor (greater than zero and smaller than 1).
+     * @param hashingStrategy The hashing of the keys, not null.
+     */
+    public KTypeStrategyHashSet(final int initialCapacity, final double loadFactor, final KTypeHashingStrategy<KType> hashingStrategy) {
+        super(initialCapacity, loadFactor);
+
+        if (hashingStrategy == null) {
+
+            throw new IllegalArgumentException("hashingStrategy must not be null");
+        }
+
+        this.hashingStrategy = hashingStrategy;
+    }
+
+    /**
+     * Creates an empty hash set of exactly bufferSize slots hashed with hashingStrategy and perturbation,
+     * see {@link #newInstanceLike(KTypeStrategyHashSet)}.
+     */
+    private KTypeStrategyHashSet(final int bufferSize, final double loadFactor, final int perturbation,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+        super(bufferSize, loadFactor, perturbation);
+
+        this.hashingStrategy = hashingStrategy;
+    }
+
+    /**
+     * Creates a hash set from elements of another container, with the given hashing of the keys.
+     * Default load factor is used.
+     */
+    public KTypeStrategyHashSet(final KTypeContainer<KType> container, final KTypeHashingStrategy<KType> hashingStrategy) {
+        this(container.size(), hashingStrategy);
+        addAll(container);
+    }
+
+    /**
+     * The hashing of the keys.
+     */
+    public KTypeHashingStrategy<KType> getHashingStrategy() {
+
+        return this.hashingStrategy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.add(key);
+        }
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while
+
+        if (this.assigned == this.resizeAt) {
+
+            expandAndAdd(key, slot);
+        } else {
+
+            this.assigned++;
+            keys[slot] = key;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return super.remove(key);
+        }
+
+        final int slot = lookupSlot(key);
+
+        if (slot == -1) {
+
+            return false;
+        }
+
+        shiftConflictingKeys(slot);
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final KType key) {
+
+        if (Intrinsics.<KType> isEmpty(key)) {
+
+            return this.allocatedDefaultKey;
+        }
+
+        return lookupSlot(key) != -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KTypeStrategyHashSet<KType> clone() {
+
+        //clone to size() to prevent eventual exponential growth
+        final KTypeStrategyHashSet<KType> cloned = new KTypeStrategyHashSet<KType>(size(), this.loadFactor, this.hashingStrategy);
+
+        //We must NOT clone, because of the independent perturbation seeds
+        cloned.addAll(this);
+
+        return cloned;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The hashing strategy cannot be written, and the set read back uses the default hashing: so the keys are
+     * always written alone, whatever asIs.
+     * </p>
+     */
+    @Override
+    public void writeTo(final DataOutput out, final boolean asIs) throws IOException {
+
+        super.writeTo(out, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The hashing strategies must be the same instance too.
+     * </p>
+     */
+    @Override
+    boolean sameHashing(final KTypeHashSet<?> other) {
+
+        return super.sameHashing(other) && ((KTypeStrategyHashSet<?>) other).hashingStrategy == this.hashingStrategy;
+    }
+
+    /**
+     * Slot of the (non-empty) key, or -1 if not in the set.
+     */
+    private int lookupSlot(final KType key) {
+
+        final int mask = this.keys.length - 1;
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.keys);
+
+        int slot = REHASH(key) & mask;
+        KType existing;
+
+        while (!Intrinsics.<KType> isEmpty(existing = keys[slot])) {
+
+            if (Intrinsics.<KType> equalsNotNull(key, existing)) {
+
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        } //end while
+
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int hashOf(final KType key) {
+
+        return REHASH(key);
+    }
+
+    /**
+     * Create a set from a variable number of arguments or an array of <code>KType</code>,
+     * with the given hashing of the keys.
+     */
+    public static <KType> KTypeStrategyHashSet<KType> from(final KTypeHashingStrategy<KType> hashingStrategy, final KType... elements) {
+        final KTypeStrategyHashSet<KType> set = new KTypeStrategyHashSet<KType>(elements.length, hashingStrategy);
+        set.add(elements);
+        return set;
+    }
+
+    /**
+     * Create a set from elements of another container, with the given hashing of the keys.
+     */
+    public static <KType> KTypeStrategyHashSet<KType> from(final KTypeContainer<KType> container, final KTypeHashingStrategy<KType> hashingStrategy) {
+        return new KTypeStrategyHashSet<KType>(container, hashingStrategy);
+    }
+
+    /**
+     * Create a new hash set with default parameters and the given hashing of the keys (shortcut
+     * instead of using a constructor).
+     */
+    public static <KType> KTypeStrategyHashSet<KType> newInstance(final KTypeHashingStrategy<KType> hashingStrategy) {
+        return new KTypeStrategyHashSet<KType>(hashingStrategy);
+    }
+
+    /**
+     * Returns a new object of this class with no need to declare generic type (shortcut
+     * instead of using a constructor).
+     */
+    public static <KType> KTypeStrategyHashSet<KType> newInstance(final int initialCapacity, final double loadFactor,
+            final KTypeHashingStrategy<KType> hashingStrategy) {
+        return new KTypeStrategyHashSet<KType>(initialCapacity, loadFactor, hashingStrategy);
+    }
+
+    /**
+     * Create a new empty set with the same buffer size, load factor, hashing strategy and perturbation
+     * as <code>layout</code>: see {@link KTypeHashSet#newInstanceLike(KTypeHashSet)}.
+     */
+    public static <KType> KTypeStrategyHashSet<KType> newInstanceLike(final KTypeStrategyHashSet<KType> layout) {
+
+        return new KTypeStrategyHashSet<KType>(layout.keys.length, layout.loadFactor, layout.perturbation, layout.hashingStrategy);
+    }
+
+    /*! #if ($TemplateOptions.declareInline("REHASH(value)",
+    "<*>==>this.hashingStrategy.computeHashCode(value , this.perturbation)")) !*/
+    /**
+     * REHASH method for rehashing the keys.
+     * (inlined in generated code)
+     */
+    private int REHASH(final KType value) {
+
+        return this.hashingStrategy.computeHashCode(value, this.perturbation);
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,286 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * An immutable xor filter of <code>KType</code>s (Graf and Lemire), built once from another container by
+ * {@link #from(KTypeContainer)}: an approximate set with no false negatives, and a false positive rate of about 1 / 256.
+ * <p>
+ * The filter stores an 8-bit fingerprint per slot, in about 1.23 slots per key, i.e about 9.84 bits per key,
+ * where a {@link KTypeBloomFilter} of the same false positive rate needs about 11.5 bits per key.
+ * A key is in the filter if its fingerprint is the xor of the {@link #fingerprints} of its 3 slots, one in each third of the array,
+ * so a lookup costs one hash and 3 independent memory accesses.
+ * </p>
+ * <p>
+ * The build is more costly than filling a {@link KTypeBloomFilter}, so this filter is intended
+ * for sets of keys built once and queried many times.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeXorFilter<KType>
+{
+    /**
+     * Max number of seeds tried by {@link #from(KTypeContainer)} before giving up.
+     */
+    private static final int MAX_SEEDS = 64;
+
+    /**
+     * The fingerprints, 3 blocks of {@link #blockLength} slots.
+     */
+    public final byte[] fingerprints;
+
+    /**
+     * The number of slots of each of the 3 blocks of {@link #fingerprints}.
+     */
+    protected final int blockLength;
+
+    /**
+     * Seed of the hashes of the keys.
+     */
+    protected final int seed;
+
+    /**
+     * The number of distinct keys of the filter.
+     */
+    protected final int size;
+
+    /**
+     * Use {@link #from(KTypeContainer)}.
+     */
+    private KTypeXorFilter(final byte[] fingerprints, final int blockLength, final int seed, final int size) {
+
+        this.fingerprints = fingerprints;
+        this.blockLength = blockLength;
+        this.seed = seed;
+        this.size = size;
+    }
+
+    /**
+     * Create a filter of the contents of container. Duplicate keys are allowed.
+     * @throws IllegalArgumentException if the filter could not be built, which is extremely unlikely.
+     */
+    public static <KType> KTypeXorFilter<KType> from(final KTypeContainer<KType> container) {
+
+        final KType[] keys = Intrinsics.<KType> newArray(container.size());
+
+        int count = 0;
+
+        for (final KTypeCursor<KType> c : container) {
+
+            keys[count++] = c.value;
+        }
+
+        return KTypeXorFilter.from(keys, 0, count);
+    }
+
+    /**
+     * Create a filter of the keys. Duplicate keys are allowed.
+     * @throws IllegalArgumentException if the filter could not be built, which is extremely unlikely.
+     */
+    public static <KType> KTypeXorFilter<KType> from(final KType... keys) {
+
+        return KTypeXorFilter.from(keys, 0, keys.length);
+    }
+
+    /**
+     * Create a filter of the keys in [offset; offset + length[. Duplicate keys are allowed.
+     * @throws IllegalArgumentException if the filter could not be built, which is extremely unlikely.
+     */
+    public static <KType> KTypeXorFilter<KType> from(final KType[] keys, final int offset, final int length) {
+
+        final long[] hashes = new long[length];
+
+        int seed = Containers.randomSeed32();
+
+        for (int attempt = 0; attempt < KTypeXorFilter.MAX_SEEDS; attempt++) {
+
+            for (int i = 0; i < length; i++) {
+
+                final KType key = keys[offset + i];
+                hashes[i] = HASH(key, seed);
+            }
+
+            //duplicate keys have the same hash, and would never be peeled
+            Arrays.sort(hashes);
+
+            int n = 0;
+
+            for (int i = 0; i < length; i++) {
+
+                if (i == 0 || hashes[i] != hashes[i - 1]) {
+
+                    hashes[n++] = hashes[i];
+                }
+            }
+
+            //sized for the distinct keys
+            final int blockLength = (32 + (int) Math.ceil(1.23 * n)) / 3;
+            final int capacity = 3 * blockLength;
+
+            //per slot: number of keys, and xor of their hashes
+            final int[] counts = new int[capacity];
+            final long[] xors = new long[capacity];
+
+            //peeling order: stack of (hash, slot)
+            final long[] stackHashes = new long[n];
+            final int[] stackSlots = new int[n];
+            final int[] queue = new int[capacity];
+
+            for (int i = 0; i < n; i++) {
+
+                final long hash = hashes[i];
+
+                for (int j = 0; j < 3; j++) {
+
+                    final int slot = KTypeXorFilter.slot(hash, j, blockLength);
+                    counts[slot]++;
+                    xors[slot] ^= hash;
+                }
+            }
+
+            //peel the slots of a single key, which frees other slots in turn
+            int queueSize = 0;
+
+            for (int slot = 0; slot < capacity; slot++) {
+
+                if (counts[slot] == 1) {
+                    queue[queueSize++] = slot;
+                }
+            }
+
+            int stackSize = 0;
+
+            while (queueSize > 0) {
+
+                final int slot = queue[--queueSize];
+
+                if (counts[slot] != 1) {
+                    continue;
+                }
+
+                final long hash = xors[slot];
+
+                stackHashes[stackSize] = hash;
+                stackSlots[stackSize] = slot;
+                stackSize++;
+
+                for (int j = 0; j < 3; j++) {
+
+                    final int other = KTypeXorFilter.slot(hash, j, blockLength);
+
+                    xors[other] ^= hash;
+
+                    if (--counts[other] == 1) {
+                        queue[queueSize++] = other;
+                    }
+                }
+            }
+
+            if (stackSize == n) {
+
+                //assign in reverse peeling order: each key owns a slot not used by the keys assigned after it.
+                final byte[] fingerprints = new byte[capacity];
+
+                while (--stackSize >= 0) {
+
+                    final long hash = stackHashes[stackSize];
+
+                    fingerprints[stackSlots[stackSize]] = (byte) (KTypeXorFilter.fingerprint(hash)
+                            ^ fingerprints[KTypeXorFilter.slot(hash, 0, blockLength)]
+                            ^ fingerprints[KTypeXorFilter.slot(hash, 1, blockLength)]
+                            ^ fingerprints[KTypeXorFilter.slot(hash, 2, blockLength)]);
+                }
+
+                return new KTypeXorFilter<KType>(fingerprints, blockLength, seed, n);
+            }
+
+            seed = MurmurHash3.mix32(seed + 1);
+        }
+
+        throw new IllegalArgumentException("No xor filter found for " + length + " keys");
+    }
+
+    /**
+     * @return false if key is not in the filter, true if it is
+     * or, with a probability of about 1 / 256, if it is not.
+     */
+    public boolean mightContain(final KType key) {
+
+        final long hash = HASH(key, this.seed);
+
+        final byte[] fingerprints = this.fingerprints;
+        final int blockLength = this.blockLength;
+
+        return this.size > 0
+                && KTypeXorFilter.fingerprint(hash) == (fingerprints[KTypeXorFilter.slot(hash, 0, blockLength)]
+                        ^ fingerprints[KTypeXorFilter.slot(hash, 1, blockLength)]
+                        ^ fingerprints[KTypeXorFilter.slot(hash, 2, blockLength)]);
+    }
+
+    /**
+     * @return the number of distinct keys in the filter.
+     */
+    public int size() {
+
+        return this.size;
+    }
+
+    /**
+     * @return true if the filter has no key.
+     */
+    public boolean isEmpty() {
+
+        return this.size == 0;
+    }
+
+    /**
+     * @return the number of bits used per key.
+     */
+    public double bitsPerKey() {
+
+        return 8.0 * this.fingerprints.length / Math.max(1, this.size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "[size=" + this.size + ", slots=" + this.fingerprints.length + ", seed=" + this.seed + "]";
+    }
+
+    /**
+     * The slot of a hash in the block j in [0; 3[ of {@link #fingerprints}.
+     */
+    private static int slot(final long hash, final int j, final int blockLength) {
+
+        return KTypeBloomFilter.reduce((int) Long.rotateLeft(hash, 21 * j), blockLength) + j * blockLength;
+    }
+
+    /**
+     * The 8-bit fingerprint of a hash, from other bits than the ones of {@link #slot}.
+     */
+    private static int fingerprint(final long hash) {
+
+        return (byte) (hash ^ (hash >>> 32));
+    }
+
+    /*! #if ($TemplateOptions.declareInline("HASH(value, seed)",
+    "<*>==>BitMixer.mix64(value , seed)")) !*/
+    /**
+     * 64-bit hash of a key.
+     * (inlined in generated code)
+     */
+    private static <KType> long HASH(final KType value, final int seed) {
+
+        return BitMixer.mix64(BitMixer.mix(value), seed);
+    }
+    /*! #end !*/
+}
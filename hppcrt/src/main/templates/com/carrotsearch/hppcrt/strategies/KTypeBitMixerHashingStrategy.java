@@ -0,0 +1,26 @@
+package com.carrotsearch.hppcrt.strategies;
+
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * {@link KTypeHashingStrategy} using {@link BitMixer}, i.e the same MurmurHash3 finalization step (mix32 / mix64)
+ * as the default hashing of the containers.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public final class KTypeBitMixerHashingStrategy<KType> implements KTypeHashingStrategy<KType>
+{
+    public KTypeBitMixerHashingStrategy() {
+        // nothing
+    }
+
+    @Override
+    public int computeHashCode(final KType key, final int seed) {
+
+        /*! #if ($TemplateOptions.KTypePrimitive)
+        return BitMixer.mix(key, seed);
+        #else !*/
+        return BitMixer.mix(key.hashCode(), seed);
+        /*! #end !*/
+    }
+}
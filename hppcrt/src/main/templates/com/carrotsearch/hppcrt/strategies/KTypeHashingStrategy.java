@@ -0,0 +1,29 @@
+package com.carrotsearch.hppcrt.strategies;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Interface to customize the hashing of <code>KType</code> keys in the strategy hash maps and sets
+ * (see {@link com.carrotsearch.hppcrt.sets.KTypeStrategyHashSet}),
+ * as replacement of the default {@link com.carrotsearch.hppcrt.hash.BitMixer} mixing, for instance
+ * to skip the mixing of keys which are already well distributed, or to use a stronger one.
+ * <p>
+ * The hash value is reduced to a slot by keeping its lowest bits, so they must be well distributed.
+ * The seed is a per-container random perturbation, to be mixed with the key so that containers
+ * get different key distributions.
+ * </p>
+ * <p>
+ * For best performance, a program should stick to a small number of implementations (ideally one) for all its
+ * containers, so that the JIT can inline the call.
+ * </p>
+ * @see KTypeBitMixerHashingStrategy
+ * @see KTypePhiMixHashingStrategy
+ * @see KTypeIdentityHashingStrategy
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public interface KTypeHashingStrategy<KType>
+{
+    /**
+     * Compute the hash value of key, perturbed by seed. Equal keys must have equal hash values for a given seed.
+     */
+    int computeHashCode(KType key, int seed);
+}
@@ -0,0 +1,35 @@
+package com.carrotsearch.hppcrt.strategies;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * {@link KTypeHashingStrategy} with no mixing at all: the hash value is the key itself
+ * (its bits, folded to 32 bits for 64-bit types) xor the seed.
+ * <p>
+ * Only suitable for keys whose lowest bits are already well distributed, like pre-hashed ids or random values:
+ * with sequential or aligned keys, the linear probing would degenerate into long clusters.
+ * </p>
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public final class KTypeIdentityHashingStrategy<KType> implements KTypeHashingStrategy<KType>
+{
+    public KTypeIdentityHashingStrategy() {
+        // nothing
+    }
+
+    @Override
+    public int computeHashCode(final KType key, final int seed) {
+
+        /*! #if ($TemplateOptions.isKType("long"))
+        return (int) (key ^ (key >>> 32)) ^ seed;
+        #elseif ($TemplateOptions.isKType("double"))
+        final long bits = Double.doubleToLongBits(key);
+        return (int) (bits ^ (bits >>> 32)) ^ seed;
+        #elseif ($TemplateOptions.isKType("float"))
+        return Float.floatToIntBits(key) ^ seed;
+        #elseif ($TemplateOptions.KTypePrimitive)
+        return key ^ seed;
+        #else !*/
+        return key.hashCode() ^ seed;
+        /*! #end !*/
+    }
+}
@@ -0,0 +1,32 @@
+package com.carrotsearch.hppcrt.strategies;
+
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * {@link KTypeHashingStrategy} using {@link PhiMix}, a single multiplication by the golden ratio and a xorshift:
+ * faster but slightly weaker than the default {@link BitMixer} mixing.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public final class KTypePhiMixHashingStrategy<KType> implements KTypeHashingStrategy<KType>
+{
+    public KTypePhiMixHashingStrategy() {
+        // nothing
+    }
+
+    @Override
+    public int computeHashCode(final KType key, final int seed) {
+
+        /*! #if ($TemplateOptions.isKType("long"))
+        return (int) PhiMix.mix64(key ^ seed);
+        #elseif ($TemplateOptions.isKType("double"))
+        return (int) PhiMix.mix64(Double.doubleToLongBits(key) ^ seed);
+        #elseif ($TemplateOptions.isKType("float"))
+        return PhiMix.mix32(Float.floatToIntBits(key) ^ seed);
+        #elseif ($TemplateOptions.KTypePrimitive)
+        return PhiMix.mix32(key ^ seed);
+        #else !*/
+        return PhiMix.mix32(key.hashCode() ^ seed);
+        /*! #end !*/
+    }
+}
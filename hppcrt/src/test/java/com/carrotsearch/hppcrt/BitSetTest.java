@@ -0,0 +1,238 @@
+package com.carrotsearch.hppcrt;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.carrotsearch.hppcrt.cursors.IntCursor;
+import com.carrotsearch.hppcrt.lists.IntArrayList;
+import com.carrotsearch.hppcrt.predicates.IntPredicate;
+import com.carrotsearch.hppcrt.procedures.IntProcedure;
+
+public class BitSetTest
+{
+    @Test
+    public void testSetGetClear() {
+
+        final BitSet bitset = new BitSet();
+
+        Assert.assertTrue(bitset.isEmpty());
+        Assert.assertEquals(0, bitset.length());
+
+        bitset.set(3);
+        bitset.set(64);
+        //grows
+        bitset.set(1000);
+
+        Assert.assertTrue(bitset.get(3));
+        Assert.assertTrue(bitset.get(64));
+        Assert.assertTrue(bitset.get(1000));
+        Assert.assertFalse(bitset.get(4));
+        Assert.assertFalse(bitset.get(100000));
+        Assert.assertEquals(3, bitset.cardinality());
+        Assert.assertEquals(1001, bitset.length());
+        Assert.assertEquals("{3, 64, 1000}", bitset.toString());
+
+        Assert.assertTrue(bitset.getAndSet(64));
+        Assert.assertFalse(bitset.getAndSet(65));
+
+        bitset.clear(1000);
+        bitset.flip(3);
+
+        Assert.assertEquals(66, bitset.length());
+        Assert.assertEquals("{64, 65}", bitset.toString());
+
+        bitset.clear();
+
+        Assert.assertTrue(bitset.isEmpty());
+    }
+
+    @Test
+    public void testSetRange() {
+
+        final BitSet bitset = new BitSet();
+
+        bitset.set(60, 130);
+
+        Assert.assertEquals(70, bitset.cardinality());
+        Assert.assertEquals(60, bitset.nextSetBit(0));
+        Assert.assertEquals(129, bitset.prevSetBit(1000));
+
+        bitset.set(200, 256);
+
+        Assert.assertEquals(126, bitset.cardinality());
+        Assert.assertEquals(256, bitset.length());
+    }
+
+    @Test
+    public void testNextPrevSetBit() {
+
+        final BitSet bitset = new BitSet();
+
+        Assert.assertEquals(-1, bitset.nextSetBit(0));
+        Assert.assertEquals(-1, bitset.prevSetBit(100));
+
+        bitset.set(0);
+        bitset.set(63);
+        bitset.set(64);
+        bitset.set(500);
+
+        Assert.assertEquals(0, bitset.nextSetBit(0));
+        Assert.assertEquals(63, bitset.nextSetBit(1));
+        Assert.assertEquals(64, bitset.nextSetBit(64));
+        Assert.assertEquals(500, bitset.nextSetBit(65));
+        Assert.assertEquals(-1, bitset.nextSetBit(501));
+
+        Assert.assertEquals(500, bitset.prevSetBit(10000));
+        Assert.assertEquals(64, bitset.prevSetBit(499));
+        Assert.assertEquals(63, bitset.prevSetBit(63));
+        Assert.assertEquals(0, bitset.prevSetBit(62));
+        Assert.assertEquals(-1, bitset.prevSetBit(-1));
+    }
+
+    @Test
+    public void testIteration() {
+
+        final BitSet bitset = new BitSet();
+
+        final int[] expected = new int[] { 1, 2, 63, 64, 127, 1000 };
+
+        for (final int bit : expected) {
+            bitset.set(bit);
+        }
+
+        final IntArrayList iterated = new IntArrayList();
+
+        for (final IntCursor c : bitset) {
+
+            Assert.assertEquals(c.value >> 6, c.index);
+            iterated.add(c.value);
+        }
+
+        Assert.assertEquals(IntArrayList.from(expected), iterated);
+
+        final IntArrayList visited = bitset.forEach(new IntProcedure() {
+
+            final IntArrayList list = new IntArrayList();
+
+            @Override
+            public void apply(final int value) {
+
+                this.list.add(value);
+            }
+        }).list;
+
+        Assert.assertEquals(IntArrayList.from(expected), visited);
+
+        //stop at 64
+        final int[] count = new int[1];
+
+        bitset.forEach(new IntPredicate() {
+
+            @Override
+            public boolean apply(final int value) {
+
+                count[0]++;
+                return value < 64;
+            }
+        });
+
+        Assert.assertEquals(4, count[0]);
+    }
+
+    @Test
+    public void testBulkOperationsAgainstJavaBitSet() {
+
+        final Random rnd = new Random(0xBADBEEF);
+
+        for (int round = 0; round < 200; round++) {
+
+            final BitSet a = new BitSet(rnd.nextInt(200));
+            final BitSet b = new BitSet();
+            final java.util.BitSet refA = new java.util.BitSet();
+            final java.util.BitSet refB = new java.util.BitSet();
+
+            //different lengths
+            final int rangeA = 1 + rnd.nextInt(2000);
+            final int rangeB = 1 + rnd.nextInt(2000);
+
+            for (int i = 0; i < 100; i++) {
+
+                final int bitA = rnd.nextInt(rangeA);
+                a.set(bitA);
+                refA.set(bitA);
+
+                final int bitB = rnd.nextInt(rangeB);
+                b.set(bitB);
+                refB.set(bitB);
+            }
+
+            java.util.BitSet expected = (java.util.BitSet) refA.clone();
+            expected.and(refB);
+            Assert.assertEquals(expected.cardinality(), BitSet.intersectionCount(a, b));
+            Assert.assertEquals(!expected.isEmpty(), a.intersects(b));
+
+            BitSet result = a.clone();
+            result.and(b);
+            assertSameBits(expected, result);
+
+            expected = (java.util.BitSet) refA.clone();
+            expected.or(refB);
+            Assert.assertEquals(expected.cardinality(), BitSet.unionCount(a, b));
+
+            result = a.clone();
+            result.or(b);
+            assertSameBits(expected, result);
+
+            expected = (java.util.BitSet) refA.clone();
+            expected.andNot(refB);
+            Assert.assertEquals(expected.cardinality(), BitSet.andNotCount(a, b));
+
+            result = a.clone();
+            result.andNot(b);
+            assertSameBits(expected, result);
+
+            expected = (java.util.BitSet) refA.clone();
+            expected.xor(refB);
+            Assert.assertEquals(expected.cardinality(), BitSet.xorCount(a, b));
+
+            result = a.clone();
+            result.xor(b);
+            assertSameBits(expected, result);
+        }
+    }
+
+    @Test
+    public void testEqualsHashCode() {
+
+        final BitSet a = new BitSet(10);
+        final BitSet b = new BitSet(10000);
+
+        a.set(5);
+        a.set(100);
+        b.set(100);
+        b.set(5);
+        //trailing zero words
+        b.set(5000);
+        b.clear(5000);
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+
+        b.set(6);
+
+        Assert.assertFalse(a.equals(b));
+    }
+
+    private static void assertSameBits(final java.util.BitSet expected, final BitSet actual) {
+
+        Assert.assertEquals(expected.cardinality(), actual.cardinality());
+        Assert.assertEquals(expected.length(), actual.length());
+
+        for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(i + 1)) {
+
+            Assert.assertTrue(actual.get(i));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Comparator;
 import java.util.Random;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.rules.MethodRule;
 import org.junit.runner.RunWith;
@@ -28,6 +29,17 @@ public abstract class AbstractKTypeTest<KType>
     @Rule
     public MethodRule requireAssertions = new RequireAssertionsRule();
 
+    /**
+     * Skip the calling test, or test class if called from a @BeforeClass, when <code>KType</code> is generic.
+     * For the tests of primitive-only features, whose template version still runs with generic <code>KType</code>.
+     */
+    protected static void assumeKTypePrimitive()
+    {
+        /*! #if ($TemplateOptions.KTypeGeneric) !*/
+        Assume.assumeTrue("Primitive KType only", false);
+        /*! #end !*/
+    }
+
     /* Ready to use key values. */
 
     /**
@@ -1,5 +1,11 @@
 package com.carrotsearch.hppcrt.heaps;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import java.util.*;
 
 import org.junit.*;
@@ -2157,4 +2163,34 @@ public class KTypeHeapPriorityQueueTest<KType> extends AbstractKTypeTest<KType>
         //recursively test
         return isMinHeapComparator(q, left) && isMinHeapComparator(q, right);
     }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final Random rnd = new Random(0x44332211L);
+
+        final KTypeHeapPriorityQueue<KType> heap = new KTypeHeapPriorityQueue<KType>(this.INVERSE_COMPARATOR);
+
+        for (int i = 0; i < 3000; i++) {
+            heap.add(cast(rnd.nextInt(1000)));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        heap.writeTo(new DataOutputStream(bytes));
+
+        final KTypeHeapPriorityQueue<KType> read = KTypeHeapPriorityQueue.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), this.INVERSE_COMPARATOR);
+
+        Assert.assertEquals(heap.size(), read.size());
+
+        while (!heap.isEmpty()) {
+            TestUtils.assertEquals2(heap.popTop(), read.popTop());
+        }
+
+        Assert.assertTrue(read.isEmpty());
+    }
+    /*! #end !*/
 }
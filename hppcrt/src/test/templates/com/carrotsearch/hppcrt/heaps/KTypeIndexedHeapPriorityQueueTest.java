@@ -1,5 +1,11 @@
 package com.carrotsearch.hppcrt.heaps;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import java.util.*;
 
 import org.junit.*;
@@ -3093,4 +3099,40 @@ public class KTypeIndexedHeapPriorityQueueTest<KType> extends AbstractKTypeTest<
         return KTypeIndexedHeapPriorityQueueTest.isMinHeapComparator(prio, left)
                 && KTypeIndexedHeapPriorityQueueTest.isMinHeapComparator(prio, right);
     }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final Random rnd = new Random(0x44332211L);
+
+        final KTypeIndexedHeapPriorityQueue<KType> heap = new KTypeIndexedHeapPriorityQueue<KType>(this.INVERSE_COMPARATOR);
+
+        for (int i = 0; i < 3000; i++) {
+            heap.put(rnd.nextInt(5000), cast(rnd.nextInt(1000)));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        heap.writeTo(new DataOutputStream(bytes));
+
+        final KTypeIndexedHeapPriorityQueue<KType> read = KTypeIndexedHeapPriorityQueue.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), this.INVERSE_COMPARATOR);
+
+        Assert.assertEquals(heap.size(), read.size());
+
+        for (int key = 0; key < 5000; key++) {
+
+            Assert.assertEquals(heap.containsKey(key), read.containsKey(key));
+            TestUtils.assertEquals2(heap.get(key), read.get(key));
+        }
+
+        while (!heap.isEmpty()) {
+            TestUtils.assertEquals2(heap.popTop(), read.popTop());
+        }
+
+        Assert.assertTrue(read.isEmpty());
+    }
+    /*! #end !*/
 }
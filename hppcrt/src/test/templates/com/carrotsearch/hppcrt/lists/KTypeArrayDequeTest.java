@@ -1,5 +1,11 @@
 package com.carrotsearch.hppcrt.lists;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import java.util.*;
 
 import org.junit.*;
@@ -352,4 +358,34 @@ public class KTypeArrayDequeTest<KType> extends AbstractKTypeTest<KType>
 
         return newDeque;
     }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final KTypeArrayDeque<KType> deque = new KTypeArrayDeque<KType>();
+
+        //wrap around the buffer end
+        for (int i = 0; i < 3000; i++) {
+            deque.addLast(cast(i));
+            deque.addFirst(cast(-i));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        deque.writeTo(new DataOutputStream(bytes));
+
+        final KTypeArrayDeque<KType> read = KTypeArrayDeque.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(deque.size(), read.size());
+        Assert.assertEquals(deque, read);
+
+        //still working as a deque
+        read.addFirst(this.key1);
+        read.addLast(this.key2);
+        TestUtils.assertEquals2(this.key1, read.removeFirst());
+        TestUtils.assertEquals2(this.key2, read.removeLast());
+    }
+    /*! #end !*/
 }
@@ -1,5 +1,11 @@
 package com.carrotsearch.hppcrt.lists;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import java.util.*;
 
 import org.junit.*;
@@ -559,4 +565,32 @@ public class KTypeArrayListTest<KType> extends AbstractKTypeIndexedContainerTest
 
         return newArray;
     }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final KTypeArrayList<KType> list = new KTypeArrayList<KType>();
+
+        //several chunks
+        for (int i = 0; i < 5000; i++) {
+            list.add(cast(i));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.writeTo(new DataOutputStream(bytes));
+
+        final KTypeArrayList<KType> read = KTypeArrayList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(list, read);
+
+        //empty
+        bytes.reset();
+        new KTypeArrayList<KType>().writeTo(new DataOutputStream(bytes));
+
+        Assert.assertTrue(KTypeArrayList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))).isEmpty());
+    }
+    /*! #end !*/
 }
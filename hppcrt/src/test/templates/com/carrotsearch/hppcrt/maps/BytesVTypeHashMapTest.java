@@ -0,0 +1,257 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.*;
+import org.junit.rules.MethodRule;
+import org.junit.runner.RunWith;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.randomizedtesting.RandomizedRunner;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link BytesVTypeHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+@RunWith(RandomizedRunner.class)
+public class BytesVTypeHashMapTest<VType>
+{
+    /**
+     * Require assertions for all tests.
+     */
+    @Rule
+    public MethodRule requireAssertions = new RequireAssertionsRule();
+
+    /**
+     * valueE is special: its value is == null for generics, and == 0 for primitives.
+     */
+    /*! #if ($TemplateOptions.VTypeGeneric) !*/
+    protected VType valueE = null;
+    /*! #else
+    protected VType valueE = vcast(0);
+     #end !*/
+
+    protected VType value1 = vcast(1);
+    protected VType value2 = vcast(2);
+    protected VType value3 = vcast(3);
+    protected VType value4 = vcast(4);
+    protected VType value9 = vcast(9);
+
+    protected BytesVTypeHashMap<VType> map;
+
+    @Before
+    public void initialize() {
+
+        this.map = BytesVTypeHashMap.newInstance();
+        this.map.setDefaultValue(this.valueE);
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //every entry is found again by its key, in both forms
+        for (int i = 0; i < this.map.size(); i++) {
+
+            Assert.assertEquals(i, this.map.indexOf(this.map.slab, this.map.keyOffset(i), this.map.keyLength(i)));
+            Assert.assertEquals(i, this.map.indexOf(this.map.keyToString(i)));
+        }
+    }
+
+    @Test
+    public void testBytesAndCharsKeysAreTheSame() throws UnsupportedEncodingException {
+
+        final byte[] buffer = "--złote".getBytes("UTF-8");
+
+        Assert.assertEquals(vcastType(this.valueE), vcastType(this.map.put(buffer, 2, buffer.length - 2, this.value1)));
+
+        Assert.assertTrue(this.map.containsKey("złote"));
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.get("złote")));
+        Assert.assertFalse(this.map.containsKey("złot"));
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.put("złote", this.value2)));
+        Assert.assertEquals(1, this.map.size());
+        Assert.assertEquals(vcastType(this.value2), vcastType(this.map.get(buffer, 2, buffer.length - 2)));
+        Assert.assertEquals("złote", this.map.keyToString(0));
+    }
+
+    @Test
+    public void testEmptyAndSurrogateKeys() throws UnsupportedEncodingException {
+
+        final String emoji = new String(Character.toChars(0x1F600));
+
+        this.map.put("", this.value1);
+        this.map.put(emoji, this.value2);
+        //unpaired surrogate: encoded as '?', like String.getBytes()
+        this.map.put("\uD800", this.value3);
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.get(new byte[0], 0, 0)));
+
+        final byte[] emojiBytes = emoji.getBytes("UTF-8");
+        Assert.assertEquals(4, emojiBytes.length);
+        Assert.assertEquals(vcastType(this.value2), vcastType(this.map.get(emojiBytes, 0, emojiBytes.length)));
+
+        Assert.assertEquals(vcastType(this.value3), vcastType(this.map.get("?")));
+        Assert.assertEquals(3, this.map.size());
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    @Test
+    public void testAddTo() throws UnsupportedEncodingException {
+
+        final byte[] words = "a bb a ccc bb a".getBytes("UTF-8");
+
+        int start = 0;
+
+        for (int i = 0; i <= words.length; i++) {
+
+            if (i == words.length || words[i] == ' ') {
+
+                this.map.addTo(words, start, i - start, this.value1);
+                start = i + 1;
+            }
+        }
+
+        Assert.assertEquals(3, this.map.size());
+        Assert.assertEquals(3, vcastType(this.map.get("a")));
+        Assert.assertEquals(2, vcastType(this.map.get("bb")));
+        Assert.assertEquals(1, vcastType(this.map.get("ccc")));
+
+        Assert.assertEquals(5, vcastType(this.map.putOrAdd("ccc", this.value9, this.value4)));
+        Assert.assertEquals(9, vcastType(this.map.putOrAdd("dddd", this.value9, this.value4)));
+    }
+
+    /*! #end !*/
+
+    @Test
+    public void testRemoveMovesLastEntry() {
+
+        this.map.put("one", this.value1);
+        this.map.put("two", this.value2);
+        this.map.put("three", this.value3);
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.remove("one")));
+        Assert.assertEquals(2, this.map.size());
+
+        //the last entry took index 0
+        Assert.assertEquals("three", this.map.keyToString(0));
+        Assert.assertEquals(vcastType(this.value3), vcastType(this.map.valueAt(0)));
+
+        Assert.assertEquals(vcastType(this.valueE), vcastType(this.map.remove("one")));
+        Assert.assertFalse(this.map.containsKey("one"));
+    }
+
+    @Test
+    public void testAgainstHashMap() throws UnsupportedEncodingException {
+
+        final Random rnd = new Random(0xDEAD);
+        final Map<String, Integer> reference = new HashMap<String, Integer>();
+
+        final String[] alphabet = new String[] { "a", "ą", "一", "b" };
+
+        for (int round = 0; round < 50000; round++) {
+
+            final StringBuilder sb = new StringBuilder();
+            final int length = rnd.nextInt(5);
+
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet[rnd.nextInt(alphabet.length)]);
+            }
+
+            final String key = sb.toString();
+
+            if (rnd.nextInt(3) == 0) {
+
+                Assert.assertEquals(reference.remove(key) != null, this.map.containsKey(key));
+
+                final byte[] bytes = key.getBytes("UTF-8");
+                this.map.remove(bytes, 0, bytes.length);
+
+            } else {
+
+                reference.put(key, round % 100);
+                this.map.put(key, vcast(round % 100));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        for (final Map.Entry<String, Integer> entry : reference.entrySet()) {
+
+            Assert.assertEquals(entry.getValue().intValue(), vcastType(this.map.get(entry.getKey())));
+        }
+
+        //removals compacted the slab
+        Assert.assertTrue(this.map.slabSize() < 2 * 12 * this.map.size() + 64);
+    }
+
+    @Test
+    public void testCloneEquals() {
+
+        for (int i = 0; i < 100; i++) {
+
+            this.map.put("key" + i, vcast(i));
+        }
+
+        final BytesVTypeHashMap<VType> cloned = this.map.clone();
+
+        Assert.assertEquals(this.map, cloned);
+        Assert.assertEquals(this.map.hashCode(), cloned.hashCode());
+
+        cloned.remove("key1");
+
+        Assert.assertFalse(this.map.equals(cloned));
+    }
+
+    @Test
+    public void testClear() {
+
+        this.map.put("one", this.value1);
+        this.map.clear();
+
+        Assert.assertEquals(0, this.map.size());
+        Assert.assertEquals(0, this.map.slabSize());
+        Assert.assertFalse(this.map.containsKey("one"));
+    }
+
+    /**
+     * Convert to VType type from an integer used to test stuff.
+     */
+    protected VType vcast(final int value)
+    {
+        /*! #if ($TemplateOptions.VTypePrimitive)
+             return (VType) value;
+         #else !*/
+        @SuppressWarnings("unchecked")
+        final VType v = (VType) (Object) value;
+        return v;
+        /*! #end !*/
+    }
+
+    /**
+     * Convert a VType to int, (VType being a boxed elementary type or a primitive), else
+     * returns 0.
+     */
+    protected int vcastType(final VType type)
+    {
+        /*! #if ($TemplateOptions.VTypePrimitive)
+               return (int) type;
+        #else !*/
+        long k = 0L;
+
+        if (type instanceof Character)
+        {
+            k = ((Character) type).charValue();
+        }
+        else if (type instanceof Number)
+        {
+            k = ((Number) type).longValue();
+        }
+
+        return (int) k;
+        /*! #end !*/
+    }
+}
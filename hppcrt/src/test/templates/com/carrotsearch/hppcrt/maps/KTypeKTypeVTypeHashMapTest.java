@@ -0,0 +1,205 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object", "BYTE", "CHAR", "SHORT", "FLOAT", "DOUBLE")} !*/
+/**
+ * Tests for {@link KTypeKTypeVTypeHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeKTypeVTypeHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeKTypeVTypeHashMap<KType, VType> map;
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Before
+    public void initialize() {
+
+        this.map = KTypeKTypeVTypeHashMap.newInstance();
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //every entry is found again by its key
+        int count = 0;
+
+        for (final KTypeKTypeVTypeCursor<KType, VType> c : this.map) {
+
+            Assert.assertTrue(this.map.containsKey(c.key1, c.key2));
+            Assert.assertEquals(vcastType(c.value), vcastType(this.map.get(c.key1, c.key2)));
+            count++;
+        }
+
+        Assert.assertEquals(this.map.size(), count);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        Assert.assertEquals(vcastType(this.map.getDefaultValue()), vcastType(this.map.put(this.key1, this.key2, this.value1)));
+        this.map.put(this.key1, this.key3, this.value2);
+        this.map.put(this.key2, this.key1, this.value3);
+
+        Assert.assertEquals(3, this.map.size());
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.get(this.key1, this.key2)));
+        Assert.assertEquals(vcastType(this.value3), vcastType(this.map.get(this.key2, this.key1)));
+        Assert.assertFalse(this.map.containsKey(this.key3, this.key1));
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.put(this.key1, this.key2, this.value4)));
+        Assert.assertEquals(3, this.map.size());
+
+        Assert.assertEquals(vcastType(this.value4), vcastType(this.map.remove(this.key1, this.key2)));
+        Assert.assertFalse(this.map.containsKey(this.key1, this.key2));
+        Assert.assertTrue(this.map.containsKey(this.key2, this.key1));
+        Assert.assertEquals(2, this.map.size());
+    }
+
+    @Test
+    public void testZeroHalves() {
+
+        //(0, 0) is stored apart, (0, x) and (x, 0) in the buffers.
+        this.map.put(this.key0, this.key0, this.value1);
+        this.map.put(this.key0, this.key1, this.value2);
+        this.map.put(this.key1, this.key0, this.value3);
+
+        Assert.assertEquals(3, this.map.size());
+        Assert.assertTrue(this.map.allocatedDefaultKey);
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.get(this.key0, this.key0)));
+        Assert.assertEquals(vcastType(this.value2), vcastType(this.map.get(this.key0, this.key1)));
+        Assert.assertEquals(vcastType(this.value3), vcastType(this.map.get(this.key1, this.key0)));
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.remove(this.key0, this.key0)));
+        Assert.assertFalse(this.map.containsKey(this.key0, this.key0));
+        Assert.assertEquals(2, this.map.size());
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    @Test
+    public void testAddTo() {
+
+        this.map.addTo(this.key1, this.key2, this.value1);
+        this.map.addTo(this.key1, this.key2, this.value2);
+        this.map.putOrAdd(this.key2, this.key1, this.value5, this.value1);
+
+        Assert.assertEquals(3, vcastType(this.map.get(this.key1, this.key2)));
+        Assert.assertEquals(5, vcastType(this.map.get(this.key2, this.key1)));
+    }
+
+    /*! #end !*/
+
+    @Test
+    public void testAgainstHashMap() {
+
+        final Random rnd = new Random(0xBADCAFE);
+        final HashMap<Integer, Integer> reference = new HashMap<Integer, Integer>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final int k1 = rnd.nextInt(100);
+            final int k2 = rnd.nextInt(100);
+            final Integer packed = k1 * 100 + k2;
+
+            if (rnd.nextInt(3) == 0) {
+
+                final Integer previous = reference.remove(packed);
+
+                Assert.assertEquals(previous != null, this.map.containsKey(cast(k1), cast(k2)));
+                this.map.remove(cast(k1), cast(k2));
+
+            } else {
+
+                reference.put(packed, round % 100);
+                this.map.put(cast(k1), cast(k2), vcast(round % 100));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        for (final KTypeKTypeVTypeCursor<KType, VType> c : this.map) {
+
+            Assert.assertEquals(reference.get(castType(c.key1) * 100 + castType(c.key2)).intValue(), vcastType(c.value));
+        }
+    }
+
+    @Test
+    public void testForEachRemoveAll() {
+
+        for (int i = 0; i < 100; i++) {
+
+            this.map.put(cast(i), cast(i + 1), vcast(i));
+        }
+
+        final int[] sum = new int[] { 0 };
+
+        this.map.forEach(new KTypeKTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key1, final KType key2, final VType value) {
+
+                Assert.assertEquals(castType(key1) + 1, castType(key2));
+                sum[0] += vcastType(value);
+            }
+        });
+
+        Assert.assertEquals(4950, sum[0]);
+
+        Assert.assertEquals(50, this.map.removeAll(new KTypeKTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key1, final KType key2, final VType value) {
+
+                return castType(key1) % 2 == 0;
+            }
+        }));
+
+        Assert.assertEquals(50, this.map.size());
+        Assert.assertFalse(this.map.containsKey(this.key2, this.key3));
+        Assert.assertTrue(this.map.containsKey(this.key3, this.key4));
+    }
+
+    @Test
+    public void testCloneEquals() {
+
+        for (int i = 0; i < 100; i++) {
+
+            this.map.put(cast(i), cast(100 - i), vcast(i));
+        }
+
+        final KTypeKTypeVTypeHashMap<KType, VType> cloned = this.map.clone();
+
+        Assert.assertEquals(this.map, cloned);
+        Assert.assertEquals(this.map.hashCode(), cloned.hashCode());
+
+        cloned.remove(this.key1, cast(99));
+
+        Assert.assertFalse(this.map.equals(cloned));
+    }
+
+    @Test
+    public void testClear() {
+
+        this.map.put(this.key1, this.key2, this.value1);
+        this.map.put(this.key0, this.key0, this.value2);
+
+        this.map.clear();
+
+        Assert.assertEquals(0, this.map.size());
+        Assert.assertFalse(this.map.containsKey(this.key1, this.key2));
+        Assert.assertFalse(this.map.containsKey(this.key0, this.key0));
+    }
+}
@@ -0,0 +1,161 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeBigHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeBigHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeBigHashMap<KType, VType> map;
+
+    @Before
+    public void initialize() {
+
+        //small pages, so that buffers are made of many of them
+        this.map = new KTypeVTypeBigHashMap<KType, VType>(0, HashContainers.DEFAULT_LOAD_FACTOR, 8);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.key1, this.value1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.keyE, this.value2));
+        TestUtils.assertEquals2(this.value1, this.map.put(this.key1, this.value3));
+
+        Assert.assertEquals(2L, this.map.size());
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertTrue(this.map.containsKey(this.keyE));
+        Assert.assertFalse(this.map.containsKey(this.key2));
+
+        TestUtils.assertEquals2(this.value3, this.map.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.get(this.keyE));
+
+        Assert.assertFalse(this.map.putIfAbsent(this.key1, this.value4));
+        Assert.assertTrue(this.map.putIfAbsent(this.key2, this.value4));
+
+        TestUtils.assertEquals2(this.value3, this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.remove(this.keyE));
+
+        Assert.assertEquals(1L, this.map.size());
+
+        this.map.clear();
+        Assert.assertTrue(this.map.isEmpty());
+        Assert.assertFalse(this.map.containsKey(this.key2));
+    }
+
+    @Test
+    public void testGrowthAcrossPages()
+    {
+        final long initialCapacity = this.map.capacity();
+
+        for (int i = 1; i <= 100; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(100L, this.map.size());
+        Assert.assertTrue(this.map.capacity() > initialCapacity);
+        Assert.assertTrue(this.map.keys.length > 1);
+
+        for (int i = 1; i <= 100; i++) {
+
+            TestUtils.assertEquals2(vcast(i), this.map.get(cast(i)));
+        }
+
+        final long removed = this.map.removeAll(new KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                return castType(key) % 2 == 0;
+            }
+        });
+
+        Assert.assertEquals(50L, removed);
+
+        for (int i = 1; i <= 100; i++) {
+
+            Assert.assertEquals(i % 2 != 0, this.map.containsKey(cast(i)));
+        }
+    }
+
+    /**
+     * Random operations, checked against a regular KTypeVTypeHashMap.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int round = 0; round < 20000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 10 + 10));
+            final VType value = vcast(rnd.nextInt(100));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                TestUtils.assertEquals2(reference.put(key, value), this.map.put(key, value));
+
+            } else if (op < 8) {
+
+                TestUtils.assertEquals2(reference.remove(key), this.map.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.containsKey(key), this.map.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), this.map.get(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        //check content
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertTrue(reference.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), value);
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+
+    @Test
+    public void testDefaultPageSize()
+    {
+        this.map = new KTypeVTypeBigHashMap<KType, VType>();
+
+        for (int i = 1; i <= 100; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(1, this.map.keys.length);
+        Assert.assertEquals(100L, this.map.size());
+
+        for (int i = 1; i <= 100; i++) {
+
+            TestUtils.assertEquals2(vcast(i), this.map.get(cast(i)));
+        }
+    }
+}
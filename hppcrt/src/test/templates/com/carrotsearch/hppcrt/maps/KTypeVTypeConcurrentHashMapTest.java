@@ -0,0 +1,141 @@
+package com.carrotsearch.hppcrt.maps;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeConcurrentHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeConcurrentHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeConcurrentHashMap<KType, VType> map;
+
+    @Before
+    public void initialize() {
+
+        this.map = new KTypeVTypeConcurrentHashMap<KType, VType>(0, HashContainers.MAX_LOAD_FACTOR, 4);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.key1, this.value1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.keyE, this.value2));
+        TestUtils.assertEquals2(this.value1, this.map.put(this.key1, this.value3));
+
+        Assert.assertEquals(2, this.map.size());
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertTrue(this.map.containsKey(this.keyE));
+        Assert.assertFalse(this.map.containsKey(this.key2));
+
+        TestUtils.assertEquals2(this.value3, this.map.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.get(this.keyE));
+
+        Assert.assertFalse(this.map.putIfAbsent(this.key1, this.value4));
+        Assert.assertTrue(this.map.putIfAbsent(this.key2, this.value4));
+
+        TestUtils.assertEquals2(this.value3, this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.remove(this.key1));
+
+        Assert.assertEquals(2, this.map.size());
+
+        this.map.clear();
+        Assert.assertTrue(this.map.isEmpty());
+    }
+
+    @Test
+    public void testDefaultValue()
+    {
+        this.map.setDefaultValue(this.value9);
+
+        TestUtils.assertEquals2(this.value9, this.map.get(this.key5));
+        TestUtils.assertEquals2(this.value9, this.map.remove(this.key5));
+        TestUtils.assertEquals2(this.value9, this.map.put(this.key5, this.value1));
+    }
+
+    @Test
+    public void testForEachAndRemoveAll()
+    {
+        for (int i = 0; i < 100; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(100, this.map.size());
+
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertEquals(castType(key), vcastType(value));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(100, count[0]);
+
+        final int removed = this.map.removeAll(new com.carrotsearch.hppcrt.predicates.KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                return castType(key) % 2 == 0;
+            }
+        });
+
+        Assert.assertEquals(50, removed);
+        Assert.assertEquals(50, this.map.size());
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    @Test
+    public void testConcurrentAddTo() throws Exception
+    {
+        final int nbThreads = 4;
+        final int nbKeys = 100;
+        final int nbRounds = 50;
+
+        final Thread[] threads = new Thread[nbThreads];
+
+        for (int t = 0; t < nbThreads; t++) {
+
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    for (int round = 0; round < nbRounds; round++) {
+
+                        for (int i = 0; i < nbKeys; i++) {
+
+                            KTypeVTypeConcurrentHashMapTest.this.map.addTo(cast(i), vcast(1));
+                        }
+                    }
+                }
+            };
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(nbKeys, this.map.size());
+
+        for (int i = 0; i < nbKeys; i++) {
+
+            Assert.assertEquals(vcastType(vcast(nbThreads * nbRounds)), vcastType(this.map.get(cast(i))));
+        }
+    }
+    /*! #end !*/
+}
@@ -0,0 +1,188 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeConcurrentTinyLFUCache}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeConcurrentTinyLFUCacheTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeArrayList<KType> evicted;
+
+    protected KTypeVTypeConcurrentTinyLFUCache<KType, VType> cache;
+
+    @Before
+    public void initialize() {
+
+        this.evicted = new KTypeArrayList<KType>();
+
+        this.cache = new KTypeVTypeConcurrentTinyLFUCache<KType, VType>(20, new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                KTypeVTypeConcurrentTinyLFUCacheTest.this.evicted.add(key);
+            }
+        });
+    }
+
+    @After
+    public void checkConsistency() {
+
+        final int queued = this.cache.queueSizes[0] + this.cache.queueSizes[1] + this.cache.queueSizes[2];
+
+        Assert.assertEquals(this.cache.size(), queued);
+        Assert.assertTrue(this.cache.size() <= this.cache.maxSize());
+        Assert.assertTrue(this.cache.queueSizes[2] <= this.cache.protectedMaxSize);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        this.cache.setDefaultValue(this.value9);
+
+        Assert.assertEquals(9, vcastType(this.cache.put(this.keyE, this.value1)));
+        Assert.assertEquals(1, vcastType(this.cache.put(this.keyE, this.value2)));
+        Assert.assertEquals(2, vcastType(this.cache.get(this.keyE)));
+        Assert.assertEquals(9, vcastType(this.cache.get(this.key1)));
+
+        this.cache.put(this.key1, this.value1);
+        Assert.assertEquals(2, this.cache.size());
+
+        //the put, and the reads of the key even as a miss
+        Assert.assertTrue(this.cache.frequency(this.key1) >= 2);
+
+        Assert.assertEquals(2, vcastType(this.cache.remove(this.keyE)));
+        Assert.assertEquals(9, vcastType(this.cache.remove(this.keyE)));
+        Assert.assertFalse(this.cache.containsKey(this.keyE));
+        Assert.assertEquals(1, this.cache.size());
+
+        this.cache.clear();
+        Assert.assertTrue(this.cache.isEmpty());
+        Assert.assertEquals(0, this.cache.frequency(this.key1));
+        Assert.assertEquals(0, this.evicted.size());
+    }
+
+    @Test
+    public void testFrequentKeysResistOneHitWonders() {
+
+        for (int i = 1; i <= 20; i++) {
+
+            this.cache.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(0, this.evicted.size());
+
+        for (int round = 0; round < 5; round++) {
+
+            for (int i = 1; i <= 20; i++) {
+
+                Assert.assertEquals(i, vcastType(this.cache.get(cast(i))));
+            }
+        }
+
+        //a scan of keys seen once, in the byte range
+        for (int i = 40; i < 80; i++) {
+
+            this.cache.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(20, this.cache.size());
+        Assert.assertEquals(40, this.evicted.size());
+
+        int frequentKeys = 0;
+
+        for (int i = 1; i <= 20; i++) {
+
+            if (this.cache.containsKey(cast(i))) {
+                frequentKeys++;
+            }
+        }
+
+        //the window may have let one frequent key go, and the sketch may overestimate a few new keys
+        Assert.assertTrue("frequentKeys = " + frequentKeys, frequentKeys >= 16);
+    }
+
+    @Test
+    public void testConcurrentGetPut() throws Exception
+    {
+        final int nbThreads = 4;
+        final int nbKeys = 100;
+        final int nbOperations = 20000;
+
+        final KTypeVTypeConcurrentTinyLFUCache<KType, VType> cache = new KTypeVTypeConcurrentTinyLFUCache<KType, VType>(30);
+        cache.setDefaultValue(vcast(-1));
+
+        final Thread[] threads = new Thread[nbThreads];
+        final Throwable[] failures = new Throwable[nbThreads];
+
+        for (int t = 0; t < nbThreads; t++) {
+
+            final int threadIndex = t;
+
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+
+                        final Random prng = new Random(threadIndex);
+
+                        for (int i = 0; i < nbOperations; i++) {
+
+                            final KType key = cast(prng.nextInt(nbKeys));
+                            final VType value = cache.get(key);
+
+                            if (vcastType(value) == vcastType(vcast(-1))) {
+
+                                cache.put(key, vcast(castType(key)));
+
+                            } else {
+
+                                Assert.assertEquals(castType(key), vcastType(value));
+                            }
+
+                            if (i % 101 == 0) {
+
+                                cache.remove(key);
+                            }
+                        }
+                    } catch (final Throwable e) {
+
+                        failures[threadIndex] = e;
+                    }
+                }
+            };
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (final Throwable failure : failures) {
+
+            Assert.assertNull(failure);
+        }
+
+        this.cache = cache;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+
+        new KTypeVTypeConcurrentTinyLFUCache<KType, VType>(0);
+    }
+}
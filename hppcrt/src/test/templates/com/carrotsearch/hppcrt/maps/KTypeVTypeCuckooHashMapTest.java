@@ -0,0 +1,220 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeCuckooHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeCuckooHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeCuckooHashMap<KType, VType> map;
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Before
+    public void initialize() {
+
+        this.map = new KTypeVTypeCuckooHashMap<KType, VType>(0);
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //the keys of a bucket are packed at its start
+        final KType[] keys = Intrinsics.<KType[]> cast(this.map.keys);
+
+        int assigned = 0;
+
+        for (int bucket = 0; bucket < keys.length; bucket += KTypeVTypeCuckooHashMap.BUCKET_SIZE) {
+
+            boolean empty = false;
+
+            for (int slot = bucket; slot < bucket + KTypeVTypeCuckooHashMap.BUCKET_SIZE; slot++) {
+
+                if (Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    empty = true;
+
+                } else {
+
+                    Assert.assertFalse("Hole in bucket at slot " + slot, empty);
+                    assigned++;
+                }
+            }
+        }
+
+        Assert.assertEquals(this.map.assigned, assigned);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.key1, this.value1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.keyE, this.value2));
+        TestUtils.assertEquals2(this.value1, this.map.put(this.key1, this.value3));
+
+        Assert.assertEquals(2, this.map.size());
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertTrue(this.map.containsKey(this.keyE));
+        Assert.assertFalse(this.map.containsKey(this.key2));
+        TestUtils.assertEquals2(this.value3, this.map.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.get(this.keyE));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.get(this.key2));
+
+        Assert.assertFalse(this.map.putIfAbsent(this.key1, this.value1));
+        Assert.assertTrue(this.map.putIfAbsent(this.key2, this.value1));
+
+        TestUtils.assertEquals2(this.value3, this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.remove(this.keyE));
+
+        Assert.assertEquals(1, this.map.size());
+
+        this.map.clear();
+        Assert.assertTrue(this.map.isEmpty());
+        Assert.assertFalse(this.map.containsKey(this.key2));
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    @Test
+    public void testAddTo()
+    {
+        TestUtils.assertEquals2(this.value1, this.map.addTo(this.key1, this.value1));
+        TestUtils.assertEquals2(vcast(2), this.map.addTo(this.key1, this.value1));
+        TestUtils.assertEquals2(this.value2, this.map.putOrAdd(this.keyE, this.value2, this.value1));
+        TestUtils.assertEquals2(this.value3, this.map.putOrAdd(this.keyE, this.value2, this.value1));
+    }
+
+    /*! #end !*/
+
+    /**
+     * Random operations, checked against a regular KTypeVTypeHashMap, through several growths.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                final VType value = vcast(rnd.nextInt(100));
+
+                TestUtils.assertEquals2(reference.put(key, value), this.map.put(key, value));
+
+            } else if (op < 8) {
+
+                TestUtils.assertEquals2(reference.remove(key), this.map.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.containsKey(key), this.map.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), this.map.get(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        //check content
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertTrue(reference.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), value);
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+
+    /**
+     * A full buffer, at the max load factor, must still hold all its entries.
+     */
+    @Test
+    public void testFullBuffer()
+    {
+        this.map = new KTypeVTypeCuckooHashMap<KType, VType>(1000, HashContainers.MAX_LOAD_FACTOR);
+
+        final int capacity = this.map.capacity();
+        final int length = this.map.keys.length;
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        final Random rnd = new Random(0x55667788L);
+
+        //bounded, there may be less distinct keys than capacity for small KTypes
+        for (int i = 0; i < 10 * capacity && reference.size() < capacity; i++) {
+
+            final KType key = cast(rnd.nextInt());
+
+            if (!Intrinsics.<KType> isEmpty(key) && !reference.containsKey(key)) {
+
+                reference.put(key, vcast(i));
+                this.map.put(key, vcast(i));
+            }
+        }
+
+        Assert.assertEquals(length, this.map.keys.length);
+        Assert.assertEquals(reference.size(), this.map.size());
+
+        for (final KTypeVTypeCursor<KType, VType> c : reference) {
+
+            TestUtils.assertEquals2(c.value, this.map.get(c.key));
+        }
+    }
+
+    @Test
+    public void testRemoveAll()
+    {
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int i = 0; i < 1000; i++) {
+
+            this.map.put(cast(i), vcast(i));
+            reference.put(cast(i), vcast(i));
+        }
+
+        final KTypeVTypePredicate<KType, VType> predicate = new KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                return castType(key) % 3 == 0;
+            }
+        };
+
+        Assert.assertEquals(reference.removeAll(predicate), this.map.removeAll(predicate));
+        Assert.assertEquals(reference.size(), this.map.size());
+
+        for (final KTypeVTypeCursor<KType, VType> c : reference) {
+
+            TestUtils.assertEquals2(c.value, this.map.get(c.key));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeFrozenHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeFrozenHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+
+        map.put(this.key1, this.value1);
+        map.put(this.key2, this.value2);
+        map.put(this.keyE, this.value3);
+
+        final KTypeVTypeFrozenHashMap<KType, VType> frozen = map.freeze();
+
+        Assert.assertEquals(3, frozen.size());
+        Assert.assertEquals(2, frozen.keys.length);
+        Assert.assertTrue(frozen.containsKey(this.key1));
+        Assert.assertTrue(frozen.containsKey(this.key2));
+        Assert.assertTrue(frozen.containsKey(this.keyE));
+        Assert.assertFalse(frozen.containsKey(this.key3));
+
+        TestUtils.assertEquals2(this.value1, frozen.get(this.key1));
+        TestUtils.assertEquals2(this.value2, frozen.get(this.key2));
+        TestUtils.assertEquals2(this.value3, frozen.get(this.keyE));
+        TestUtils.assertEquals2(frozen.getDefaultValue(), frozen.get(this.key3));
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final KTypeVTypeFrozenHashMap<KType, VType> frozen = new KTypeVTypeHashMap<KType, VType>().freeze();
+
+        Assert.assertTrue(frozen.isEmpty());
+        Assert.assertFalse(frozen.containsKey(this.key1));
+        Assert.assertFalse(frozen.containsKey(this.keyE));
+        Assert.assertEquals("[]", frozen.toString());
+
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+        map.put(this.keyE, this.value1);
+
+        final KTypeVTypeFrozenHashMap<KType, VType> onlyDefaultKey = map.freeze();
+
+        Assert.assertEquals(1, onlyDefaultKey.size());
+        Assert.assertTrue(onlyDefaultKey.containsKey(this.keyE));
+        Assert.assertFalse(onlyDefaultKey.containsKey(this.key1));
+    }
+
+    /**
+     * Random contents, checked against the source map.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        for (final int size : new int[] { 1, 2, 5, 100, 5000, 100000 }) {
+
+            final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+
+            for (int i = 0; i < size; i++) {
+
+                map.put(cast(rnd.nextInt(4 * size)), vcast(rnd.nextInt(100)));
+            }
+
+            final KTypeVTypeFrozenHashMap<KType, VType> frozen = KTypeVTypeFrozenHashMap.from(map);
+
+            Assert.assertEquals(map.size(), frozen.size());
+            Assert.assertEquals(Math.max(1, map.size() - (map.containsKey(this.keyE) ? 1 : 0)), frozen.keys.length);
+
+            for (int i = 0; i < 2 * size; i++) {
+
+                final KType key = cast(rnd.nextInt(4 * size));
+
+                Assert.assertEquals(map.containsKey(key), frozen.containsKey(key));
+                TestUtils.assertEquals2(map.get(key), frozen.get(key));
+            }
+
+            final int[] count = new int[1];
+
+            frozen.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+                @Override
+                public void apply(final KType key, final VType value) {
+
+                    Assert.assertTrue(map.containsKey(key));
+                    TestUtils.assertEquals2(map.get(key), value);
+                    count[0]++;
+                }
+            });
+
+            Assert.assertEquals(map.size(), count[0]);
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package com.carrotsearch.hppcrt.maps;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.*;
+
 import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
 
 /*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
 /**
@@ -130,6 +139,206 @@ public class KTypeVTypeHashMapTest<KType, VType> extends AbstractKTypeVTypeHashM
     /// Implementation-specific tests
     /////////////////////////////////////
 
-    //none for now
+    @Test
+    public void testGetAllAndContainsAllBatch() {
+
+        final KTypeVTypeHashMap<KType, VType> testMap = new KTypeVTypeHashMap<KType, VType>();
+
+        testMap.setDefaultValue(this.value9);
+
+        //enough keys for several batches, with conflicts
+        for (int i = 1; i < 100; i += 3) {
+            testMap.put(cast(i), vcast(i));
+        }
+
+        final KType[] queries = Intrinsics.<KType> newArray(120);
+
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = cast(i);
+        }
+
+        queries[7] = this.keyE;
+
+        final VType[] result = Intrinsics.<VType> newArray(queries.length);
+
+        Assert.assertSame(result, testMap.getAll(queries, result));
+
+        //stale bits must be overwritten
+        final long[] bits = new long[] { -1L, -1L };
+
+        final int count = testMap.containsAll(queries, bits);
+
+        int expectedCount = 0;
+
+        for (int i = 0; i < queries.length; i++) {
+
+            TestUtils.assertEquals2(testMap.get(queries[i]), result[i]);
+
+            final boolean expected = testMap.containsKey(queries[i]);
 
+            Assert.assertEquals(expected, (bits[i >> 6] & (1L << i)) != 0);
+
+            if (expected) {
+                expectedCount++;
+            }
+        }
+
+        Assert.assertEquals(expectedCount, count);
+
+        //the empty key
+        TestUtils.assertEquals2(this.value9, result[7]);
+        testMap.put(this.keyE, this.value1);
+        testMap.getAll(queries, result);
+        TestUtils.assertEquals2(this.value1, result[7]);
+    }
+
+    @Test
+    public void testStats()
+    {
+        final KTypeVTypeHashMap<KType, VType> testMap = new KTypeVTypeHashMap<KType, VType>();
+
+        final int initialBufferSize = testMap.keys.length;
+
+        HashStats stats = testMap.stats();
+
+        Assert.assertEquals(0, stats.size);
+        Assert.assertEquals(initialBufferSize, stats.bufferSize);
+        Assert.assertEquals(0, stats.resizeCount);
+        Assert.assertEquals(0, stats.clusterCount);
+        Assert.assertEquals(0, stats.maxProbeLength);
+        Assert.assertEquals(0.0, stats.meanProbeLength, 0.0);
+
+        for (int i = 1; i <= 2000; i++) {
+            testMap.put(cast(i * 3), vcast(i));
+        }
+
+        testMap.put(this.keyE, this.value1);
+
+        stats = testMap.stats();
+
+        Assert.assertEquals(testMap.size(), stats.size);
+        Assert.assertEquals(testMap.keys.length, stats.bufferSize);
+        Assert.assertEquals(testMap.keys.length, initialBufferSize << stats.resizeCount);
+        Assert.assertTrue(stats.resizeCount > 0);
+        Assert.assertEquals((testMap.size() - 1) / (double) testMap.keys.length, stats.effectiveLoadFactor, 1e-9);
+
+        //the clusters, checked against a plain scan of the buffer
+        final int[] histogram = new int[HashStats.HISTOGRAM_LENGTH];
+        final KType[] keys = Intrinsics.<KType[]> cast(testMap.keys);
+
+        int firstEmpty = 0;
+
+        while (!Intrinsics.<KType> isEmpty(keys[firstEmpty])) {
+            firstEmpty++;
+        }
+
+        int clusterSize = 0;
+        int maxClusterSize = 0;
+
+        for (int i = 1; i <= keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[(firstEmpty + i) % keys.length])) {
+
+                clusterSize++;
+
+            } else if (clusterSize > 0) {
+
+                histogram[HashStats.histogramBucket(clusterSize)]++;
+                maxClusterSize = Math.max(maxClusterSize, clusterSize);
+                clusterSize = 0;
+            }
+        }
+
+        Assert.assertArrayEquals(histogram, stats.clusterSizeHistogram);
+        Assert.assertEquals(maxClusterSize, stats.maxClusterSize);
+
+        //a key is probed inside its cluster
+        Assert.assertTrue(stats.meanProbeLength >= 1.0);
+        Assert.assertTrue(stats.maxProbeLength >= 1);
+        Assert.assertTrue(stats.maxProbeLength <= stats.maxClusterSize);
+
+        //no resize on clear()
+        testMap.clear();
+        Assert.assertEquals(stats.resizeCount, testMap.stats().resizeCount);
+        Assert.assertEquals(0, testMap.stats().clusterCount);
+    }
+
+    /*! #if ($TemplateOptions.KTypePrimitive && $TemplateOptions.VTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final KTypeVTypeHashMap<KType, VType> testMap = new KTypeVTypeHashMap<KType, VType>();
+
+        //several chunks
+        for (int i = 1; i <= 3000; i++) {
+            testMap.put(cast(i * 7), vcast(i));
+        }
+
+        testMap.put(this.keyE, this.value1);
+
+        for (final boolean asIs : new boolean[] { false, true }) {
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            testMap.writeTo(new DataOutputStream(bytes), asIs);
+
+            final KTypeVTypeHashMap<KType, VType> read = KTypeVTypeHashMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            Assert.assertEquals(testMap, read);
+            TestUtils.assertEquals2(this.value1, read.get(this.keyE));
+
+            if (asIs) {
+                //same table
+                Assert.assertTrue(java.util.Arrays.equals(Intrinsics.<KType[]> cast(testMap.keys), Intrinsics.<KType[]> cast(read.keys)));
+            }
+
+            //still working as a map
+            for (final KTypeVTypeCursor<KType, VType> cursor : testMap) {
+                TestUtils.assertEquals2(cursor.value, read.remove(cursor.key));
+                Assert.assertFalse(read.containsKey(cursor.key));
+            }
+
+            Assert.assertTrue(read.isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadFromCorruptedHeader() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        //load factor out of range
+        assertReadFromFails(true, 2.0, 0, 16);
+        //not a power of two
+        assertReadFromFails(true, 0.75, 0, 12);
+        //no empty slot left
+        assertReadFromFails(true, 0.75, 16, 16);
+        //negative size
+        assertReadFromFails(false, 0.75, -1, 0);
+    }
+
+    private void assertReadFromFails(final boolean asIs, final double loadFactor, final int assigned, final int length) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeBoolean(asIs);
+        out.writeDouble(loadFactor);
+        out.writeBoolean(false);
+        out.writeInt(assigned);
+
+        if (asIs) {
+            out.writeInt(0);
+            out.writeInt(length);
+        }
+
+        try {
+            KTypeVTypeHashMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.fail();
+        } catch (final IOException e) {
+            //expected
+        }
+    }
+    /*! #end !*/
 }
@@ -0,0 +1,317 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateVType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeHashMultimap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeHashMultimapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeHashMultimap<KType, VType> multimap;
+
+    @Before
+    public void initialize() {
+
+        this.multimap = new KTypeVTypeHashMultimap<KType, VType>(0);
+    }
+
+    @After
+    public void checkConsistency() {
+
+        final KType[] keys = Intrinsics.<KType[]> cast(this.multimap.keys);
+
+        int assigned = 0;
+        int size = this.multimap.counts[keys.length];
+
+        for (int slot = 0; slot < keys.length; slot++) {
+
+            if (Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                Assert.assertEquals(0, this.multimap.counts[slot]);
+
+            } else {
+
+                Assert.assertTrue(this.multimap.counts[slot] > 0);
+                assigned++;
+                size += this.multimap.counts[slot];
+            }
+        }
+
+        Assert.assertEquals(this.multimap.assigned, assigned);
+        Assert.assertEquals(this.multimap.size(), size);
+    }
+
+    /**
+     * The values of key, in order.
+     */
+    private KTypeArrayList<VType> values(final KType key) {
+
+        final KTypeArrayList<VType> values = new KTypeArrayList<VType>();
+
+        this.multimap.forEach(key, new KTypeProcedure<VType>() {
+
+            @Override
+            public void apply(final VType value) {
+
+                values.add(value);
+            }
+        });
+
+        Assert.assertEquals(this.multimap.count(key), values.size());
+
+        return values;
+    }
+
+    private void assertValues(final KType key, final VType[] expected) {
+
+        final KTypeArrayList<VType> values = values(key);
+
+        Assert.assertEquals(expected.length, values.size());
+
+        for (int i = 0; i < expected.length; i++) {
+
+            TestUtils.assertEquals2(expected[i], values.get(i));
+        }
+    }
+
+    @Test
+    public void testPutForEachRemoveAll()
+    {
+        this.multimap.put(this.key1, this.value1);
+        this.multimap.put(this.key2, this.value2);
+        this.multimap.put(this.key1, this.value3);
+        this.multimap.put(this.keyE, this.value4);
+        this.multimap.put(this.key1, this.value1);
+
+        Assert.assertEquals(5, this.multimap.size());
+        Assert.assertEquals(3, this.multimap.keyCount());
+        Assert.assertEquals(3, this.multimap.count(this.key1));
+        Assert.assertEquals(1, this.multimap.count(this.key2));
+        Assert.assertEquals(1, this.multimap.count(this.keyE));
+        Assert.assertEquals(0, this.multimap.count(this.key3));
+        Assert.assertTrue(this.multimap.containsKey(this.keyE));
+        Assert.assertFalse(this.multimap.containsKey(this.key3));
+
+        assertValues(this.key1, newvArray(this.value1, this.value3, this.value1));
+        assertValues(this.keyE, newvArray(this.value4));
+        Assert.assertTrue(values(this.key3).isEmpty());
+
+        Assert.assertEquals(3, this.multimap.removeAll(this.key1));
+        Assert.assertEquals(0, this.multimap.removeAll(this.key1));
+        Assert.assertEquals(1, this.multimap.removeAll(this.keyE));
+
+        Assert.assertEquals(1, this.multimap.size());
+        Assert.assertEquals(1, this.multimap.keyCount());
+        Assert.assertFalse(this.multimap.containsKey(this.key1));
+        Assert.assertFalse(this.multimap.containsKey(this.keyE));
+        assertValues(this.key2, newvArray(this.value2));
+    }
+
+    @Test
+    public void testForEachPredicate()
+    {
+        for (int i = 0; i < 100; i++) {
+
+            this.multimap.put(this.key1, vcast(i));
+        }
+
+        final int[] count = new int[1];
+
+        this.multimap.forEach(this.key1, new KTypePredicate<VType>() {
+
+            @Override
+            public boolean apply(final VType value) {
+
+                count[0]++;
+                return count[0] < 10;
+            }
+        });
+
+        Assert.assertEquals(10, count[0]);
+    }
+
+    @Test
+    public void testForEachPairs()
+    {
+        this.multimap.put(this.key1, this.value1);
+        this.multimap.put(this.keyE, this.value2);
+        this.multimap.put(this.key1, this.value3);
+
+        final KTypeVTypeHashMap<KType, VType> sums = new KTypeVTypeHashMap<KType, VType>();
+        final int[] count = new int[1];
+
+        this.multimap.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                sums.put(key, vcast(vcastType(sums.get(key)) + vcastType(value)));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(3, count[0]);
+        TestUtils.assertEquals2(vcast(4), sums.get(this.key1));
+        TestUtils.assertEquals2(this.value2, sums.get(this.keyE));
+    }
+
+    @Test
+    public void testClear()
+    {
+        for (int i = 0; i < 500; i++) {
+
+            this.multimap.put(cast(i % 50), vcast(i));
+        }
+
+        this.multimap.clear();
+
+        Assert.assertTrue(this.multimap.isEmpty());
+        Assert.assertEquals(0, this.multimap.keyCount());
+        Assert.assertFalse(this.multimap.containsKey(this.key1));
+        Assert.assertEquals("[]", this.multimap.toString());
+
+        this.multimap.put(this.key1, this.value1);
+        assertValues(this.key1, newvArray(this.value1));
+    }
+
+    /**
+     * Long chains, beyond the max block size.
+     */
+    @Test
+    public void testLongChain()
+    {
+        final int count = 3 * (1 << KTypeVTypeHashMultimap.MAX_BLOCK_SIZE_BITS) + 1000;
+
+        for (int i = 0; i < count; i++) {
+
+            this.multimap.put(this.key1, vcast(i));
+            this.multimap.put(this.key2, vcast(-i));
+        }
+
+        final KTypeArrayList<VType> values1 = values(this.key1);
+        final KTypeArrayList<VType> values2 = values(this.key2);
+
+        Assert.assertEquals(count, values1.size());
+
+        for (int i = 0; i < count; i++) {
+
+            TestUtils.assertEquals2(vcast(i), values1.get(i));
+            TestUtils.assertEquals2(vcast(-i), values2.get(i));
+        }
+
+        //the slab holds less than 2 * count values per key
+        Assert.assertTrue(this.multimap.slabSize < 4 * count);
+    }
+
+    /**
+     * Freed blocks are reused: a steady stream of removals and insertions does not grow the slab.
+     */
+    @Test
+    public void testBlocksReuse()
+    {
+        for (int i = 0; i < 100; i++) {
+
+            for (int j = 0; j < i; j++) {
+
+                this.multimap.put(cast(i), vcast(j));
+            }
+        }
+
+        final int slabSize = this.multimap.slabSize;
+
+        for (int round = 0; round < 10; round++) {
+
+            for (int i = 0; i < 100; i++) {
+
+                Assert.assertEquals(i, this.multimap.removeAll(cast(i)));
+
+                for (int j = 0; j < i; j++) {
+
+                    this.multimap.put(cast(i), vcast(j + round));
+                }
+            }
+        }
+
+        Assert.assertEquals(slabSize, this.multimap.slabSize);
+
+        for (int i = 0; i < 100; i++) {
+
+            final KTypeArrayList<VType> values = values(cast(i));
+
+            for (int j = 0; j < i; j++) {
+
+                TestUtils.assertEquals2(vcast(j + 9), values.get(j));
+            }
+        }
+    }
+
+    /**
+     * Random operations, checked against a reference map of the number of values of each key,
+     * the j-th value of key k being f(k, j).
+     */
+    @Test
+    public void testAgainstReference()
+    {
+        final Random rnd = new Random(0xdeadbeefL);
+
+        final int nbKeys = 200;
+
+        final int[] counts = new int[nbKeys];
+
+        for (int i = 0; i < 100000; i++) {
+
+            final int k = rnd.nextInt(nbKeys);
+
+            if (rnd.nextInt(100) == 0) {
+
+                Assert.assertEquals(counts[k], this.multimap.removeAll(cast(k)));
+                counts[k] = 0;
+
+            } else {
+
+                this.multimap.put(cast(k), vcast(k + counts[k] * 7));
+                counts[k]++;
+            }
+        }
+
+        int size = 0;
+        int keyCount = 0;
+
+        for (int k = 0; k < nbKeys; k++) {
+
+            final KTypeArrayList<VType> values = values(cast(k));
+
+            Assert.assertEquals(counts[k], values.size());
+
+            for (int j = 0; j < counts[k]; j++) {
+
+                TestUtils.assertEquals2(vcast(k + j * 7), values.get(j));
+            }
+
+            size += counts[k];
+            keyCount += counts[k] > 0 ? 1 : 0;
+        }
+
+        Assert.assertEquals(size, this.multimap.size());
+        Assert.assertEquals(keyCount, this.multimap.keyCount());
+    }
+
+    @Test
+    public void testToString()
+    {
+        this.multimap.put(this.key1, this.value1);
+        this.multimap.put(this.key1, this.value2);
+
+        Assert.assertEquals("[" + this.key1 + "=>[" + this.value1 + ", " + this.value2 + "]]", this.multimap.toString());
+    }
+}
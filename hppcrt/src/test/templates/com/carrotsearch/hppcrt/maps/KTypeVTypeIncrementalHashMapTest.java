@@ -0,0 +1,221 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeIncrementalHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeIncrementalHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeIncrementalHashMap<KType, VType> map;
+
+    @Before
+    public void initialize() {
+
+        this.map = new KTypeVTypeIncrementalHashMap<KType, VType>(0);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.key1, this.value1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.keyE, this.value2));
+        TestUtils.assertEquals2(this.value1, this.map.put(this.key1, this.value3));
+
+        Assert.assertEquals(2, this.map.size());
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertTrue(this.map.containsKey(this.keyE));
+        Assert.assertFalse(this.map.containsKey(this.key2));
+
+        TestUtils.assertEquals2(this.value3, this.map.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.get(this.keyE));
+
+        Assert.assertFalse(this.map.putIfAbsent(this.key1, this.value4));
+        Assert.assertTrue(this.map.putIfAbsent(this.key2, this.value4));
+
+        TestUtils.assertEquals2(this.value3, this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.remove(this.key1));
+
+        Assert.assertEquals(2, this.map.size());
+
+        this.map.clear();
+        Assert.assertTrue(this.map.isEmpty());
+    }
+
+    /**
+     * Random operations, checked against a regular KTypeVTypeHashMap, through several migrations.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        this.map.setDefaultValue(this.value9);
+        reference.setDefaultValue(this.value9);
+
+        boolean migrated = false;
+
+        for (int round = 0; round < 20000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 10 + 10));
+            final VType value = vcast(rnd.nextInt(100));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                TestUtils.assertEquals2(reference.put(key, value), this.map.put(key, value));
+
+            } else if (op < 8) {
+
+                TestUtils.assertEquals2(reference.remove(key), this.map.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.containsKey(key), this.map.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), this.map.get(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+
+            migrated |= this.map.isMigrating();
+        }
+
+        Assert.assertTrue(migrated);
+
+        //check content
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertTrue(reference.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), value);
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+
+    /**
+     * The current map must never grow by itself: only by migration.
+     */
+    @Test
+    public void testMigrationCompletesBeforeFull()
+    {
+        int previousCapacity = this.map.capacity();
+
+        for (int i = 1; i <= 10000; i++) {
+
+            this.map.put(cast(i), vcast(i));
+
+            final int capacity = this.map.capacity();
+
+            if (capacity != previousCapacity) {
+
+                //a migration just started.
+                Assert.assertTrue(this.map.isMigrating());
+                previousCapacity = capacity;
+            }
+
+            Assert.assertTrue(this.map.current.size() <= this.map.current.capacity());
+        }
+
+        //only the modifications migrate
+        while (this.map.isMigrating()) {
+
+            this.map.put(cast(1), vcast(1));
+        }
+
+        Assert.assertEquals(this.map.size(), this.map.current.size());
+    }
+
+    /**
+     * Lookups never modify the map, even during a migration.
+     */
+    @Test
+    public void testLookupsDoNotMigrate()
+    {
+        int nbKeys = 0;
+
+        while (!this.map.isMigrating()) {
+
+            nbKeys++;
+            this.map.put(cast(nbKeys), vcast(nbKeys));
+        }
+
+        final int oldSize = this.map.old.size();
+        final int currentSize = this.map.current.size();
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            Assert.assertTrue(this.map.containsKey(cast(i)));
+            TestUtils.assertEquals2(vcast(i), this.map.get(cast(i)));
+        }
+
+        Assert.assertFalse(this.map.containsKey(cast(nbKeys + 1)));
+
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                count[0]++;
+                return true;
+            }
+        });
+
+        Assert.assertEquals(nbKeys, count[0]);
+
+        Assert.assertTrue(this.map.isMigrating());
+        Assert.assertEquals(oldSize, this.map.old.size());
+        Assert.assertEquals(currentSize, this.map.current.size());
+    }
+
+    /*! #if ($TemplateOptions.VTypePrimitive) !*/
+    /**
+     * Keys still in the old map are updated in place.
+     */
+    @Test
+    public void testPutOrAddDuringMigration()
+    {
+        int nbKeys = 0;
+
+        while (!this.map.isMigrating()) {
+
+            nbKeys++;
+            this.map.put(cast(nbKeys), vcast(nbKeys));
+        }
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            TestUtils.assertEquals2(vcast(i + 1), this.map.addTo(cast(i), vcast(1)));
+        }
+
+        TestUtils.assertEquals2(vcast(5), this.map.putOrAdd(cast(nbKeys + 1), vcast(5), vcast(1)));
+
+        Assert.assertEquals(nbKeys + 1, this.map.size());
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            TestUtils.assertEquals2(vcast(i + 1), this.map.get(cast(i)));
+        }
+    }
+
+    /*! #end !*/
+}
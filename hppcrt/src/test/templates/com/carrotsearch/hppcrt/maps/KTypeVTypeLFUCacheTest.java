@@ -0,0 +1,178 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeLFUCache}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLFUCacheTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeArrayList<KType> evicted;
+
+    protected KTypeVTypeLFUCache<KType, VType> cache;
+
+    @Before
+    public void initialize() {
+
+        this.evicted = new KTypeArrayList<KType>();
+
+        this.cache = new KTypeVTypeLFUCache<KType, VType>(3, new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                KTypeVTypeLFUCacheTest.this.evicted.add(key);
+            }
+        });
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //entries in eviction order have non-decreasing frequencies
+        final long[] previous = new long[] { 0L };
+        final int[] count = new int[] { 0 };
+
+        this.cache.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                final long frequency = KTypeVTypeLFUCacheTest.this.cache.frequency(key);
+
+                Assert.assertTrue(frequency >= Math.max(1L, previous[0]));
+                previous[0] = frequency;
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(this.cache.size(), count[0]);
+        Assert.assertTrue(this.cache.size() <= this.cache.maxSize());
+    }
+
+    @Test
+    public void testEvictLeastFrequentlyUsed() {
+
+        this.cache.put(this.key1, this.value1);
+        this.cache.put(this.key2, this.value2);
+        this.cache.put(this.key3, this.value3);
+
+        this.cache.get(this.key1);
+        this.cache.get(this.key1);
+        this.cache.get(this.key3);
+
+        Assert.assertEquals(3, this.cache.frequency(this.key1));
+        Assert.assertEquals(1, this.cache.frequency(this.key2));
+        Assert.assertEquals(2, this.cache.frequency(this.key3));
+
+        this.cache.put(this.key4, this.value4);
+
+        Assert.assertEquals(1, this.evicted.size());
+        Assert.assertEquals(2, castType(this.evicted.get(0)));
+        Assert.assertEquals(0, this.cache.frequency(this.key2));
+
+        //key4 is now the least frequently used
+        this.cache.put(this.key5, this.value5);
+
+        Assert.assertEquals(2, this.evicted.size());
+        Assert.assertEquals(4, castType(this.evicted.get(1)));
+
+        Assert.assertTrue(this.cache.containsKey(this.key1));
+        Assert.assertTrue(this.cache.containsKey(this.key3));
+        Assert.assertTrue(this.cache.containsKey(this.key5));
+    }
+
+    @Test
+    public void testTiesEvictLeastRecentlyUsed() {
+
+        this.cache.put(this.key1, this.value1);
+        this.cache.put(this.key2, this.value2);
+        this.cache.put(this.key3, this.value3);
+
+        this.cache.get(this.key2);
+        this.cache.get(this.key1);
+        this.cache.get(this.key3);
+
+        //all have frequency 2, key2 being the eldest in it
+        this.cache.put(this.key4, this.value4);
+        this.cache.put(this.key5, this.value5);
+
+        Assert.assertEquals(2, this.evicted.size());
+        Assert.assertEquals(2, castType(this.evicted.get(0)));
+        Assert.assertEquals(4, castType(this.evicted.get(1)));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        this.cache.setDefaultValue(this.value9);
+
+        Assert.assertEquals(9, vcastType(this.cache.put(this.keyE, this.value1)));
+        Assert.assertEquals(1, vcastType(this.cache.put(this.keyE, this.value2)));
+        Assert.assertEquals(2, this.cache.frequency(this.keyE));
+
+        Assert.assertEquals(2, vcastType(this.cache.get(this.keyE)));
+        Assert.assertEquals(9, vcastType(this.cache.get(this.key1)));
+
+        this.cache.put(this.key1, this.value1);
+        Assert.assertEquals(2, this.cache.size());
+
+        Assert.assertEquals(2, vcastType(this.cache.remove(this.keyE)));
+        Assert.assertEquals(9, vcastType(this.cache.remove(this.keyE)));
+        Assert.assertFalse(this.cache.containsKey(this.keyE));
+        Assert.assertEquals(1, this.cache.size());
+
+        this.cache.clear();
+        Assert.assertTrue(this.cache.isEmpty());
+        Assert.assertEquals(0, this.evicted.size());
+    }
+
+    @Test
+    public void testRandomChurn() {
+
+        //stay in the byte range
+        final int maxSize = 40;
+        final KTypeVTypeLFUCache<KType, VType> cache = new KTypeVTypeLFUCache<KType, VType>(maxSize);
+
+        final Object keysBuffer = cache.keys;
+        final Random prng = new Random(0x11223344L);
+
+        for (int i = 0; i < 50000; i++) {
+
+            final KType key = cast(prng.nextInt(120));
+
+            if (prng.nextInt(4) == 0) {
+
+                cache.remove(key);
+
+            } else if (prng.nextBoolean()) {
+
+                cache.put(key, vcast(castType(key)));
+
+            } else if (cache.containsKey(key)) {
+
+                Assert.assertEquals(castType(key), vcastType(cache.get(key)));
+            }
+
+            Assert.assertTrue(cache.size() <= maxSize);
+        }
+
+        Assert.assertSame(keysBuffer, cache.keys);
+
+        this.cache = cache;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+
+        new KTypeVTypeLFUCache<KType, VType>(-1);
+    }
+}
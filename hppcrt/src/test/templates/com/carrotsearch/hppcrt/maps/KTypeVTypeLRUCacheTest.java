@@ -0,0 +1,144 @@
+package com.carrotsearch.hppcrt.maps;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeLRUCache}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLRUCacheTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeArrayList<KType> evicted;
+
+    protected KTypeVTypeLRUCache<KType, VType> cache;
+
+    @Before
+    public void initialize() {
+
+        this.evicted = new KTypeArrayList<KType>();
+
+        this.cache = new KTypeVTypeLRUCache<KType, VType>(3, new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                KTypeVTypeLRUCacheTest.this.evicted.add(key);
+            }
+        });
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+
+        this.cache.put(this.key1, this.value1);
+        this.cache.put(this.key2, this.value2);
+        this.cache.put(this.key3, this.value3);
+
+        Assert.assertEquals(3, this.cache.size());
+        Assert.assertEquals(0, this.evicted.size());
+
+        //key1 becomes the most recently used
+        Assert.assertEquals(1, vcastType(this.cache.get(this.key1)));
+
+        this.cache.put(this.key4, this.value4);
+
+        Assert.assertEquals(3, this.cache.size());
+        Assert.assertEquals(1, this.evicted.size());
+        Assert.assertEquals(2, castType(this.evicted.get(0)));
+        Assert.assertFalse(this.cache.containsKey(this.key2));
+
+        //a put of an existing key is an access too
+        this.cache.put(this.key3, this.value5);
+        this.cache.put(this.key5, this.value5);
+
+        Assert.assertEquals(2, this.evicted.size());
+        Assert.assertEquals(1, castType(this.evicted.get(1)));
+
+        Assert.assertTrue(this.cache.containsKey(this.key3));
+        Assert.assertTrue(this.cache.containsKey(this.key4));
+        Assert.assertTrue(this.cache.containsKey(this.key5));
+    }
+
+    @Test
+    public void testMissReturnsDefaultValue() {
+
+        this.cache.setDefaultValue(this.value9);
+        this.cache.put(this.key1, this.value1);
+
+        Assert.assertEquals(9, vcastType(this.cache.get(this.key2)));
+        Assert.assertEquals(1, vcastType(this.cache.get(this.key1)));
+    }
+
+    @Test
+    public void testRemoveAndClearDoNotNotify() {
+
+        this.cache.put(this.keyE, this.value1);
+        this.cache.put(this.key2, this.value2);
+        this.cache.put(this.key3, this.value3);
+
+        Assert.assertEquals(1, vcastType(this.cache.remove(this.keyE)));
+        this.cache.put(this.key4, this.value4);
+
+        Assert.assertEquals(0, this.evicted.size());
+        Assert.assertEquals(3, this.cache.size());
+
+        this.cache.clear();
+        Assert.assertEquals(0, this.evicted.size());
+        Assert.assertTrue(this.cache.isEmpty());
+    }
+
+    @Test
+    public void testNoReallocation() {
+
+        //stay in the byte range
+        final int maxSize = 50;
+        final int count = 120;
+        final KTypeVTypeLRUCache<KType, VType> cache = new KTypeVTypeLRUCache<KType, VType>(maxSize);
+
+        final Object keysBuffer = cache.keys;
+
+        for (int i = 0; i < count; i++) {
+
+            cache.put(cast(i), vcast(i));
+            Assert.assertEquals(Math.min(i + 1, maxSize), cache.size());
+        }
+
+        Assert.assertSame(keysBuffer, cache.keys);
+
+        //the last maxSize keys only remain
+        for (int i = count - maxSize; i < count; i++) {
+
+            Assert.assertTrue(cache.containsKey(cast(i)));
+        }
+    }
+
+    @Test
+    public void testClone() {
+
+        this.cache.put(this.key1, this.value1);
+        this.cache.put(this.key2, this.value2);
+
+        final KTypeVTypeLRUCache<KType, VType> cloned = this.cache.clone();
+
+        Assert.assertEquals(this.cache.maxSize(), cloned.maxSize());
+        Assert.assertEquals(this.cache, cloned);
+
+        cloned.put(this.key3, this.value3);
+        cloned.put(this.key4, this.value4);
+
+        Assert.assertEquals(1, this.evicted.size());
+        Assert.assertEquals(1, castType(this.evicted.get(0)));
+        Assert.assertEquals(2, this.cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+
+        new KTypeVTypeLRUCache<KType, VType>(0);
+    }
+}
@@ -0,0 +1,278 @@
+package com.carrotsearch.hppcrt.maps;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeLinkedHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeLinkedHashMapTest<KType, VType> extends AbstractKTypeVTypeHashMapTest<KType, VType>
+{
+    @Override
+    protected KTypeVTypeMap<KType, VType> createNewMapInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeLinkedHashMap<KType, VType>();
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeLinkedHashMap<KType, VType>(initialCapacity);
+        }
+
+        //generic case
+        return new KTypeVTypeLinkedHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeVTypeMap<KType, VType> testMap) {
+
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected VType[] getValues(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<VType[]> cast(concreteClass.values);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKey;
+
+    }
+
+    @Override
+    protected VType getAllocatedDefaultKeyValue(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKeyValue;
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getClone(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFrom(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return KTypeVTypeLinkedHashMap.from(concreteClass);
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFromArrays(final KType[] keys, final VType[] values) {
+
+        return KTypeVTypeLinkedHashMap.from(Intrinsics.<KType[]> cast(keys),
+                Intrinsics.<VType[]> cast(values));
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getCopyConstructor(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return new KTypeVTypeLinkedHashMap<KType, VType>(concreteClass);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getKeysPoolSize(final KTypeCollection<KType> keys) {
+
+        final KTypeVTypeLinkedHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.size();
+    }
+
+    @Override
+    protected int getValuesPoolSize(final KTypeCollection<VType> values) {
+        final KTypeVTypeLinkedHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeLinkedHashMap<KType, VType> concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getKeysPoolCapacity(final KTypeCollection<KType> keys) {
+        final KTypeVTypeLinkedHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getValuesPoolCapacity(final KTypeCollection<VType> values) {
+        final KTypeVTypeLinkedHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeLinkedHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * The keys of the map, in iteration order, as ints.
+     */
+    private int[] iterationOrder(final KTypeVTypeLinkedHashMap<KType, VType> linkedMap) {
+
+        final int[] order = new int[linkedMap.size()];
+        int count = 0;
+
+        for (final KTypeVTypeCursor<KType, VType> c : linkedMap) {
+
+            order[count++] = castType(c.key);
+        }
+
+        Assert.assertEquals(linkedMap.size(), count);
+
+        return order;
+    }
+
+    @Test
+    public void testInsertionOrder()
+    {
+        final KTypeVTypeLinkedHashMap<KType, VType> linkedMap = new KTypeVTypeLinkedHashMap<KType, VType>();
+
+        linkedMap.put(this.key3, this.value3);
+        linkedMap.put(this.key1, this.value1);
+        linkedMap.put(this.keyE, this.value0);
+        linkedMap.put(this.key2, this.value2);
+
+        //re-inserting or reading an existing key keeps its place
+        linkedMap.put(this.key1, this.value4);
+        TestUtils.assertEquals2(this.value3, linkedMap.get(this.key3));
+
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 3, 1, 0, 2);
+
+        //removed then re-inserted keys go to the end
+        linkedMap.remove(this.key3);
+        linkedMap.remove(this.keyE);
+        linkedMap.put(this.key3, this.value3);
+
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 1, 2, 3);
+        TestUtils.assertListEquals(linkedMap.keys().toArray(), 1, 2, 3);
+        TestUtils.assertListEquals(linkedMap.values().toArray(), 4, 2, 3);
+        Assert.assertEquals(castType(this.key1), castType(linkedMap.eldestKey()));
+    }
+
+    @Test
+    public void testAccessOrder()
+    {
+        final KTypeVTypeLinkedHashMap<KType, VType> linkedMap = new KTypeVTypeLinkedHashMap<KType, VType>(0,
+                HashContainers.DEFAULT_LOAD_FACTOR, true);
+
+        Assert.assertTrue(linkedMap.isAccessOrder());
+
+        linkedMap.put(this.key1, this.value1);
+        linkedMap.put(this.key2, this.value2);
+        linkedMap.put(this.keyE, this.value0);
+        linkedMap.put(this.key3, this.value3);
+
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 1, 2, 0, 3);
+
+        //get() and put() of an existing key move it to the end
+        TestUtils.assertEquals2(this.value1, linkedMap.get(this.key1));
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 2, 0, 3, 1);
+
+        linkedMap.put(this.keyE, this.value4);
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 2, 3, 1, 0);
+
+        //containsKey() and failed lookups do not
+        Assert.assertTrue(linkedMap.containsKey(this.key2));
+        linkedMap.get(this.key9);
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 2, 3, 1, 0);
+
+        TestUtils.assertEquals2(this.value2, linkedMap.removeEldest());
+        TestUtils.assertListEquals(iterationOrder(linkedMap), 3, 1, 0);
+    }
+
+    @Test
+    public void testRemoveEldestEntry()
+    {
+        final KTypeVTypeLinkedHashMap<KType, VType> boundedMap = new KTypeVTypeLinkedHashMap<KType, VType>(0,
+                HashContainers.DEFAULT_LOAD_FACTOR, true) {
+
+            @Override
+            protected boolean removeEldestEntry(final KType eldestKey, final VType eldestValue) {
+
+                return size() > 3;
+            }
+        };
+
+        boundedMap.put(this.key1, this.value1);
+        boundedMap.put(this.key2, this.value2);
+        boundedMap.put(this.key3, this.value3);
+        boundedMap.get(this.key1);
+        boundedMap.put(this.key4, this.value4);
+
+        //key2 was the least-recently used one
+        Assert.assertEquals(3, boundedMap.size());
+        Assert.assertFalse(boundedMap.containsKey(this.key2));
+        TestUtils.assertListEquals(iterationOrder(boundedMap), 3, 1, 4);
+
+        boundedMap.put(this.keyE, this.value0);
+        boundedMap.put(this.key5, this.value5);
+
+        TestUtils.assertListEquals(iterationOrder(boundedMap), 4, 0, 5);
+    }
+
+    /**
+     * The list order must survive the rehashes of the expansions, and
+     * the keys moved by the backward-shift deletion.
+     */
+    @Test
+    public void testOrderWithExpansionsAndRemovals()
+    {
+        final KTypeVTypeLinkedHashMap<KType, VType> linkedMap = new KTypeVTypeLinkedHashMap<KType, VType>(0,
+                HashContainers.MAX_LOAD_FACTOR);
+
+        final int initialBufferSize = linkedMap.keys.length;
+
+        for (int i = 100; i >= 1; i--) {
+
+            linkedMap.put(cast(i), vcast(i));
+        }
+
+        Assert.assertTrue(linkedMap.keys.length > initialBufferSize);
+
+        for (int i = 2; i <= 100; i += 2) {
+
+            TestUtils.assertEquals2(vcast(i), linkedMap.remove(cast(i)));
+        }
+
+        final int[] order = iterationOrder(linkedMap);
+
+        Assert.assertEquals(50, order.length);
+
+        for (int i = 0; i < order.length; i++) {
+
+            Assert.assertEquals(99 - 2 * i, order[i]);
+        }
+
+        //a clone keeps the order
+        TestUtils.assertListEquals(iterationOrder(linkedMap.clone()), order);
+    }
+}
@@ -0,0 +1,205 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+import com.carrotsearch.hppcrt.strategies.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/*! ${TemplateOptions.doNotGenerateVType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeMappedHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeMappedHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected KTypeVTypeMappedHashMap<KType, VType> mapped;
+
+    @After
+    public void release() {
+
+        if (this.mapped != null) {
+            this.mapped.close();
+        }
+    }
+
+    @Test
+    public void testWriteOpen() throws IOException
+    {
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+
+        map.put(this.key1, this.value1);
+        map.put(this.key2, this.value2);
+        map.put(this.keyE, this.value3);
+
+        final File file = this.folder.newFile();
+
+        KTypeVTypeMappedHashMap.write(map, file);
+
+        this.mapped = KTypeVTypeMappedHashMap.open(file);
+
+        Assert.assertEquals(3, this.mapped.size());
+        Assert.assertTrue(this.mapped.containsKey(this.key1));
+        Assert.assertTrue(this.mapped.containsKey(this.key2));
+        Assert.assertTrue(this.mapped.containsKey(this.keyE));
+        Assert.assertFalse(this.mapped.containsKey(this.key3));
+
+        TestUtils.assertEquals2(this.value1, this.mapped.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.mapped.get(this.key2));
+        TestUtils.assertEquals2(this.value3, this.mapped.get(this.keyE));
+        TestUtils.assertEquals2(this.mapped.getDefaultValue(), this.mapped.get(this.key3));
+    }
+
+    @Test
+    public void testEmpty() throws IOException
+    {
+        final File file = this.folder.newFile();
+
+        KTypeVTypeMappedHashMap.write(new KTypeVTypeHashMap<KType, VType>(), file);
+
+        this.mapped = KTypeVTypeMappedHashMap.open(file);
+
+        Assert.assertTrue(this.mapped.isEmpty());
+        Assert.assertFalse(this.mapped.containsKey(this.key1));
+        Assert.assertFalse(this.mapped.containsKey(this.keyE));
+        Assert.assertEquals("[]", this.mapped.toString());
+    }
+
+    /**
+     * Random contents, with small pages, checked against the written map.
+     */
+    @Test
+    public void testAgainstHashMap() throws IOException
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int i = 0; i < 5000; i++) {
+
+            map.put(cast(rnd.nextInt(10000)), vcast(rnd.nextInt(100)));
+        }
+
+        final File file = this.folder.newFile();
+
+        KTypeVTypeMappedHashMap.write(map, file);
+
+        this.mapped = KTypeVTypeMappedHashMap.open(file, 8);
+
+        Assert.assertTrue(this.mapped.keys.length > 1);
+        Assert.assertEquals(map.size(), this.mapped.size());
+
+        for (int i = 0; i < 20000; i++) {
+
+            final KType key = cast(i);
+
+            Assert.assertEquals(map.containsKey(key), this.mapped.containsKey(key));
+            TestUtils.assertEquals2(map.get(key), this.mapped.get(key));
+        }
+
+        final int[] count = new int[1];
+
+        this.mapped.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertTrue(map.containsKey(key));
+                TestUtils.assertEquals2(map.get(key), value);
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(map.size(), count[0]);
+    }
+
+    /**
+     * A map with a hashing strategy is written with the default layout.
+     */
+    @Test
+    public void testWriteWithHashingStrategy() throws IOException
+    {
+        final KTypeVTypeStrategyHashMap<KType, VType> map = new KTypeVTypeStrategyHashMap<KType, VType>(
+                new KTypeIdentityHashingStrategy<KType>());
+
+        for (int i = 1; i <= 1000; i++) {
+
+            map.put(cast(i * 3), vcast(i));
+        }
+
+        map.put(this.keyE, this.value1);
+
+        final File file = this.folder.newFile();
+
+        KTypeVTypeMappedHashMap.write(map, file);
+
+        this.mapped = KTypeVTypeMappedHashMap.open(file);
+
+        Assert.assertEquals(map.size(), this.mapped.size());
+
+        for (int i = 0; i <= 3000; i++) {
+
+            final KType key = cast(i);
+
+            Assert.assertEquals(map.containsKey(key), this.mapped.containsKey(key));
+            TestUtils.assertEquals2(map.get(key), this.mapped.get(key));
+        }
+    }
+
+    @Test
+    public void testNotAMappedFile() throws IOException
+    {
+        final File file = this.folder.newFile();
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            raf.setLength(1024);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            this.mapped = KTypeVTypeMappedHashMap.open(file);
+            Assert.fail();
+        } catch (final IOException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testClose() throws IOException
+    {
+        final KTypeVTypeHashMap<KType, VType> map = new KTypeVTypeHashMap<KType, VType>();
+        map.put(this.key1, this.value1);
+
+        final File file = this.folder.newFile();
+
+        KTypeVTypeMappedHashMap.write(map, file);
+
+        this.mapped = KTypeVTypeMappedHashMap.open(file);
+        this.mapped.close();
+
+        Assert.assertNull(this.mapped.keys);
+
+        //no effect
+        this.mapped.close();
+    }
+}
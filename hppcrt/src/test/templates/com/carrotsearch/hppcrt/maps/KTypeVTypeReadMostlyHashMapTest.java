@@ -0,0 +1,274 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeReadMostlyHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeReadMostlyHashMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    protected KTypeVTypeReadMostlyHashMap<KType, VType> map;
+
+    @Before
+    public void initialize() {
+
+        this.map = new KTypeVTypeReadMostlyHashMap<KType, VType>(0, HashContainers.MAX_LOAD_FACTOR);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.key1, this.value1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.put(this.keyE, this.value2));
+        TestUtils.assertEquals2(this.value1, this.map.put(this.key1, this.value3));
+
+        Assert.assertEquals(2, this.map.size());
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertTrue(this.map.containsKey(this.keyE));
+        Assert.assertFalse(this.map.containsKey(this.key2));
+
+        TestUtils.assertEquals2(this.value3, this.map.get(this.key1));
+        TestUtils.assertEquals2(this.value2, this.map.get(this.keyE));
+
+        Assert.assertFalse(this.map.putIfAbsent(this.key1, this.value4));
+        Assert.assertTrue(this.map.putIfAbsent(this.key2, this.value4));
+
+        TestUtils.assertEquals2(this.value3, this.map.remove(this.key1));
+        TestUtils.assertEquals2(this.map.getDefaultValue(), this.map.remove(this.key1));
+        Assert.assertFalse(this.map.containsKey(this.key1));
+
+        Assert.assertEquals(2, this.map.size());
+
+        this.map.clear();
+        Assert.assertTrue(this.map.isEmpty());
+        Assert.assertFalse(this.map.containsKey(this.keyE));
+    }
+
+    @Test
+    public void testDefaultValue()
+    {
+        this.map.setDefaultValue(this.value9);
+
+        TestUtils.assertEquals2(this.value9, this.map.get(this.key5));
+        TestUtils.assertEquals2(this.value9, this.map.get(this.keyE));
+        TestUtils.assertEquals2(this.value9, this.map.remove(this.key5));
+        TestUtils.assertEquals2(this.value9, this.map.put(this.key5, this.value1));
+    }
+
+    @Test
+    public void testForEachAndRemoveAll()
+    {
+        for (int i = 0; i < 100; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(100, this.map.size());
+
+        final int[] count = new int[1];
+
+        this.map.forEach(new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                Assert.assertEquals(castType(key), vcastType(value));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(100, count[0]);
+
+        final int removed = this.map.removeAll(new com.carrotsearch.hppcrt.predicates.KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                return castType(key) % 2 == 0;
+            }
+        });
+
+        Assert.assertEquals(50, removed);
+        Assert.assertEquals(50, this.map.size());
+
+        for (int i = 0; i < 100; i++) {
+
+            Assert.assertEquals(i % 2 != 0, this.map.containsKey(cast(i)));
+        }
+    }
+
+    /**
+     * Readers must never observe a value which was not associated to its key,
+     * while a writer keeps on inserting, removing and clearing.
+     */
+    @Test
+    public void testConcurrentReadersOneWriter() throws Exception
+    {
+        final int nbReaders = 3;
+        final int nbKeys = 100;
+        final int nbRounds = 200;
+
+        final AtomicBoolean writerDone = new AtomicBoolean(false);
+        final AtomicInteger errors = new AtomicInteger(0);
+
+        final Thread[] readers = new Thread[nbReaders];
+
+        for (int t = 0; t < nbReaders; t++) {
+
+            readers[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    final KTypeVTypeReadMostlyHashMap<KType, VType> map = KTypeVTypeReadMostlyHashMapTest.this.map;
+
+                    while (!writerDone.get()) {
+
+                        for (int i = 1; i <= nbKeys; i++) {
+
+                            map.containsKey(cast(i));
+
+                            final VType value = map.get(cast(i));
+
+                            //either absent (default value), or associated to its own key
+                            if (vcastType(value) != 0 && vcastType(value) != i) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+        }
+
+        for (final Thread reader : readers) {
+            reader.start();
+        }
+
+        try {
+
+            for (int round = 0; round < nbRounds; round++) {
+
+                for (int i = 1; i <= nbKeys; i++) {
+
+                    this.map.put(cast(i), vcast(i));
+                }
+
+                for (int i = 1; i <= nbKeys; i += 2) {
+
+                    this.map.remove(cast(i));
+                }
+
+                if (round % 10 == 0) {
+                    this.map.clear();
+                }
+            }
+        } finally {
+
+            writerDone.set(true);
+        }
+
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertEquals(0, errors.get());
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            Assert.assertEquals(i % 2 == 0, this.map.containsKey(cast(i)));
+        }
+    }
+
+    /**
+     * Readers must never observe a value which was never put for their key, while a writer keeps on
+     * filling new maps from their minimal capacity, i.e through many reallocations and rehashes.
+     */
+    @Test
+    public void testConcurrentReadersAcrossReallocations() throws Exception
+    {
+        final int nbReaders = 4;
+        final int nbKeys = 5000;
+        final int nbRounds = 100;
+
+        //the value put for key cast(i), as seen through vcastType()
+        final int[] expected = new int[nbKeys + 1];
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            expected[i] = vcastType(vcast(castType(cast(i))));
+        }
+
+        final AtomicReference<KTypeVTypeReadMostlyHashMap<KType, VType>> current = new AtomicReference<KTypeVTypeReadMostlyHashMap<KType, VType>>(
+                this.map);
+
+        final AtomicBoolean writerDone = new AtomicBoolean(false);
+        final AtomicInteger errors = new AtomicInteger(0);
+
+        final Thread[] readers = new Thread[nbReaders];
+
+        for (int t = 0; t < nbReaders; t++) {
+
+            readers[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    while (!writerDone.get()) {
+
+                        final KTypeVTypeReadMostlyHashMap<KType, VType> map = current.get();
+
+                        for (int i = 1; i <= nbKeys; i++) {
+
+                            final int value = vcastType(map.get(cast(i)));
+
+                            //either absent (default value), or the value put for this key
+                            if (value != 0 && value != expected[i]) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+        }
+
+        for (final Thread reader : readers) {
+            reader.start();
+        }
+
+        try {
+
+            for (int round = 0; round < nbRounds; round++) {
+
+                final KTypeVTypeReadMostlyHashMap<KType, VType> map = new KTypeVTypeReadMostlyHashMap<KType, VType>(0);
+                current.set(map);
+
+                for (int i = 1; i <= nbKeys; i++) {
+
+                    map.put(cast(i), vcast(castType(cast(i))));
+
+                    if (i % 3 == 0) {
+                        map.remove(cast(i / 3));
+                    }
+                }
+            }
+        } finally {
+
+            writerDone.set(true);
+        }
+
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertEquals(0, errors.get());
+    }
+}
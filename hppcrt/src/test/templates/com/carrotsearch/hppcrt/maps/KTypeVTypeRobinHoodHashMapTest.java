@@ -0,0 +1,232 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeRobinHoodHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeRobinHoodHashMapTest<KType, VType> extends AbstractKTypeVTypeHashMapTest<KType, VType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> createNewMapInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeRobinHoodHashMap<KType, VType>();
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeRobinHoodHashMap<KType, VType>(initialCapacity);
+        }
+
+        //generic case
+        return new KTypeVTypeRobinHoodHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeVTypeMap<KType, VType> testMap) {
+
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected VType[] getValues(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<VType[]> cast(concreteClass.values);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKey;
+
+    }
+
+    @Override
+    protected VType getAllocatedDefaultKeyValue(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKeyValue;
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getClone(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFrom(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return KTypeVTypeRobinHoodHashMap.from(concreteClass);
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFromArrays(final KType[] keys, final VType[] values) {
+
+        return KTypeVTypeRobinHoodHashMap.from(Intrinsics.<KType[]> cast(keys),
+                Intrinsics.<VType[]> cast(values));
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getCopyConstructor(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return new KTypeVTypeRobinHoodHashMap<KType, VType>(concreteClass);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getKeysPoolSize(final KTypeCollection<KType> keys) {
+
+        final KTypeVTypeHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.size();
+    }
+
+    @Override
+    protected int getValuesPoolSize(final KTypeCollection<VType> values) {
+        final KTypeVTypeHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getKeysPoolCapacity(final KTypeCollection<KType> keys) {
+        final KTypeVTypeHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getValuesPoolCapacity(final KTypeCollection<VType> values) {
+        final KTypeVTypeHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * The keys of a cluster must be ordered by ideal slot, i.e the probe distance can only grow by 1
+     * from a slot to the next one, and is 0 after an empty slot.
+     */
+    @After
+    public void checkRobinHoodOrdering() {
+
+        if (this.map != null) {
+
+            final KTypeVTypeRobinHoodHashMap<KType, VType> concreteClass = (KTypeVTypeRobinHoodHashMap<KType, VType>) (this.map);
+
+            final KType[] keys = Intrinsics.<KType[]> cast(concreteClass.keys);
+            final int mask = keys.length - 1;
+
+            for (int slot = 0; slot < keys.length; slot++) {
+
+                final int previous = (slot - 1) & mask;
+
+                if (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    final int dist = probeDistance(keys, slot, concreteClass.perturbation);
+
+                    if (Intrinsics.<KType> isEmpty(keys[previous])) {
+
+                        Assert.assertEquals(0, dist);
+                    } else {
+
+                        final int previousDist = probeDistance(keys, previous, concreteClass.perturbation);
+
+                        Assert.assertTrue("slot " + slot + ", " + dist + " > " + previousDist + " + 1", dist <= previousDist + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private int probeDistance(final KType[] keys, final int slot, final int perturbation) {
+
+        /*! #if ($TemplateOptions.KTypePrimitive)
+        return (slot - BitMixer.mix(keys[slot], perturbation)) & (keys.length - 1);
+        #else !*/
+        throw new UnsupportedOperationException();
+        /*! #end !*/
+    }
+
+    /**
+     * Random operations at the max load factor, checked against a regular KTypeVTypeHashMap, through several growths.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                final VType value = vcast(rnd.nextInt(100));
+
+                TestUtils.assertEquals2(reference.put(key, value), this.map.put(key, value));
+
+            } else if (op < 8) {
+
+                TestUtils.assertEquals2(reference.remove(key), this.map.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.containsKey(key), this.map.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), this.map.get(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        //check content
+        for (final KTypeVTypeCursor<KType, VType> c : reference) {
+
+            TestUtils.assertEquals2(c.value, this.map.get(c.key));
+        }
+    }
+}
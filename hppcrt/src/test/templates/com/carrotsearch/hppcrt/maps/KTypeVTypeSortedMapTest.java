@@ -0,0 +1,390 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeSortedMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeSortedMapTest<KType, VType> extends AbstractKTypeVTypeTest<KType, VType>
+{
+    /**
+     * Keys stay in [0; MAX_KEY[ to fit all the key types.
+     */
+    private static final int MAX_KEY = 120;
+
+    protected KTypeVTypeSortedMap<KType, VType> map;
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Before
+    public void initialize() {
+
+        this.map = KTypeVTypeSortedMap.newInstance();
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //keys are strictly increasing in iteration order
+        int count = 0;
+        int previous = -1;
+
+        for (final KTypeVTypeCursor<KType, VType> c : this.map) {
+
+            Assert.assertTrue(castType(c.key) > previous);
+            Assert.assertEquals(castType(c.key), castType(this.map.keys[c.index]));
+
+            previous = castType(c.key);
+            count++;
+        }
+
+        Assert.assertEquals(this.map.size(), count);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+
+        Assert.assertEquals(vcastType(this.map.getDefaultValue()), vcastType(this.map.put(this.key2, this.value2)));
+        this.map.put(this.key1, this.value1);
+        this.map.put(this.key3, this.value3);
+
+        Assert.assertEquals(3, this.map.size());
+        Assert.assertEquals(vcastType(this.value2), vcastType(this.map.put(this.key2, this.value4)));
+        Assert.assertEquals(vcastType(this.value4), vcastType(this.map.get(this.key2)));
+        Assert.assertTrue(this.map.containsKey(this.key1));
+        Assert.assertFalse(this.map.containsKey(this.key5));
+
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.remove(this.key1)));
+        Assert.assertFalse(this.map.containsKey(this.key1));
+        Assert.assertEquals(2, this.map.size());
+        Assert.assertEquals(2, castType(this.map.firstKey()));
+        Assert.assertEquals(3, castType(this.map.lastKey()));
+    }
+
+    @Test
+    public void testZeroKey() {
+
+        this.map.put(this.key0, this.value1);
+
+        Assert.assertTrue(this.map.containsKey(this.key0));
+        Assert.assertEquals(vcastType(this.value1), vcastType(this.map.get(this.key0)));
+        Assert.assertEquals(0, castType(this.map.firstKey()));
+    }
+
+    @Test
+    public void testFloorCeiling() {
+
+        for (int i = 10; i < KTypeVTypeSortedMapTest.MAX_KEY; i += 10) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(-1, this.map.floorIndex(cast(5)));
+        Assert.assertEquals(10, castType(this.map.keyAt(this.map.ceilingIndex(cast(5)))));
+
+        Assert.assertEquals(20, castType(this.map.keyAt(this.map.floorIndex(cast(20)))));
+        Assert.assertEquals(20, castType(this.map.keyAt(this.map.ceilingIndex(cast(20)))));
+
+        Assert.assertEquals(50, castType(this.map.keyAt(this.map.floorIndex(cast(55)))));
+        Assert.assertEquals(50, vcastType(this.map.valueAt(this.map.floorIndex(cast(55)))));
+        Assert.assertEquals(60, castType(this.map.keyAt(this.map.ceilingIndex(cast(55)))));
+
+        Assert.assertEquals(110, castType(this.map.keyAt(this.map.floorIndex(cast(115)))));
+        Assert.assertEquals(-1, this.map.ceilingIndex(cast(115)));
+    }
+
+    @Test
+    public void testFloorCeilingKey() {
+
+        Assert.assertEquals(0, castType(this.map.floorKey(cast(5))));
+        Assert.assertEquals(0, castType(this.map.ceilingKey(cast(5))));
+
+        for (int i = 10; i < KTypeVTypeSortedMapTest.MAX_KEY; i += 10) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(0, castType(this.map.floorKey(cast(5))));
+        Assert.assertEquals(10, castType(this.map.ceilingKey(cast(5))));
+        Assert.assertEquals(50, castType(this.map.floorKey(cast(55))));
+        Assert.assertEquals(60, castType(this.map.ceilingKey(cast(55))));
+        Assert.assertEquals(60, castType(this.map.floorKey(cast(60))));
+        Assert.assertEquals(0, castType(this.map.ceilingKey(cast(115))));
+    }
+
+    @Test
+    public void testRangeForEach() {
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i += 2) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        final KTypeArrayList<KType> range = new KTypeArrayList<KType>();
+
+        this.map.forEach(cast(15), cast(101), new KTypeVTypeProcedure<KType, VType>() {
+
+            @Override
+            public void apply(final KType key, final VType value) {
+
+                range.add(key);
+            }
+        });
+
+        Assert.assertEquals(43, range.size());
+        Assert.assertEquals(16, castType(range.get(0)));
+        Assert.assertEquals(100, castType(range.get(range.size() - 1)));
+
+        //upper bound excluded, and a predicate stops the scan
+        final int[] count = new int[] { 0 };
+
+        this.map.forEach(cast(16), cast(100), new KTypeVTypePredicate<KType, VType>() {
+
+            @Override
+            public boolean apply(final KType key, final VType value) {
+
+                count[0]++;
+                return castType(key) < 40;
+            }
+        });
+
+        Assert.assertEquals(13, count[0]);
+
+        //range iterator
+        int expected = 16;
+
+        for (final KTypeVTypeCursor<KType, VType> c : iterable(this.map.iterator(cast(15), cast(101)))) {
+
+            Assert.assertEquals(expected, castType(c.key));
+            Assert.assertEquals(expected, vcastType(c.value));
+            expected += 2;
+        }
+
+        Assert.assertEquals(102, expected);
+
+        //empty ranges
+        Assert.assertFalse(this.map.iterator(cast(50), cast(50)).hasNext());
+        Assert.assertFalse(this.map.iterator(cast(119), cast(127)).hasNext());
+    }
+
+    @Test
+    public void testRemoveAllPredicate() {
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        //empties whole leaves
+        Assert.assertEquals(90, this.map.removeAll(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                return castType(key) < 90;
+            }
+        }));
+
+        Assert.assertEquals(30, this.map.size());
+        Assert.assertEquals(90, castType(this.map.firstKey()));
+        Assert.assertEquals(-1, this.map.floorIndex(cast(89)));
+
+        for (int i = 0; i < 90; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        Assert.assertEquals(KTypeVTypeSortedMapTest.MAX_KEY, this.map.size());
+    }
+
+    @Test
+    public void testRemoveAllPredicateThrowing() {
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        try {
+
+            //removes the even keys below 70, then throws
+            this.map.removeAll(new KTypePredicate<KType>() {
+
+                @Override
+                public boolean apply(final KType key) {
+
+                    if (castType(key) == 70) {
+                        throw new RuntimeException();
+                    }
+
+                    return castType(key) % 2 == 0;
+                }
+            });
+
+            Assert.fail();
+
+        } catch (final RuntimeException e) {
+            //expected
+        }
+
+        Assert.assertEquals(KTypeVTypeSortedMapTest.MAX_KEY - 35, this.map.size());
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i++) {
+
+            Assert.assertEquals(i >= 70 || i % 2 == 1, this.map.containsKey(cast(i)));
+        }
+    }
+
+    @Test
+    public void testRemoveAllPacksLeaves() {
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        //leaves a few keys in each leaf
+        this.map.removeAll(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                return castType(key) % 10 != 0;
+            }
+        });
+
+        Assert.assertEquals(KTypeVTypeSortedMapTest.MAX_KEY / 10, this.map.size());
+
+        //the 12 remaining keys fit in a single leaf
+        Assert.assertEquals(this.map.firstLeaf, this.map.lastLeaf);
+        Assert.assertEquals(50, castType(this.map.floorKey(cast(55))));
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+
+        final Random rnd = new Random(0xCAFE);
+        final TreeMap<Integer, Integer> reference = new TreeMap<Integer, Integer>();
+
+        for (int round = 0; round < 20000; round++) {
+
+            final int key = rnd.nextInt(KTypeVTypeSortedMapTest.MAX_KEY);
+
+            if (rnd.nextInt(3) == 0) {
+
+                Assert.assertEquals(reference.remove(key) != null, this.map.containsKey(cast(key)));
+                this.map.remove(cast(key));
+
+            } else {
+
+                reference.put(key, round % 100);
+                this.map.put(cast(key), vcast(round % 100));
+            }
+
+            final Integer floor = reference.floorKey(key);
+            final int floorIndex = this.map.floorIndex(cast(key));
+
+            if (floor == null) {
+                Assert.assertEquals(-1, floorIndex);
+            } else {
+                Assert.assertEquals(floor.intValue(), castType(this.map.keyAt(floorIndex)));
+            }
+
+            final Integer ceiling = reference.ceilingKey(key);
+            final int ceilingIndex = this.map.ceilingIndex(cast(key));
+
+            if (ceiling == null) {
+                Assert.assertEquals(-1, ceilingIndex);
+            } else {
+                Assert.assertEquals(ceiling.intValue(), castType(this.map.keyAt(ceilingIndex)));
+            }
+        }
+
+        Assert.assertEquals(reference.size(), this.map.size());
+
+        final Iterator<Map.Entry<Integer, Integer>> expected = reference.entrySet().iterator();
+
+        for (final KTypeVTypeCursor<KType, VType> c : this.map) {
+
+            final Map.Entry<Integer, Integer> entry = expected.next();
+
+            Assert.assertEquals(entry.getKey().intValue(), castType(c.key));
+            Assert.assertEquals(entry.getValue().intValue(), vcastType(c.value));
+        }
+
+        Assert.assertFalse(expected.hasNext());
+    }
+
+    @Test
+    public void testCloneEquals() {
+
+        for (int i = KTypeVTypeSortedMapTest.MAX_KEY - 1; i >= 0; i--) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        final KTypeVTypeSortedMap<KType, VType> cloned = this.map.clone();
+
+        Assert.assertEquals(this.map, cloned);
+        Assert.assertEquals(this.map.hashCode(), cloned.hashCode());
+
+        cloned.remove(this.key1);
+
+        Assert.assertFalse(this.map.equals(cloned));
+    }
+
+    @Test
+    public void testKeysValuesViews() {
+
+        for (int i = 0; i < KTypeVTypeSortedMapTest.MAX_KEY; i++) {
+
+            this.map.put(cast(i), vcast(i));
+        }
+
+        int expected = 0;
+
+        for (final KTypeCursor<KType> c : this.map.keys()) {
+
+            Assert.assertEquals(expected++, castType(c.value));
+        }
+
+        expected = 0;
+
+        for (final KTypeCursor<VType> c : this.map.values()) {
+
+            Assert.assertEquals(expected++, vcastType(c.value));
+        }
+
+        Assert.assertTrue(this.map.keys().contains(cast(100)));
+        Assert.assertTrue(this.map.values().contains(vcast(100)));
+    }
+
+    private static <T> Iterable<T> iterable(final Iterator<T> iterator) {
+
+        return new Iterable<T>() {
+
+            @Override
+            public Iterator<T> iterator() {
+                return iterator;
+            }
+        };
+    }
+}
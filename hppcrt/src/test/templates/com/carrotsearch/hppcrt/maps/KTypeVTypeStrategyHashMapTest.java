@@ -0,0 +1,362 @@
+package com.carrotsearch.hppcrt.maps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.strategies.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeVTypeStrategyHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeStrategyHashMapTest<KType, VType> extends AbstractKTypeVTypeHashMapTest<KType, VType>
+{
+    /**
+     * The strategy of the maps of the generic tests.
+     */
+    protected final KTypeHashingStrategy<KType> strategy = new KTypePhiMixHashingStrategy<KType>();
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> createNewMapInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeStrategyHashMap<KType, VType>(this.strategy);
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeStrategyHashMap<KType, VType>(initialCapacity, this.strategy);
+        }
+
+        //generic case
+        return new KTypeVTypeStrategyHashMap<KType, VType>(initialCapacity, loadFactor, this.strategy);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeVTypeMap<KType, VType> testMap) {
+
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected VType[] getValues(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<VType[]> cast(concreteClass.values);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKey;
+
+    }
+
+    @Override
+    protected VType getAllocatedDefaultKeyValue(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKeyValue;
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getClone(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFrom(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return KTypeVTypeStrategyHashMap.from(concreteClass, this.strategy);
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFromArrays(final KType[] keys, final VType[] values) {
+
+        return KTypeVTypeStrategyHashMap.from(Intrinsics.<KType[]> cast(keys),
+                Intrinsics.<VType[]> cast(values), this.strategy);
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getCopyConstructor(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return new KTypeVTypeStrategyHashMap<KType, VType>(concreteClass, this.strategy);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getKeysPoolSize(final KTypeCollection<KType> keys) {
+
+        final KTypeVTypeHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.size();
+    }
+
+    @Override
+    protected int getValuesPoolSize(final KTypeCollection<VType> values) {
+        final KTypeVTypeHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getKeysPoolCapacity(final KTypeCollection<KType> keys) {
+        final KTypeVTypeHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getValuesPoolCapacity(final KTypeCollection<VType> values) {
+        final KTypeVTypeHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * Every key must be reachable from its ideal slot, as hashed by the strategy, without crossing an empty slot.
+     */
+    @After
+    public void checkStrategyLayout() {
+
+        if (this.map != null) {
+
+            final KTypeVTypeStrategyHashMap<KType, VType> concreteClass = (KTypeVTypeStrategyHashMap<KType, VType>) (this.map);
+
+            final KType[] keys = Intrinsics.<KType[]> cast(concreteClass.keys);
+            final int mask = keys.length - 1;
+
+            for (int slot = 0; slot < keys.length; slot++) {
+
+                if (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    for (int i = concreteClass.hashingStrategy.computeHashCode(keys[slot], concreteClass.perturbation) & mask; i != slot; i = (i + 1) & mask) {
+
+                        Assert.assertFalse("empty slot " + i + " before slot " + slot, Intrinsics.<KType> isEmpty(keys[i]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullStrategy() {
+
+        try {
+
+            new KTypeVTypeStrategyHashMap<KType, VType>(null);
+            Assert.fail();
+
+        } catch (final IllegalArgumentException e) {
+
+            //expected
+        }
+    }
+
+    @Test
+    public void testHashingStrategies() throws IOException
+    {
+        final int[] nbCalls = new int[1];
+
+        final KTypeHashingStrategy<KType> identity = new KTypeIdentityHashingStrategy<KType>();
+
+        //counting strategy, to check that it is actually used
+        final KTypeHashingStrategy<KType> counting = new KTypeHashingStrategy<KType>() {
+
+            @Override
+            public int computeHashCode(final KType key, final int seed) {
+
+                nbCalls[0]++;
+                return identity.computeHashCode(key, seed);
+            }
+        };
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int i = 1; i <= 3000; i++) {
+            reference.put(cast(i * 7), vcast(i));
+        }
+
+        reference.put(this.keyE, this.value1);
+
+        final java.util.List<KTypeHashingStrategy<KType>> strategies = new java.util.ArrayList<KTypeHashingStrategy<KType>>();
+        strategies.add(new KTypeBitMixerHashingStrategy<KType>());
+        strategies.add(new KTypePhiMixHashingStrategy<KType>());
+        strategies.add(identity);
+        strategies.add(counting);
+
+        for (final KTypeHashingStrategy<KType> strategy : strategies) {
+
+            final KTypeVTypeStrategyHashMap<KType, VType> testMap = new KTypeVTypeStrategyHashMap<KType, VType>(strategy);
+
+            Assert.assertSame(strategy, testMap.getHashingStrategy());
+
+            testMap.putAll(reference);
+            assertSameEntries(reference, testMap);
+
+            //the clone keeps the strategy
+            final KTypeVTypeStrategyHashMap<KType, VType> cloned = testMap.clone();
+            Assert.assertSame(strategy, cloned.getHashingStrategy());
+            Assert.assertEquals(testMap, cloned);
+
+            final KTypeVTypeHashMap<KType, VType> expected = reference.clone();
+
+            for (int i = 1; i <= 3000; i += 2) {
+                TestUtils.assertEquals2(expected.remove(cast(i * 7)), cloned.remove(cast(i * 7)));
+            }
+
+            assertSameEntries(expected, cloned);
+
+            /*! #if ($TemplateOptions.VTypePrimitive) !*/
+            //the strategy is not serialized: the read map is a plain one, still equal.
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            testMap.writeTo(new DataOutputStream(bytes), true);
+
+            final KTypeVTypeHashMap<KType, VType> read = KTypeVTypeHashMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            Assert.assertEquals(KTypeVTypeHashMap.class, read.getClass());
+            Assert.assertEquals(reference, read);
+            /*! #end !*/
+        }
+
+        Assert.assertTrue(nbCalls[0] > 0);
+    }
+
+    @Test
+    public void testGetAllContainsAll() {
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int i = 1; i <= 500; i++) {
+
+            reference.put(cast(i * 3), vcast(i));
+            this.map.put(cast(i * 3), vcast(i));
+        }
+
+        final KTypeVTypeStrategyHashMap<KType, VType> testMap = (KTypeVTypeStrategyHashMap<KType, VType>) (this.map);
+
+        final KType[] keys = Intrinsics.<KType> newArray(1000);
+
+        for (int i = 0; i < keys.length; i++) {
+
+            keys[i] = cast(i);
+        }
+
+        final VType[] values = testMap.getAll(keys, Intrinsics.<VType> newArray(keys.length));
+        final long[] bits = new long[(keys.length + 63) / 64];
+
+        int count = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+
+            TestUtils.assertEquals2(reference.get(keys[i]), values[i]);
+
+            if (reference.containsKey(keys[i])) {
+                count++;
+            }
+        }
+
+        Assert.assertEquals(count, testMap.containsAll(keys, bits));
+
+        for (int i = 0; i < keys.length; i++) {
+
+            Assert.assertEquals(reference.containsKey(keys[i]), (bits[i >> 6] & (1L << i)) != 0);
+        }
+    }
+
+    /**
+     * The maps of different classes are never equal, so compare their entries.
+     */
+    private void assertSameEntries(final KTypeVTypeHashMap<KType, VType> expected, final KTypeVTypeHashMap<KType, VType> actual) {
+
+        Assert.assertEquals(expected.size(), actual.size());
+
+        for (final KTypeVTypeCursor<KType, VType> c : expected) {
+
+            Assert.assertTrue(actual.containsKey(c.key));
+            TestUtils.assertEquals2(c.value, actual.get(c.key));
+        }
+    }
+
+    /**
+     * Random operations at the max load factor, checked against a regular KTypeVTypeHashMap, through several growths.
+     */
+    @Test
+    public void testAgainstHashMap()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeVTypeHashMap<KType, VType> reference = new KTypeVTypeHashMap<KType, VType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                final VType value = vcast(rnd.nextInt(100));
+
+                TestUtils.assertEquals2(reference.put(key, value), this.map.put(key, value));
+
+            } else if (op < 8) {
+
+                TestUtils.assertEquals2(reference.remove(key), this.map.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.containsKey(key), this.map.containsKey(key));
+                TestUtils.assertEquals2(reference.get(key), this.map.get(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.map.size());
+        }
+
+        //check content
+        for (final KTypeVTypeCursor<KType, VType> c : reference) {
+
+            TestUtils.assertEquals2(c.value, this.map.get(c.key));
+        }
+    }
+}
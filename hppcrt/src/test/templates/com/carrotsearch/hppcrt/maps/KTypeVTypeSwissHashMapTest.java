@@ -0,0 +1,189 @@
+package com.carrotsearch.hppcrt.maps;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeVTypeSwissHashMap}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeVTypeSwissHashMapTest<KType, VType> extends AbstractKTypeVTypeHashMapTest<KType, VType>
+{
+    @Override
+    protected KTypeVTypeMap<KType, VType> createNewMapInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeSwissHashMap<KType, VType>();
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeVTypeSwissHashMap<KType, VType>(initialCapacity);
+        }
+
+        //generic case
+        return new KTypeVTypeSwissHashMap<KType, VType>(initialCapacity, loadFactor);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeVTypeMap<KType, VType> testMap) {
+
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected VType[] getValues(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return Intrinsics.<VType[]> cast(concreteClass.values);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKey;
+
+    }
+
+    @Override
+    protected VType getAllocatedDefaultKeyValue(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return concreteClass.allocatedDefaultKeyValue;
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getClone(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFrom(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return KTypeVTypeSwissHashMap.from(concreteClass);
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getFromArrays(final KType[] keys, final VType[] values) {
+
+        return KTypeVTypeSwissHashMap.from(Intrinsics.<KType[]> cast(keys),
+                Intrinsics.<VType[]> cast(values));
+    }
+
+    @Override
+    protected KTypeVTypeMap<KType, VType> getCopyConstructor(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return new KTypeVTypeSwissHashMap<KType, VType>(concreteClass);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getKeysPoolSize(final KTypeCollection<KType> keys) {
+
+        final KTypeVTypeSwissHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeSwissHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.size();
+    }
+
+    @Override
+    protected int getValuesPoolSize(final KTypeCollection<VType> values) {
+        final KTypeVTypeSwissHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeSwissHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeVTypeMap<KType, VType> testMap) {
+        final KTypeVTypeSwissHashMap<KType, VType> concreteClass = (KTypeVTypeSwissHashMap<KType, VType>) (testMap);
+
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getKeysPoolCapacity(final KTypeCollection<KType> keys) {
+        final KTypeVTypeSwissHashMap<KType, VType>.KeysCollection concreteClass = (KTypeVTypeSwissHashMap<KType, VType>.KeysCollection) (keys);
+
+        return concreteClass.keyIteratorPool.capacity();
+    }
+
+    @Override
+    protected int getValuesPoolCapacity(final KTypeCollection<VType> values) {
+        final KTypeVTypeSwissHashMap<KType, VType>.ValuesCollection concreteClass = (KTypeVTypeSwissHashMap<KType, VType>.ValuesCollection) (values);
+
+        return concreteClass.valuesIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * Remove / put cycles must reuse tombstones or purge them by rehashing in place,
+     * without growing the buffers.
+     */
+    @Test
+    public void testTombstonesChurn()
+    {
+        final KTypeVTypeSwissHashMap<KType, VType> swissMap = new KTypeVTypeSwissHashMap<KType, VType>(64, HashContainers.MAX_LOAD_FACTOR);
+
+        final int initialBufferSize = swissMap.keys.length;
+
+        for (int round = 0; round < 100; round++) {
+
+            for (int i = 1; i <= 50; i++) {
+
+                swissMap.put(cast(round * 50 + i), vcast(i));
+            }
+
+            Assert.assertEquals(50, swissMap.size());
+
+            for (int i = 1; i <= 50; i++) {
+
+                TestUtils.assertEquals2(vcast(i), swissMap.remove(cast(round * 50 + i)));
+            }
+
+            Assert.assertEquals(0, swissMap.size());
+            Assert.assertTrue(swissMap.assigned + swissMap.deleted <= swissMap.capacity());
+        }
+
+        Assert.assertEquals(initialBufferSize, swissMap.keys.length);
+    }
+
+    /**
+     * Lookups must terminate and stay correct with a buffer filled up to the maximum load factor.
+     */
+    @Test
+    public void testMaxLoadFactor()
+    {
+        final KTypeVTypeSwissHashMap<KType, VType> swissMap = new KTypeVTypeSwissHashMap<KType, VType>(0, HashContainers.MAX_LOAD_FACTOR);
+
+        for (int i = 1; i <= 100; i++) {
+
+            swissMap.put(cast(i), vcast(i));
+
+            Assert.assertEquals(i, swissMap.size());
+        }
+
+        for (int i = 1; i <= 100; i++) {
+
+            Assert.assertTrue(swissMap.containsKey(cast(i)));
+            TestUtils.assertEquals2(vcast(i), swissMap.get(cast(i)));
+            Assert.assertFalse(swissMap.containsKey(cast(i + 100)));
+        }
+    }
+}
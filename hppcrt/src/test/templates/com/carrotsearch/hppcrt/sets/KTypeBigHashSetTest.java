@@ -0,0 +1,129 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeBigHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeBigHashSetTest<KType> extends AbstractKTypeTest<KType>
+{
+    protected KTypeBigHashSet<KType> set;
+
+    @Before
+    public void initialize() {
+
+        //small pages, so that buffers are made of many of them
+        this.set = new KTypeBigHashSet<KType>(0, HashContainers.DEFAULT_LOAD_FACTOR, 8);
+    }
+
+    @Test
+    public void testAddContainsRemove()
+    {
+        Assert.assertTrue(this.set.add(this.key1));
+        Assert.assertTrue(this.set.add(this.keyE));
+        Assert.assertFalse(this.set.add(this.key1));
+        Assert.assertFalse(this.set.add(this.keyE));
+
+        Assert.assertEquals(2L, this.set.size());
+        Assert.assertTrue(this.set.contains(this.key1));
+        Assert.assertTrue(this.set.contains(this.keyE));
+        Assert.assertFalse(this.set.contains(this.key2));
+
+        Assert.assertTrue(this.set.remove(this.key1));
+        Assert.assertFalse(this.set.remove(this.key1));
+        Assert.assertTrue(this.set.remove(this.keyE));
+
+        Assert.assertTrue(this.set.isEmpty());
+    }
+
+    @Test
+    public void testGrowthAcrossPages()
+    {
+        final long initialCapacity = this.set.capacity();
+
+        for (int i = 1; i <= 100; i++) {
+
+            this.set.add(cast(i));
+        }
+
+        Assert.assertEquals(100L, this.set.size());
+        Assert.assertTrue(this.set.capacity() > initialCapacity);
+        Assert.assertTrue(this.set.keys.length > 1);
+
+        final long removed = this.set.removeAll(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                return castType(key) % 2 == 0;
+            }
+        });
+
+        Assert.assertEquals(50L, removed);
+
+        for (int i = 1; i <= 100; i++) {
+
+            Assert.assertEquals(i % 2 != 0, this.set.contains(cast(i)));
+        }
+
+        this.set.clear();
+        Assert.assertTrue(this.set.isEmpty());
+        Assert.assertFalse(this.set.contains(cast(1)));
+    }
+
+    /**
+     * Random operations, checked against a regular KTypeHashSet.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int round = 0; round < 20000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 10 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                Assert.assertEquals(reference.add(key), this.set.add(key));
+
+            } else if (op < 8) {
+
+                Assert.assertEquals(reference.remove(key), this.set.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.contains(key), this.set.contains(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.set.size());
+        }
+
+        //check content
+        final int[] count = new int[1];
+
+        this.set.forEach(new KTypeProcedure<KType>() {
+
+            @Override
+            public void apply(final KType key) {
+
+                Assert.assertTrue(reference.contains(key));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+}
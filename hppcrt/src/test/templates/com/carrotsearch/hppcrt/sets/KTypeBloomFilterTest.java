@@ -0,0 +1,120 @@
+package com.carrotsearch.hppcrt.sets;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeBloomFilter}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeBloomFilterTest<KType> extends AbstractKTypeTest<KType>
+{
+    protected KTypeBloomFilter<KType> filter;
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Before
+    public void initialize() {
+
+        this.filter = new KTypeBloomFilter<KType>(50, 0.01);
+    }
+
+    @Test
+    public void testNoFalseNegatives() {
+
+        Assert.assertTrue(this.filter.isEmpty());
+
+        //odd keys in, even keys out
+        for (int i = 1; i < 100; i += 2) {
+
+            this.filter.add(cast(i));
+        }
+
+        int falsePositives = 0;
+
+        for (int i = 0; i < 100; i++) {
+
+            if (i % 2 == 1) {
+
+                Assert.assertTrue(this.filter.mightContain(cast(i)));
+
+            } else if (this.filter.mightContain(cast(i))) {
+
+                falsePositives++;
+            }
+        }
+
+        //1% expected
+        Assert.assertTrue("falsePositives = " + falsePositives, falsePositives <= 5);
+        Assert.assertTrue(this.filter.expectedFalsePositiveRate() < 0.05);
+    }
+
+    @Test
+    public void testAdd() {
+
+        Assert.assertTrue(this.filter.add(this.key1));
+        Assert.assertFalse(this.filter.add(this.key1));
+
+        final KTypeArrayList<KType> list = KTypeArrayList.from(this.key1, this.key2, this.key3, this.key2);
+
+        Assert.assertEquals(2, this.filter.addAll(list));
+        Assert.assertTrue(this.filter.mightContain(this.key3));
+    }
+
+    @Test
+    public void testApproximateSize() {
+
+        for (int i = 0; i < 100; i++) {
+
+            this.filter.add(cast(i));
+            this.filter.add(cast(i));
+        }
+
+        Assert.assertEquals(100.0, this.filter.approximateSize(), 15.0);
+        Assert.assertEquals(this.filter.cardinality(), BitUtil.pop_array(this.filter.bits, 0, this.filter.bits.length));
+    }
+
+    @Test
+    public void testUnionCloneClear() {
+
+        final KTypeBloomFilter<KType> other = new KTypeBloomFilter<KType>(this.filter.numBits(), this.filter.numHashFunctions(),
+                this.filter.seed());
+
+        this.filter.add(this.key1);
+        other.add(this.key2);
+
+        final KTypeBloomFilter<KType> cloned = this.filter.clone();
+
+        Assert.assertEquals(this.filter, cloned);
+        Assert.assertEquals(this.filter.hashCode(), cloned.hashCode());
+
+        cloned.union(other);
+
+        Assert.assertTrue(cloned.mightContain(this.key1));
+        Assert.assertTrue(cloned.mightContain(this.key2));
+        Assert.assertFalse(this.filter.equals(cloned));
+
+        try {
+
+            cloned.union(new KTypeBloomFilter<KType>(this.filter.numBits(), this.filter.numHashFunctions(), this.filter.seed() + 1));
+            Assert.fail();
+
+        } catch (final IllegalArgumentException e) {
+            //expected
+        }
+
+        cloned.clear();
+
+        Assert.assertTrue(cloned.isEmpty());
+        Assert.assertEquals(0, cloned.cardinality());
+        Assert.assertFalse(cloned.mightContain(this.key1));
+    }
+}
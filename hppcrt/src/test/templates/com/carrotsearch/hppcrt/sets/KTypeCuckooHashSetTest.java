@@ -0,0 +1,237 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeCuckooHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeCuckooHashSetTest<KType> extends AbstractKTypeTest<KType>
+{
+    protected KTypeCuckooHashSet<KType> set;
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Before
+    public void initialize() {
+
+        this.set = new KTypeCuckooHashSet<KType>(0);
+    }
+
+    @After
+    public void checkConsistency() {
+
+        //the keys of a bucket are packed at its start
+        final KType[] keys = Intrinsics.<KType[]> cast(this.set.keys);
+
+        int assigned = 0;
+
+        for (int bucket = 0; bucket < keys.length; bucket += KTypeCuckooHashSet.BUCKET_SIZE) {
+
+            boolean empty = false;
+
+            for (int slot = bucket; slot < bucket + KTypeCuckooHashSet.BUCKET_SIZE; slot++) {
+
+                if (Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    empty = true;
+
+                } else {
+
+                    Assert.assertFalse("Hole in bucket at slot " + slot, empty);
+                    assigned++;
+                }
+            }
+        }
+
+        Assert.assertEquals(this.set.assigned, assigned);
+    }
+
+    @Test
+    public void testAddContainsRemove()
+    {
+        Assert.assertTrue(this.set.add(this.key1));
+        Assert.assertTrue(this.set.add(this.keyE));
+        Assert.assertFalse(this.set.add(this.key1));
+
+        Assert.assertEquals(2, this.set.size());
+        Assert.assertTrue(this.set.contains(this.key1));
+        Assert.assertTrue(this.set.contains(this.keyE));
+        Assert.assertFalse(this.set.contains(this.key2));
+
+        Assert.assertTrue(this.set.remove(this.key1));
+        Assert.assertFalse(this.set.remove(this.key1));
+        Assert.assertTrue(this.set.remove(this.keyE));
+
+        Assert.assertTrue(this.set.isEmpty());
+
+        this.set.add(this.key2);
+        this.set.clear();
+        Assert.assertTrue(this.set.isEmpty());
+        Assert.assertFalse(this.set.contains(this.key2));
+    }
+
+    /**
+     * Random operations, checked against a regular KTypeHashSet, through several growths.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                Assert.assertEquals(reference.add(key), this.set.add(key));
+
+            } else if (op < 8) {
+
+                Assert.assertEquals(reference.remove(key), this.set.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.contains(key), this.set.contains(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.set.size());
+        }
+
+        Assert.assertTrue(this.set.capacity() > Containers.DEFAULT_EXPECTED_ELEMENTS);
+
+        //check content
+        final int[] count = new int[1];
+
+        this.set.forEach(new KTypeProcedure<KType>() {
+
+            @Override
+            public void apply(final KType key) {
+
+                Assert.assertTrue(reference.contains(key));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+
+    /**
+     * Keys only differing by their high bits, the usual bad case of linear probing.
+     */
+    @Test
+    public void testHighBitsKeys()
+    {
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int i = 0; i < 50000; i++) {
+
+            final KType key = cast(i << 12);
+
+            Assert.assertEquals(reference.add(key), this.set.add(key));
+        }
+
+        Assert.assertEquals(reference.size(), this.set.size());
+
+        for (int i = 0; i < 50000; i++) {
+
+            Assert.assertTrue(this.set.contains(cast(i << 12)));
+            Assert.assertEquals(reference.contains(cast(i)), this.set.contains(cast(i)));
+        }
+    }
+
+    /**
+     * A full buffer, at the max load factor, must still hold all its keys.
+     */
+    @Test
+    public void testFullBuffer()
+    {
+        this.set = new KTypeCuckooHashSet<KType>(1000, HashContainers.MAX_LOAD_FACTOR);
+
+        final int capacity = this.set.capacity();
+        final int length = this.set.keys.length;
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        final Random rnd = new Random(0x55667788L);
+
+        //bounded, there may be less distinct keys than capacity for small KTypes
+        for (int i = 0; i < 10 * capacity && reference.size() < capacity; i++) {
+
+            final KType key = cast(rnd.nextInt());
+
+            if (!Intrinsics.<KType> isEmpty(key) && reference.add(key)) {
+
+                Assert.assertTrue(this.set.add(key));
+            }
+        }
+
+        Assert.assertEquals(length, this.set.keys.length);
+        Assert.assertEquals(reference.size(), this.set.size());
+
+        for (final KTypeCursor<KType> c : reference) {
+
+            Assert.assertTrue(this.set.contains(c.value));
+        }
+    }
+
+    @Test
+    public void testRemoveAll()
+    {
+        for (int i = 0; i < 1000; i++) {
+
+            this.set.add(cast(i));
+        }
+
+        final int removed = this.set.removeAll(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                return castType(key) % 3 == 0;
+            }
+        });
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int i = 0; i < 1000; i++) {
+
+            reference.add(cast(i));
+        }
+
+        final int referenceRemoved = reference.removeAll(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                return castType(key) % 3 == 0;
+            }
+        });
+
+        Assert.assertEquals(referenceRemoved, removed);
+        Assert.assertEquals(reference.size(), this.set.size());
+
+        for (final KTypeCursor<KType> c : reference) {
+
+            Assert.assertTrue(this.set.contains(c.value));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeFrozenHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeFrozenHashSetTest<KType> extends AbstractKTypeTest<KType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        final KTypeHashSet<KType> set = new KTypeHashSet<KType>();
+
+        set.add(this.key1);
+        set.add(this.key2);
+        set.add(this.keyE);
+
+        final KTypeFrozenHashSet<KType> frozen = set.freeze();
+
+        Assert.assertEquals(3, frozen.size());
+        Assert.assertEquals(2, frozen.keys.length);
+        Assert.assertTrue(frozen.contains(this.key1));
+        Assert.assertTrue(frozen.contains(this.key2));
+        Assert.assertTrue(frozen.contains(this.keyE));
+        Assert.assertFalse(frozen.contains(this.key3));
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final KTypeFrozenHashSet<KType> frozen = new KTypeHashSet<KType>().freeze();
+
+        Assert.assertTrue(frozen.isEmpty());
+        Assert.assertFalse(frozen.contains(this.key1));
+        Assert.assertFalse(frozen.contains(this.keyE));
+        Assert.assertEquals("[]", frozen.toString());
+    }
+
+    @Test
+    public void testFromListWithDuplicates()
+    {
+        final KTypeArrayList<KType> list = KTypeArrayList.from(this.key1, this.key2, this.key1, this.keyE, this.key2, this.keyE);
+
+        final KTypeFrozenHashSet<KType> frozen = KTypeFrozenHashSet.from(list);
+
+        Assert.assertEquals(3, frozen.size());
+        Assert.assertTrue(frozen.contains(this.key1));
+        Assert.assertTrue(frozen.contains(this.key2));
+        Assert.assertTrue(frozen.contains(this.keyE));
+        Assert.assertFalse(frozen.contains(this.key3));
+    }
+
+    /**
+     * Random contents, checked against the source set.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        for (final int size : new int[] { 1, 2, 5, 100, 5000, 100000 }) {
+
+            final KTypeHashSet<KType> set = new KTypeHashSet<KType>();
+
+            for (int i = 0; i < size; i++) {
+
+                set.add(cast(rnd.nextInt(4 * size)));
+            }
+
+            final KTypeFrozenHashSet<KType> frozen = KTypeFrozenHashSet.from(set);
+
+            Assert.assertEquals(set.size(), frozen.size());
+            Assert.assertEquals(Math.max(1, set.size() - (set.contains(this.keyE) ? 1 : 0)), frozen.keys.length);
+
+            for (int i = 0; i < 2 * size; i++) {
+
+                final KType key = cast(rnd.nextInt(4 * size));
+
+                Assert.assertEquals(set.contains(key), frozen.contains(key));
+            }
+
+            final int[] count = new int[1];
+
+            frozen.forEach(new KTypeProcedure<KType>() {
+
+                @Override
+                public void apply(final KType key) {
+
+                    Assert.assertTrue(set.contains(key));
+                    count[0]++;
+                }
+            });
+
+            Assert.assertEquals(set.size(), count[0]);
+        }
+    }
+}
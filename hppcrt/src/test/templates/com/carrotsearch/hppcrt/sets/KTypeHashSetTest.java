@@ -1,8 +1,16 @@
 package com.carrotsearch.hppcrt.sets;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
 import org.junit.*;
 
 import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
 
 import com.carrotsearch.hppcrt.TestUtils;
 
@@ -121,4 +129,250 @@ public class KTypeHashSetTest<KType> extends AbstractKTypeHashSetTest<KType>
         Assert.assertEquals(1, testSet.add(this.keyE, this.key1));
         Assert.assertEquals(3, testSet.size());
     }
+
+    @Test
+    public void testContainsAllBatch() {
+        final KTypeHashSet<KType> testSet = new KTypeHashSet<KType>();
+
+        //enough keys for several batches, with conflicts
+        for (int i = 1; i < 100; i += 3) {
+            testSet.add(cast(i));
+        }
+
+        final KType[] queries = Intrinsics.<KType> newArray(120);
+
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = cast(i);
+        }
+
+        queries[7] = this.keyE;
+
+        //stale bits must be overwritten
+        final long[] bits = new long[] { -1L, -1L };
+
+        int expectedCount = 0;
+
+        final int count = testSet.containsAll(queries, bits);
+
+        for (int i = 0; i < queries.length; i++) {
+
+            final boolean expected = testSet.contains(queries[i]);
+
+            Assert.assertEquals(expected, (bits[i >> 6] & (1L << i)) != 0);
+
+            if (expected) {
+                expectedCount++;
+            }
+        }
+
+        Assert.assertEquals(expectedCount, count);
+
+        //the empty key
+        Assert.assertFalse((bits[0] & (1L << 7)) != 0);
+        testSet.add(this.keyE);
+        testSet.containsAll(queries, bits);
+        Assert.assertTrue((bits[0] & (1L << 7)) != 0);
+    }
+
+    @Test
+    public void testSetAlgebra() {
+
+        final KTypeHashSet<KType> testSet = new KTypeHashSet<KType>();
+        //same layout
+        final KTypeHashSet<KType> sameLayout = KTypeHashSet.newInstanceLike(testSet);
+        //different perturbation
+        final KTypeHashSet<KType> other = new KTypeHashSet<KType>();
+
+        //testSet = [1; 99], operands = {4, 7, ... 100} + keyE
+        for (int i = 1; i < 100; i++) {
+
+            testSet.add(cast(i));
+
+            if (i % 3 == 0) {
+                sameLayout.add(cast(i + 1));
+                other.add(cast(i + 1));
+            }
+        }
+
+        sameLayout.add(this.keyE);
+        other.add(this.keyE);
+
+        Assert.assertEquals(32, testSet.intersectionSize(sameLayout));
+        Assert.assertEquals(32, testSet.intersectionSize(other));
+        Assert.assertEquals(32, other.intersectionSize(testSet));
+        Assert.assertEquals(34, other.intersectionSize(sameLayout));
+        Assert.assertEquals(99, testSet.intersectionSize(testSet));
+
+        for (final KTypeHashSet<KType> operand : Arrays.asList(sameLayout, other)) {
+
+            KTypeHashSet<KType> result = testSet.clone();
+            Assert.assertEquals(2, result.addAll((KTypeContainer<KType>) operand));
+            Assert.assertEquals(101, result.size());
+            Assert.assertTrue(result.contains(this.keyE));
+            Assert.assertTrue(result.contains(cast(100)));
+
+            result = testSet.clone();
+            Assert.assertEquals(32, result.removeAll((KTypeLookupContainer<KType>) operand));
+            Assert.assertEquals(67, result.size());
+            Assert.assertEquals(0, result.intersectionSize(operand));
+
+            result = testSet.clone();
+            Assert.assertEquals(67, result.retainAll((KTypeLookupContainer<KType>) operand));
+            Assert.assertEquals(32, result.size());
+            Assert.assertEquals(32, result.intersectionSize(operand));
+        }
+
+        Assert.assertEquals(99, testSet.removeAll(testSet));
+        Assert.assertTrue(testSet.isEmpty());
+    }
+
+    @Test
+    public void testStats()
+    {
+        final KTypeHashSet<KType> testSet = new KTypeHashSet<KType>();
+
+        final int initialBufferSize = testSet.keys.length;
+
+        HashStats stats = testSet.stats();
+
+        Assert.assertEquals(0, stats.size);
+        Assert.assertEquals(initialBufferSize, stats.bufferSize);
+        Assert.assertEquals(0, stats.resizeCount);
+        Assert.assertEquals(0, stats.clusterCount);
+        Assert.assertEquals(0, stats.maxProbeLength);
+        Assert.assertEquals(0.0, stats.meanProbeLength, 0.0);
+
+        for (int i = 1; i <= 2000; i++) {
+            testSet.add(cast(i * 3));
+        }
+
+        testSet.add(this.keyE);
+
+        stats = testSet.stats();
+
+        Assert.assertEquals(testSet.size(), stats.size);
+        Assert.assertEquals(testSet.keys.length, stats.bufferSize);
+        Assert.assertEquals(testSet.keys.length, initialBufferSize << stats.resizeCount);
+        Assert.assertTrue(stats.resizeCount > 0);
+        Assert.assertEquals((testSet.size() - 1) / (double) testSet.keys.length, stats.effectiveLoadFactor, 1e-9);
+
+        //the clusters, checked against a plain scan of the buffer
+        final int[] histogram = new int[HashStats.HISTOGRAM_LENGTH];
+        final KType[] keys = Intrinsics.<KType[]> cast(testSet.keys);
+
+        int firstEmpty = 0;
+
+        while (!Intrinsics.<KType> isEmpty(keys[firstEmpty])) {
+            firstEmpty++;
+        }
+
+        int clusterSize = 0;
+        int maxClusterSize = 0;
+
+        for (int i = 1; i <= keys.length; i++) {
+
+            if (!Intrinsics.<KType> isEmpty(keys[(firstEmpty + i) % keys.length])) {
+
+                clusterSize++;
+
+            } else if (clusterSize > 0) {
+
+                histogram[HashStats.histogramBucket(clusterSize)]++;
+                maxClusterSize = Math.max(maxClusterSize, clusterSize);
+                clusterSize = 0;
+            }
+        }
+
+        Assert.assertArrayEquals(histogram, stats.clusterSizeHistogram);
+        Assert.assertEquals(maxClusterSize, stats.maxClusterSize);
+
+        //a key is probed inside its cluster
+        Assert.assertTrue(stats.meanProbeLength >= 1.0);
+        Assert.assertTrue(stats.maxProbeLength >= 1);
+        Assert.assertTrue(stats.maxProbeLength <= stats.maxClusterSize);
+
+        //no resize on clear()
+        testSet.clear();
+        Assert.assertEquals(stats.resizeCount, testSet.stats().resizeCount);
+        Assert.assertEquals(0, testSet.stats().clusterCount);
+    }
+
+    /*! #if ($TemplateOptions.KTypePrimitive) !*/
+    @Test
+    public void testWriteToReadFrom() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        final KTypeHashSet<KType> testSet = new KTypeHashSet<KType>();
+
+        //several chunks
+        for (int i = 1; i <= 3000; i++) {
+            testSet.add(cast(i * 7));
+        }
+
+        testSet.add(this.keyE);
+
+        for (final boolean asIs : new boolean[] { false, true }) {
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            testSet.writeTo(new DataOutputStream(bytes), asIs);
+
+            final KTypeHashSet<KType> read = KTypeHashSet.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            Assert.assertEquals(testSet, read);
+            Assert.assertTrue(read.contains(this.keyE));
+
+            if (asIs) {
+                //same table
+                Assert.assertTrue(java.util.Arrays.equals(Intrinsics.<KType[]> cast(testSet.keys), Intrinsics.<KType[]> cast(read.keys)));
+            }
+
+            //still working as a set
+            for (final KTypeCursor<KType> cursor : testSet) {
+                Assert.assertTrue(read.remove(cursor.value));
+                Assert.assertFalse(read.contains(cursor.value));
+            }
+
+            Assert.assertTrue(read.isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadFromCorruptedHeader() throws IOException
+    {
+        assumeKTypePrimitive();
+
+        //load factor out of range
+        assertReadFromFails(true, 2.0, 0, 16);
+        //not a power of two
+        assertReadFromFails(true, 0.75, 0, 12);
+        //no empty slot left
+        assertReadFromFails(true, 0.75, 16, 16);
+        //negative size
+        assertReadFromFails(false, 0.75, -1, 0);
+    }
+
+    private void assertReadFromFails(final boolean asIs, final double loadFactor, final int assigned, final int length) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeBoolean(asIs);
+        out.writeDouble(loadFactor);
+        out.writeBoolean(false);
+        out.writeInt(assigned);
+
+        if (asIs) {
+            out.writeInt(0);
+            out.writeInt(length);
+        }
+
+        try {
+            KTypeHashSet.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.fail();
+        } catch (final IOException e) {
+            //expected
+        }
+    }
+    /*! #end !*/
 }
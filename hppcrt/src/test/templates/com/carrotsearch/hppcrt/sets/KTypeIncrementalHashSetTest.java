@@ -0,0 +1,165 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.predicates.*;
+import com.carrotsearch.hppcrt.procedures.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/**
+ * Tests for {@link KTypeIncrementalHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeIncrementalHashSetTest<KType> extends AbstractKTypeTest<KType>
+{
+    protected KTypeIncrementalHashSet<KType> set;
+
+    @Before
+    public void initialize() {
+
+        this.set = new KTypeIncrementalHashSet<KType>(0);
+    }
+
+    @Test
+    public void testAddContainsRemove()
+    {
+        Assert.assertTrue(this.set.add(this.key1));
+        Assert.assertTrue(this.set.add(this.keyE));
+        Assert.assertFalse(this.set.add(this.key1));
+
+        Assert.assertEquals(2, this.set.size());
+        Assert.assertTrue(this.set.contains(this.key1));
+        Assert.assertTrue(this.set.contains(this.keyE));
+        Assert.assertFalse(this.set.contains(this.key2));
+
+        Assert.assertTrue(this.set.remove(this.key1));
+        Assert.assertFalse(this.set.remove(this.key1));
+
+        Assert.assertEquals(1, this.set.size());
+
+        this.set.clear();
+        Assert.assertTrue(this.set.isEmpty());
+    }
+
+    /**
+     * Random operations, checked against a regular KTypeHashSet, through several migrations.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        boolean migrated = false;
+
+        for (int round = 0; round < 20000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 10 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                Assert.assertEquals(reference.add(key), this.set.add(key));
+
+            } else if (op < 8) {
+
+                Assert.assertEquals(reference.remove(key), this.set.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.contains(key), this.set.contains(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.set.size());
+
+            migrated |= this.set.isMigrating();
+        }
+
+        Assert.assertTrue(migrated);
+
+        //check content
+        final int[] count = new int[1];
+
+        this.set.forEach(new KTypeProcedure<KType>() {
+
+            @Override
+            public void apply(final KType key) {
+
+                Assert.assertTrue(reference.contains(key));
+                count[0]++;
+            }
+        });
+
+        Assert.assertEquals(reference.size(), count[0]);
+    }
+
+    /**
+     * The current set must never grow by itself: only by migration.
+     */
+    @Test
+    public void testMigrationCompletesBeforeFull()
+    {
+        for (int i = 1; i <= 10000; i++) {
+
+            this.set.add(cast(i));
+
+            Assert.assertTrue(this.set.current.size() <= this.set.current.capacity());
+        }
+
+        //only the modifications migrate
+        while (this.set.isMigrating()) {
+
+            this.set.add(cast(1));
+        }
+
+        Assert.assertEquals(this.set.size(), this.set.current.size());
+    }
+
+    /**
+     * Lookups never modify the set, even during a migration.
+     */
+    @Test
+    public void testLookupsDoNotMigrate()
+    {
+        int nbKeys = 0;
+
+        while (!this.set.isMigrating()) {
+
+            nbKeys++;
+            this.set.add(cast(nbKeys));
+        }
+
+        final int oldSize = this.set.old.size();
+        final int currentSize = this.set.current.size();
+
+        for (int i = 1; i <= nbKeys; i++) {
+
+            Assert.assertTrue(this.set.contains(cast(i)));
+        }
+
+        Assert.assertFalse(this.set.contains(cast(nbKeys + 1)));
+
+        final int[] count = new int[1];
+
+        this.set.forEach(new KTypePredicate<KType>() {
+
+            @Override
+            public boolean apply(final KType key) {
+
+                count[0]++;
+                return true;
+            }
+        });
+
+        Assert.assertEquals(nbKeys, count[0]);
+
+        Assert.assertTrue(this.set.isMigrating());
+        Assert.assertEquals(oldSize, this.set.old.size());
+        Assert.assertEquals(currentSize, this.set.current.size());
+    }
+}
@@ -0,0 +1,194 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.hash.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Unit tests for {@link KTypeRobinHoodHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeRobinHoodHashSetTest<KType> extends AbstractKTypeHashSetTest<KType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Override
+    protected KTypeSet<KType> createNewSetInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeRobinHoodHashSet<KType>();
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeRobinHoodHashSet<KType>(initialCapacity);
+        }
+
+        //generic case
+        return new KTypeRobinHoodHashSet<KType>(initialCapacity, loadFactor);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+        return concreteClass.allocatedDefaultKey;
+    }
+
+    @Override
+    protected KTypeSet<KType> getClone(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeSet<KType> getFrom(final KTypeContainer<KType> container) {
+
+        return KTypeRobinHoodHashSet.from(container);
+    }
+
+    @Override
+    protected KTypeSet<KType> getFrom(final KType... elements) {
+
+        return KTypeRobinHoodHashSet.from(elements);
+    }
+
+    @Override
+    protected KTypeSet<KType> getFromArray(final KType[] keys) {
+
+        return KTypeRobinHoodHashSet.from(keys);
+    }
+
+    @Override
+    protected void addFromArray(final KTypeSet<KType> testSet, final KType... keys) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+
+        for (final KType key : keys) {
+
+            concreteClass.add(key);
+        }
+    }
+
+    @Override
+    protected KTypeSet<KType> getCopyConstructor(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+
+        return new KTypeRobinHoodHashSet<KType>(concreteClass);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeSet<KType> testSet) {
+        final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (testSet);
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * The keys of a cluster must be ordered by ideal slot, i.e the probe distance can only grow by 1
+     * from a slot to the next one, and is 0 after an empty slot.
+     */
+    @After
+    public void checkRobinHoodOrdering() {
+
+        if (this.set != null) {
+
+            final KTypeRobinHoodHashSet<KType> concreteClass = (KTypeRobinHoodHashSet<KType>) (this.set);
+
+            final KType[] keys = Intrinsics.<KType[]> cast(concreteClass.keys);
+            final int mask = keys.length - 1;
+
+            for (int slot = 0; slot < keys.length; slot++) {
+
+                final int previous = (slot - 1) & mask;
+
+                if (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    final int dist = probeDistance(keys, slot, concreteClass.perturbation);
+
+                    if (Intrinsics.<KType> isEmpty(keys[previous])) {
+
+                        Assert.assertEquals(0, dist);
+                    } else {
+
+                        final int previousDist = probeDistance(keys, previous, concreteClass.perturbation);
+
+                        Assert.assertTrue("slot " + slot + ", " + dist + " > " + previousDist + " + 1", dist <= previousDist + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private int probeDistance(final KType[] keys, final int slot, final int perturbation) {
+
+        /*! #if ($TemplateOptions.KTypePrimitive)
+        return (slot - BitMixer.mix(keys[slot], perturbation)) & (keys.length - 1);
+        #else !*/
+        throw new UnsupportedOperationException();
+        /*! #end !*/
+    }
+
+    /**
+     * Random operations at the max load factor, checked against a regular KTypeHashSet, through several growths.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                Assert.assertEquals(reference.add(key), this.set.add(key));
+
+            } else if (op < 8) {
+
+                Assert.assertEquals(reference.remove(key), this.set.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.contains(key), this.set.contains(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.set.size());
+        }
+
+        //check content
+        for (final KTypeCursor<KType> c : reference) {
+
+            Assert.assertTrue(this.set.contains(c.value));
+        }
+    }
+}
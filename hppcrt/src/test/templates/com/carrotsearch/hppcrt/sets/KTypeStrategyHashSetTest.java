@@ -0,0 +1,319 @@
+package com.carrotsearch.hppcrt.sets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.cursors.*;
+import com.carrotsearch.hppcrt.strategies.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Unit tests for {@link KTypeStrategyHashSet}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeStrategyHashSetTest<KType> extends AbstractKTypeHashSetTest<KType>
+{
+    /**
+     * The strategy of the sets of the generic tests.
+     */
+    protected final KTypeHashingStrategy<KType> strategy = new KTypePhiMixHashingStrategy<KType>();
+
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Override
+    protected KTypeSet<KType> createNewSetInstance(final int initialCapacity, final double loadFactor) {
+
+        if (initialCapacity == 0 && loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeStrategyHashSet<KType>(this.strategy);
+
+        } else if (loadFactor == HashContainers.DEFAULT_LOAD_FACTOR) {
+
+            return new KTypeStrategyHashSet<KType>(initialCapacity, this.strategy);
+        }
+
+        //generic case
+        return new KTypeStrategyHashSet<KType>(initialCapacity, loadFactor, this.strategy);
+    }
+
+    @Override
+    protected KType[] getKeys(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+
+        return Intrinsics.<KType[]> cast(concreteClass.keys);
+    }
+
+    @Override
+    protected boolean isAllocatedDefaultKey(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+        return concreteClass.allocatedDefaultKey;
+    }
+
+    @Override
+    protected KTypeSet<KType> getClone(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+        return concreteClass.clone();
+    }
+
+    @Override
+    protected KTypeSet<KType> getFrom(final KTypeContainer<KType> container) {
+
+        return KTypeStrategyHashSet.from(container, this.strategy);
+    }
+
+    @Override
+    protected KTypeSet<KType> getFrom(final KType... elements) {
+
+        return KTypeStrategyHashSet.from(this.strategy, elements);
+    }
+
+    @Override
+    protected KTypeSet<KType> getFromArray(final KType[] keys) {
+
+        return KTypeStrategyHashSet.from(this.strategy, keys);
+    }
+
+    @Override
+    protected void addFromArray(final KTypeSet<KType> testSet, final KType... keys) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+
+        for (final KType key : keys) {
+
+            concreteClass.add(key);
+        }
+    }
+
+    @Override
+    protected KTypeSet<KType> getCopyConstructor(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+
+        return new KTypeStrategyHashSet<KType>(concreteClass, this.strategy);
+    }
+
+    @Override
+    protected int getEntryPoolSize(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+        return concreteClass.entryIteratorPool.size();
+    }
+
+    @Override
+    protected int getEntryPoolCapacity(final KTypeSet<KType> testSet) {
+        final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (testSet);
+        return concreteClass.entryIteratorPool.capacity();
+    }
+
+    //////////////////////////////////////
+    /// Implementation-specific tests
+    /////////////////////////////////////
+
+    /**
+     * Every key must be reachable from its ideal slot, as hashed by the strategy, without crossing an empty slot.
+     */
+    @After
+    public void checkStrategyLayout() {
+
+        if (this.set != null) {
+
+            final KTypeStrategyHashSet<KType> concreteClass = (KTypeStrategyHashSet<KType>) (this.set);
+
+            final KType[] keys = Intrinsics.<KType[]> cast(concreteClass.keys);
+            final int mask = keys.length - 1;
+
+            for (int slot = 0; slot < keys.length; slot++) {
+
+                if (!Intrinsics.<KType> isEmpty(keys[slot])) {
+
+                    for (int i = concreteClass.hashingStrategy.computeHashCode(keys[slot], concreteClass.perturbation) & mask; i != slot; i = (i + 1) & mask) {
+
+                        Assert.assertFalse("empty slot " + i + " before slot " + slot, Intrinsics.<KType> isEmpty(keys[i]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullStrategy() {
+
+        try {
+
+            new KTypeStrategyHashSet<KType>(null);
+            Assert.fail();
+
+        } catch (final IllegalArgumentException e) {
+
+            //expected
+        }
+    }
+
+    @Test
+    public void testHashingStrategies() throws IOException
+    {
+        final int[] nbCalls = new int[1];
+
+        final KTypeHashingStrategy<KType> identity = new KTypeIdentityHashingStrategy<KType>();
+
+        //counting strategy, to check that it is actually used
+        final KTypeHashingStrategy<KType> counting = new KTypeHashingStrategy<KType>() {
+
+            @Override
+            public int computeHashCode(final KType key, final int seed) {
+
+                nbCalls[0]++;
+                return identity.computeHashCode(key, seed);
+            }
+        };
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int i = 1; i <= 3000; i++) {
+            reference.add(cast(i * 7));
+        }
+
+        reference.add(this.keyE);
+
+        final java.util.List<KTypeHashingStrategy<KType>> strategies = new java.util.ArrayList<KTypeHashingStrategy<KType>>();
+        strategies.add(new KTypeBitMixerHashingStrategy<KType>());
+        strategies.add(new KTypePhiMixHashingStrategy<KType>());
+        strategies.add(identity);
+        strategies.add(counting);
+
+        for (final KTypeHashingStrategy<KType> strategy : strategies) {
+
+            final KTypeStrategyHashSet<KType> testSet = new KTypeStrategyHashSet<KType>(strategy);
+
+            Assert.assertSame(strategy, testSet.getHashingStrategy());
+
+            testSet.addAll(reference);
+            assertSameKeys(reference, testSet);
+
+            //the clone keeps the strategy
+            final KTypeStrategyHashSet<KType> cloned = testSet.clone();
+            Assert.assertSame(strategy, cloned.getHashingStrategy());
+            Assert.assertEquals(testSet, cloned);
+
+            final KTypeHashSet<KType> expected = reference.clone();
+
+            for (int i = 1; i <= 3000; i += 2) {
+                Assert.assertEquals(expected.remove(cast(i * 7)), cloned.remove(cast(i * 7)));
+            }
+
+            assertSameKeys(expected, cloned);
+
+            //the strategy is not serialized: the read set is a plain one, still equal.
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            testSet.writeTo(new DataOutputStream(bytes), true);
+
+            final KTypeHashSet<KType> read = KTypeHashSet.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            Assert.assertEquals(KTypeHashSet.class, read.getClass());
+            Assert.assertEquals(reference, read);
+        }
+
+        Assert.assertTrue(nbCalls[0] > 0);
+    }
+
+    /**
+     * Bulk operations between sets of the same layout, or of different strategies.
+     */
+    @Test
+    public void testSetAlgebraAcrossStrategies() {
+
+        final KTypeStrategyHashSet<KType> testSet = new KTypeStrategyHashSet<KType>(this.strategy);
+
+        for (int i = 1; i < 100; i++) {
+
+            testSet.add(cast(i));
+        }
+
+        final KTypeStrategyHashSet<KType> sameLayout = KTypeStrategyHashSet.newInstanceLike(testSet);
+        final KTypeStrategyHashSet<KType> otherStrategy = new KTypeStrategyHashSet<KType>(new KTypeIdentityHashingStrategy<KType>());
+
+        Assert.assertSame(this.strategy, sameLayout.getHashingStrategy());
+
+        for (int i = 4; i <= 100; i += 3) {
+
+            sameLayout.add(cast(i));
+            otherStrategy.add(cast(i));
+        }
+
+        Assert.assertEquals(32, testSet.intersectionSize(sameLayout));
+        Assert.assertEquals(32, testSet.intersectionSize(otherStrategy));
+
+        final KTypeStrategyHashSet<KType> union = testSet.clone();
+        Assert.assertEquals(1, union.addAll(otherStrategy));
+        Assert.assertEquals(100, union.size());
+
+        Assert.assertEquals(33, union.removeAll(sameLayout));
+        Assert.assertEquals(67, union.size());
+
+        for (int i = 1; i <= 100; i++) {
+
+            Assert.assertEquals(i % 3 != 1 || i == 1, union.contains(cast(i)));
+        }
+    }
+
+    /**
+     * The sets of different classes are never equal, so compare their keys.
+     */
+    private void assertSameKeys(final KTypeHashSet<KType> expected, final KTypeHashSet<KType> actual) {
+
+        Assert.assertEquals(expected.size(), actual.size());
+
+        for (final KTypeCursor<KType> c : expected) {
+
+            Assert.assertTrue(actual.contains(c.value));
+        }
+    }
+
+    /**
+     * Random operations at the max load factor, checked against a regular KTypeHashSet, through several growths.
+     */
+    @Test
+    public void testAgainstHashSet()
+    {
+        final Random rnd = new Random(0x11223344L);
+
+        final KTypeHashSet<KType> reference = new KTypeHashSet<KType>();
+
+        for (int round = 0; round < 50000; round++) {
+
+            final KType key = cast(rnd.nextInt(round / 5 + 10));
+
+            final int op = rnd.nextInt(10);
+
+            if (op < 6) {
+
+                Assert.assertEquals(reference.add(key), this.set.add(key));
+
+            } else if (op < 8) {
+
+                Assert.assertEquals(reference.remove(key), this.set.remove(key));
+
+            } else {
+
+                Assert.assertEquals(reference.contains(key), this.set.contains(key));
+            }
+
+            Assert.assertEquals(reference.size(), this.set.size());
+        }
+
+        //check content
+        for (final KTypeCursor<KType> c : reference) {
+
+            Assert.assertTrue(this.set.contains(c.value));
+        }
+    }
+}
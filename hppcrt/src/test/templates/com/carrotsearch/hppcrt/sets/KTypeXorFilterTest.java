@@ -0,0 +1,81 @@
+package com.carrotsearch.hppcrt.sets;
+
+import org.junit.*;
+
+import com.carrotsearch.hppcrt.*;
+import com.carrotsearch.hppcrt.lists.*;
+
+/*! #import("com/carrotsearch/hppcrt/Intrinsics.java") !*/
+/*! ${TemplateOptions.doNotGenerateKType("Object")} !*/
+/**
+ * Tests for {@link KTypeXorFilter}.
+ */
+/*! ${TemplateOptions.generatedAnnotation} !*/
+public class KTypeXorFilterTest<KType> extends AbstractKTypeTest<KType>
+{
+    @BeforeClass
+    public static void primitiveOnly() {
+
+        assumeKTypePrimitive();
+    }
+
+    @Test
+    public void testEmpty() {
+
+        final KTypeXorFilter<KType> filter = KTypeXorFilter.from(Intrinsics.<KType> newArray(0));
+
+        Assert.assertTrue(filter.isEmpty());
+
+        for (int i = 0; i < 100; i++) {
+
+            Assert.assertFalse(filter.mightContain(cast(i)));
+        }
+    }
+
+    @Test
+    public void testNoFalseNegatives() {
+
+        //odd keys in, even keys out, with duplicates
+        final KTypeArrayList<KType> list = KTypeArrayList.newInstance();
+
+        for (int i = 1; i < 100; i += 2) {
+
+            list.add(cast(i));
+            list.add(cast(i));
+        }
+
+        final KTypeXorFilter<KType> filter = KTypeXorFilter.from(list);
+
+        Assert.assertEquals(50, filter.size());
+
+        int falsePositives = 0;
+
+        for (int i = 0; i < 100; i++) {
+
+            if (i % 2 == 1) {
+
+                Assert.assertTrue(filter.mightContain(cast(i)));
+
+            } else if (filter.mightContain(cast(i))) {
+
+                falsePositives++;
+            }
+        }
+
+        //1 / 256 expected
+        Assert.assertTrue("falsePositives = " + falsePositives, falsePositives <= 3);
+    }
+
+    @Test
+    public void testFromRange() {
+
+        final KType[] keys = asArray(1, 2, 3, 4, 5, 6);
+
+        final KTypeXorFilter<KType> filter = KTypeXorFilter.from(keys, 2, 3);
+
+        Assert.assertEquals(3, filter.size());
+        Assert.assertTrue(filter.mightContain(this.key3));
+        Assert.assertTrue(filter.mightContain(this.key4));
+        Assert.assertTrue(filter.mightContain(this.key5));
+    }
+}